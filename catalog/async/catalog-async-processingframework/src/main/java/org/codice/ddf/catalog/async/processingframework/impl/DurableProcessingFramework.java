@@ -0,0 +1,816 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.async.processingframework.impl;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.types.Core;
+import ddf.catalog.operation.ResourceResponse;
+import ddf.catalog.operation.impl.ResourceRequestById;
+import ddf.catalog.plugin.PluginExecutionException;
+import ddf.catalog.resource.Resource;
+import ddf.catalog.resource.ResourceNotFoundException;
+import ddf.catalog.resource.ResourceNotSupportedException;
+import ddf.security.SecurityConstants;
+import ddf.security.Subject;
+import ddf.security.SubjectUtils;
+import ddf.security.common.audit.SecurityLogger;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import org.apache.commons.lang3.StringUtils;
+import org.codice.ddf.catalog.async.data.api.internal.InaccessibleResourceException;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessCreateItem;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessDeleteItem;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessItem;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessRequest;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessResource;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessUpdateItem;
+import org.codice.ddf.catalog.async.data.impl.LazyProcessResourceImpl;
+import org.codice.ddf.catalog.async.data.impl.ProcessCreateItemImpl;
+import org.codice.ddf.catalog.async.data.impl.ProcessDeleteItemImpl;
+import org.codice.ddf.catalog.async.data.impl.ProcessRequestImpl;
+import org.codice.ddf.catalog.async.data.impl.ProcessUpdateItemImpl;
+import org.codice.ddf.catalog.async.plugin.api.internal.PostProcessPlugin;
+import org.codice.ddf.catalog.async.processingframework.api.internal.ProcessingFramework;
+import org.codice.ddf.catalog.async.processingframework.impl.JournaledProcessRequest.Item;
+import org.codice.ddf.catalog.async.processingframework.impl.JournaledProcessRequest.Operation;
+import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
+import org.codice.ddf.security.common.Security;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code DurableProcessingFramework} writes every submitted request to a {@link
+ * ProcessingJournal} before handing it to a fixed number of worker threads, so that requests that
+ * were not processed when the system stopped are processed after it restarts.
+ *
+ * <p>Up to {@code bufferSize} waiting requests are kept in memory as they were submitted, with
+ * their subjects. When the buffer is full, submitting a request waits until a worker takes one from
+ * it. Requests recovered from the journal are read back when a worker is ready for them. Only the
+ * name of a subject is written to the journal, and a subject can't be rebuilt from its name without
+ * its credentials, so recovered requests are processed as the system subject. Recovering a request
+ * of any other subject is written to the security audit log with the name of that subject. The
+ * resources of recovered requests are fetched again from the {@link CatalogFramework}. Recovered
+ * requests taken while no plugins are bound are processed once plugins are bound. A request is
+ * acknowledged in the journal only after its changes have been stored, so a request may be
+ * processed more than once but is not lost. Requests whose changes cannot be stored are retried a
+ * few times with an increasing delay, and are then left in the journal to be processed again after
+ * a restart.
+ *
+ * <p>The number of workers running a particular {@link PostProcessPlugin} at the same time can be
+ * limited with {@link #setPluginParallelism(List)}. As with the {@link
+ * InMemoryProcessingFramework}, results override the metadata in the catalog.
+ */
+public class DurableProcessingFramework
+    implements ProcessingFramework, DurableProcessingFrameworkMBean {
+
+  public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DurableProcessingFramework.class);
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+  private static final int MAX_STORE_ATTEMPTS = 5;
+
+  private static final long DEFAULT_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  private static final long PLUGIN_CHECK_MILLIS = 1000;
+
+  private final ProcessRequestStorage storage;
+
+  private final CatalogFramework catalogFramework;
+
+  private final ProcessingJournal journal;
+
+  private final int workerThreads;
+
+  private final BlockingQueue<Long> ready = new LinkedBlockingQueue<>();
+
+  private final Map<Long, PendingRequest> buffered = new ConcurrentHashMap<>();
+
+  /** Guards adding to {@link #buffered}, and is notified when a request is taken from it. */
+  private final Object bufferLock = new Object();
+
+  /** Requests taken by a worker while no plugins were bound. */
+  private final Queue<Long> deferred = new ConcurrentLinkedQueue<>();
+
+  /** Journaled requests whose changes could not be stored, waiting to be retried. */
+  private final Map<Long, Retry> retries = new ConcurrentHashMap<>();
+
+  /** Sequence numbers for requests that could not be journaled, counting down from -1. */
+  private final AtomicLong unjournaledSequence = new AtomicLong();
+
+  private final LongAdder completed = new LongAdder();
+
+  private final LongAdder failed = new LongAdder();
+
+  private final LongAdder totalLatencyMillis = new LongAdder();
+
+  private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+  private volatile Map<String, Semaphore> pluginPermits = Collections.emptyMap();
+
+  private volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+
+  private volatile boolean journalAvailable;
+
+  private volatile boolean running;
+
+  private volatile long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+
+  private Supplier<Subject> systemSubjectSupplier = DurableProcessingFramework::getSystemSubject;
+
+  private ExecutorService workers;
+
+  private ScheduledExecutorService scheduler;
+
+  private List<PostProcessPlugin> postProcessPlugins;
+
+  /**
+   * @param catalogFramework framework processed requests are stored to
+   * @param journalDirectory directory holding the journal
+   * @param workerThreads number of threads processing requests
+   */
+  public DurableProcessingFramework(
+      CatalogFramework catalogFramework, String journalDirectory, int workerThreads) {
+    this(
+        catalogFramework,
+        new ProcessingJournal(
+            Paths.get(notNull(journalDirectory, "The journal directory must not be null")),
+            ProcessingJournal.DEFAULT_SEGMENT_SIZE),
+        workerThreads);
+  }
+
+  DurableProcessingFramework(
+      CatalogFramework catalogFramework, ProcessingJournal journal, int workerThreads) {
+    notNull(catalogFramework, "The catalog framework must not be null");
+    notNull(journal, "The journal must not be null");
+    if (workerThreads < 1) {
+      throw new IllegalArgumentException("The number of worker threads must be positive.");
+    }
+
+    this.catalogFramework = catalogFramework;
+    this.storage = new ProcessRequestStorage(catalogFramework);
+    this.journal = journal;
+    this.workerThreads = workerThreads;
+  }
+
+  /** Recovers unprocessed requests from the journal and starts the workers. */
+  public void init() {
+    try {
+      ready.addAll(journal.open());
+      journalAvailable = true;
+    } catch (IOException e) {
+      LOGGER.warn(
+          "Unable to open the post processing journal. Requests will be lost on restart.", e);
+    }
+
+    running = true;
+    workers =
+        Executors.newFixedThreadPool(
+            workerThreads,
+            StandardThreadFactoryBuilder.newThreadFactory("catalogAsyncProcessingThread"));
+    for (int i = 0; i < workerThreads; i++) {
+      workers.execute(this::processRequests);
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            StandardThreadFactoryBuilder.newThreadFactory("catalogAsyncProcessingSchedulerThread"));
+    scheduler.scheduleWithFixedDelay(
+        this::requeueDeferredIfPluginsBound,
+        PLUGIN_CHECK_MILLIS,
+        PLUGIN_CHECK_MILLIS,
+        TimeUnit.MILLISECONDS);
+    registerMBean();
+  }
+
+  /**
+   * Stops the workers. Requests that have not been processed stay in the journal and are processed
+   * after the next {@link #init()}.
+   */
+  public void cleanUp() {
+    LOGGER.debug("Stopping post processing workers.");
+    running = false;
+    synchronized (bufferLock) {
+      bufferLock.notifyAll();
+    }
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    if (workers != null) {
+      workers.shutdownNow();
+      try {
+        if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+          LOGGER.debug("Post processing workers did not terminate.");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    long unjournaled = buffered.keySet().stream().filter(sequence -> sequence < 0).count();
+    if (unjournaled > 0) {
+      LOGGER.info("Dropping {} post processing requests that were not journaled.", unjournaled);
+    }
+    buffered.clear();
+    ready.clear();
+    deferred.clear();
+    retries.clear();
+
+    try {
+      journal.close();
+    } catch (IOException e) {
+      LOGGER.debug("Unable to close the post processing journal.", e);
+    }
+    unregisterMBean();
+  }
+
+  @Override
+  public void submitCreate(ProcessRequest<ProcessCreateItem> input) {
+    submit(Operation.CREATE, input);
+  }
+
+  @Override
+  public void submitUpdate(ProcessRequest<ProcessUpdateItem> input) {
+    submit(Operation.UPDATE, input);
+  }
+
+  @Override
+  public void submitDelete(ProcessRequest<ProcessDeleteItem> input) {
+    submit(Operation.DELETE, input);
+  }
+
+  public void setPostProcessPlugins(List<PostProcessPlugin> postProcessPlugins) {
+    this.postProcessPlugins = postProcessPlugins;
+  }
+
+  /**
+   * @param bufferSize maximum number of waiting requests held in memory; submitting a request waits
+   *     while the buffer is full
+   */
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = Math.max(1, bufferSize);
+  }
+
+  /**
+   * @param pluginParallelism entries of the form {@code <plugin class name>=<threads>} limiting how
+   *     many workers may run that plugin at once; plugins without an entry are not limited
+   */
+  public void setPluginParallelism(List<String> pluginParallelism) {
+    Map<String, Semaphore> permits = new HashMap<>();
+    if (pluginParallelism != null) {
+      for (String entry : pluginParallelism) {
+        String className = StringUtils.trim(StringUtils.substringBefore(entry, "="));
+        String threads = StringUtils.trim(StringUtils.substringAfter(entry, "="));
+        try {
+          int limit = Integer.parseInt(threads);
+          if (StringUtils.isEmpty(className) || limit < 1) {
+            throw new NumberFormatException();
+          }
+          permits.put(className, new Semaphore(limit, true));
+        } catch (NumberFormatException e) {
+          LOGGER.info("Ignoring invalid post process plugin parallelism entry \"{}\".", entry);
+        }
+      }
+    }
+    this.pluginPermits = permits;
+  }
+
+  @VisibleForTesting
+  void setRetryDelayMillis(long retryDelayMillis) {
+    this.retryDelayMillis = retryDelayMillis;
+  }
+
+  @VisibleForTesting
+  void setSystemSubjectSupplier(Supplier<Subject> systemSubjectSupplier) {
+    this.systemSubjectSupplier = systemSubjectSupplier;
+  }
+
+  public void registerMBean() {
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = new ObjectName(OBJECT_NAME);
+      StandardMBean mbean = new StandardMBean(this, DurableProcessingFrameworkMBean.class);
+      try {
+        mbeanServer.registerMBean(mbean, objectName);
+      } catch (InstanceAlreadyExistsException e) {
+        LOGGER.debug("Re-registering post processing MBean");
+        mbeanServer.unregisterMBean(objectName);
+        mbeanServer.registerMBean(mbean, objectName);
+      }
+    } catch (JMException e) {
+      LOGGER.debug("Could not register post processing MBean.", e);
+    }
+  }
+
+  public void unregisterMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+    } catch (InstanceNotFoundException | MalformedObjectNameException e) {
+      LOGGER.debug("Post processing MBean was not registered.", e);
+    } catch (JMException e) {
+      LOGGER.debug("Could not unregister post processing MBean.", e);
+    }
+  }
+
+  @Override
+  public int getBacklog() {
+    return ready.size() + deferred.size();
+  }
+
+  @Override
+  public int getBufferedRequests() {
+    return buffered.size();
+  }
+
+  @Override
+  public int getJournaledRequests() {
+    return journal.getPendingCount();
+  }
+
+  @Override
+  public long getJournalSize() {
+    return journal.getSize();
+  }
+
+  @Override
+  public long getCompletedRequests() {
+    return completed.sum();
+  }
+
+  @Override
+  public long getFailedRequests() {
+    return failed.sum();
+  }
+
+  @Override
+  public double getMeanLatencyMillis() {
+    long count = completed.sum();
+    return count == 0 ? 0 : totalLatencyMillis.sum() / (double) count;
+  }
+
+  @Override
+  public long getMaxLatencyMillis() {
+    return maxLatencyMillis.get();
+  }
+
+  private void submit(Operation operation, ProcessRequest<? extends ProcessItem> request) {
+    if (postProcessPlugins == null || postProcessPlugins.isEmpty()) {
+      LOGGER.debug("postProcessPlugins is empty. Not submitting post process request");
+      return;
+    }
+
+    requeueDeferred();
+
+    long submitted = System.currentTimeMillis();
+    long sequence = append(operation, request, submitted);
+    buffer(sequence, new PendingRequest(operation, request, submitted));
+    ready.add(sequence);
+  }
+
+  /**
+   * Waits for room in the buffer, so that the request keeps its subject instead of being read back
+   * from the journal without it.
+   */
+  private void buffer(long sequence, PendingRequest pending) {
+    synchronized (bufferLock) {
+      while (running && buffered.size() >= bufferSize) {
+        LOGGER.trace("Post processing buffer is full, request {} is waiting", sequence);
+        try {
+          bufferLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      buffered.put(sequence, pending);
+    }
+  }
+
+  private PendingRequest takeBuffered(long sequence) {
+    PendingRequest pending = buffered.remove(sequence);
+    if (pending != null) {
+      synchronized (bufferLock) {
+        bufferLock.notifyAll();
+      }
+    }
+    return pending;
+  }
+
+  private long append(
+      Operation operation, ProcessRequest<? extends ProcessItem> request, long submitted) {
+    if (journalAvailable) {
+      try {
+        return journal.append(JournaledProcessRequest.of(operation, request, submitted).toBytes());
+      } catch (IOException | RuntimeException e) {
+        LOGGER.debug("Unable to journal post process request. Processing it in memory.", e);
+      }
+    }
+    return unjournaledSequence.decrementAndGet();
+  }
+
+  private void requeueDeferredIfPluginsBound() {
+    List<PostProcessPlugin> plugins = postProcessPlugins;
+    if (plugins != null && !plugins.isEmpty()) {
+      requeueDeferred();
+    }
+  }
+
+  private void requeueDeferred() {
+    Long sequence;
+    while ((sequence = deferred.poll()) != null) {
+      ready.add(sequence);
+    }
+  }
+
+  private void processRequests() {
+    while (running) {
+      long sequence;
+      try {
+        sequence = ready.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      try {
+        process(sequence);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        failed.increment();
+        LOGGER.info("Unable to process post process request {}.", sequence, e);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void process(long sequence) throws InterruptedException {
+    PendingRequest pending = takeBuffered(sequence);
+    boolean wasBuffered = pending != null;
+    if (!wasBuffered) {
+      pending = load(sequence);
+      if (pending == null) {
+        return;
+      }
+    }
+
+    List<PostProcessPlugin> plugins = postProcessPlugins;
+    if (plugins == null || plugins.isEmpty()) {
+      LOGGER.debug("postProcessPlugins is empty. Deferring post process request {}", sequence);
+      if (wasBuffered) {
+        buffered.put(sequence, pending);
+      }
+      deferred.add(sequence);
+      return;
+    }
+
+    boolean stored = true;
+    switch (pending.operation) {
+      case CREATE:
+        ProcessRequest<ProcessCreateItem> createRequest =
+            runPlugins(
+                plugins,
+                (ProcessRequest<ProcessCreateItem>) pending.request,
+                PostProcessPlugin::processCreate);
+        stored = storage.storeProcessRequest(createRequest);
+        storage.closeInputStream(createRequest);
+        break;
+      case UPDATE:
+        ProcessRequest<ProcessUpdateItem> updateRequest =
+            runPlugins(
+                plugins,
+                (ProcessRequest<ProcessUpdateItem>) pending.request,
+                PostProcessPlugin::processUpdate);
+        stored = storage.storeProcessRequest(updateRequest);
+        storage.closeInputStream(updateRequest);
+        break;
+      default:
+        runPlugins(
+            plugins,
+            (ProcessRequest<ProcessDeleteItem>) pending.request,
+            PostProcessPlugin::processDelete);
+    }
+
+    if (!stored) {
+      retryLater(sequence, pending);
+      return;
+    }
+
+    retries.remove(sequence);
+    acknowledge(sequence);
+    long latency = Math.max(0, System.currentTimeMillis() - pending.submitted);
+    completed.increment();
+    totalLatencyMillis.add(latency);
+    maxLatencyMillis.accumulateAndGet(latency, Math::max);
+  }
+
+  private <T extends ProcessItem> ProcessRequest<T> runPlugins(
+      List<PostProcessPlugin> plugins, ProcessRequest<T> input, PluginCall<T> call)
+      throws InterruptedException {
+    ProcessRequest<T> request = input;
+    Map<String, Semaphore> permits = pluginPermits;
+
+    for (PostProcessPlugin plugin : plugins) {
+      Semaphore semaphore = permits.get(plugin.getClass().getName());
+      if (semaphore != null) {
+        semaphore.acquire();
+      }
+
+      try {
+        request = call.process(plugin, request);
+      } catch (PluginExecutionException e) {
+        LOGGER.debug(
+            "Unable to process request through plugin: {}",
+            plugin.getClass().getCanonicalName(),
+            e);
+      } catch (InaccessibleResourceException e) {
+        LOGGER.debug(
+            "Unable to process request. The resource is not available. Failing the request.", e);
+      } finally {
+        if (semaphore != null) {
+          semaphore.release();
+        }
+      }
+    }
+
+    return request;
+  }
+
+  /**
+   * Reads a journaled request back from the journal after a delay that doubles with each attempt,
+   * keeping the subject it was processed as. Requests that were not journaled cannot be read back
+   * and are dropped.
+   */
+  private void retryLater(long sequence, PendingRequest pending) {
+    if (sequence < 0) {
+      failed.increment();
+      LOGGER.info(
+          "Unable to store post process request {}. It was not journaled and will not be retried.",
+          sequence);
+      return;
+    }
+
+    Serializable subject = pending.request.getProperties().get(SecurityConstants.SECURITY_SUBJECT);
+    Retry retry =
+        retries.computeIfAbsent(
+            sequence, key -> new Retry(subject instanceof Subject ? (Subject) subject : null));
+    retry.attempts++;
+    if (retry.attempts >= MAX_STORE_ATTEMPTS) {
+      retries.remove(sequence);
+      failed.increment();
+      LOGGER.info(
+          "Unable to store post process request {} after {} attempts. Leaving it in the journal.",
+          sequence,
+          retry.attempts);
+      return;
+    }
+
+    long delay = retryDelayMillis << (retry.attempts - 1);
+    LOGGER.debug("Unable to store post process request {}. Retrying in {} ms.", sequence, delay);
+    try {
+      scheduler.schedule(() -> ready.add(sequence), delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Not retrying post process request {} while stopping.", sequence, e);
+    }
+  }
+
+  private void acknowledge(long sequence) {
+    if (sequence < 0) {
+      return;
+    }
+
+    try {
+      journal.acknowledge(sequence);
+    } catch (IOException e) {
+      LOGGER.debug(
+          "Unable to acknowledge post process request {}. It will be processed after a restart.",
+          sequence,
+          e);
+    }
+  }
+
+  private PendingRequest load(long sequence) {
+    JournaledProcessRequest journaled;
+    try {
+      byte[] payload = journal.read(sequence);
+      if (payload == null) {
+        LOGGER.debug("Post process request {} is no longer in the journal.", sequence);
+        return null;
+      }
+      journaled = JournaledProcessRequest.fromBytes(payload);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.info(
+          "Unable to read post process request {} from the journal. Discarding it.", sequence, e);
+      failed.increment();
+      acknowledge(sequence);
+      return null;
+    }
+
+    Retry retry = retries.get(sequence);
+    Subject subject;
+    if (retry != null) {
+      subject = retry.subject;
+    } else if (journaled.getSubjectName() == null) {
+      subject = null;
+    } else {
+      subject = getRecoverySubject(journaled.getSubjectName(), sequence);
+      if (subject == null) {
+        LOGGER.info(
+            "Unable to get the system subject to process post process request {}. "
+                + "Leaving it in the journal.",
+            sequence);
+        failed.increment();
+        return null;
+      }
+    }
+
+    Map<String, Serializable> properties = journaled.getProperties();
+    if (subject != null) {
+      properties.put(SecurityConstants.SECURITY_SUBJECT, subject);
+    }
+
+    List<ProcessItem> items = new ArrayList<>();
+    for (Item item : journaled.getItems()) {
+      ProcessResource resource =
+          item.hasResource() ? getProcessResource(item.getMetacard(), subject) : null;
+      switch (journaled.getOperation()) {
+        case CREATE:
+          items.add(new ProcessCreateItemImpl(resource, item.getMetacard(), false));
+          break;
+        case UPDATE:
+          items.add(
+              new ProcessUpdateItemImpl(
+                  resource, item.getMetacard(), item.getOldMetacard(), false));
+          break;
+        default:
+          items.add(new ProcessDeleteItemImpl(item.getMetacard()));
+      }
+    }
+
+    return new PendingRequest(
+        journaled.getOperation(),
+        new ProcessRequestImpl<>(items, properties),
+        journaled.getSubmitted());
+  }
+
+  private ProcessResource getProcessResource(Metacard metacard, Subject subject) {
+    if (subject == null) {
+      LOGGER.debug("No available subject to fetch metacard resource. Returning null");
+      return null;
+    }
+
+    LazyProcessResourceImpl processResource =
+        new LazyProcessResourceImpl(metacard.getId(), getResourceSupplier(metacard, subject));
+
+    Attribute size = metacard.getAttribute(Core.RESOURCE_SIZE);
+    if (size != null && size.getValue() instanceof String) {
+      try {
+        processResource.setSize(Long.parseLong((String) size.getValue()));
+      } catch (NumberFormatException e) {
+        LOGGER.debug("Invalid resource size {} for metacard {}", size.getValue(), metacard.getId());
+      }
+    }
+
+    Attribute uri = metacard.getAttribute(Core.RESOURCE_URI);
+    if (uri != null && uri.getValue() instanceof String) {
+      try {
+        processResource.setUri(new URI((String) uri.getValue()));
+      } catch (URISyntaxException e) {
+        LOGGER.debug("Invalid resource URI {} for metacard {}", uri.getValue(), metacard.getId());
+      }
+    }
+
+    return processResource;
+  }
+
+  private Supplier<Resource> getResourceSupplier(Metacard metacard, Subject subject) {
+    return () ->
+        subject.execute(
+            () -> {
+              try {
+                ResourceResponse response =
+                    catalogFramework.getResource(
+                        new ResourceRequestById(metacard.getId()), metacard.getSourceId());
+                return response.getResource();
+              } catch (IOException
+                  | ResourceNotFoundException
+                  | ResourceNotSupportedException
+                  | RuntimeException e) {
+                LOGGER.debug(
+                    "Unable to get resource id:{}, sourceId:{}. Returning null",
+                    metacard.getId(),
+                    metacard.getSourceId(),
+                    e);
+              }
+              return null;
+            });
+  }
+
+  /**
+   * @param subjectName name of the subject that submitted the request
+   * @return the system subject, which recovered requests are processed as, or null if it is not
+   *     available
+   */
+  private Subject getRecoverySubject(String subjectName, long sequence) {
+    Subject systemSubject;
+    try {
+      systemSubject = systemSubjectSupplier.get();
+    } catch (RuntimeException e) {
+      LOGGER.debug("Unable to get the system subject.", e);
+      return null;
+    }
+
+    if (systemSubject != null && !subjectName.equals(SubjectUtils.getName(systemSubject))) {
+      SecurityLogger.audit(
+          "Processing post process request {} recovered from the journal as the system subject "
+              + "on behalf of {}",
+          systemSubject,
+          sequence,
+          subjectName);
+    }
+    return systemSubject;
+  }
+
+  private static Subject getSystemSubject() {
+    Security security = Security.getInstance();
+    return security.runAsAdmin(security::getSystemSubject);
+  }
+
+  @FunctionalInterface
+  private interface PluginCall<T extends ProcessItem> {
+    ProcessRequest<T> process(PostProcessPlugin plugin, ProcessRequest<T> request)
+        throws PluginExecutionException;
+  }
+
+  private static class Retry {
+    private final Subject subject;
+
+    private int attempts;
+
+    Retry(Subject subject) {
+      this.subject = subject;
+    }
+  }
+
+  private static class PendingRequest {
+    private final Operation operation;
+
+    private final ProcessRequest<? extends ProcessItem> request;
+
+    private final long submitted;
+
+    PendingRequest(
+        Operation operation, ProcessRequest<? extends ProcessItem> request, long submitted) {
+      this.operation = operation;
+      this.request = request;
+      this.submitted = submitted;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.async.processingframework.impl;
+
+/** Metrics for the journal-backed post processing framework. */
+public interface DurableProcessingFrameworkMBean {
+
+  String OBJECT_NAME = "org.codice.ddf.catalog.async:service=processing-framework";
+
+  /** @return the number of requests waiting for a worker */
+  int getBacklog();
+
+  /** @return the number of waiting requests that are held in memory */
+  int getBufferedRequests();
+
+  /** @return the number of requests in the journal that have not been processed */
+  int getJournaledRequests();
+
+  /** @return the number of bytes used by the journal */
+  long getJournalSize();
+
+  /** @return the number of requests processed since startup */
+  long getCompletedRequests();
+
+  /** @return the number of requests that failed and will be retried after a restart */
+  long getFailedRequests();
+
+  /** @return the mean time, in milliseconds, from a request being submitted to being stored */
+  double getMeanLatencyMillis();
+
+  /** @return the longest time, in milliseconds, from a request being submitted to being stored */
+  long getMaxLatencyMillis();
+}
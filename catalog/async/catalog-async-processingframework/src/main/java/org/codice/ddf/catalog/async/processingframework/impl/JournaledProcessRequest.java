@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.async.processingframework.impl;
+
+import com.google.common.io.ByteStreams;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.security.SecurityConstants;
+import ddf.security.Subject;
+import ddf.security.SubjectUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessCreateItem;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessDeleteItem;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessItem;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessRequest;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessResourceItem;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessUpdateItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The part of a {@link ProcessRequest} that is written to the {@link ProcessingJournal}.
+ *
+ * <p>Metacards are copied into {@link MetacardImpl}s so they can be read back by this bundle.
+ * Resources are not written; only whether an item had one is kept so that it can be fetched again
+ * from the catalog. The request's subject is replaced by its name, so that it can be resolved again
+ * when the request is read back, and any other property that cannot be serialized is left out.
+ */
+class JournaledProcessRequest implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JournaledProcessRequest.class);
+
+  enum Operation {
+    CREATE,
+    UPDATE,
+    DELETE
+  }
+
+  private final Operation operation;
+
+  private final long submitted;
+
+  private final String subjectName;
+
+  private final ArrayList<Item> items;
+
+  private final HashMap<String, Serializable> properties;
+
+  private JournaledProcessRequest(
+      Operation operation,
+      long submitted,
+      String subjectName,
+      ArrayList<Item> items,
+      HashMap<String, Serializable> properties) {
+    this.operation = operation;
+    this.submitted = submitted;
+    this.subjectName = subjectName;
+    this.items = items;
+    this.properties = properties;
+  }
+
+  static JournaledProcessRequest of(
+      Operation operation, ProcessRequest<? extends ProcessItem> request, long submitted) {
+    ArrayList<Item> items = new ArrayList<>();
+    for (ProcessItem item : request.getProcessItems()) {
+      Metacard oldMetacard =
+          item instanceof ProcessUpdateItem ? ((ProcessUpdateItem) item).getOldMetacard() : null;
+      boolean hasResource =
+          item instanceof ProcessResourceItem
+              && ((ProcessResourceItem) item).getProcessResource() != null;
+      items.add(new Item(copy(item.getMetacard()), copy(oldMetacard), hasResource));
+    }
+
+    Map<String, Serializable> properties = request.getProperties();
+    Serializable subject =
+        properties == null ? null : properties.get(SecurityConstants.SECURITY_SUBJECT);
+    String subjectName =
+        subject instanceof Subject ? SubjectUtils.getName((Subject) subject) : null;
+
+    return new JournaledProcessRequest(
+        operation, submitted, subjectName, items, serializableProperties(properties));
+  }
+
+  static JournaledProcessRequest fromBytes(byte[] bytes) throws IOException {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return (JournaledProcessRequest) input.readObject();
+    } catch (ClassNotFoundException | ClassCastException e) {
+      throw new IOException("Unable to read journaled process request.", e);
+    }
+  }
+
+  byte[] toBytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(this);
+    }
+    return bytes.toByteArray();
+  }
+
+  Operation getOperation() {
+    return operation;
+  }
+
+  /** @return when the request was submitted, from {@link System#currentTimeMillis()} */
+  long getSubmitted() {
+    return submitted;
+  }
+
+  /** @return the name of the subject that submitted the request, or {@code null} if it had none */
+  String getSubjectName() {
+    return subjectName;
+  }
+
+  List<Item> getItems() {
+    return items;
+  }
+
+  /** @return a copy of the journaled properties, without a subject */
+  Map<String, Serializable> getProperties() {
+    return new HashMap<>(properties);
+  }
+
+  /**
+   * Checks each property on its own so that one value that cannot be serialized does not prevent
+   * the whole request from being journaled.
+   */
+  private static HashMap<String, Serializable> serializableProperties(
+      Map<String, Serializable> properties) {
+    HashMap<String, Serializable> serializable = new HashMap<>();
+    if (properties == null) {
+      return serializable;
+    }
+
+    properties.forEach(
+        (key, value) -> {
+          if (SecurityConstants.SECURITY_SUBJECT.equals(key)) {
+            return;
+          }
+
+          try (ObjectOutputStream output = new ObjectOutputStream(ByteStreams.nullOutputStream())) {
+            output.writeObject(value);
+            serializable.put(key, value);
+          } catch (IOException e) {
+            LOGGER.debug("Not journaling process request property {}", key, e);
+          }
+        });
+    return serializable;
+  }
+
+  private static Metacard copy(Metacard metacard) {
+    if (metacard == null || metacard.getClass() == MetacardImpl.class) {
+      return metacard;
+    }
+    return new MetacardImpl(metacard, metacard.getMetacardType());
+  }
+
+  /**
+   * A journaled {@link ProcessCreateItem}, {@link ProcessUpdateItem} or {@link ProcessDeleteItem}.
+   */
+  static class Item implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Metacard metacard;
+
+    private final Metacard oldMetacard;
+
+    private final boolean hasResource;
+
+    Item(Metacard metacard, Metacard oldMetacard, boolean hasResource) {
+      this.metacard = metacard;
+      this.oldMetacard = oldMetacard;
+      this.hasResource = hasResource;
+    }
+
+    Metacard getMetacard() {
+      return metacard;
+    }
+
+    /** @return the metacard before an update, or {@code null} for creates and deletes */
+    Metacard getOldMetacard() {
+      return oldMetacard;
+    }
+
+    boolean hasResource() {
+      return hasResource;
+    }
+  }
+}
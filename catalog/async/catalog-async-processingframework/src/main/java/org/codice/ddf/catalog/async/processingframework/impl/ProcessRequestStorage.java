@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.async.processingframework.impl;
+
+import com.google.common.io.ByteSource;
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.content.data.ContentItem;
+import ddf.catalog.content.data.impl.ContentItemImpl;
+import ddf.catalog.content.operation.UpdateStorageRequest;
+import ddf.catalog.content.operation.impl.UpdateStorageRequestImpl;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.operation.UpdateRequest;
+import ddf.catalog.operation.impl.UpdateRequestImpl;
+import ddf.catalog.source.IngestException;
+import ddf.catalog.source.SourceUnavailableException;
+import ddf.security.SecurityConstants;
+import ddf.security.Subject;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.io.IOUtils;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessRequest;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessResource;
+import org.codice.ddf.catalog.async.data.api.internal.ProcessResourceItem;
+import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the changes made to a processed {@link ProcessRequest} back to the {@link CatalogFramework}
+ * as the subject of the request, and releases the request's resources.
+ */
+class ProcessRequestStorage {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProcessRequestStorage.class);
+
+  private final CatalogFramework catalogFramework;
+
+  ProcessRequestStorage(CatalogFramework catalogFramework) {
+    this.catalogFramework = catalogFramework;
+  }
+
+  <T extends ProcessResourceItem> void closeInputStream(ProcessRequest<T> request) {
+    request
+        .getProcessItems()
+        .stream()
+        .map(ProcessResourceItem::getProcessResource)
+        .filter(Objects::nonNull)
+        .forEach(ProcessResource::close);
+  }
+
+  /**
+   * @return {@code true} if all of the changes were sent back to the catalog, {@code false} if any
+   *     of them could not be
+   */
+  <T extends ProcessResourceItem> boolean storeProcessRequest(ProcessRequest<T> processRequest) {
+    LOGGER.trace("Storing update request post processing change(s)");
+
+    boolean stored = true;
+    Map<String, ContentItem> contentItemsToUpdate = new HashMap<>();
+    Map<String, Metacard> metacardsToUpdate = new HashMap<>();
+    List<TemporaryFileBackedOutputStream> tfbosToCleanUp = new ArrayList<>();
+
+    for (T item : processRequest.getProcessItems()) {
+      final ProcessResource processResource = item.getProcessResource();
+      if ((processResource == null || !processResource.isModified()) && item.isMetacardModified()) {
+        metacardsToUpdate.put(item.getMetacard().getId(), item.getMetacard());
+      }
+
+      TemporaryFileBackedOutputStream tfbos = null;
+      if (processResource != null
+          && processResource.isModified()
+          && !contentItemsToUpdate.containsKey(
+              getContentItemKey(item.getMetacard(), processResource))) {
+        try {
+          tfbos = new TemporaryFileBackedOutputStream();
+          long numberOfBytes = IOUtils.copyLarge(processResource.getInputStream(), tfbos);
+          LOGGER.debug("Copied {} bytes to TemporaryFileBackedOutputStream.", numberOfBytes);
+          ByteSource byteSource = tfbos.asByteSource();
+
+          ContentItem contentItem =
+              new ContentItemImpl(
+                  item.getMetacard().getId(),
+                  processResource.getQualifier(),
+                  byteSource,
+                  processResource.getMimeType(),
+                  processResource.getName(),
+                  processResource.getSize(),
+                  item.getMetacard());
+
+          contentItemsToUpdate.put(
+              getContentItemKey(item.getMetacard(), processResource), contentItem);
+          tfbosToCleanUp.add(tfbos);
+        } catch (IOException | RuntimeException e) {
+          LOGGER.debug("Unable to store process request", e);
+          stored = false;
+          if (tfbos != null) {
+            close(tfbos);
+          }
+        }
+      }
+    }
+
+    stored &= storeContentItemUpdates(contentItemsToUpdate, processRequest.getProperties());
+    stored &= storeMetacardUpdates(metacardsToUpdate, processRequest.getProperties());
+    closeTfbos(tfbosToCleanUp);
+    return stored;
+  }
+
+  private boolean storeContentItemUpdates(
+      Map<String, ContentItem> contentItemsToUpdate, Map<String, Serializable> properties) {
+    if (MapUtils.isNotEmpty(contentItemsToUpdate)) {
+      LOGGER.trace("Storing content item updates(s)");
+
+      UpdateStorageRequest updateStorageRequest =
+          new UpdateStorageRequestImpl(new ArrayList<>(contentItemsToUpdate.values()), properties);
+
+      Subject subject =
+          (Subject) updateStorageRequest.getProperties().get(SecurityConstants.SECURITY_SUBJECT);
+      if (subject == null) {
+        LOGGER.debug(
+            "No subject to send UpdateStorageRequest. Updates will not be sent back to the catalog");
+      } else {
+        return subject.execute(
+            () -> {
+              try {
+                catalogFramework.update(updateStorageRequest);
+                LOGGER.debug("Successfully completed update storage request");
+                return true;
+              } catch (IngestException | SourceUnavailableException | RuntimeException e) {
+                LOGGER.info("Unable to complete update storage request", e);
+                return false;
+              }
+            });
+      }
+    } else {
+      LOGGER.debug("No content items to update");
+    }
+    return true;
+  }
+
+  private boolean storeMetacardUpdates(
+      Map<String, Metacard> metacardsToUpdate, Map<String, Serializable> properties) {
+    if (MapUtils.isNotEmpty(metacardsToUpdate)) {
+      LOGGER.trace("Storing metacard updates");
+
+      List<Map.Entry<Serializable, Metacard>> updateList =
+          metacardsToUpdate
+              .values()
+              .stream()
+              .map(
+                  metacard ->
+                      new AbstractMap.SimpleEntry<Serializable, Metacard>(
+                          metacard.getId(), metacard))
+              .collect(Collectors.toList());
+
+      UpdateRequest updateMetacardsRequest =
+          new UpdateRequestImpl(updateList, UpdateRequest.UPDATE_BY_ID, properties);
+
+      Subject subject =
+          (Subject) updateMetacardsRequest.getProperties().get(SecurityConstants.SECURITY_SUBJECT);
+
+      if (subject == null) {
+        LOGGER.debug(
+            "No subject to send UpdateRequest. Updates will not be sent back to the catalog.");
+      } else {
+        return subject.execute(
+            () -> {
+              try {
+                catalogFramework.update(updateMetacardsRequest);
+                LOGGER.debug("Successfully completed update metacards request");
+                return true;
+              } catch (IngestException | SourceUnavailableException | RuntimeException e) {
+                LOGGER.info("Unable to complete update request", e);
+                return false;
+              }
+            });
+      }
+    } else {
+      LOGGER.debug("No metacards to update");
+    }
+    return true;
+  }
+
+  private void closeTfbos(List<TemporaryFileBackedOutputStream> tfbosToCleanUp) {
+    tfbosToCleanUp.forEach(this::close);
+  }
+
+  private void close(TemporaryFileBackedOutputStream tfbos) {
+    try {
+      tfbos.close();
+    } catch (IOException e) {
+      LOGGER.debug("Failed to cleanup temporary file.");
+    }
+  }
+
+  private String getContentItemKey(Metacard metacard, ProcessResource processResource) {
+    return metacard.getId() + processResource.getQualifier();
+  }
+}
@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.async.processingframework.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of processing jobs, written to numbered segment files in a directory.
+ *
+ * <p>Each record is {@code [length][type][sequence][payload][crc32]}, where the type marks either a
+ * job or the acknowledgement of a job. Records are forced to disk before {@link #append(byte[])} or
+ * {@link #acknowledge(long)} return. When the journal is opened, a torn or corrupt record at the
+ * end of a segment is truncated, and every job without an acknowledgement is pending again. A
+ * segment is deleted once it is no longer being written and all of its jobs are acknowledged.
+ */
+class ProcessingJournal implements Closeable {
+
+  static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingJournal.class);
+
+  private static final String SEGMENT_PREFIX = "journal-";
+
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private static final byte JOB = 1;
+
+  private static final byte ACK = 2;
+
+  /** Record length, type and sequence number. */
+  private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES;
+
+  private static final int CHECKSUM_SIZE = Integer.BYTES;
+
+  private final Path directory;
+
+  private final long segmentSize;
+
+  private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+  private final Map<Long, Location> pending = new HashMap<>();
+
+  private Segment current;
+
+  private long nextSequence = 1;
+
+  private boolean open;
+
+  /**
+   * @param directory directory holding the segment files, created if it does not exist
+   * @param segmentSize size in bytes after which a new segment is started
+   */
+  ProcessingJournal(Path directory, long segmentSize) {
+    if (segmentSize < 1) {
+      throw new IllegalArgumentException("Processing journal segment size must be positive.");
+    }
+
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Reads the existing segments and prepares the journal for writing.
+   *
+   * @return the sequence numbers of jobs that were never acknowledged, in the order they were
+   *     appended
+   * @throws IOException if the journal directory or one of its segments cannot be read
+   */
+  synchronized List<Long> open() throws IOException {
+    Files.createDirectories(directory);
+
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        Long index = getSegmentIndex(file);
+        if (index != null) {
+          segments.put(index, new Segment(file, index));
+        }
+      }
+    }
+
+    for (Segment segment : segments.values()) {
+      recover(segment);
+    }
+
+    if (segments.isEmpty()) {
+      roll();
+    } else {
+      current = segments.lastEntry().getValue();
+    }
+    open = true;
+    deleteAcknowledgedSegments();
+
+    List<Long> recovered = new ArrayList<>(pending.keySet());
+    recovered.sort(Long::compare);
+    LOGGER.debug("Recovered {} unacknowledged processing jobs in {}", recovered.size(), directory);
+    return recovered;
+  }
+
+  /**
+   * Durably records a job.
+   *
+   * @param payload serialized job
+   * @return the sequence number used to read and acknowledge the job
+   * @throws IOException if the job could not be written
+   */
+  synchronized long append(byte[] payload) throws IOException {
+    ensureOpen();
+    rollIfFull();
+
+    long sequence = nextSequence++;
+    long position = write(JOB, sequence, payload);
+    pending.put(sequence, new Location(current, position, payload.length));
+    current.outstanding++;
+    return sequence;
+  }
+
+  /**
+   * Durably records that a job has been processed. Acknowledging a job that is not pending does
+   * nothing.
+   *
+   * @param sequence sequence number returned by {@link #append(byte[])}
+   * @throws IOException if the acknowledgement could not be written
+   */
+  synchronized void acknowledge(long sequence) throws IOException {
+    ensureOpen();
+    if (!pending.containsKey(sequence)) {
+      return;
+    }
+
+    rollIfFull();
+    write(ACK, sequence, new byte[0]);
+    pending.remove(sequence).segment.outstanding--;
+    deleteAcknowledgedSegments();
+  }
+
+  /**
+   * @param sequence sequence number returned by {@link #append(byte[])}
+   * @return the payload of the pending job, or {@code null} if the job is not pending
+   * @throws IOException if the job could not be read
+   */
+  byte[] read(long sequence) throws IOException {
+    Location location;
+    synchronized (this) {
+      ensureOpen();
+      location = pending.get(sequence);
+    }
+
+    if (location == null) {
+      return null;
+    }
+
+    // a segment is only deleted once all of its jobs are acknowledged, so the channel stays open
+    ByteBuffer payload = ByteBuffer.allocate(location.length);
+    readFully(location.segment.channel, payload, location.position + HEADER_SIZE);
+    return payload.array();
+  }
+
+  /** @return the number of jobs that have not been acknowledged */
+  synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  /** @return the number of bytes used by all segments */
+  synchronized long getSize() {
+    return segments.values().stream().mapToLong(segment -> segment.size).sum();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    open = false;
+    IOException failure = null;
+    for (Segment segment : segments.values()) {
+      try {
+        segment.channel.close();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    segments.clear();
+    pending.clear();
+    current = null;
+
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void recover(Segment segment) throws IOException {
+    long fileSize = segment.channel.size();
+    long position = 0;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+    while (position + HEADER_SIZE + CHECKSUM_SIZE <= fileSize) {
+      header.clear();
+      readFully(segment.channel, header, position);
+      header.flip();
+      int length = header.getInt();
+      byte type = header.get();
+      long sequence = header.getLong();
+
+      long recordSize = (long) HEADER_SIZE + length + CHECKSUM_SIZE;
+      if (length < 0 || (type != JOB && type != ACK) || position + recordSize > fileSize) {
+        break;
+      }
+
+      ByteBuffer body = ByteBuffer.allocate(length + CHECKSUM_SIZE);
+      readFully(segment.channel, body, position + HEADER_SIZE);
+      body.flip();
+      if (checksum(type, sequence, body.array(), length) != body.getInt(length)) {
+        break;
+      }
+
+      if (type == JOB) {
+        pending.put(sequence, new Location(segment, position, length));
+        segment.outstanding++;
+      } else {
+        Location location = pending.remove(sequence);
+        if (location != null) {
+          location.segment.outstanding--;
+        }
+      }
+      nextSequence = Math.max(nextSequence, sequence + 1);
+      position += recordSize;
+    }
+
+    if (position < fileSize) {
+      LOGGER.info(
+          "Truncating {} bytes of incomplete processing journal records from {}",
+          fileSize - position,
+          segment.file);
+      segment.channel.truncate(position);
+      segment.channel.force(true);
+    }
+    segment.size = position;
+  }
+
+  private long write(byte type, long sequence, byte[] payload) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length + CHECKSUM_SIZE);
+    record.putInt(payload.length);
+    record.put(type);
+    record.putLong(sequence);
+    record.put(payload);
+    record.putInt(checksum(type, sequence, payload, payload.length));
+    record.flip();
+
+    long position = current.size;
+    while (record.hasRemaining()) {
+      current.channel.write(record, position + record.position());
+    }
+    current.channel.force(false);
+    current.size += record.limit();
+    return position;
+  }
+
+  private void rollIfFull() throws IOException {
+    if (current.size >= segmentSize) {
+      roll();
+    }
+  }
+
+  private void roll() throws IOException {
+    long index = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+    Path file =
+        directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    Segment segment = new Segment(file, index);
+    segments.put(index, segment);
+    current = segment;
+  }
+
+  private void deleteAcknowledgedSegments() {
+    while (segments.size() > 1) {
+      Segment oldest = segments.firstEntry().getValue();
+      if (oldest == current || oldest.outstanding > 0) {
+        return;
+      }
+
+      segments.remove(oldest.index);
+      try {
+        oldest.channel.close();
+        Files.deleteIfExists(oldest.file);
+      } catch (IOException e) {
+        LOGGER.debug("Unable to delete processing journal segment {}", oldest.file, e);
+      }
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (!open) {
+      throw new IOException("Processing journal " + directory + " is not open.");
+    }
+  }
+
+  private static int checksum(byte type, long sequence, byte[] payload, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(ByteBuffer.allocate(Byte.BYTES + Long.BYTES).put(type).putLong(sequence).array());
+    crc.update(payload, 0, length);
+    return (int) crc.getValue();
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of processing journal segment.");
+      }
+    }
+  }
+
+  private static Long getSegmentIndex(Path file) {
+    String name = file.getFileName().toString();
+    try {
+      return Long.parseLong(
+          name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      LOGGER.debug("Ignoring unexpected file {} in the processing journal", file);
+      return null;
+    }
+  }
+
+  private static class Segment {
+    private final Path file;
+
+    private final long index;
+
+    private final FileChannel channel;
+
+    private long size;
+
+    /** Number of jobs in this segment that have not been acknowledged. */
+    private int outstanding;
+
+    Segment(Path file, long index) throws IOException {
+      this.file = file;
+      this.index = index;
+      this.channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+  }
+
+  private static class Location {
+    private final Segment segment;
+
+    private final long position;
+
+    private final int length;
+
+    Location(Segment segment, long position, int length) {
+      this.segment = segment;
+      this.position = position;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,563 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.async.processingframework.impl
+
+import ddf.catalog.CatalogFramework
+import ddf.catalog.data.impl.MetacardImpl
+import ddf.catalog.operation.UpdateRequest
+import ddf.catalog.plugin.PluginExecutionException
+import ddf.catalog.source.IngestException
+import ddf.security.SecurityConstants
+import ddf.security.Subject
+import org.codice.ddf.catalog.async.data.api.internal.InaccessibleResourceException
+import org.codice.ddf.catalog.async.data.api.internal.ProcessCreateItem
+import org.codice.ddf.catalog.async.data.api.internal.ProcessRequest
+import org.codice.ddf.catalog.async.data.api.internal.ProcessResource
+import org.codice.ddf.catalog.async.data.impl.LazyProcessResourceImpl
+import org.codice.ddf.catalog.async.data.impl.ProcessCreateItemImpl
+import org.codice.ddf.catalog.async.data.impl.ProcessDeleteItemImpl
+import org.codice.ddf.catalog.async.data.impl.ProcessRequestImpl
+import org.codice.ddf.catalog.async.data.impl.ProcessUpdateItemImpl
+import org.codice.ddf.catalog.async.plugin.api.internal.PostProcessPlugin
+import org.codice.ddf.catalog.async.processingframework.impl.JournaledProcessRequest.Operation
+import org.apache.shiro.subject.SimplePrincipalCollection
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import javax.management.ObjectName
+import java.lang.management.ManagementFactory
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.concurrent.Callable
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+class DurableProcessingFrameworkSpec extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    CatalogFramework catalogFramework = Mock(CatalogFramework)
+
+    Subject subject = Mock(Subject) {
+        execute(_ as Callable) >> { Callable callable -> callable.call() }
+        getPrincipals() >> new SimplePrincipalCollection('user', 'realm')
+    }
+
+    Subject systemSubject = Mock(Subject) {
+        execute(_ as Callable) >> { Callable callable -> callable.call() }
+        getPrincipals() >> new SimplePrincipalCollection('system', 'realm')
+    }
+
+    PollingConditions conditions = new PollingConditions(timeout: 10)
+
+    Path directory
+
+    ProcessingJournal journal
+
+    DurableProcessingFramework durableProcessingFramework
+
+    def setup() {
+        directory = temporaryFolder.newFolder('journal').toPath()
+        durableProcessingFramework = createFramework(1)
+    }
+
+    def cleanup() {
+        durableProcessingFramework.cleanUp()
+    }
+
+    def 'test construct with invalid arguments'(CatalogFramework catalogFramework, ProcessingJournal journal, int workerThreads, Class exception) {
+        when:
+        new DurableProcessingFramework(catalogFramework, journal, workerThreads)
+
+        then:
+        thrown(exception)
+
+        where:
+        catalogFramework       | journal           | workerThreads || exception
+        null                   | unopenedJournal() | 1             || NullPointerException
+        Mock(CatalogFramework) | null              | 1             || NullPointerException
+        Mock(CatalogFramework) | unopenedJournal() | 0             || IllegalArgumentException
+    }
+
+    def 'test submit with no postProcessPlugins'(List<PostProcessPlugin> postProcessPlugins) {
+        given:
+        durableProcessingFramework.setPostProcessPlugins(postProcessPlugins)
+        durableProcessingFramework.init()
+
+        when:
+        durableProcessingFramework.submitCreate(createRequest('id'))
+
+        then:
+        durableProcessingFramework.journaledRequests == 0
+        durableProcessingFramework.backlog == 0
+        0 * catalogFramework._
+
+        where:
+        postProcessPlugins << [null, []]
+    }
+
+    def 'test submitCreate stores the processed request as the requesting subject'() {
+        given:
+        def subjects = new CopyOnWriteArrayList()
+        def plugin = Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest<ProcessCreateItem> request ->
+                subjects << request.properties[SecurityConstants.SECURITY_SUBJECT]
+                request.processItems.each { it.markMetacardAsModified() }
+                return request
+            }
+        }
+        def updates = new CopyOnWriteArrayList()
+        catalogFramework.update(_ as UpdateRequest) >> { UpdateRequest request ->
+            updates << request
+            return null
+        }
+        durableProcessingFramework.setPostProcessPlugins([plugin])
+        durableProcessingFramework.init()
+
+        when:
+        durableProcessingFramework.submitCreate(createRequest('id'))
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 1
+        }
+        updates.size() == 1
+        updates[0].updates[0].value.id == 'id'
+        subjects == [subject]
+        durableProcessingFramework.journaledRequests == 0
+        durableProcessingFramework.backlog == 0
+        durableProcessingFramework.bufferedRequests == 0
+        durableProcessingFramework.journalSize > 0
+        durableProcessingFramework.meanLatencyMillis >= 0
+        durableProcessingFramework.maxLatencyMillis >= 0
+    }
+
+    def 'test submitUpdate and submitDelete run the plugins'() {
+        given:
+        def operations = new CopyOnWriteArrayList()
+        def plugin = Mock(PostProcessPlugin) {
+            processUpdate(_) >> { ProcessRequest request ->
+                operations << 'update'
+                return request
+            }
+            processDelete(_) >> { ProcessRequest request ->
+                operations << 'delete'
+                return request
+            }
+        }
+        durableProcessingFramework.setPostProcessPlugins([plugin])
+        durableProcessingFramework.init()
+
+        when:
+        durableProcessingFramework.submitUpdate(new ProcessRequestImpl(
+                [new ProcessUpdateItemImpl(null, metacard('new'), metacard('old'), false)],
+                [(SecurityConstants.SECURITY_SUBJECT): subject]))
+        durableProcessingFramework.submitDelete(new ProcessRequestImpl(
+                [new ProcessDeleteItemImpl(metacard('deleted'))], [:]))
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 2
+        }
+        operations == ['update', 'delete']
+        0 * catalogFramework.update(_)
+    }
+
+    def 'test a failing plugin does not stop the remaining plugins'() {
+        given:
+        def ran = new AtomicInteger()
+        def plugin1 = Mock(PostProcessPlugin) {
+            processCreate(_) >> { throw new PluginExecutionException() }
+        }
+        def plugin2 = Mock(PostProcessPlugin) {
+            processCreate(_) >> { throw new InaccessibleResourceException('unavailable') }
+        }
+        def plugin3 = Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request ->
+                ran.incrementAndGet()
+                return request
+            }
+        }
+        durableProcessingFramework.setPostProcessPlugins([plugin1, plugin2, plugin3])
+        durableProcessingFramework.init()
+
+        when:
+        durableProcessingFramework.submitCreate(createRequest('id'))
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 1
+        }
+        ran.get() == 1
+        durableProcessingFramework.journaledRequests == 0
+    }
+
+    def 'test requests that cannot be stored are retried as the requesting subject'() {
+        given:
+        def subjects = new CopyOnWriteArrayList()
+        def plugin = Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest<ProcessCreateItem> request ->
+                subjects << request.properties[SecurityConstants.SECURITY_SUBJECT]
+                request.processItems.each { it.markMetacardAsModified() }
+                return request
+            }
+        }
+        def attempts = new AtomicInteger()
+        catalogFramework.update(_ as UpdateRequest) >> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IngestException('unavailable')
+            }
+            return null
+        }
+        durableProcessingFramework.setRetryDelayMillis(10)
+        durableProcessingFramework.setPostProcessPlugins([plugin])
+        durableProcessingFramework.init()
+
+        when:
+        durableProcessingFramework.submitCreate(createRequest('id'))
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 1
+        }
+        attempts.get() == 3
+        subjects == [subject, subject, subject]
+        durableProcessingFramework.failedRequests == 0
+        durableProcessingFramework.journaledRequests == 0
+    }
+
+    def 'test requests that still cannot be stored are left in the journal'() {
+        given:
+        def attempts = new AtomicInteger()
+        def plugin = Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest<ProcessCreateItem> request ->
+                request.processItems.each { it.markMetacardAsModified() }
+                return request
+            }
+        }
+        catalogFramework.update(_ as UpdateRequest) >> {
+            attempts.incrementAndGet()
+            throw new IngestException('unavailable')
+        }
+        durableProcessingFramework.setRetryDelayMillis(1)
+        durableProcessingFramework.setPostProcessPlugins([plugin])
+        durableProcessingFramework.init()
+
+        when:
+        durableProcessingFramework.submitCreate(createRequest('id'))
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.failedRequests == 1
+        }
+        attempts.get() == 5
+        durableProcessingFramework.completedRequests == 0
+        durableProcessingFramework.journaledRequests == 1
+    }
+
+    def 'test recovered system requests are processed as the system subject'() {
+        given:
+        def metacard = metacard('id')
+        metacard.setResourceURI(new URI('content:id'))
+        metacard.setResourceSize('10')
+        journal.open()
+        journal.append(JournaledProcessRequest.of(Operation.CREATE, new ProcessRequestImpl<ProcessCreateItem>(
+                [new ProcessCreateItemImpl(Mock(ProcessResource), metacard, false)],
+                [(SecurityConstants.SECURITY_SUBJECT): systemSubject, serializable: 'value', other: new Object()]),
+                System.currentTimeMillis()).toBytes())
+        journal.close()
+
+        durableProcessingFramework = createFramework(1)
+        def requests = new CopyOnWriteArrayList()
+        durableProcessingFramework.setPostProcessPlugins([Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request ->
+                requests << request
+                return request
+            }
+        }])
+
+        when:
+        durableProcessingFramework.init()
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 1
+        }
+        requests[0].processItems[0].metacard.id == 'id'
+        requests[0].properties[SecurityConstants.SECURITY_SUBJECT] == systemSubject
+        requests[0].properties.serializable == 'value'
+        !requests[0].properties.containsKey('other')
+        durableProcessingFramework.journaledRequests == 0
+
+        def processResource = requests[0].processItems[0].processResource
+        processResource instanceof LazyProcessResourceImpl
+        processResource.uri == new URI('content:id')
+        processResource.size == 10
+    }
+
+    def 'test recovered user requests are processed as the system subject after a restart'() {
+        given:
+        def release = new CountDownLatch(1)
+        durableProcessingFramework.setPostProcessPlugins([Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request ->
+                release.await()
+                return request
+            }
+        }])
+        durableProcessingFramework.init()
+        durableProcessingFramework.submitCreate(createRequest('id'))
+        durableProcessingFramework.cleanUp()
+
+        durableProcessingFramework = createFramework(1)
+        def requests = new CopyOnWriteArrayList()
+        durableProcessingFramework.setPostProcessPlugins([Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request ->
+                requests << request
+                return request
+            }
+        }])
+
+        when:
+        durableProcessingFramework.init()
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 1
+        }
+        requests.size() == 1
+        requests[0].processItems[0].metacard.id == 'id'
+        requests[0].properties[SecurityConstants.SECURITY_SUBJECT] == systemSubject
+        durableProcessingFramework.failedRequests == 0
+        durableProcessingFramework.journaledRequests == 0
+    }
+
+    def 'test recovered requests stay in the journal when the system subject is not available'() {
+        given:
+        journal.open()
+        journal.append(JournaledProcessRequest.of(
+                Operation.CREATE, createRequest('id'), System.currentTimeMillis()).toBytes())
+        journal.close()
+
+        durableProcessingFramework = createFramework(1)
+        durableProcessingFramework.setSystemSubjectSupplier({ null })
+        def plugin = Mock(PostProcessPlugin)
+        durableProcessingFramework.setPostProcessPlugins([plugin])
+
+        when:
+        durableProcessingFramework.init()
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.failedRequests == 1
+        }
+        durableProcessingFramework.completedRequests == 0
+        durableProcessingFramework.journaledRequests == 1
+        0 * plugin._
+        0 * catalogFramework._
+    }
+
+    def 'test submitting waits while the buffer is full'() {
+        given:
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def subjects = new CopyOnWriteArrayList()
+        durableProcessingFramework.setBufferSize(1)
+        durableProcessingFramework.setPostProcessPlugins([Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request ->
+                subjects << request.properties[SecurityConstants.SECURITY_SUBJECT]
+                started.countDown()
+                release.await()
+                return request
+            }
+        }])
+        durableProcessingFramework.init()
+        durableProcessingFramework.submitCreate(createRequest('id1'))
+        started.await()
+        durableProcessingFramework.submitCreate(createRequest('id2'))
+
+        when:
+        def submitter = Thread.start { durableProcessingFramework.submitCreate(createRequest('id3')) }
+
+        then:
+        conditions.eventually {
+            assert submitter.state == Thread.State.WAITING
+        }
+        durableProcessingFramework.bufferedRequests == 1
+
+        when:
+        release.countDown()
+        submitter.join()
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 3
+        }
+        subjects == [subject, subject, subject]
+        durableProcessingFramework.journaledRequests == 0
+    }
+
+    def 'test recovered requests wait for plugins to be bound'() {
+        given:
+        journal.open()
+        journal.append(JournaledProcessRequest.of(
+                Operation.DELETE, createRequest('recovered', systemSubject),
+                System.currentTimeMillis()).toBytes())
+        journal.close()
+
+        durableProcessingFramework = createFramework(1)
+        def plugins = []
+        durableProcessingFramework.setPostProcessPlugins(plugins)
+        def deleted = new CopyOnWriteArrayList()
+        def plugin = Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request -> request }
+            processDelete(_) >> { ProcessRequest request ->
+                deleted << request.processItems[0].metacard.id
+                return request
+            }
+        }
+
+        when:
+        durableProcessingFramework.init()
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.backlog == 1
+            assert durableProcessingFramework.journaledRequests == 1
+        }
+        durableProcessingFramework.completedRequests == 0
+
+        when:
+        plugins << plugin
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 1
+        }
+        deleted == ['recovered']
+        durableProcessingFramework.journaledRequests == 0
+    }
+
+    def 'test plugin parallelism limits concurrent runs of a plugin'() {
+        given:
+        durableProcessingFramework = createFramework(4)
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+        def plugin = Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request ->
+                maxRunning.accumulateAndGet(running.incrementAndGet(), { int a, int b -> Math.max(a, b) })
+                Thread.sleep(50)
+                running.decrementAndGet()
+                return request
+            }
+        }
+        durableProcessingFramework.setPostProcessPlugins([plugin])
+        durableProcessingFramework.setPluginParallelism(
+                ["${plugin.class.name}=1".toString(), 'invalid', 'other=0', 'other=x'])
+        durableProcessingFramework.init()
+
+        when:
+        (1..4).each { durableProcessingFramework.submitCreate(createRequest("id$it")) }
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 4
+        }
+        maxRunning.get() == 1
+    }
+
+    def 'test requests are processed in memory when the journal cannot be opened'() {
+        given:
+        def file = temporaryFolder.newFile('not-a-directory').toPath()
+        journal = new ProcessingJournal(file, ProcessingJournal.DEFAULT_SEGMENT_SIZE)
+        durableProcessingFramework = new DurableProcessingFramework(catalogFramework, journal, 1)
+        def plugin = Mock(PostProcessPlugin) {
+            processCreate(_) >> { ProcessRequest request -> request }
+        }
+        durableProcessingFramework.setPostProcessPlugins([plugin])
+        durableProcessingFramework.init()
+
+        when:
+        durableProcessingFramework.submitCreate(createRequest('id'))
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.completedRequests == 1
+        }
+        durableProcessingFramework.journaledRequests == 0
+    }
+
+    def 'test unreadable journaled requests are discarded'() {
+        given:
+        journal.open()
+        journal.append('not a request'.bytes)
+        journal.close()
+
+        durableProcessingFramework = createFramework(1)
+        durableProcessingFramework.setPostProcessPlugins([Mock(PostProcessPlugin)])
+
+        when:
+        durableProcessingFramework.init()
+
+        then:
+        conditions.eventually {
+            assert durableProcessingFramework.failedRequests == 1
+            assert durableProcessingFramework.journaledRequests == 0
+        }
+        durableProcessingFramework.completedRequests == 0
+    }
+
+    def 'test MBean is registered while running'() {
+        given:
+        def objectName = new ObjectName(DurableProcessingFrameworkMBean.OBJECT_NAME)
+
+        when:
+        durableProcessingFramework.init()
+
+        then:
+        ManagementFactory.platformMBeanServer.isRegistered(objectName)
+
+        when:
+        durableProcessingFramework.cleanUp()
+
+        then:
+        !ManagementFactory.platformMBeanServer.isRegistered(objectName)
+    }
+
+    private DurableProcessingFramework createFramework(int workerThreads) {
+        journal = new ProcessingJournal(directory, ProcessingJournal.DEFAULT_SEGMENT_SIZE)
+        def framework = new DurableProcessingFramework(catalogFramework, journal, workerThreads)
+        framework.setSystemSubjectSupplier({ systemSubject })
+        return framework
+    }
+
+    private static ProcessingJournal unopenedJournal() {
+        return new ProcessingJournal(Paths.get('journal'), ProcessingJournal.DEFAULT_SEGMENT_SIZE)
+    }
+
+    private ProcessRequest<ProcessCreateItem> createRequest(String id, Subject requestSubject = subject) {
+        return new ProcessRequestImpl<ProcessCreateItem>(
+                [new ProcessCreateItemImpl(null, metacard(id), false)],
+                [(SecurityConstants.SECURITY_SUBJECT): requestSubject])
+    }
+
+    private static MetacardImpl metacard(String id) {
+        def metacard = new MetacardImpl()
+        metacard.setId(id)
+        return metacard
+    }
+}
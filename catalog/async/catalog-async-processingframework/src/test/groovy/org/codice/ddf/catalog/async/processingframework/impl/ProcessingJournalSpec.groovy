@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.async.processingframework.impl
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+class ProcessingJournalSpec extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    Path directory
+
+    ProcessingJournal journal
+
+    def setup() {
+        directory = temporaryFolder.newFolder('journal').toPath()
+        journal = new ProcessingJournal(directory, 1024)
+        journal.open()
+    }
+
+    def cleanup() {
+        journal.close()
+    }
+
+    def 'test construct with invalid segment size'() {
+        when:
+        new ProcessingJournal(directory, 0)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def 'test appended jobs can be read until acknowledged'() {
+        when:
+        def first = journal.append('first'.bytes)
+        def second = journal.append('second'.bytes)
+
+        then:
+        second > first
+        new String(journal.read(first)) == 'first'
+        new String(journal.read(second)) == 'second'
+        journal.pendingCount == 2
+
+        when:
+        journal.acknowledge(first)
+
+        then:
+        journal.read(first) == null
+        journal.pendingCount == 1
+    }
+
+    def 'test acknowledging an unknown job does nothing'() {
+        given:
+        def size = journal.size
+
+        when:
+        journal.acknowledge(42)
+
+        then:
+        journal.size == size
+    }
+
+    def 'test unacknowledged jobs are recovered when reopened'() {
+        given:
+        def first = journal.append('first'.bytes)
+        def second = journal.append('second'.bytes)
+        def third = journal.append('third'.bytes)
+        journal.acknowledge(second)
+        journal.close()
+
+        when:
+        journal = new ProcessingJournal(directory, 1024)
+        def recovered = journal.open()
+
+        then:
+        recovered == [first, third]
+        new String(journal.read(third)) == 'third'
+        journal.append('fourth'.bytes) > third
+    }
+
+    def 'test incomplete record at the end of a segment is truncated'() {
+        given:
+        def first = journal.append('first'.bytes)
+        journal.close()
+        def segment = Files.list(directory).findFirst().get()
+        def size = Files.size(segment)
+        Files.write(segment, [0, 0, 0, 9, 1, 0] as byte[], StandardOpenOption.APPEND)
+
+        when:
+        journal = new ProcessingJournal(directory, 1024)
+        def recovered = journal.open()
+
+        then:
+        recovered == [first]
+        Files.size(segment) == size
+    }
+
+    def 'test corrupt record is truncated'() {
+        given:
+        def first = journal.append('first'.bytes)
+        journal.append('second'.bytes)
+        journal.close()
+        def segment = Files.list(directory).findFirst().get()
+        def bytes = Files.readAllBytes(segment)
+        bytes[bytes.length - 6] = (byte) (bytes[bytes.length - 6] ^ 0xFF)
+        Files.write(segment, bytes)
+
+        when:
+        journal = new ProcessingJournal(directory, 1024)
+
+        then:
+        journal.open() == [first]
+    }
+
+    def 'test acknowledged segments are deleted'() {
+        given:
+        journal.close()
+        journal = new ProcessingJournal(directory, 64)
+        journal.open()
+
+        when:
+        def sequences = (1..10).collect { journal.append(new byte[32]) }
+
+        then:
+        Files.list(directory).count() > 1
+
+        when:
+        sequences.each { journal.acknowledge(it) }
+        journal.acknowledge(journal.append(new byte[32]))
+
+        then:
+        Files.list(directory).count() == 1
+        journal.pendingCount == 0
+    }
+
+    def 'test segment holding an unacknowledged job is kept'() {
+        given:
+        journal.close()
+        journal = new ProcessingJournal(directory, 64)
+        journal.open()
+        def first = journal.append(new byte[32])
+        def rest = (1..5).collect { journal.append(new byte[32]) }
+
+        when:
+        rest.each { journal.acknowledge(it) }
+        journal.close()
+        journal = new ProcessingJournal(directory, 64)
+
+        then:
+        journal.open() == [first]
+    }
+
+    def 'test unexpected files are ignored'() {
+        given:
+        journal.close()
+        Files.write(directory.resolve('journal-abc.log'), 'junk'.bytes)
+
+        when:
+        journal = new ProcessingJournal(directory, 1024)
+
+        then:
+        journal.open() == []
+    }
+
+    def 'test closed journal cannot be used'() {
+        given:
+        journal.close()
+
+        when:
+        journal.append('first'.bytes)
+
+        then:
+        thrown(IOException)
+
+        when:
+        journal.read(1)
+
+        then:
+        thrown(IOException)
+    }
+}
@@ -14,6 +14,8 @@
 package ddf.catalog.util.impl;
 
 import static com.google.common.collect.Iterators.limit;
+import static ddf.catalog.Constants.EXPERIMENTAL_CURSOR_MARK_KEY;
+import static ddf.catalog.Constants.EXPERIMENTAL_NEXT_CURSOR_MARK_KEY;
 import static org.apache.commons.lang.Validate.isTrue;
 import static org.apache.commons.lang.Validate.notNull;
 
@@ -28,11 +30,14 @@
 import ddf.catalog.operation.impl.QueryRequestImpl;
 import ddf.catalog.source.SourceUnavailableException;
 import ddf.catalog.source.UnsupportedQueryException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
@@ -50,6 +55,11 @@
  *
  * <p>Since the class may use the page size provided in the {@link Query} to fetch the results, its
  * value should be carefully set to avoid any memory or performance issues.
+ *
+ * <p>When the request only targets the local catalog and starts at the first result, pages are
+ * requested with a cursor mark ({@link ddf.catalog.Constants#EXPERIMENTAL_CURSOR_MARK_KEY}) so that
+ * the cost of a page does not grow with its depth. If the source does not return a next cursor
+ * mark, iteration falls back to paging with the query's start index.
  */
 public class ResultIterable implements Iterable<Result> {
   public static final int DEFAULT_PAGE_SIZE = 64;
@@ -157,6 +167,7 @@ private static class ResultIterator implements Iterator<Result> {
     private final QueryFunction queryFunction;
     private final Set<String> foundIds = new HashSet<>(2048);
     private int currentIndex;
+    private String cursorMark;
     private QueryImpl queryCopy;
     private QueryRequestImpl queryRequestCopy;
     private Iterator<Result> results = Collections.emptyIterator();
@@ -170,6 +181,17 @@ private static class ResultIterator implements Iterator<Result> {
       this.currentIndex = queryCopy.getStartIndex();
     }
 
+    /**
+     * Cursor marks are only requested when the query starts at the first result and targets the
+     * local catalog alone, since the response properties of several sources would be merged.
+     */
+    private static boolean canUseCursor(QueryRequest queryRequest) {
+      return !queryRequest.isEnterprise()
+          && (queryRequest.getSourceIds() == null || queryRequest.getSourceIds().size() <= 1)
+          && queryRequest.getQuery().getStartIndex() == 1
+          && queryRequest.getPropertyValue(EXPERIMENTAL_CURSOR_MARK_KEY) == null;
+    }
+
     @Override
     public boolean hasNext() {
       if (results.hasNext()) {
@@ -207,7 +229,11 @@ public Result next() {
 
     @SuppressWarnings("squid:CommentedOutCodeLine")
     private void fetchNextResults() {
-      queryCopy.setStartIndex(currentIndex);
+      if (cursorMark != null) {
+        queryRequestCopy.getProperties().put(EXPERIMENTAL_CURSOR_MARK_KEY, cursorMark);
+      } else {
+        queryCopy.setStartIndex(currentIndex);
+      }
 
       try {
         SourceResponse response = queryFunction.query(queryRequestCopy);
@@ -254,11 +280,33 @@ private void fetchNextResults() {
         if (response.getHits() >= 0 && currentIndex > response.getHits()) {
           finished = true;
         }
+
+        if (cursorMark != null) {
+          advanceCursorMark(response);
+        }
       } catch (UnsupportedQueryException | SourceUnavailableException | FederationException e) {
         throw new CatalogQueryException(e);
       }
     }
 
+    private void advanceCursorMark(SourceResponse response) {
+      Serializable nextCursorMark =
+          response.getProperties() == null
+              ? null
+              : response.getProperties().get(EXPERIMENTAL_NEXT_CURSOR_MARK_KEY);
+
+      if (!(nextCursorMark instanceof String)) {
+        // The source does not support cursors; continue from the index reached so far
+        cursorMark = null;
+        queryRequestCopy.getProperties().remove(EXPERIMENTAL_CURSOR_MARK_KEY);
+        queryCopy.setStartIndex(currentIndex);
+      } else if (nextCursorMark.equals(cursorMark)) {
+        finished = true;
+      } else {
+        cursorMark = (String) nextCursorMark;
+      }
+    }
+
     private boolean isDistinctResult(@Nullable Result result) {
       return result != null
           && (result.getMetacard() == null
@@ -281,12 +329,15 @@ private void copyQueryRequestAndQuery(QueryRequest queryRequest) {
               // always get the hit count
               query.getTimeoutMillis());
 
+      Map<String, Serializable> properties = queryRequest.getProperties();
+      if (canUseCursor(queryRequest)) {
+        cursorMark = "*";
+        properties = properties == null ? new HashMap<>() : new HashMap<>(properties);
+      }
+
       this.queryRequestCopy =
           new QueryRequestImpl(
-              queryCopy,
-              queryRequest.isEnterprise(),
-              queryRequest.getSourceIds(),
-              queryRequest.getProperties());
+              queryCopy, queryRequest.isEnterprise(), queryRequest.getSourceIds(), properties);
     }
   }
 }
@@ -28,6 +28,8 @@ import ddf.catalog.source.UnsupportedQueryException
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import static ddf.catalog.Constants.EXPERIMENTAL_CURSOR_MARK_KEY
+import static ddf.catalog.Constants.EXPERIMENTAL_NEXT_CURSOR_MARK_KEY
 import static ddf.catalog.util.impl.ResultIterable.resultIterable
 import static java.util.stream.Collectors.toList
 
@@ -451,6 +453,86 @@ class ResultIterableSpec extends Specification {
         thrown NoSuchElementException
     }
 
+    def "Pages with cursor marks when the catalog returns them"() {
+        setup:
+        def actualResults = (1..5).collect { new ResultImpl() }
+        def sentCursorMarks = []
+        def sentStartIndexes = []
+        def responses = [
+                cursorResponse(actualResults, 0..1, "mark-1"),
+                cursorResponse(actualResults, 2..3, "mark-2"),
+                cursorResponse(actualResults, 4..4, "mark-3")
+        ].iterator()
+
+        3 * catalogFramework.query(_ as QueryRequest) >> { QueryRequest queryRequest ->
+            sentCursorMarks << queryRequest.getPropertyValue(EXPERIMENTAL_CURSOR_MARK_KEY)
+            sentStartIndexes << queryRequest.getQuery().getStartIndex()
+            responses.next()
+        }
+
+        Query queryMock = createQueryMock(1, 2)
+        QueryRequest queryRequestMock = createQueryRequestMock(queryMock)
+
+        when:
+        def results = resultIterable(catalogFramework, queryRequestMock).stream()
+                .collect(toList())
+
+        then:
+        results == actualResults
+        sentCursorMarks == ["*", "mark-1", "mark-2"]
+        sentStartIndexes == [1, 1, 1]
+    }
+
+    def "Falls back to start index paging when no cursor mark is returned"() {
+        setup:
+        def actualResults = (1..5).collect { new ResultImpl() }
+        def sentCursorMarks = []
+        def sentStartIndexes = []
+
+        3 * catalogFramework.query(_ as QueryRequest) >> { QueryRequest queryRequest ->
+            sentCursorMarks << queryRequest.getPropertyValue(EXPERIMENTAL_CURSOR_MARK_KEY)
+            sentStartIndexes << queryRequest.getQuery().getStartIndex()
+            def start = queryRequest.getQuery().getStartIndex() - 1
+            buildQueryResponse(actualResults, start..Math.min(start + 1, 4))
+        }
+
+        Query queryMock = createQueryMock(1, 2)
+        QueryRequest queryRequestMock = createQueryRequestMock(queryMock)
+
+        when:
+        def results = resultIterable(catalogFramework, queryRequestMock).stream()
+                .collect(toList())
+
+        then:
+        results == actualResults
+        sentCursorMarks == ["*", null, null]
+        sentStartIndexes == [1, 3, 5]
+    }
+
+    def "Does not use cursor marks for enterprise queries"() {
+        setup:
+        def actualResults = (1..2).collect { new ResultImpl() }
+        def sentCursorMarks = []
+
+        1 * catalogFramework.query(_ as QueryRequest) >> { QueryRequest queryRequest ->
+            sentCursorMarks << queryRequest.getPropertyValue(EXPERIMENTAL_CURSOR_MARK_KEY)
+            buildQueryResponse(actualResults, 0..1)
+        }
+
+        Query queryMock = createQueryMock(1, 2)
+        QueryRequest queryRequestMock = Mock(QueryRequest.class)
+        queryRequestMock.getQuery() >> queryMock
+        queryRequestMock.isEnterprise() >> true
+
+        when:
+        def results = resultIterable(catalogFramework, queryRequestMock).stream()
+                .collect(toList())
+
+        then:
+        results == actualResults
+        sentCursorMarks == [null]
+    }
+
     def "next() when using a query function and catalog returns results"() {
         setup:
         def actualResults = [new ResultImpl()]
@@ -603,6 +685,16 @@ class ResultIterableSpec extends Specification {
         return response
     }
 
+    private QueryResponse cursorResponse(List<Result> resultList, Range resultRange,
+                                         String nextCursorMark) {
+        return new QueryResponseImpl(new QueryRequestImpl(null),
+                resultList[resultRange],
+                true,
+                (long) resultList.size(),
+                ["actualResultSize": resultRange.size(),
+                 (EXPERIMENTAL_NEXT_CURSOR_MARK_KEY): nextCursorMark])
+    }
+
     private QueryResponse buildQueryResponse(List<Result> resultList, int resultIndex) {
         return buildQueryResponse(resultList, resultIndex..resultIndex)
     }
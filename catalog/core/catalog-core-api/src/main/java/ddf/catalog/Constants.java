@@ -133,6 +133,29 @@ public final class Constants {
 
   public static final String CONTENT_PATHS = "content-paths";
 
+  /**
+   * Property key for the checksums calculated while the framework staged the content of a create or
+   * update request, as a {@code Map<String, Map<String, String>>} of content item ID to checksum
+   * algorithm to checksum value.
+   */
+  public static final String CONTENT_CHECKSUMS = "content-checksums";
+
+  /**
+   * Property key for the stored content that the content items of a create storage request are
+   * copies of, as a {@code Map<String, Map<String, URI>>} of content item ID to qualifier to the
+   * URI of the stored content. Storage providers may reference the stored content instead of
+   * storing the same bytes again.
+   */
+  public static final String SOURCE_CONTENT_URIS = "source-content-uris";
+
+  /**
+   * Property key for the files the framework staged the content of a create or update storage
+   * request to, as a {@code Map<String, Map<String, Path>>} of content item ID to qualifier to
+   * path. Only content items that the pre-storage plugins passed on unchanged are included, so
+   * storage providers may store the staged file instead of reading the content item again.
+   */
+  public static final String STAGED_CONTENT_PATHS = "staged-content-paths";
+
   public static final String ATTRIBUTE_OVERRIDES_KEY = "attributeOverrides";
 
   public static final String ATTRIBUTE_UPDATE_MAP_KEY = "attributeUpdateMap";
@@ -154,4 +177,14 @@ public final class Constants {
   public static final String SUGGESTION_BUILD_KEY = "suggestion-build";
 
   public static final String ADDITIONAL_SORT_BYS = "additional-sort-bys";
+
+  /**
+   * Request property holding the cursor mark to page from, {@code "*"} to open a new cursor.
+   * Sources that support cursor paging ignore the query's start index and return the mark of the
+   * following page under {@link #EXPERIMENTAL_NEXT_CURSOR_MARK_KEY}.
+   */
+  public static final String EXPERIMENTAL_CURSOR_MARK_KEY = "cursor-mark";
+
+  /** Response property holding the cursor mark of the page following the returned results. */
+  public static final String EXPERIMENTAL_NEXT_CURSOR_MARK_KEY = "next-cursor-mark";
 }
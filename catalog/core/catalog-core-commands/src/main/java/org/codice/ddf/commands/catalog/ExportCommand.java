@@ -57,6 +57,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -64,7 +65,6 @@
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -75,7 +75,10 @@
 import org.apache.karaf.shell.api.action.lifecycle.Reference;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.codice.ddf.catalog.transformer.zip.JarSigner;
+import org.codice.ddf.commands.catalog.export.ExportCheckpoint;
+import org.codice.ddf.commands.catalog.export.ExportEntry;
 import org.codice.ddf.commands.catalog.export.ExportItem;
+import org.codice.ddf.commands.catalog.export.ExportPipeline;
 import org.codice.ddf.commands.catalog.export.IdAndUriMetacard;
 import org.codice.ddf.commands.util.CatalogCommandRuntimeException;
 import org.codice.ddf.configuration.SystemBaseUrl;
@@ -115,6 +118,8 @@ public class ExportCommand extends CqlCommands {
 
   private static final String REVISION_METACARD = "revision";
 
+  private static final String PARTIAL_EXPORT_SUFFIX = ".partial";
+
   private MetacardTransformer transformer;
 
   private Filter revisionFilter;
@@ -174,6 +179,26 @@ public class ExportCommand extends CqlCommands {
   )
   boolean unsafe = false;
 
+  @Option(
+    name = "--threads",
+    required = false,
+    multiValued = false,
+    description =
+        "Number of metacards to transform and resources to retrieve in parallel. Setting this "
+            + "value too high for your system can cause performance degradation."
+  )
+  int threads = Runtime.getRuntime().availableProcessors();
+
+  @Option(
+    name = "--resume",
+    required = false,
+    multiValued = false,
+    description =
+        "Continue an interrupted export into the --output file. Metacards and content already in "
+            + "the file are kept and not exported again."
+  )
+  boolean resume = false;
+
   @Override
   protected Object executeWithSubject() throws Exception {
     Filter filter = getFilter();
@@ -202,10 +227,26 @@ protected Object executeWithSubject() throws Exception {
 
     SecurityLogger.audit("Called catalog:export command with path : {}", output);
 
+    final File partialFile = new File(outputFile.getPath() + PARTIAL_EXPORT_SUFFIX);
+    if (resume) {
+      preparePartialExport(outputFile, partialFile);
+    }
+
     try (FileOutputStream fileOutputStream = new FileOutputStream(outputFile);
         ZipOutputStream zipOutputStream = new ZipOutputStream(fileOutputStream)) {
 
-      return doExport(outputFile, zipOutputStream, filter);
+      ExportCheckpoint checkpoint = ExportCheckpoint.none();
+      if (partialFile.exists()) {
+        checkpoint = recoverPartialExport(partialFile, zipOutputStream);
+      }
+
+      try (ExportPipeline pipeline =
+          new ExportPipeline(zipOutputStream, Math.max(1, threads), console)) {
+        Object result = doExport(outputFile, zipOutputStream, pipeline, checkpoint, filter);
+        // Kept until now so an export interrupted again can still recover from it
+        FileUtils.deleteQuietly(partialFile);
+        return result;
+      }
 
     } catch (FileNotFoundException e) {
       throw new FileNotFoundException(
@@ -214,6 +255,25 @@ protected Object executeWithSubject() throws Exception {
     }
   }
 
+  private void preparePartialExport(File outputFile, File partialFile) throws IOException {
+    if (partialFile.exists()) {
+      // A previous resume was interrupted, so the partial export is the last complete checkpoint
+      // and the output is rebuilt from it.
+      FileUtils.deleteQuietly(outputFile);
+    } else if (outputFile.exists()) {
+      FileUtils.moveFile(outputFile, partialFile);
+    }
+  }
+
+  private ExportCheckpoint recoverPartialExport(File partialFile, ZipOutputStream zipOutputStream)
+      throws IOException {
+    console.println("Recovering interrupted export...");
+    ExportCheckpoint checkpoint = ExportCheckpoint.recover(partialFile, zipOutputStream);
+    console.println("Number of entries recovered: " + checkpoint.size());
+    console.println();
+    return checkpoint;
+  }
+
   private File initOutputFile(String output) {
     String resolvedOutput;
     File initialOutputFile = new File(output);
@@ -228,7 +288,7 @@ private File initOutputFile(String output) {
   }
 
   private void checkFile(File outputFile) {
-    if (outputFile.exists()) {
+    if (outputFile.exists() && !resume) {
       printErrorMessage(String.format("File [%s] already exists!", outputFile.getPath()));
       throw new IllegalStateException("File already exists");
     }
@@ -247,11 +307,16 @@ private void checkFile(File outputFile) {
     }
   }
 
-  private Object doExport(File outputFile, ZipOutputStream zipOutputStream, Filter filter)
+  private Object doExport(
+      File outputFile,
+      ZipOutputStream zipOutputStream,
+      ExportPipeline pipeline,
+      ExportCheckpoint checkpoint,
+      Filter filter)
       throws IOException {
     console.println("Starting metacard export...");
     Instant start = Instant.now();
-    List<ExportItem> exportedItems = doMetacardExport(zipOutputStream, filter);
+    List<ExportItem> exportedItems = doMetacardExport(pipeline, checkpoint, filter);
     if (exportedItems.isEmpty()) {
       console.println("No metacards found to export, exiting.");
       try {
@@ -270,7 +335,8 @@ private Object doExport(File outputFile, ZipOutputStream zipOutputStream, Filter
 
     console.println("Starting content export...");
     start = Instant.now();
-    List<ExportItem> exportedContentItems = doContentExport(zipOutputStream, exportedItems);
+    List<ExportItem> exportedContentItems = doContentExport(pipeline, checkpoint, exportedItems);
+    pipeline.finish();
     console.println("Content exported in: " + getFormattedDuration(start));
     console.println("Number of content exported: " + exportedContentItems.size());
     console.println();
@@ -331,7 +397,7 @@ private void writePartitionToLog(List<String> idList) {
   }
 
   private List<ExportItem> doMetacardExport(
-      /*Mutable,IO*/ ZipOutputStream zipOutputStream, Filter filter) {
+      ExportPipeline pipeline, ExportCheckpoint checkpoint, Filter filter) throws IOException {
     Set<String> seenIds = new HashSet<>(1024);
     List<ExportItem> exportedItems = new ArrayList<>();
 
@@ -342,7 +408,7 @@ private List<ExportItem> doMetacardExport(
 
     for (Result result : resultIterable(catalogFramework, queryRequest)) {
       if (!seenIds.contains(result.getMetacard().getId())) {
-        writeResultToZip(zipOutputStream, result);
+        exportResult(pipeline, checkpoint, result);
         exportedItems.add(
             new ExportItem(
                 result.getMetacard().getId(),
@@ -362,7 +428,7 @@ private List<ExportItem> doMetacardExport(
         if (seenIds.contains(revision.getMetacard().getId())) {
           continue;
         }
-        writeResultToZip(zipOutputStream, revision);
+        exportResult(pipeline, checkpoint, revision);
         exportedItems.add(
             new ExportItem(
                 revision.getMetacard().getId(),
@@ -392,7 +458,8 @@ private List<String> getDerivedResources(Result result) {
 
   @SuppressWarnings("squid:S3776")
   private List<ExportItem> doContentExport(
-      ZipOutputStream zipOutputStream, List<ExportItem> exportedItems) {
+      ExportPipeline pipeline, ExportCheckpoint checkpoint, List<ExportItem> exportedItems)
+      throws IOException {
     List<ExportItem> contentItemsToExport =
         exportedItems
             .stream()
@@ -411,52 +478,83 @@ private List<ExportItem> doContentExport(
             .filter(distinctByKey(ei -> ei.getResourceUri().getSchemeSpecificPart()))
             .collect(Collectors.toList());
 
-    List<ExportItem> exportedContentItems = new ArrayList<>();
+    List<ExportItem> exportedContentItems = Collections.synchronizedList(new ArrayList<>());
     for (ExportItem contentItem : contentItemsToExport) {
-      ResourceResponse resource;
-      try {
-        resource =
-            catalogFramework.getLocalResource(
-                new ResourceRequestByProductUri(contentItem.getResourceUri()));
-      } catch (IOException | ResourceNotSupportedException e) {
-        throw new CatalogCommandRuntimeException(
-            "Unable to retrieve resource for " + contentItem.getId(), e);
-      } catch (ResourceNotFoundException e) {
-        continue;
+      pipeline.submit(() -> exportContent(contentItem, checkpoint, exportedContentItems));
+    }
+    return exportedContentItems;
+  }
+
+  /**
+   * Retrieves the content of an exported item and, unless it is a revision, its derived content.
+   * Runs on one of the export pipeline's worker threads.
+   */
+  private List<ExportEntry> exportContent(
+      ExportItem contentItem, ExportCheckpoint checkpoint, List<ExportItem> exportedContentItems) {
+    List<ExportEntry> entries = new ArrayList<>();
+    try {
+      if (checkpoint.containsDirectory(getContentDirectory(contentItem.getId(), null))) {
+        exportedContentItems.add(contentItem);
+      } else {
+        ResourceResponse resource;
+        try {
+          resource =
+              catalogFramework.getLocalResource(
+                  new ResourceRequestByProductUri(contentItem.getResourceUri()));
+        } catch (IOException | ResourceNotSupportedException e) {
+          throw new CatalogCommandRuntimeException(
+              "Unable to retrieve resource for " + contentItem.getId(), e);
+        } catch (ResourceNotFoundException e) {
+          return entries;
+        }
+        readResource(contentItem, resource).ifPresent(entries::add);
+        exportedContentItems.add(contentItem);
       }
-      writeResourceToZip(zipOutputStream, contentItem, resource);
-      exportedContentItems.add(contentItem);
+
       if (!contentItem.getMetacardTag().equals(REVISION_METACARD)) {
         for (String derivedUri : contentItem.getDerivedUris()) {
-          URI uri;
-          try {
-            uri = new URI(derivedUri);
-          } catch (URISyntaxException e) {
-            LOGGER.debug(
-                "Uri [{}] is not a valid URI. Derived content will not be included in export",
-                derivedUri);
-            continue;
-          }
-
-          ResourceResponse derivedResource;
-          try {
-            derivedResource =
-                catalogFramework.getLocalResource(new ResourceRequestByProductUri(uri));
-          } catch (IOException e) {
-            throw new CatalogCommandRuntimeException(
-                "Unable to retrieve resource for " + contentItem.getId(), e);
-          } catch (ResourceNotFoundException | ResourceNotSupportedException e) {
-            LOGGER.warn("Could not retreive resource [{}]", uri, e);
-            console.printf(
-                "%sUnable to retrieve resource for export : %s%s%n",
-                Ansi.ansi().fg(Ansi.Color.RED).toString(), uri, Ansi.ansi().reset().toString());
-            continue;
-          }
-          writeResourceToZip(zipOutputStream, contentItem, derivedResource);
+          exportDerivedContent(contentItem, derivedUri, checkpoint).ifPresent(entries::add);
         }
       }
+      return entries;
+    } catch (RuntimeException e) {
+      for (ExportEntry entry : entries) {
+        IOUtils.closeQuietly(entry);
+      }
+      throw e;
     }
-    return exportedContentItems;
+  }
+
+  private Optional<ExportEntry> exportDerivedContent(
+      ExportItem contentItem, String derivedUri, ExportCheckpoint checkpoint) {
+    URI uri;
+    try {
+      uri = new URI(derivedUri);
+    } catch (URISyntaxException e) {
+      LOGGER.debug(
+          "Uri [{}] is not a valid URI. Derived content will not be included in export",
+          derivedUri);
+      return Optional.empty();
+    }
+
+    if (checkpoint.containsDirectory(getContentDirectory(contentItem.getId(), uri.getFragment()))) {
+      return Optional.empty();
+    }
+
+    ResourceResponse derivedResource;
+    try {
+      derivedResource = catalogFramework.getLocalResource(new ResourceRequestByProductUri(uri));
+    } catch (IOException e) {
+      throw new CatalogCommandRuntimeException(
+          "Unable to retrieve resource for " + contentItem.getId(), e);
+    } catch (ResourceNotFoundException | ResourceNotSupportedException e) {
+      LOGGER.warn("Could not retreive resource [{}]", uri, e);
+      console.printf(
+          "%sUnable to retrieve resource for export : %s%s%n",
+          Ansi.ansi().fg(Ansi.Color.RED).toString(), uri, Ansi.ansi().reset().toString());
+      return Optional.empty();
+    }
+    return readResource(contentItem, derivedResource);
   }
 
   private void doDelete(List<ExportItem> exportedItems, List<ExportItem> exportedContentItems) {
@@ -506,17 +604,15 @@ private void doDelete(List<ExportItem> exportedItems, List<ExportItem> exportedC
     console.println("Number of content deleted: " + exportedContentItems.size());
   }
 
-  private void writeResourceToZip(
-      /*Mutable,IO*/ ZipOutputStream zipOutputStream,
-      ExportItem exportItem,
-      ResourceResponse resource) {
+  private Optional<ExportEntry> readResource(ExportItem exportItem, ResourceResponse resource) {
     String id = exportItem.getId();
     String path = getContentPath(id, resource);
-    ZipEntry zipEntry = new ZipEntry(path);
+    boolean compressed =
+        ExportEntry.isCompressed(
+            resource.getResource().getMimeTypeValue(), resource.getResource().getName());
 
     try (InputStream resourceStream = resource.getResource().getInputStream()) {
-      zipOutputStream.putNextEntry(zipEntry);
-      IOUtils.copy(resourceStream, zipOutputStream);
+      return Optional.of(ExportEntry.read(path, resourceStream, compressed));
     } catch (IOException e) {
       LOGGER.warn(
           "Could not get content. Content will not be included in export [{}]", exportItem.getId());
@@ -526,33 +622,45 @@ private void writeResourceToZip(
           exportItem.getId(),
           exportItem.getResourceUri(),
           Ansi.ansi().reset().toString());
+      return Optional.empty();
     }
   }
 
   private String getContentPath(String id, ResourceResponse resource) {
-    String path = Paths.get("metacards", id.substring(0, 3), id).toString();
     String fragment = ((URI) resource.getRequest().getAttributeValue()).getFragment();
+    return Paths.get(getContentDirectory(id, fragment), resource.getResource().getName())
+        .toString();
+  }
+
+  private String getContentDirectory(String id, String fragment) {
+    String path = Paths.get("metacards", id.substring(0, 3), id).toString();
 
     if (fragment == null) { // is root content, put in root id folder
-      path = Paths.get(path, "content", resource.getResource().getName()).toString();
+      return Paths.get(path, "content").toString();
     } else { // is derived content, put in subfolder
-      path = Paths.get(path, "derived", fragment, resource.getResource().getName()).toString();
+      return Paths.get(path, "derived", fragment).toString();
     }
-    return path;
   }
 
-  private void writeResultToZip(/*Mutable,IO*/ ZipOutputStream zipOutputStream, Result result) {
-    String id = result.getMetacard().getId();
-    ZipEntry zipEntry =
-        new ZipEntry(
-            Paths.get("metacards", id.substring(0, 3), id, "metacard", id + ".xml").toString());
+  private String getMetacardPath(String id) {
+    return Paths.get("metacards", id.substring(0, 3), id, "metacard", id + ".xml").toString();
+  }
 
+  private void exportResult(ExportPipeline pipeline, ExportCheckpoint checkpoint, Result result)
+      throws IOException {
+    String path = getMetacardPath(result.getMetacard().getId());
+    if (!checkpoint.contains(path)) {
+      pipeline.submit(() -> transformResult(path, result));
+    }
+  }
+
+  /** Transforms an exported metacard. Runs on one of the export pipeline's worker threads. */
+  private List<ExportEntry> transformResult(String path, Result result) {
     try {
       BinaryContent binaryMetacard =
           transformer.transform(result.getMetacard(), Collections.emptyMap());
       try (InputStream metacardStream = binaryMetacard.getInputStream()) {
-        zipOutputStream.putNextEntry(zipEntry);
-        IOUtils.copy(metacardStream, zipOutputStream);
+        return Collections.singletonList(ExportEntry.read(path, metacardStream, false));
       }
     } catch (CatalogTransformerException | IOException e) {
       LOGGER.warn(
@@ -564,6 +672,7 @@ private void writeResultToZip(/*Mutable,IO*/ ZipOutputStream zipOutputStream, Re
           result.getMetacard().getId(),
           result.getMetacard().getTitle(),
           Ansi.ansi().reset().toString());
+      return Collections.emptyList();
     }
   }
 
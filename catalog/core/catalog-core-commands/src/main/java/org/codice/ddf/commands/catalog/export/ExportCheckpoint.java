@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.commands.catalog.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The entries already written by an interrupted export, so that resuming it doesn't export them
+ * again.
+ */
+public class ExportCheckpoint {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExportCheckpoint.class);
+
+  private final Set<String> entryNames = new HashSet<>();
+
+  private final Set<String> directories = new HashSet<>();
+
+  /** Returns a checkpoint for an export that is starting from the beginning. */
+  public static ExportCheckpoint none() {
+    return new ExportCheckpoint();
+  }
+
+  /**
+   * Copies every complete entry of the zip written by an interrupted export into {@code
+   * zipOutputStream} and returns a checkpoint of them. The zip doesn't need to have been closed;
+   * entries are read in order until the first one that is cut short.
+   *
+   * @param partialZip the zip written by the interrupted export
+   * @param zipOutputStream the zip the resumed export is writing
+   */
+  public static ExportCheckpoint recover(File partialZip, ZipOutputStream zipOutputStream)
+      throws IOException {
+    ExportCheckpoint checkpoint = new ExportCheckpoint();
+
+    try (InputStream inputStream = new FileInputStream(partialZip);
+        ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
+      ZipEntry zipEntry;
+      while ((zipEntry = nextEntry(zipInputStream)) != null) {
+        if (zipEntry.isDirectory() || checkpoint.contains(zipEntry.getName())) {
+          continue;
+        }
+
+        ExportEntry entry;
+        try {
+          entry =
+              ExportEntry.read(
+                  zipEntry.getName(), zipInputStream, zipEntry.getMethod() == ZipEntry.STORED);
+        } catch (IOException e) {
+          LOGGER.debug("Entry {} of {} is incomplete", zipEntry.getName(), partialZip, e);
+          break;
+        }
+
+        try {
+          entry.writeTo(zipOutputStream);
+        } finally {
+          entry.close();
+        }
+        checkpoint.add(entry.getName());
+      }
+    }
+
+    return checkpoint;
+  }
+
+  private static ZipEntry nextEntry(ZipInputStream zipInputStream) {
+    try {
+      return zipInputStream.getNextEntry();
+    } catch (IOException e) {
+      LOGGER.debug("Reached the end of the readable entries of an interrupted export", e);
+      return null;
+    }
+  }
+
+  private void add(String entryName) {
+    entryNames.add(entryName);
+    Path parent = Paths.get(entryName).getParent();
+    if (parent != null) {
+      directories.add(parent.toString());
+    }
+  }
+
+  /** @return whether an entry with the given path has already been exported */
+  public boolean contains(String entryName) {
+    return entryNames.contains(entryName);
+  }
+
+  /** @return whether any entry directly inside the given directory has already been exported */
+  public boolean containsDirectory(String directory) {
+    return directories.contains(directory);
+  }
+
+  /** @return the number of entries already exported */
+  public int size() {
+    return entryNames.size();
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.commands.catalog.export;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
+
+/**
+ * A zip entry that has been read ahead of being written to the export zip. Its data is held in
+ * memory, or in a temporary file once it gets large, until {@link #close()} is called.
+ */
+public class ExportEntry implements Closeable {
+
+  private static final Set<String> COMPRESSED_EXTENSIONS =
+      ImmutableSet.of(
+          "7z", "bz2", "gif", "gz", "jar", "jp2", "jpeg", "jpg", "m4a", "m4v", "mkv", "mov", "mp3",
+          "mp4", "mpeg", "mpg", "png", "tgz", "ts", "webm", "webp", "xz", "zip");
+
+  private static final Set<String> COMPRESSED_MIME_TYPES =
+      ImmutableSet.of(
+          "application/gzip",
+          "application/x-7z-compressed",
+          "application/x-bzip2",
+          "application/x-gzip",
+          "application/x-xz",
+          "application/zip");
+
+  private final String name;
+
+  private final TemporaryFileBackedOutputStream data;
+
+  private final long size;
+
+  private final long crc;
+
+  private final boolean stored;
+
+  private ExportEntry(
+      String name, TemporaryFileBackedOutputStream data, long size, long crc, boolean stored) {
+    this.name = name;
+    this.data = data;
+    this.size = size;
+    this.crc = crc;
+    this.stored = stored;
+  }
+
+  /**
+   * Reads an entry from {@code inputStream}. The stream is not closed.
+   *
+   * @param name the path of the entry in the zip
+   * @param inputStream the entry's data
+   * @param stored whether to store the entry without compressing it, for data that is already
+   *     compressed
+   */
+  public static ExportEntry read(String name, InputStream inputStream, boolean stored)
+      throws IOException {
+    TemporaryFileBackedOutputStream data = new TemporaryFileBackedOutputStream();
+    try {
+      CRC32 crc = new CRC32();
+      CheckedOutputStream checkedOutputStream = new CheckedOutputStream(data, crc);
+      long size = IOUtils.copyLarge(inputStream, checkedOutputStream);
+      checkedOutputStream.flush();
+      return new ExportEntry(name, data, size, crc.getValue(), stored);
+    } catch (IOException | RuntimeException e) {
+      data.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Determines whether content is already compressed, in which case compressing it again in the
+   * export zip would only cost time.
+   *
+   * @param mimeType the content's MIME type, or null if it isn't known
+   * @param fileName the content's file name, or null if it isn't known
+   */
+  public static boolean isCompressed(String mimeType, String fileName) {
+    if (mimeType != null) {
+      String type = mimeType.toLowerCase(Locale.ENGLISH);
+      int parameters = type.indexOf(';');
+      if (parameters >= 0) {
+        type = type.substring(0, parameters).trim();
+      }
+      if (COMPRESSED_MIME_TYPES.contains(type)
+          || type.startsWith("video/")
+          || type.equals("image/jpeg")
+          || type.equals("image/png")
+          || type.equals("image/gif")) {
+        return true;
+      }
+    }
+
+    return fileName != null
+        && COMPRESSED_EXTENSIONS.contains(
+            FilenameUtils.getExtension(fileName).toLowerCase(Locale.ENGLISH));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /** Writes this entry to {@code zipOutputStream}, using the STORED method if requested. */
+  public void writeTo(ZipOutputStream zipOutputStream) throws IOException {
+    ZipEntry zipEntry = new ZipEntry(name);
+    if (stored) {
+      zipEntry.setMethod(ZipEntry.STORED);
+      zipEntry.setSize(size);
+      zipEntry.setCompressedSize(size);
+      zipEntry.setCrc(crc);
+    }
+
+    zipOutputStream.putNextEntry(zipEntry);
+    data.asByteSource().copyTo(zipOutputStream);
+    zipOutputStream.closeEntry();
+  }
+
+  /** Deletes any temporary file holding this entry's data. */
+  @Override
+  public void close() throws IOException {
+    data.close();
+  }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.commands.catalog.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipOutputStream;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes export entries to a zip while they are being produced.
+ *
+ * <p>Tasks submitted to the pipeline run in parallel on a fixed number of worker threads, with the
+ * {@link Subject} of the thread that created the pipeline. A single writer thread writes the
+ * entries each task returns to the zip in the order the tasks were submitted. At most a few tasks
+ * per worker can be waiting to be written, so {@link #submit(Callable)} blocks when the writer
+ * falls behind.
+ */
+public class ExportPipeline implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExportPipeline.class);
+
+  private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final ZipOutputStream zipOutputStream;
+
+  private final PrintStream console;
+
+  private final Subject subject;
+
+  private final ExecutorService workers;
+
+  private final ExecutorService writer;
+
+  private final BlockingQueue<Future<List<ExportEntry>>> pending;
+
+  private final Future<?> writerTask;
+
+  private final FutureTask<List<ExportEntry>> end = new FutureTask<>(Collections::emptyList);
+
+  private final long start = System.nanoTime();
+
+  private long lastProgress = start;
+
+  private long entriesWritten;
+
+  private long bytesWritten;
+
+  private volatile Throwable failure;
+
+  /**
+   * @param zipOutputStream the zip to write to; only the pipeline's writer thread writes to it
+   *     until {@link #finish()} returns
+   * @param threads the number of tasks to run in parallel
+   * @param console where to print progress
+   */
+  public ExportPipeline(ZipOutputStream zipOutputStream, int threads, PrintStream console) {
+    this.zipOutputStream = zipOutputStream;
+    this.console = console;
+    this.subject = ThreadContext.getSubject();
+    this.workers =
+        Executors.newFixedThreadPool(
+            threads, StandardThreadFactoryBuilder.newThreadFactory("exportCommandThread"));
+    this.writer =
+        Executors.newSingleThreadExecutor(
+            StandardThreadFactoryBuilder.newThreadFactory("exportWriterThread"));
+    this.pending = new ArrayBlockingQueue<>(threads * 4);
+    this.writerTask = writer.submit(this::writeEntries);
+  }
+
+  /**
+   * Runs {@code task} on a worker thread and queues the entries it returns to be written after
+   * those of every task submitted before it. Blocks while the queue of entries waiting to be
+   * written is full.
+   *
+   * @throws IOException if an earlier task or writing to the zip failed
+   */
+  public void submit(Callable<List<ExportEntry>> task) throws IOException {
+    FutureTask<List<ExportEntry>> futureTask =
+        new FutureTask<>(subject == null ? task : subject.associateWith(task));
+    enqueue(futureTask);
+    workers.execute(futureTask);
+  }
+
+  /**
+   * Waits for all of the submitted entries to be written to the zip.
+   *
+   * @throws IOException if a task or writing to the zip failed
+   */
+  public void finish() throws IOException {
+    enqueue(end);
+    try {
+      writerTask.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the export to be written", e);
+    } catch (ExecutionException e) {
+      failure = e.getCause();
+    }
+    checkFailure();
+    printProgress();
+  }
+
+  /** Stops the worker and writer threads and discards any entries that haven't been written. */
+  @Override
+  public void close() {
+    workers.shutdownNow();
+    writer.shutdownNow();
+    Future<List<ExportEntry>> next;
+    while ((next = pending.poll()) != null) {
+      discard(next);
+    }
+  }
+
+  private void enqueue(FutureTask<List<ExportEntry>> futureTask) throws IOException {
+    try {
+      while (!pending.offer(futureTask, 1, TimeUnit.SECONDS)) {
+        checkFailure();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while queueing export entries", e);
+    }
+    checkFailure();
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable cause = failure;
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause != null) {
+      throw new IOException("Unable to write export", cause);
+    }
+  }
+
+  private Void writeEntries() throws InterruptedException {
+    Future<List<ExportEntry>> next;
+    while ((next = pending.take()) != end) {
+      try {
+        write(next.get());
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+      } catch (ExecutionException e) {
+        failure = e.getCause();
+      }
+
+      if (failure != null) {
+        // Free any threads waiting to queue more entries; they will see the failure.
+        close();
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private void write(List<ExportEntry> entries) throws IOException {
+    try {
+      for (ExportEntry entry : entries) {
+        entry.writeTo(zipOutputStream);
+        entriesWritten++;
+        bytesWritten += entry.getSize();
+      }
+    } finally {
+      closeAll(entries);
+    }
+
+    if (System.nanoTime() - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+      printProgress();
+    }
+  }
+
+  private void printProgress() {
+    long now = System.nanoTime();
+    double seconds = Math.max(now - start, 1) / 1e9;
+    lastProgress = now;
+    console.printf(
+        "Exported %d entries (%.1f entries/s, %.2f MB/s)%n",
+        entriesWritten, entriesWritten / seconds, bytesWritten / seconds / (1024 * 1024));
+  }
+
+  private void discard(Future<List<ExportEntry>> future) {
+    if (future != end && !future.cancel(true)) {
+      try {
+        closeAll(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException | RuntimeException e) {
+        LOGGER.trace("Discarding failed export task", e);
+      }
+    }
+  }
+
+  private static void closeAll(List<ExportEntry> entries) {
+    for (ExportEntry entry : entries) {
+      try {
+        entry.close();
+      } catch (IOException e) {
+        LOGGER.debug("Unable to delete temporary data for export entry {}", entry.getName(), e);
+      }
+    }
+  }
+}
@@ -38,7 +38,9 @@ import spock.lang.Unroll
 
 import javax.activation.MimeType
 import java.nio.file.Paths
+import java.util.zip.ZipEntry
 import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
 
 class ExportCommandSpec extends Specification {
 
@@ -332,6 +334,55 @@ class ExportCommandSpec extends Specification {
         }
     }
 
+    def "Test resume keeps exported entries and skips their content"() {
+        setup:
+        def result = new ResultImpl(simpleMetacard(simpleAttributes() + [(Metacard.TAGS): [Metacard.DEFAULT_TAG]]))
+        def id = result.metacard.id
+        def metacardPath = "metacards/${id.substring(0, 3)}/$id/metacard/${id}.xml" as String
+        def contentPath = "metacards/${id.substring(0, 3)}/$id/content/contentfor-${id}.xml" as String
+
+        def file = Paths.get(System.getProperty('ddf.home'), 'resumed.zip').toFile()
+        new FileOutputStream(file).withCloseable { fileOutputStream ->
+            def zip = new ZipOutputStream(fileOutputStream)
+            [metacardPath, contentPath].each { name ->
+                zip.putNextEntry(new ZipEntry(name))
+                zip.write(getMockContent().byteArray)
+                zip.closeEntry()
+            }
+            // the export is interrupted part way through an entry, before the zip is finished
+            zip.putNextEntry(new ZipEntry("metacards/abc/abcdef/metacard/abcdef.xml"))
+            zip.write(new byte[5000])
+            zip.flush()
+        }
+
+        exportCommand.with {
+            it.delete = false
+            it.resume = true
+            it.output = file.canonicalPath
+        }
+
+        catalogFramework.query(_ as QueryRequest) >> { QueryRequest req ->
+            new QueryResponseImpl(req, [result], 1)
+        } >> { QueryRequest req ->
+            new QueryResponseImpl(req, [], 0)
+        }
+
+        when:
+        exportCommand.executeWithSubject()
+
+        then:
+        notThrown(Exception)
+        0 * catalogFramework.getLocalResource(_)
+        0 * xmlTransformer.transform(*_)
+        tmpHomeDir.list() as Set == ['resumed.zip'] as Set
+
+        def files = new ZipFile(file).entries()
+                .collect { it.isDirectory() ? null : it.name }
+                .findAll { it != null }
+        files.containsAll([metacardPath, contentPath])
+        !files.any { it.contains('abcdef') }
+    }
+
 /**************************************************************************
  *
  * Utility Methods
@@ -30,9 +30,10 @@
 import ddf.catalog.plugin.PreDeliveryPlugin;
 import ddf.catalog.plugin.PreSubscriptionPlugin;
 import ddf.catalog.pubsub.criteria.contextual.ContextualEvaluator;
+import ddf.catalog.pubsub.internal.EventDeliveryQueue;
 import ddf.catalog.pubsub.internal.PubSubConstants;
-import ddf.catalog.pubsub.internal.PubSubThread;
 import ddf.catalog.pubsub.internal.SubscriptionFilterVisitor;
+import ddf.catalog.pubsub.internal.SubscriptionIndex;
 import ddf.catalog.pubsub.predicate.Predicate;
 import ddf.catalog.util.impl.Requests;
 import java.net.URI;
@@ -42,10 +43,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
 import org.apache.lucene.store.Directory;
-import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
@@ -74,11 +73,22 @@ public class EventProcessorImpl implements EventProcessor, EventHandler, PostIng
 
   protected CatalogFramework catalog;
 
-  private Map<String, ServiceRegistration> existingSubscriptions;
+  private final SubscriptionIndex<PublishedEventHandler> subscriptionIndex =
+      new SubscriptionIndex<>();
 
-  private final ExecutorService threadPool =
-      Executors.newCachedThreadPool(
-          StandardThreadFactoryBuilder.newThreadFactory("eventProcessorThread"));
+  private ServiceRegistration subscriptionIndexRegistration;
+
+  private int eventDeliveryThreads = EventDeliveryQueue.DEFAULT_THREADS;
+
+  private int eventQueueCapacity = EventDeliveryQueue.DEFAULT_CAPACITY;
+
+  private int subscriptionDeliveryThreads = EventDeliveryQueue.DEFAULT_SUBSCRIPTION_THREADS;
+
+  private int subscriptionQueueCapacity = EventDeliveryQueue.DEFAULT_SUBSCRIPTION_CAPACITY;
+
+  private long eventQueueOfferTimeoutMillis = EventDeliveryQueue.DEFAULT_OFFER_TIMEOUT_MILLIS;
+
+  private EventDeliveryQueue eventDeliveryQueue;
 
   public EventProcessorImpl() {
     LOGGER.debug("INSIDE: EventProcessorImpl default constructor");
@@ -97,7 +107,6 @@ public EventProcessorImpl(
     this.preSubscription = preSubscription;
     this.preDelivery = preDelivery;
     this.catalog = catalog;
-    this.existingSubscriptions = new HashMap<>();
 
     if (this.preSubscription == null) {
       LOGGER.debug("preSubscription plugins list is NULL");
@@ -215,6 +224,8 @@ public void init() {
     String methodName = "init";
     LOGGER.trace(ENTERING, methodName);
 
+    getEventDeliveryQueue().registerMBean();
+
     LOGGER.trace(EXITING, methodName);
   }
 
@@ -222,14 +233,102 @@ public void destroy() {
     String methodName = "destroy";
     LOGGER.trace(ENTERING, methodName);
 
+    synchronized (this) {
+      if (subscriptionIndexRegistration != null) {
+        subscriptionIndexRegistration.unregister();
+        subscriptionIndexRegistration = null;
+      }
+      if (eventDeliveryQueue != null) {
+        eventDeliveryQueue.unregisterMBean();
+        eventDeliveryQueue.shutdown();
+        eventDeliveryQueue = null;
+      }
+    }
+
     LOGGER.trace(EXITING, methodName);
   }
 
+  /**
+   * Applies new event delivery settings by replacing the delivery queue. Events and subscription
+   * deliveries already queued are still delivered by the workers of the previous queue.
+   */
+  public void updateConfiguration(Map<String, Object> properties) {
+    if (properties == null) {
+      return;
+    }
+
+    EventDeliveryQueue previous;
+    synchronized (this) {
+      updateSetting(properties, "eventDeliveryThreads", 1, this::setEventDeliveryThreads);
+      updateSetting(properties, "eventQueueCapacity", 1, this::setEventQueueCapacity);
+      updateSetting(
+          properties, "subscriptionDeliveryThreads", 1, this::setSubscriptionDeliveryThreads);
+      updateSetting(properties, "subscriptionQueueCapacity", 1, this::setSubscriptionQueueCapacity);
+      updateSetting(
+          properties, "eventQueueOfferTimeoutMillis", 0, this::setEventQueueOfferTimeoutMillis);
+
+      previous = eventDeliveryQueue;
+      if (previous != null) {
+        eventDeliveryQueue = null;
+        getEventDeliveryQueue().registerMBean();
+      }
+    }
+
+    if (previous != null) {
+      previous.shutdown();
+    }
+  }
+
+  private static void updateSetting(
+      Map<String, Object> properties, String key, int minimum, IntConsumer setter) {
+    Object value = properties.get(key);
+    if (value instanceof Number && ((Number) value).intValue() >= minimum) {
+      setter.accept(((Number) value).intValue());
+    } else if (value != null) {
+      LOGGER.debug("Ignoring invalid value {} for {}", value, key);
+    }
+  }
+
+  public void setEventDeliveryThreads(int eventDeliveryThreads) {
+    this.eventDeliveryThreads = eventDeliveryThreads;
+  }
+
+  public void setEventQueueCapacity(int eventQueueCapacity) {
+    this.eventQueueCapacity = eventQueueCapacity;
+  }
+
+  public void setSubscriptionDeliveryThreads(int subscriptionDeliveryThreads) {
+    this.subscriptionDeliveryThreads = subscriptionDeliveryThreads;
+  }
+
+  public void setSubscriptionQueueCapacity(int subscriptionQueueCapacity) {
+    this.subscriptionQueueCapacity = subscriptionQueueCapacity;
+  }
+
+  public void setEventQueueOfferTimeoutMillis(int eventQueueOfferTimeoutMillis) {
+    this.eventQueueOfferTimeoutMillis = eventQueueOfferTimeoutMillis;
+  }
+
+  synchronized EventDeliveryQueue getEventDeliveryQueue() {
+    if (eventDeliveryQueue == null) {
+      eventDeliveryQueue =
+          new EventDeliveryQueue(
+              (metacard, operation) -> processEntry(metacard, operation, eventAdmin),
+              eventDeliveryThreads,
+              eventQueueCapacity,
+              subscriptionDeliveryThreads,
+              subscriptionQueueCapacity,
+              eventQueueOfferTimeoutMillis);
+    }
+    return eventDeliveryQueue;
+  }
+
   /**
    * By default the Felix EventAdmin implementation has a timeout of 5000 ms. Your event handler has
    * to return from the handle event method in this time frame. If it does not, it gets Blacklisted.
-   * Therefore, this method processes its events in a separate thread than the EventAdmin who called
-   * it.
+   * Therefore, this method hands its events to a bounded delivery queue serviced by a fixed pool of
+   * threads. When that queue is full this method waits a short, configurable time for room before
+   * dropping the event.
    */
   public void handleEvent(Event event) {
     String methodName = "handleEvent";
@@ -237,12 +336,12 @@ public void handleEvent(Event event) {
 
     LOGGER.debug("Received event: {}", event.getTopic());
 
-    if (!existingSubscriptions.isEmpty()) {
+    if (!subscriptionIndex.isEmpty()) {
       String topic = event.getTopic();
       Metacard entry = (Metacard) event.getProperty(EventProcessor.EVENT_METACARD);
       LOGGER.debug("metacard ID = {}", entry.getId());
 
-      new PubSubThread(entry, topic, eventAdmin).start();
+      getEventDeliveryQueue().submit(entry, topic);
     } else {
       LOGGER.debug(
           "No existing subscriptions, so no need to handle event since there is no one listening ...");
@@ -284,18 +383,16 @@ public void createSubscription(Subscription subscription, String subscriptionId)
       Predicate finalPredicate = (Predicate) subscription.accept(visitor, null);
       LOGGER.debug("predicate from filter visitor: {}", finalPredicate);
 
-      String[] topics = new String[] {PubSubConstants.PUBLISHED_EVENT_TOPIC_NAME};
-
-      Dictionary<String, String[]> props = new Hashtable<>(1, 1);
-      props.put(EventConstants.EVENT_TOPIC, topics);
-      ServiceRegistration serviceRegistration =
-          bundleContext.registerService(
-              EventHandler.class.getName(),
-              new PublishedEventHandler(
-                  finalPredicate, subscription, preDelivery, catalog, threadPool),
-              props);
-
-      existingSubscriptions.put(subscriptionId, serviceRegistration);
+      subscriptionIndex.add(
+          subscriptionId,
+          finalPredicate,
+          new PublishedEventHandler(
+              finalPredicate,
+              subscription,
+              preDelivery,
+              catalog,
+              delivery -> getEventDeliveryQueue().deliverToSubscription(delivery)));
+      registerSubscriptionIndex();
 
       LOGGER.debug("Subscription {} created.", subscriptionId);
     } catch (Exception e) {
@@ -306,6 +403,31 @@ public void createSubscription(Subscription subscription, String subscriptionId)
     LOGGER.trace(EXITING, methodName);
   }
 
+  /**
+   * Registers a single handler for published events that evaluates only the subscriptions the
+   * {@link SubscriptionIndex} finds to be candidates, instead of one handler per subscription that
+   * EventAdmin would call for every event.
+   */
+  private synchronized void registerSubscriptionIndex() {
+    if (subscriptionIndexRegistration != null) {
+      return;
+    }
+
+    String[] topics = new String[] {PubSubConstants.PUBLISHED_EVENT_TOPIC_NAME};
+
+    Dictionary<String, String[]> props = new Hashtable<>(1, 1);
+    props.put(EventConstants.EVENT_TOPIC, topics);
+    subscriptionIndexRegistration =
+        bundleContext.registerService(
+            EventHandler.class.getName(), (EventHandler) this::handlePublishedEvent, props);
+  }
+
+  void handlePublishedEvent(Event event) {
+    for (PublishedEventHandler handler : subscriptionIndex.getCandidates(event)) {
+      handler.handleEvent(event);
+    }
+  }
+
   @Override
   public void updateSubscription(Subscription subscription, String subscriptionId)
       throws SubscriptionNotFoundException {
@@ -333,11 +455,8 @@ public void deleteSubscription(String subscriptionId) throws SubscriptionNotFoun
 
     try {
       LOGGER.debug("Removing subscription: {}", subscriptionId);
-      ServiceRegistration sr = (ServiceRegistration) existingSubscriptions.get(subscriptionId);
-      if (sr != null) {
-        sr.unregister();
+      if (subscriptionIndex.remove(subscriptionId) != null) {
         LOGGER.debug("Removal complete");
-        existingSubscriptions.remove(subscriptionId);
       } else {
         LOGGER.debug(
             "Unable to find existing subscription: {}.  May already be deleted.", subscriptionId);
@@ -23,7 +23,7 @@
 import ddf.catalog.pubsub.predicate.Predicate;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import org.apache.commons.collections.CollectionUtils;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
@@ -33,7 +33,7 @@
 public class PublishedEventHandler implements EventHandler {
   private static final Logger LOGGER = LoggerFactory.getLogger(PublishedEventHandler.class);
 
-  private final ExecutorService threadPool;
+  private final Executor threadPool;
 
   private Predicate predicate;
 
@@ -48,7 +48,7 @@ public PublishedEventHandler(
       Subscription subscription,
       List<PreDeliveryPlugin> preDelivery,
       CatalogFramework catalog,
-      ExecutorService threadPool) {
+      Executor threadPool) {
     this.predicate = finalPredicate;
     this.subscription = subscription;
     this.preDelivery = preDelivery;
@@ -57,7 +57,7 @@ public PublishedEventHandler(
   }
 
   public void handleEvent(Event event) {
-    threadPool.submit(new EventProcessor(event));
+    threadPool.execute(new EventProcessor(event));
   }
 
   private class EventProcessor implements Runnable {
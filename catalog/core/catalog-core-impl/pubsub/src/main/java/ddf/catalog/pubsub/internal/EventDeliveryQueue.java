@@ -0,0 +1,377 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.pubsub.internal;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.event.EventProcessor;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Republishes catalog create, update and delete events to subscriptions using a fixed number of
+ * worker threads fed from a bounded queue, then runs the delivery of each event to each matching
+ * subscription on a second bounded pool.
+ *
+ * <p>When either queue is full, {@link #submit(Metacard, String)} and {@link
+ * #deliverToSubscription(Runnable)} block the caller for up to the configured offer timeout before
+ * dropping the event or delivery, which pushes back on the EventAdmin thread instead of starting a
+ * new thread per event or letting deliveries pile up without bound.
+ */
+public class EventDeliveryQueue implements EventDeliveryQueueMBean {
+
+  public static final int DEFAULT_THREADS = 8;
+
+  public static final int DEFAULT_CAPACITY = 10000;
+
+  public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 1000;
+
+  public static final int DEFAULT_SUBSCRIPTION_THREADS = 32;
+
+  public static final int DEFAULT_SUBSCRIPTION_CAPACITY = 10000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EventDeliveryQueue.class);
+
+  private final BlockingQueue<PendingEvent> queue;
+
+  private final int capacity;
+
+  private final long offerTimeoutMillis;
+
+  private final BiConsumer<Metacard, String> publisher;
+
+  private final ExecutorService workers;
+
+  private final BlockingQueue<Runnable> subscriptionQueue;
+
+  private final int subscriptionCapacity;
+
+  private final ThreadPoolExecutor subscriptionWorkers;
+
+  private final LongAdder delivered = new LongAdder();
+
+  private final LongAdder dropped = new LongAdder();
+
+  private final LongAdder droppedSubscriptionDeliveries = new LongAdder();
+
+  private final LongAdder totalLatencyNanos = new LongAdder();
+
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+  private volatile boolean running = true;
+
+  /**
+   * @param publisher publishes a single metacard for an operation from {@link PubSubConstants}
+   * @param threads number of worker threads delivering events
+   * @param capacity maximum number of events waiting to be delivered
+   * @param offerTimeoutMillis how long {@link #submit(Metacard, String)} waits for room in a full
+   *     queue before dropping the event
+   */
+  public EventDeliveryQueue(
+      BiConsumer<Metacard, String> publisher, int threads, int capacity, long offerTimeoutMillis) {
+    this(
+        publisher,
+        threads,
+        capacity,
+        DEFAULT_SUBSCRIPTION_THREADS,
+        DEFAULT_SUBSCRIPTION_CAPACITY,
+        offerTimeoutMillis);
+  }
+
+  /**
+   * @param publisher publishes a single metacard for an operation from {@link PubSubConstants}
+   * @param threads number of worker threads delivering events
+   * @param capacity maximum number of events waiting to be delivered
+   * @param subscriptionThreads number of threads delivering events to individual subscriptions
+   * @param subscriptionCapacity maximum number of subscription deliveries waiting for a thread
+   * @param offerTimeoutMillis how long {@link #submit(Metacard, String)} and {@link
+   *     #deliverToSubscription(Runnable)} wait for room in a full queue before dropping the event
+   */
+  public EventDeliveryQueue(
+      BiConsumer<Metacard, String> publisher,
+      int threads,
+      int capacity,
+      int subscriptionThreads,
+      int subscriptionCapacity,
+      long offerTimeoutMillis) {
+    if (threads < 1 || capacity < 1 || subscriptionThreads < 1 || subscriptionCapacity < 1) {
+      throw new IllegalArgumentException(
+          "Event delivery threads and queue capacities must be positive.");
+    }
+
+    this.publisher = publisher;
+    this.capacity = capacity;
+    this.offerTimeoutMillis = offerTimeoutMillis;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.workers =
+        Executors.newFixedThreadPool(
+            threads, StandardThreadFactoryBuilder.newThreadFactory("eventDeliveryThread"));
+    for (int i = 0; i < threads; i++) {
+      workers.execute(this::deliverEvents);
+    }
+
+    this.subscriptionCapacity = subscriptionCapacity;
+    this.subscriptionQueue = new ArrayBlockingQueue<>(subscriptionCapacity);
+    this.subscriptionWorkers =
+        new ThreadPoolExecutor(
+            subscriptionThreads,
+            subscriptionThreads,
+            60L,
+            SECONDS,
+            subscriptionQueue,
+            StandardThreadFactoryBuilder.newThreadFactory("eventProcessorThread"));
+    subscriptionWorkers.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Queues an event for delivery, waiting up to the offer timeout if the queue is full.
+   *
+   * @param entry metacard the event is about
+   * @param topic one of the {@link EventProcessor} event topics
+   * @return {@code true} if the event was queued, {@code false} if it was dropped
+   */
+  public boolean submit(Metacard entry, String topic) {
+    if (!running) {
+      LOGGER.debug("Event delivery has been shut down, dropping event on topic {}", topic);
+      dropped.increment();
+      return false;
+    }
+
+    try {
+      if (queue.offer(new PendingEvent(entry, topic), offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+      LOGGER.debug(
+          "Event delivery queue stayed full for {} ms, dropping event for metacard {}",
+          offerTimeoutMillis,
+          entry.getId());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.debug("Interrupted while queueing event for metacard {}", entry.getId());
+    }
+
+    dropped.increment();
+    return false;
+  }
+
+  /**
+   * Queues the delivery of an event to a single subscription, waiting up to the offer timeout if
+   * the subscription delivery queue is full.
+   *
+   * @return {@code true} if the delivery was queued, {@code false} if it was dropped
+   */
+  public boolean deliverToSubscription(Runnable delivery) {
+    if (running) {
+      try {
+        if (subscriptionQueue.offer(delivery, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+          // idle threads time out, so start one unless they are all running already
+          subscriptionWorkers.prestartCoreThread();
+          return true;
+        }
+        LOGGER.debug(
+            "Subscription delivery queue stayed full for {} ms, dropping delivery",
+            offerTimeoutMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOGGER.debug("Interrupted while queueing subscription delivery");
+      }
+    } else {
+      LOGGER.debug("Event delivery has been shut down, dropping subscription delivery");
+    }
+
+    droppedSubscriptionDeliveries.increment();
+    return false;
+  }
+
+  /**
+   * Stops the workers. Events and subscription deliveries still queued are delivered if that
+   * completes within the shutdown timeout.
+   */
+  public void shutdown() {
+    running = false;
+    workers.shutdownNow();
+    try {
+      if (!workers.awaitTermination(30, SECONDS)) {
+        LOGGER.debug("Event delivery threads did not terminate.");
+      }
+      subscriptionWorkers.shutdown();
+      if (!subscriptionWorkers.awaitTermination(30, SECONDS)) {
+        LOGGER.debug("Subscription delivery threads did not terminate.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (!queue.isEmpty()) {
+      LOGGER.info("Dropping {} undelivered catalog events on shutdown.", queue.size());
+      dropped.add(queue.size());
+      queue.clear();
+    }
+  }
+
+  public void registerMBean() {
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = new ObjectName(OBJECT_NAME);
+      StandardMBean mbean = new StandardMBean(this, EventDeliveryQueueMBean.class);
+      try {
+        mbeanServer.registerMBean(mbean, objectName);
+      } catch (InstanceAlreadyExistsException e) {
+        LOGGER.debug("Re-registering event delivery MBean");
+        mbeanServer.unregisterMBean(objectName);
+        mbeanServer.registerMBean(mbean, objectName);
+      }
+    } catch (JMException e) {
+      LOGGER.debug("Could not register event delivery MBean.", e);
+    }
+  }
+
+  public void unregisterMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+    } catch (InstanceNotFoundException | MalformedObjectNameException e) {
+      LOGGER.debug("Event delivery MBean was not registered.", e);
+    } catch (JMException e) {
+      LOGGER.debug("Could not unregister event delivery MBean.", e);
+    }
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  @Override
+  public int getQueueCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public long getDeliveredEvents() {
+    return delivered.sum();
+  }
+
+  @Override
+  public long getDroppedEvents() {
+    return dropped.sum();
+  }
+
+  @Override
+  public int getSubscriptionQueueDepth() {
+    return subscriptionQueue.size();
+  }
+
+  @Override
+  public int getSubscriptionQueueCapacity() {
+    return subscriptionCapacity;
+  }
+
+  @Override
+  public long getDroppedSubscriptionDeliveries() {
+    return droppedSubscriptionDeliveries.sum();
+  }
+
+  @Override
+  public double getMeanDeliveryLatencyMillis() {
+    long count = delivered.sum();
+    return count == 0 ? 0 : totalLatencyNanos.sum() / (double) count / 1_000_000;
+  }
+
+  @Override
+  public long getMaxDeliveryLatencyMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+  }
+
+  private void deliverEvents() {
+    while (running || !queue.isEmpty()) {
+      PendingEvent event;
+      try {
+        event = running ? queue.take() : queue.poll();
+      } catch (InterruptedException e) {
+        // shutdown() interrupts idle workers; keep going so queued events are still delivered
+        continue;
+      }
+      if (event == null) {
+        return;
+      }
+
+      deliver(event);
+    }
+  }
+
+  private void deliver(PendingEvent event) {
+    String operation = getOperation(event.topic);
+    if (operation != null) {
+      try {
+        publisher.accept(event.entry, operation);
+      } catch (RuntimeException e) {
+        LOGGER.info("Unable to deliver event for metacard {}", event.entry.getId(), e);
+      }
+    }
+    recordDelivery(event);
+  }
+
+  private void recordDelivery(PendingEvent event) {
+    long latency = System.nanoTime() - event.queuedAt;
+    delivered.increment();
+    totalLatencyNanos.add(latency);
+    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+  }
+
+  private static String getOperation(String topic) {
+    switch (topic) {
+      case EventProcessor.EVENTS_TOPIC_CREATED:
+        return PubSubConstants.CREATE;
+      case EventProcessor.EVENTS_TOPIC_UPDATED:
+        return PubSubConstants.UPDATE;
+      case EventProcessor.EVENTS_TOPIC_DELETED:
+        return PubSubConstants.DELETE;
+      default:
+        LOGGER.debug("Ignoring event on unsupported topic {}", topic);
+        return null;
+    }
+  }
+
+  private static class PendingEvent {
+    private final Metacard entry;
+
+    private final String topic;
+
+    private final long queuedAt = System.nanoTime();
+
+    PendingEvent(Metacard entry, String topic) {
+      this.entry = entry;
+      this.topic = topic;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.pubsub.internal;
+
+/** Metrics for the queue that republishes catalog events to subscriptions. */
+public interface EventDeliveryQueueMBean {
+
+  String OBJECT_NAME = "ddf.catalog.pubsub:service=event-delivery";
+
+  /** @return the number of events waiting to be delivered */
+  int getQueueDepth();
+
+  /** @return the maximum number of events that can wait to be delivered */
+  int getQueueCapacity();
+
+  /** @return the number of events delivered since startup */
+  long getDeliveredEvents();
+
+  /** @return the number of events dropped because the queue stayed full */
+  long getDroppedEvents();
+
+  /** @return the number of deliveries to individual subscriptions waiting for a thread */
+  int getSubscriptionQueueDepth();
+
+  /** @return the maximum number of deliveries to individual subscriptions that can wait */
+  int getSubscriptionQueueCapacity();
+
+  /**
+   * @return the number of deliveries to individual subscriptions dropped because their queue stayed
+   *     full
+   */
+  long getDroppedSubscriptionDeliveries();
+
+  /** @return the mean time, in milliseconds, from an event being queued to it being delivered */
+  double getMeanDeliveryLatencyMillis();
+
+  /** @return the longest time, in milliseconds, from an event being queued to it being delivered */
+  long getMaxDeliveryLatencyMillis();
+}
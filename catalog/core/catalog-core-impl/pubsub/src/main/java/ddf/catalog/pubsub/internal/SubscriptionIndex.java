@@ -0,0 +1,434 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.pubsub.internal;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.intervalrtree.SortedPackedIntervalRTree;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.pubsub.EventProcessorImpl.DateType;
+import ddf.catalog.pubsub.predicate.AndPredicate;
+import ddf.catalog.pubsub.predicate.ContentTypePredicate;
+import ddf.catalog.pubsub.predicate.GeospatialPredicate;
+import ddf.catalog.pubsub.predicate.OrPredicate;
+import ddf.catalog.pubsub.predicate.Predicate;
+import ddf.catalog.pubsub.predicate.TemporalPredicate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.geotools.geometry.jts.WKTReader2;
+import org.osgi.service.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes subscriptions by a cheap necessary condition of their {@link Predicate} so that an event
+ * only has to be fully evaluated against the subscriptions that could possibly match it.
+ *
+ * <p>Each subscription is indexed on at most one of:
+ *
+ * <ul>
+ *   <li>the literal content types a {@link ContentTypePredicate} requires, in a hash map
+ *   <li>the bounding boxes of a {@link GeospatialPredicate}, grown by its distance, in an R-tree
+ *   <li>the absolute time windows of a {@link TemporalPredicate}, in an interval tree per {@link
+ *       DateType}
+ * </ul>
+ *
+ * <p>Conditions are found through {@link AndPredicate}s, where either side's condition applies, and
+ * through {@link OrPredicate}s whose sides are both indexed on the same kind of condition.
+ * Subscriptions with no such condition, such as purely contextual ones, are always candidates. The
+ * candidates returned are a superset of the matching subscriptions; callers still evaluate each
+ * candidate's predicate.
+ *
+ * <p>Adding and removing subscriptions is synchronized and rebuilds the read-only trees lazily on
+ * the next lookup, so lookups on an unchanged index do not lock.
+ *
+ * @param <T> the value delivered for a matching subscription
+ */
+public class SubscriptionIndex<T> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionIndex.class);
+
+  /** Content types containing any of these are regular expressions and cannot be looked up. */
+  private static final Pattern REGEX_CHARACTERS = Pattern.compile("[.*?+\\[\\](){}|\\\\^$]");
+
+  private static final String NULL_CONTENT_TYPE = "null";
+
+  private final Map<String, Entry<T>> entries = new LinkedHashMap<>();
+
+  private volatile Snapshot<T> snapshot = new Snapshot<>(Collections.emptyList());
+
+  private volatile boolean dirty = false;
+
+  /** Adds a subscription, replacing any existing subscription with the same id. */
+  public synchronized void add(String subscriptionId, Predicate predicate, T value) {
+    entries.put(subscriptionId, new Entry<>(value, conditionOf(predicate)));
+    dirty = true;
+  }
+
+  /** @return the value of the removed subscription, or {@code null} if there was none */
+  public synchronized T remove(String subscriptionId) {
+    Entry<T> removed = entries.remove(subscriptionId);
+    if (removed == null) {
+      return null;
+    }
+    dirty = true;
+    return removed.value;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /**
+   * @param event an event published by {@link ddf.catalog.pubsub.EventProcessorImpl#processEntry}
+   * @return the values of every subscription that could match {@code event}
+   */
+  public List<T> getCandidates(Event event) {
+    return getSnapshot().getCandidates(event);
+  }
+
+  private Snapshot<T> getSnapshot() {
+    if (dirty) {
+      synchronized (this) {
+        if (dirty) {
+          snapshot = new Snapshot<>(new ArrayList<>(entries.values()));
+          dirty = false;
+        }
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * @return a condition every event matching {@code predicate} satisfies, or {@code null} if none
+   *     can be indexed
+   */
+  static Condition conditionOf(Predicate predicate) {
+    if (predicate instanceof ContentTypePredicate) {
+      String type = ((ContentTypePredicate) predicate).getType();
+      if (type == null || REGEX_CHARACTERS.matcher(type).find()) {
+        return null;
+      }
+      return Condition.contentTypes(Collections.singleton(type));
+    }
+
+    if (predicate instanceof GeospatialPredicate) {
+      GeospatialPredicate geoPredicate = (GeospatialPredicate) predicate;
+      Geometry geometry = geoPredicate.getGeoCriteria();
+      if (geometry == null || geometry.isEmpty()) {
+        return null;
+      }
+      Envelope envelope = new Envelope(geometry.getEnvelopeInternal());
+      envelope.expandBy(Math.abs(geoPredicate.getDistance()));
+      return Condition.envelopes(Collections.singletonList(envelope));
+    }
+
+    if (predicate instanceof TemporalPredicate) {
+      TemporalPredicate temporalPredicate = (TemporalPredicate) predicate;
+      Date start = temporalPredicate.getStart();
+      Date end = temporalPredicate.getEnd();
+      if (temporalPredicate.getOffset() > 0
+          || temporalPredicate.getType() == null
+          || start == null
+          || end == null) {
+        return null;
+      }
+      return Condition.windows(
+          Collections.singletonList(
+              new TimeWindow(temporalPredicate.getType(), start.getTime(), end.getTime())));
+    }
+
+    if (predicate instanceof AndPredicate) {
+      Condition left = conditionOf(((AndPredicate) predicate).getLeft());
+      Condition right = conditionOf(((AndPredicate) predicate).getRight());
+      if (left == null || right == null) {
+        return left == null ? right : left;
+      }
+      return left.kind.compareTo(right.kind) <= 0 ? left : right;
+    }
+
+    if (predicate instanceof OrPredicate) {
+      Condition left = conditionOf(((OrPredicate) predicate).getLeft());
+      Condition right = conditionOf(((OrPredicate) predicate).getRight());
+      if (left == null || right == null || left.kind != right.kind) {
+        return null;
+      }
+      return left.union(right);
+    }
+
+    return null;
+  }
+
+  private static class Entry<T> {
+    private final T value;
+
+    private final Condition condition;
+
+    Entry(T value, Condition condition) {
+      this.value = value;
+      this.condition = condition;
+    }
+  }
+
+  /** The kinds of condition, in the order they are preferred when more than one applies. */
+  enum Kind {
+    CONTENT_TYPE,
+    GEOSPATIAL,
+    TEMPORAL
+  }
+
+  static class Condition {
+    private final Kind kind;
+
+    private final Set<String> contentTypes;
+
+    private final List<Envelope> envelopes;
+
+    private final List<TimeWindow> windows;
+
+    private Condition(
+        Kind kind, Set<String> contentTypes, List<Envelope> envelopes, List<TimeWindow> windows) {
+      this.kind = kind;
+      this.contentTypes = contentTypes;
+      this.envelopes = envelopes;
+      this.windows = windows;
+    }
+
+    static Condition contentTypes(Set<String> contentTypes) {
+      return new Condition(Kind.CONTENT_TYPE, contentTypes, null, null);
+    }
+
+    static Condition envelopes(List<Envelope> envelopes) {
+      return new Condition(Kind.GEOSPATIAL, null, envelopes, null);
+    }
+
+    static Condition windows(List<TimeWindow> windows) {
+      return new Condition(Kind.TEMPORAL, null, null, windows);
+    }
+
+    Condition union(Condition other) {
+      switch (kind) {
+        case CONTENT_TYPE:
+          Set<String> types = new HashSet<>(contentTypes);
+          types.addAll(other.contentTypes);
+          return contentTypes(types);
+        case GEOSPATIAL:
+          List<Envelope> allEnvelopes = new ArrayList<>(envelopes);
+          allEnvelopes.addAll(other.envelopes);
+          return envelopes(allEnvelopes);
+        default:
+          List<TimeWindow> allWindows = new ArrayList<>(windows);
+          allWindows.addAll(other.windows);
+          return windows(allWindows);
+      }
+    }
+  }
+
+  private static class TimeWindow {
+    private final DateType type;
+
+    private final long start;
+
+    private final long end;
+
+    TimeWindow(DateType type, long start, long end) {
+      this.type = type;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /** Read-only lookup structures built from the subscriptions present at one point in time. */
+  private static class Snapshot<T> {
+    private final List<Entry<T>> all;
+
+    private final List<Entry<T>> unindexed = new ArrayList<>();
+
+    private final Map<String, List<Entry<T>>> byContentType = new HashMap<>();
+
+    private final STRtree byEnvelope = new STRtree();
+
+    private final Map<DateType, SortedPackedIntervalRTree> byTimeWindow =
+        new EnumMap<>(DateType.class);
+
+    private final Map<DateType, List<Entry<T>>> byDateType = new EnumMap<>(DateType.class);
+
+    private final List<Entry<T>> geospatial = new ArrayList<>();
+
+    Snapshot(List<Entry<T>> entries) {
+      this.all = entries;
+      for (Entry<T> entry : entries) {
+        Condition condition = entry.condition;
+        if (condition == null) {
+          unindexed.add(entry);
+          continue;
+        }
+
+        switch (condition.kind) {
+          case CONTENT_TYPE:
+            for (String type : condition.contentTypes) {
+              byContentType.computeIfAbsent(type, t -> new ArrayList<>()).add(entry);
+            }
+            break;
+          case GEOSPATIAL:
+            geospatial.add(entry);
+            for (Envelope envelope : condition.envelopes) {
+              byEnvelope.insert(envelope, entry);
+            }
+            break;
+          default:
+            for (TimeWindow window : condition.windows) {
+              byTimeWindow
+                  .computeIfAbsent(window.type, t -> new SortedPackedIntervalRTree())
+                  .insert(window.start, window.end, entry);
+              byDateType.computeIfAbsent(window.type, t -> new ArrayList<>()).add(entry);
+            }
+            break;
+        }
+      }
+      // both trees build themselves on first use, which is not thread-safe, so build them here
+      byEnvelope.build();
+      byTimeWindow.values().forEach(tree -> tree.query(0, 0, item -> {}));
+    }
+
+    List<T> getCandidates(Event event) {
+      if (all.isEmpty()) {
+        return Collections.emptyList();
+      }
+
+      Metacard metacard = (Metacard) event.getProperty(PubSubConstants.HEADER_ENTRY_KEY);
+      if (metacard == null || isDeletedWithoutMetadata(event)) {
+        // the predicates accept every event of this kind, or cannot be narrowed down without
+        // the metacard
+        return values(all);
+      }
+
+      Set<Entry<T>> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+      candidates.addAll(unindexed);
+      addContentTypeCandidates(event, candidates);
+      addGeospatialCandidates(metacard, candidates);
+      addTemporalCandidates(metacard, candidates);
+
+      LOGGER.debug(
+          "{} of {} subscriptions are candidates for metacard {}",
+          candidates.size(),
+          all.size(),
+          metacard.getId());
+      return values(candidates);
+    }
+
+    private void addContentTypeCandidates(Event event, Set<Entry<T>> candidates) {
+      if (byContentType.isEmpty()) {
+        return;
+      }
+
+      Object contentType = event.getProperty(PubSubConstants.HEADER_CONTENT_TYPE_KEY);
+      if (contentType == null) {
+        return;
+      }
+
+      // mirrors the parsing in ContentTypeEvaluator
+      String input = contentType.toString();
+      String type = NULL_CONTENT_TYPE;
+      if (!",".equals(input)) {
+        String name = input.split(",")[0];
+        if (!name.isEmpty()) {
+          type = name;
+        }
+      }
+
+      List<Entry<T>> matches = byContentType.get(type);
+      if (matches != null) {
+        candidates.addAll(matches);
+      }
+    }
+
+    private void addGeospatialCandidates(Metacard metacard, Set<Entry<T>> candidates) {
+      if (geospatial.isEmpty()) {
+        return;
+      }
+
+      Geometry location = null;
+      try {
+        String wkt = metacard.getLocation();
+        if (wkt != null) {
+          location = new WKTReader2().read(wkt);
+        }
+      } catch (Exception e) {
+        LOGGER.debug("Unable to read location of metacard {}", metacard.getId(), e);
+      }
+
+      if (location == null || location.isEmpty()) {
+        // leave the outcome to the predicates themselves
+        candidates.addAll(geospatial);
+        return;
+      }
+
+      for (Object entry : byEnvelope.query(location.getEnvelopeInternal())) {
+        candidates.add((Entry<T>) entry);
+      }
+    }
+
+    private void addTemporalCandidates(Metacard metacard, Set<Entry<T>> candidates) {
+      for (Map.Entry<DateType, SortedPackedIntervalRTree> tree : byTimeWindow.entrySet()) {
+        Date date;
+        try {
+          date = TemporalPredicate.getDate(metacard, tree.getKey());
+        } catch (RuntimeException e) {
+          LOGGER.debug("Unable to read {} date of metacard {}", tree.getKey(), metacard.getId());
+          candidates.addAll(byDateType.get(tree.getKey()));
+          continue;
+        }
+
+        if (date != null) {
+          long time = date.getTime();
+          tree.getValue().query(time, time, item -> candidates.add((Entry<T>) item));
+        }
+      }
+    }
+
+    private boolean isDeletedWithoutMetadata(Event event) {
+      if (!PubSubConstants.DELETE.equals(event.getProperty(PubSubConstants.HEADER_OPERATION_KEY))) {
+        return false;
+      }
+
+      Object contextualMap = event.getProperty(PubSubConstants.HEADER_CONTEXTUAL_KEY);
+      return contextualMap instanceof Map
+          && PubSubConstants.METADATA_DELETED.equals(((Map) contextualMap).get("METADATA"));
+    }
+
+    private List<T> values(Iterable<Entry<T>> entries) {
+      List<T> values = new ArrayList<>();
+      for (Entry<T> entry : entries) {
+        values.add(entry.value);
+      }
+      return values;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.pubsub;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.event.EventProcessor;
+import ddf.catalog.pubsub.internal.EventDeliveryQueue;
+import ddf.catalog.pubsub.internal.PubSubConstants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class EventDeliveryQueueTest {
+
+  private EventDeliveryQueue deliveryQueue;
+
+  @After
+  public void tearDown() {
+    if (deliveryQueue != null) {
+      deliveryQueue.shutdown();
+    }
+  }
+
+  @Test
+  public void testEventsDeliveredInOrderWithOperation() throws Exception {
+    List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(4);
+    deliveryQueue =
+        new EventDeliveryQueue(
+            (metacard, operation) -> {
+              delivered.add(metacard.getId() + ":" + operation);
+              done.countDown();
+            },
+            1,
+            10,
+            1000);
+
+    deliveryQueue.submit(metacard("1"), EventProcessor.EVENTS_TOPIC_CREATED);
+    deliveryQueue.submit(metacard("2"), EventProcessor.EVENTS_TOPIC_CREATED);
+    deliveryQueue.submit(metacard("3"), EventProcessor.EVENTS_TOPIC_UPDATED);
+    deliveryQueue.submit(metacard("4"), EventProcessor.EVENTS_TOPIC_DELETED);
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertThat(
+        delivered,
+        is(
+            Arrays.asList(
+                "1:" + PubSubConstants.CREATE,
+                "2:" + PubSubConstants.CREATE,
+                "3:" + PubSubConstants.UPDATE,
+                "4:" + PubSubConstants.DELETE)));
+    assertThat(deliveryQueue.getDroppedEvents(), is(0L));
+  }
+
+  @Test
+  public void testEventDroppedWhenQueueStaysFull() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+    deliveryQueue =
+        new EventDeliveryQueue(
+            (metacard, operation) -> {
+              started.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              done.countDown();
+            },
+            1,
+            1,
+            10);
+
+    assertTrue(deliveryQueue.submit(metacard("1"), EventProcessor.EVENTS_TOPIC_CREATED));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertTrue(deliveryQueue.submit(metacard("2"), EventProcessor.EVENTS_TOPIC_CREATED));
+    assertThat(deliveryQueue.submit(metacard("3"), EventProcessor.EVENTS_TOPIC_CREATED), is(false));
+
+    assertThat(deliveryQueue.getQueueDepth(), is(1));
+    assertThat(deliveryQueue.getDroppedEvents(), is(1L));
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testUnknownTopicNotPublished() throws Exception {
+    List<Metacard> published = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(1);
+    deliveryQueue =
+        new EventDeliveryQueue(
+            (metacard, operation) -> {
+              published.add(metacard);
+              done.countDown();
+            },
+            1,
+            10,
+            1000);
+
+    deliveryQueue.submit(metacard("1"), "ddf/catalog/event/UNKNOWN");
+    deliveryQueue.submit(metacard("2"), EventProcessor.EVENTS_TOPIC_CREATED);
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertThat(published.size(), is(1));
+    assertThat(published.get(0).getId(), is("2"));
+  }
+
+  @Test
+  public void testSubscriptionDeliveryDroppedWhenQueueStaysFull() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+    Runnable delivery =
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          done.countDown();
+        };
+    deliveryQueue = new EventDeliveryQueue((metacard, operation) -> {}, 1, 1, 1, 1, 10);
+
+    assertTrue(deliveryQueue.deliverToSubscription(delivery));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertTrue(deliveryQueue.deliverToSubscription(delivery));
+    assertThat(deliveryQueue.deliverToSubscription(delivery), is(false));
+
+    assertThat(deliveryQueue.getSubscriptionQueueDepth(), is(1));
+    assertThat(deliveryQueue.getDroppedSubscriptionDeliveries(), is(1L));
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    deliveryQueue = new EventDeliveryQueue((metacard, operation) -> {}, 1, 0, 1000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSubscriptionCapacity() {
+    deliveryQueue = new EventDeliveryQueue((metacard, operation) -> {}, 1, 1, 1, 0, 1000);
+  }
+
+  private Metacard metacard(String id) {
+    MetacardImpl metacard = new MetacardImpl();
+    metacard.setId(id);
+    return metacard;
+  }
+}
@@ -14,10 +14,16 @@
 package ddf.catalog.pubsub;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.pubsub.internal.EventDeliveryQueue;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -93,6 +99,28 @@ public void testDateType() throws Exception {
     }
   }
 
+  @Test
+  public void testUpdateConfigurationReplacesDeliveryQueue() {
+    EventProcessorImpl eventProcessor = new EventProcessorImpl();
+    try {
+      eventProcessor.init();
+      EventDeliveryQueue previous = eventProcessor.getEventDeliveryQueue();
+
+      Map<String, Object> properties = new HashMap<>();
+      properties.put("eventQueueCapacity", 5);
+      properties.put("eventDeliveryThreads", 0);
+      properties.put("subscriptionQueueCapacity", 7);
+      eventProcessor.updateConfiguration(properties);
+
+      EventDeliveryQueue current = eventProcessor.getEventDeliveryQueue();
+      assertThat(current, is(not(sameInstance(previous))));
+      assertThat(current.getQueueCapacity(), is(5));
+      assertThat(current.getSubscriptionQueueCapacity(), is(7));
+    } finally {
+      eventProcessor.destroy();
+    }
+  }
+
   @Test(expected = NullPointerException.class)
   public void testDateTypeNullAttr() {
     EventProcessorImpl.DateType.getDateType(null);
@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.pubsub;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.pubsub.EventProcessorImpl.DateType;
+import ddf.catalog.pubsub.criteria.geospatial.SpatialOperator;
+import ddf.catalog.pubsub.internal.PubSubConstants;
+import ddf.catalog.pubsub.internal.SubscriptionFilterVisitor;
+import ddf.catalog.pubsub.internal.SubscriptionIndex;
+import ddf.catalog.pubsub.predicate.ContentTypePredicate;
+import ddf.catalog.pubsub.predicate.GeospatialPredicate;
+import ddf.catalog.pubsub.predicate.Predicate;
+import ddf.catalog.pubsub.predicate.TemporalPredicate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.codice.ddf.test.common.benchmark.Benchmark;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SubscriptionIndexTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionIndexTest.class);
+
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private SubscriptionIndex<String> index;
+
+  @Before
+  public void setUp() {
+    index = new SubscriptionIndex<>();
+  }
+
+  @Test
+  public void testContentTypeCandidates() {
+    index.add("nitf", new ContentTypePredicate("nitf", null), "nitf");
+    index.add("video", new ContentTypePredicate("video", "1.0"), "video");
+    index.add("wildcard", new ContentTypePredicate("ni*", null), "wildcard");
+    index.add("contextual", event -> true, "contextual");
+
+    assertThat(
+        index.getCandidates(event(metacard("nitf", null, null))),
+        containsInAnyOrder("nitf", "wildcard", "contextual"));
+  }
+
+  @Test
+  public void testGeospatialCandidates() {
+    index.add("west", geo("POLYGON ((-10 -10, -10 10, -1 10, -1 -10, -10 -10))", 0), "west");
+    index.add("east", geo("POLYGON ((1 -10, 1 10, 10 10, 10 -10, 1 -10))", 0), "east");
+    index.add("near-east", geo("POINT (12 0)", 3), "near-east");
+
+    assertThat(index.getCandidates(event(metacard(null, "POINT (-5 0)", null))), contains("west"));
+    assertThat(
+        index.getCandidates(event(metacard(null, "POINT (9.5 0)", null))),
+        containsInAnyOrder("east", "near-east"));
+    assertThat(index.getCandidates(event(metacard(null, "POINT (50 50)", null))), is(empty()));
+  }
+
+  @Test
+  public void testMissingLocationKeepsGeospatialCandidates() {
+    index.add("west", geo("POLYGON ((-10 -10, -10 10, -1 10, -1 -10, -10 -10))", 0), "west");
+
+    assertThat(index.getCandidates(event(metacard(null, null, null))), contains("west"));
+  }
+
+  @Test
+  public void testTemporalCandidates() {
+    index.add("first", temporal(0, 10), "first");
+    index.add("second", temporal(5, 20), "second");
+    index.add("relative", new TemporalPredicate(DAY, DateType.MODIFIED), "relative");
+
+    assertThat(
+        index.getCandidates(event(metacard(null, null, new Date(2 * DAY)))),
+        containsInAnyOrder("first", "relative"));
+    assertThat(
+        index.getCandidates(event(metacard(null, null, new Date(10 * DAY)))),
+        containsInAnyOrder("first", "second", "relative"));
+    assertThat(
+        index.getCandidates(event(metacard(null, null, new Date(30 * DAY)))), contains("relative"));
+  }
+
+  @Test
+  public void testOrOfSameKindIsIndexed() {
+    index.add(
+        "either",
+        SubscriptionFilterVisitor.or(
+            new ContentTypePredicate("nitf", null), new ContentTypePredicate("video", null)),
+        "either");
+
+    assertThat(index.getCandidates(event(metacard("video", null, null))), contains("either"));
+    assertThat(index.getCandidates(event(metacard("pdf", null, null))), is(empty()));
+  }
+
+  @Test
+  public void testOrOfDifferentKindsIsAlwaysCandidate() {
+    index.add(
+        "either",
+        SubscriptionFilterVisitor.or(new ContentTypePredicate("nitf", null), temporal(0, 1)),
+        "either");
+
+    assertThat(index.getCandidates(event(metacard("pdf", null, null))), contains("either"));
+  }
+
+  @Test
+  public void testAndIsIndexedOnEitherSide() {
+    index.add(
+        "both",
+        SubscriptionFilterVisitor.and(temporal(0, 1), new ContentTypePredicate("nitf", null)),
+        "both");
+
+    assertThat(index.getCandidates(event(metacard("nitf", null, null))), contains("both"));
+    assertThat(index.getCandidates(event(metacard("pdf", null, null))), is(empty()));
+  }
+
+  @Test
+  public void testDeletedWithoutMetadataMatchesAll() {
+    index.add("nitf", new ContentTypePredicate("nitf", null), "nitf");
+
+    Event event = event(metacard("pdf", null, null));
+    Map<String, Object> properties = properties(event);
+    properties.put(PubSubConstants.HEADER_OPERATION_KEY, PubSubConstants.DELETE);
+    Map<String, Object> contextualMap = new HashMap<>();
+    contextualMap.put("METADATA", PubSubConstants.METADATA_DELETED);
+    properties.put(PubSubConstants.HEADER_CONTEXTUAL_KEY, contextualMap);
+
+    assertThat(index.getCandidates(new Event("topic", properties)), contains("nitf"));
+  }
+
+  @Test
+  public void testRemove() {
+    index.add("nitf", new ContentTypePredicate("nitf", null), "nitf");
+    assertThat(index.getCandidates(event(metacard("nitf", null, null))), contains("nitf"));
+
+    assertThat(index.remove("nitf"), is("nitf"));
+
+    assertThat(index.isEmpty(), is(true));
+    assertThat(index.getCandidates(event(metacard("nitf", null, null))), is(empty()));
+  }
+
+  /**
+   * Compares evaluating every predicate of 10,000 subscriptions against evaluating only the
+   * candidates found by the index, checking both find the same matches. Only runs when the {@value
+   * Benchmark#BENCHMARK_PROPERTY} system property is {@code true}.
+   */
+  @Test
+  public void benchmarkMatchingTenThousandSubscriptions() throws Exception {
+    Benchmark.assumeEnabled();
+
+    Random random = new Random(1);
+    Map<String, Predicate> predicates = new HashMap<>();
+    SubscriptionIndex<Predicate> predicateIndex = new SubscriptionIndex<>();
+    for (int i = 0; i < 10000; i++) {
+      double x = random.nextInt(340) - 170;
+      double y = random.nextInt(160) - 80;
+      Predicate predicate;
+      switch (i % 3) {
+        case 0:
+          predicate = new ContentTypePredicate("type" + random.nextInt(100), null);
+          break;
+        case 1:
+          predicate =
+              geo(
+                  String.format(
+                      "POLYGON ((%1$s %2$s, %1$s %4$s, %3$s %4$s, %3$s %2$s, %1$s %2$s))",
+                      x, y, x + 5, y + 5),
+                  0);
+          break;
+        default:
+          long start = random.nextInt(365);
+          predicate = temporal(start, start + 7);
+          break;
+      }
+      predicates.put("subscription" + i, predicate);
+      predicateIndex.add("subscription" + i, predicate, predicate);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      events.add(
+          event(
+              metacard(
+                  "type" + random.nextInt(100),
+                  String.format(
+                      "POINT (%s %s)", random.nextInt(360) - 180, random.nextInt(180) - 90),
+                  new Date(random.nextInt(365) * DAY))));
+    }
+
+    long fullMatches = 0;
+    long indexedMatches = 0;
+    long candidates = 0;
+    for (Event event : events) {
+      fullMatches += matchAll(predicates.values(), event);
+      Collection<Predicate> eventCandidates = predicateIndex.getCandidates(event);
+      candidates += eventCandidates.size();
+      indexedMatches += matchAll(eventCandidates, event);
+    }
+    LOGGER.info(
+        "{} events against {} subscriptions: {} candidates, {} matches",
+        events.size(),
+        predicates.size(),
+        candidates,
+        indexedMatches);
+    assertThat(indexedMatches, is(fullMatches));
+
+    // each operation matches the next event, so every round matches all of them once
+    int[] nextEvent = new int[2];
+    Benchmark.named("Matching an event against " + predicates.size() + " subscriptions")
+        .operations(events.size())
+        .add(
+            "every predicate",
+            () -> matchAll(predicates.values(), events.get(nextEvent[0]++ % events.size())))
+        .add(
+            "indexed",
+            () -> {
+              Event event = events.get(nextEvent[1]++ % events.size());
+              matchAll(predicateIndex.getCandidates(event), event);
+            })
+        .run();
+  }
+
+  private static int matchAll(Collection<Predicate> predicates, Event event) {
+    int matches = 0;
+    for (Predicate predicate : predicates) {
+      if (predicate.matches(event)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  private static GeospatialPredicate geo(String wkt, double distance) {
+    return new GeospatialPredicate(
+        wkt, distance == 0 ? SpatialOperator.OVERLAPS.name() : null, distance);
+  }
+
+  private static TemporalPredicate temporal(long startDay, long endDay) {
+    return new TemporalPredicate(
+        new Date(startDay * DAY), new Date(endDay * DAY), DateType.MODIFIED);
+  }
+
+  private static MetacardImpl metacard(String contentType, String location, Date modified) {
+    MetacardImpl metacard = new MetacardImpl();
+    metacard.setId("id");
+    if (contentType != null) {
+      metacard.setContentTypeName(contentType);
+    }
+    if (location != null) {
+      metacard.setLocation(location);
+    }
+    if (modified != null) {
+      metacard.setModifiedDate(modified);
+    }
+    return metacard;
+  }
+
+  private static Event event(MetacardImpl metacard) {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(PubSubConstants.HEADER_ENTRY_KEY, metacard);
+    properties.put(PubSubConstants.HEADER_OPERATION_KEY, PubSubConstants.CREATE);
+    String type = metacard.getContentTypeName();
+    properties.put(PubSubConstants.HEADER_CONTENT_TYPE_KEY, (type == null ? "" : type) + ",");
+    return new Event("topic", properties);
+  }
+
+  private static Map<String, Object> properties(Event event) {
+    Map<String, Object> properties = new HashMap<>();
+    for (String name : event.getPropertyNames()) {
+      properties.put(name, event.getProperty(name));
+    }
+    return properties;
+  }
+}
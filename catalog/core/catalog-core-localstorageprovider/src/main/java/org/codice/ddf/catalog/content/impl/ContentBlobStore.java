@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.catalog.content.impl;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores content once per SHA-256 digest. The content files of the {@link
+ * FileSystemStorageProvider} are hard links to the blob of their content, so the link count of a
+ * blob is one more than the number of content files referencing it. A blob is deleted once no
+ * content file references it.
+ */
+class ContentBlobStore {
+
+  static final String BLOBS = "blobs";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ContentBlobStore.class);
+
+  private static final HashFunction DIGEST_FUNCTION = Hashing.sha256();
+
+  private static final String LINK_COUNT_ATTRIBUTE = "unix:nlink";
+
+  private final Path blobDirectory;
+
+  /** Blobs by the file key of their inode, loaded on first use. Guarded by {@code this}. */
+  private Map<Object, Path> blobs;
+
+  ContentBlobStore(Path blobDirectory) {
+    this.blobDirectory = blobDirectory;
+  }
+
+  /** @return true if the default file system supports the link counts blobs are counted with */
+  static boolean isSupported() {
+    return FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+  }
+
+  /**
+   * Writes the content to {@code path} as a link to the blob of the content, creating the blob if
+   * it does not exist yet.
+   *
+   * @return the size of the content
+   */
+  long store(InputStream inputStream, Path path) throws IOException {
+    Path tmpFile = Files.createTempFile(path.getParent(), null, null);
+    try {
+      long size;
+      String digest;
+      try (HashingInputStream hashingInputStream =
+          new HashingInputStream(DIGEST_FUNCTION, inputStream)) {
+        size = Files.copy(hashingInputStream, tmpFile, REPLACE_EXISTING);
+        digest = hashingInputStream.hash().toString();
+      }
+      link(tmpFile, digest, path);
+      return size;
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
+  /**
+   * Writes the content of {@code file} to {@code path} as a link to the blob of the content. The
+   * file is read to calculate its digest, and is only copied if there is no blob for it yet.
+   */
+  void store(Path file, Path path) throws IOException {
+    String digest =
+        com.google.common.io.Files.asByteSource(file.toFile()).hash(DIGEST_FUNCTION).toString();
+    link(file, digest, path);
+  }
+
+  /**
+   * Returns the file keys of the files below {@code directory} that may be linked to blobs. Must be
+   * called before the files are deleted, and be followed by {@link #release(Collection)}.
+   */
+  Set<Object> getReferences(Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return new HashSet<>();
+    }
+
+    try (Stream<Path> files = Files.walk(directory)) {
+      List<Path> regularFiles = files.filter(Files::isRegularFile).collect(Collectors.toList());
+      Set<Object> references = new HashSet<>();
+      for (Path file : regularFiles) {
+        if (getLinkCount(file) > 1) {
+          references.add(getFileKey(file));
+        }
+      }
+      return references;
+    }
+  }
+
+  /** Deletes the blobs of the references that are no longer linked to any content file. */
+  synchronized void release(Collection<Object> references) throws IOException {
+    Map<Object, Path> loadedBlobs = getBlobs();
+    for (Object reference : references) {
+      Path blob = loadedBlobs.get(reference);
+      if (blob != null && (!Files.exists(blob) || getLinkCount(blob) <= 1)) {
+        LOGGER.debug("Deleting unreferenced content blob {}", blob);
+        Files.deleteIfExists(blob);
+        loadedBlobs.remove(reference);
+      }
+    }
+  }
+
+  private synchronized void link(Path file, String digest, Path path) throws IOException {
+    Map<Object, Path> loadedBlobs = getBlobs();
+    Path blob = getBlobPath(digest);
+    if (!Files.exists(blob)) {
+      Files.createDirectories(blob.getParent());
+      try {
+        Files.createLink(blob, file);
+      } catch (IOException | UnsupportedOperationException e) {
+        LOGGER.debug("Unable to link {} to content blob {}, copying it instead", file, blob, e);
+        Files.copy(file, blob);
+      }
+      loadedBlobs.put(getFileKey(blob), blob);
+    } else {
+      LOGGER.debug("Referencing existing content blob {}", blob);
+    }
+
+    try {
+      Files.createLink(path, blob);
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.debug("Unable to link content blob {} to {}, copying it instead", blob, path, e);
+      Files.copy(blob, path);
+    }
+  }
+
+  /**
+   * Loads the blobs on first use. Blobs that lost their last reference while the store was not
+   * running, for example in a crash, are deleted.
+   */
+  private Map<Object, Path> getBlobs() throws IOException {
+    if (blobs == null) {
+      Map<Object, Path> loadedBlobs = new HashMap<>();
+      if (Files.exists(blobDirectory)) {
+        try (Stream<Path> files = Files.walk(blobDirectory)) {
+          for (Path blob : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+            if (getLinkCount(blob) <= 1) {
+              LOGGER.debug("Deleting unreferenced content blob {}", blob);
+              Files.deleteIfExists(blob);
+            } else {
+              loadedBlobs.put(getFileKey(blob), blob);
+            }
+          }
+        }
+      }
+      LOGGER.debug("Loaded {} content blobs from {}", loadedBlobs.size(), blobDirectory);
+      blobs = loadedBlobs;
+    }
+    return blobs;
+  }
+
+  private Path getBlobPath(String digest) {
+    return blobDirectory
+        .resolve(digest.substring(0, 2))
+        .resolve(digest.substring(2, 4))
+        .resolve(digest);
+  }
+
+  private int getLinkCount(Path file) throws IOException {
+    return (Integer) Files.getAttribute(file, LINK_COUNT_ATTRIBUTE);
+  }
+
+  private Object getFileKey(Path file) throws IOException {
+    return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+  }
+}
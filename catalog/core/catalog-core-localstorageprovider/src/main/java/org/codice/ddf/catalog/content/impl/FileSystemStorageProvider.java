@@ -39,6 +39,7 @@
 import ddf.mime.MimeTypeResolutionException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -51,6 +52,7 @@
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -92,6 +94,11 @@ public class FileSystemStorageProvider implements StorageProvider {
 
   private Map<String, Set<String>> updateMap = new ConcurrentHashMap<>();
 
+  private boolean contentAddressed;
+
+  /** Stores content once per digest, or {@code null} if content addressed storage is disabled. */
+  private ContentBlobStore blobStore;
+
   /** Default constructor, invoked by blueprint. */
   public FileSystemStorageProvider() {
     LOGGER.debug("File System Provider initializing...");
@@ -120,7 +127,9 @@ public CreateStorageResponse create(CreateStorageRequest createRequest) throws S
             generateContentFile(
                 contentItem,
                 contentDirectory,
-                (String) createRequest.getPropertyValue(Constants.STORE_REFERENCE_KEY)));
+                (String) createRequest.getPropertyValue(Constants.STORE_REFERENCE_KEY),
+                getStagedContentPath(createRequest, contentItem),
+                getSourceContentUri(createRequest, contentItem)));
       } catch (IOException | URISyntaxException | IllegalArgumentException e) {
         throw new StorageException(e);
       }
@@ -179,7 +188,9 @@ public UpdateStorageResponse update(UpdateStorageRequest updateRequest) throws S
             generateContentFile(
                 updateItem,
                 contentIdDir,
-                (String) updateRequest.getPropertyValue(Constants.STORE_REFERENCE_KEY)));
+                (String) updateRequest.getPropertyValue(Constants.STORE_REFERENCE_KEY),
+                getStagedContentPath(updateRequest, updateItem),
+                getSourceContentUri(updateRequest, updateItem)));
       } catch (IOException | URISyntaxException | IllegalArgumentException e) {
         throw new StorageException(e);
       }
@@ -294,7 +305,9 @@ private void commitDeletes(StorageRequest request) throws StorageException {
         }
 
         try {
+          Set<Object> references = getBlobReferences(contentIdDir);
           FileUtils.deleteDirectory(contentIdDir.toFile());
+          releaseBlobReferences(references);
 
           Path part1 = contentIdDir.getParent();
           if (part1.toFile().isDirectory() && isDirectoryEmpty(part1)) {
@@ -337,6 +350,7 @@ private void commitUpdates(StorageRequest request) throws StorageException {
         }
         try {
           if (contentIdDir.toFile().exists()) {
+            Set<Object> references = getBlobReferences(target);
             if (target.toFile().exists()) {
               List<Path> files = listPaths(target);
               for (Path file : files) {
@@ -347,6 +361,7 @@ private void commitUpdates(StorageRequest request) throws StorageException {
             }
             Files.createDirectories(target.getParent());
             Files.move(contentIdDir, target, StandardCopyOption.REPLACE_EXISTING);
+            releaseBlobReferences(references);
           }
         } catch (IOException e) {
           LOGGER.debug(
@@ -380,7 +395,9 @@ public void rollback(StorageRequest request) throws StorageException {
     deletionMap.remove(id);
     updateMap.remove(id);
     try {
+      Set<Object> references = getBlobReferences(requestIdDir);
       FileUtils.deleteDirectory(requestIdDir.toFile());
+      releaseBlobReferences(references);
     } catch (IOException e) {
       throw new StorageException(
           "Unable to remove temporary content storage for request: " + id, e);
@@ -554,8 +571,140 @@ private Path getContentFilePath(URI uri) throws StorageException {
     return null;
   }
 
+  /**
+   * Returns the file the framework copied the item's content to before storing it, from the {@link
+   * Constants#STAGED_CONTENT_PATHS} request property, or {@code null} if there is none.
+   */
+  @SuppressWarnings("unchecked")
+  private Path getStagedContentPath(StorageRequest request, ContentItem item) {
+    Serializable contentPaths = request.getPropertyValue(Constants.STAGED_CONTENT_PATHS);
+    if (!(contentPaths instanceof Map)) {
+      return null;
+    }
+
+    Map<String, Path> qualifiedPaths =
+        ((Map<String, Map<String, Path>>) contentPaths).get(item.getId());
+    return qualifiedPaths == null ? null : qualifiedPaths.get(item.getQualifier());
+  }
+
+  /**
+   * Stores the content the framework already staged by hard linking the staged file, or by a file
+   * to file copy when it cannot be linked, rather than streaming the content again.
+   *
+   * @return the size of the stored content, or -1 if the staged file cannot be used
+   */
+  private long storeStagedContent(ContentItem item, Path stagedPath, Path contentItemPath) {
+    try {
+      long size = Files.size(stagedPath);
+      if (size != item.getSize()) {
+        LOGGER.debug(
+            "Staged content {} does not match content item {}, copying the content item",
+            stagedPath,
+            item.getId());
+        return -1;
+      }
+
+      if (blobStore != null) {
+        blobStore.store(stagedPath, contentItemPath);
+        return size;
+      }
+
+      try {
+        Files.createLink(contentItemPath, stagedPath);
+      } catch (IOException | UnsupportedOperationException e) {
+        LOGGER.debug("Unable to link staged content {}, copying it instead", stagedPath, e);
+        Files.copy(stagedPath, contentItemPath);
+      }
+      return size;
+    } catch (IOException e) {
+      LOGGER.debug("Unable to store staged content {}", stagedPath, e);
+      FileUtils.deleteQuietly(contentItemPath.toFile());
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the stored content that the item is a copy of, from the {@link
+   * Constants#SOURCE_CONTENT_URIS} request property, or {@code null} if there is none or content
+   * addressed storage is disabled.
+   */
+  @SuppressWarnings("unchecked")
+  private URI getSourceContentUri(StorageRequest request, ContentItem item) {
+    Serializable sourceContentUris = request.getPropertyValue(Constants.SOURCE_CONTENT_URIS);
+    if (blobStore == null || !(sourceContentUris instanceof Map)) {
+      return null;
+    }
+
+    Map<String, URI> qualifiedUris =
+        ((Map<String, Map<String, URI>>) sourceContentUris).get(item.getId());
+    return qualifiedUris == null ? null : qualifiedUris.get(item.getQualifier());
+  }
+
+  /**
+   * Stores a copy of content that is already stored, such as the content of a history revision, by
+   * hard linking the stored file, so the content is neither read nor stored again.
+   *
+   * @return the size of the stored content, or -1 if the stored file cannot be used
+   */
+  private long linkStoredContent(ContentItem item, URI sourceContentUri, Path contentItemPath) {
+    try {
+      Path sourcePath = getContentFilePath(sourceContentUri);
+      if (sourcePath == null
+          || REF_EXT.equals(FilenameUtils.getExtension(sourcePath.toString()))
+          || Files.size(sourcePath) != item.getSize()) {
+        LOGGER.debug(
+            "Stored content {} does not match content item {}, storing the content item",
+            sourceContentUri,
+            item.getId());
+        return -1;
+      }
+
+      Files.createLink(contentItemPath, sourcePath);
+      return Files.size(contentItemPath);
+    } catch (StorageException | IOException | UnsupportedOperationException e) {
+      LOGGER.debug("Unable to link stored content {}", sourceContentUri, e);
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the references to content blobs of the files below the directory, to be released once
+   * the files are deleted.
+   */
+  private Set<Object> getBlobReferences(Path directory) {
+    ContentBlobStore store = blobStore;
+    if (store == null) {
+      return Collections.emptySet();
+    }
+
+    try {
+      return store.getReferences(directory);
+    } catch (IOException e) {
+      LOGGER.debug("Unable to find the content blobs referenced from {}", directory, e);
+      return Collections.emptySet();
+    }
+  }
+
+  private void releaseBlobReferences(Set<Object> references) {
+    ContentBlobStore store = blobStore;
+    if (store == null || references.isEmpty()) {
+      return;
+    }
+
+    try {
+      store.release(references);
+    } catch (IOException e) {
+      LOGGER.debug("Unable to delete unreferenced content blobs", e);
+    }
+  }
+
   private ContentItem generateContentFile(
-      ContentItem item, Path contentDirectory, String storeReference) throws IOException {
+      ContentItem item,
+      Path contentDirectory,
+      String storeReference,
+      Path stagedPath,
+      URI sourceContentUri)
+      throws IOException {
     LOGGER.trace("ENTERING: generateContentFile");
 
     if (!contentDirectory.toFile().exists()) {
@@ -581,8 +730,20 @@ public InputStream openStream() throws IOException {
             }
           };
     } else {
-      try (InputStream inputStream = item.getInputStream()) {
-        copy = Files.copy(inputStream, contentItemPath);
+      copy =
+          sourceContentUri == null
+              ? -1
+              : linkStoredContent(item, sourceContentUri, contentItemPath);
+      if (copy < 0 && stagedPath != null) {
+        copy = storeStagedContent(item, stagedPath, contentItemPath);
+      }
+      if (copy < 0) {
+        try (InputStream inputStream = item.getInputStream()) {
+          copy =
+              blobStore == null
+                  ? Files.copy(inputStream, contentItemPath)
+                  : blobStore.store(inputStream, contentItemPath);
+        }
       }
       byteSource = com.google.common.io.Files.asByteSource(contentItemPath.toFile());
 
@@ -661,6 +822,29 @@ public void setBaseContentDirectory(final String baseDirectory) throws IOExcepti
 
     this.baseContentDirectory = directories;
     this.baseContentTmpDirectory = tmpDirectories;
+    updateBlobStore();
+  }
+
+  /**
+   * Sets whether content is stored once per digest and referenced by every content item with the
+   * same content, including history revisions. Needs a file system with hard link counts.
+   */
+  public void setContentAddressed(boolean contentAddressed) {
+    this.contentAddressed = contentAddressed;
+    updateBlobStore();
+  }
+
+  private void updateBlobStore() {
+    if (!contentAddressed || baseContentDirectory == null) {
+      blobStore = null;
+    } else if (!ContentBlobStore.isSupported()) {
+      LOGGER.warn(
+          "Content addressed storage is not supported on this file system. "
+              + "Content will be stored once per content item.");
+      blobStore = null;
+    } else {
+      blobStore = new ContentBlobStore(baseContentDirectory.resolve(ContentBlobStore.BLOBS));
+    }
   }
 
   private String tryCanonicalizeDirectory(String directory) {
@@ -23,6 +23,7 @@
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -70,6 +71,7 @@
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -622,6 +624,226 @@ public void testCreateAndReadReference() throws Exception {
     assertReadRequest(uriString, NITF_MIME_TYPE);
   }
 
+  @Test
+  public void testCreateFromStagedContent() throws Exception {
+    Path stagedPath = tempFolder.newFile("staged.nitf").toPath();
+    Files.write(stagedPath, TEST_INPUT_CONTENTS.getBytes());
+    ByteSource byteSource =
+        new ByteSource() {
+          @Override
+          public InputStream openStream() throws IOException {
+            throw new IOException("Staged content should not be read again");
+          }
+        };
+
+    ContentItem createdContentItem =
+        createFromStagedContent(byteSource, TEST_INPUT_CONTENTS.length(), stagedPath);
+
+    assertThat(createdContentItem.getSize(), is((long) TEST_INPUT_CONTENTS.length()));
+    assertThat(
+        IOUtils.toString(createdContentItem.getInputStream(), "UTF-8"), is(TEST_INPUT_CONTENTS));
+  }
+
+  @Test
+  public void testCreateIgnoresStagedContentOfDifferentSize() throws Exception {
+    Path stagedPath = tempFolder.newFile("staged.nitf").toPath();
+    Files.write(stagedPath, "Stale content".getBytes());
+    ByteSource byteSource = ByteSource.wrap(TEST_INPUT_CONTENTS.getBytes());
+
+    ContentItem createdContentItem =
+        createFromStagedContent(byteSource, byteSource.size(), stagedPath);
+
+    assertThat(
+        IOUtils.toString(createdContentItem.getInputStream(), "UTF-8"), is(TEST_INPUT_CONTENTS));
+  }
+
+  @Test
+  public void testContentAddressedStorageStoresIdenticalContentOnce() throws Exception {
+    enableContentAddressedStorage();
+
+    String id1 = createContentItem(TEST_INPUT_CONTENTS, null);
+    String id2 = createContentItem(TEST_INPUT_CONTENTS, null);
+    createContentItem("Other content", null);
+
+    assertThat(Files.isSameFile(getStoredPath(id1), getStoredPath(id2)), is(true));
+    assertThat(getBlobs(), hasSize(2));
+    assertThat(readContent(id2), is(TEST_INPUT_CONTENTS));
+  }
+
+  @Test
+  public void testContentAddressedStorageDeletesUnreferencedContent() throws Exception {
+    enableContentAddressedStorage();
+    String id1 = createContentItem(TEST_INPUT_CONTENTS, null);
+    String id2 = createContentItem(TEST_INPUT_CONTENTS, null);
+
+    deleteContentItem(id1);
+
+    assertThat(getBlobs(), hasSize(1));
+    assertThat(readContent(id2), is(TEST_INPUT_CONTENTS));
+
+    deleteContentItem(id2);
+
+    assertThat(getBlobs(), hasSize(0));
+  }
+
+  @Test
+  public void testContentAddressedStorageLinksSourceContent() throws Exception {
+    enableContentAddressedStorage();
+    String sourceId = createContentItem(TEST_INPUT_CONTENTS, null);
+
+    String id =
+        createContentItem(
+            TEST_INPUT_CONTENTS,
+            Collections.singletonMap(null, new URI(ContentItem.CONTENT_SCHEME + ":" + sourceId)));
+
+    assertThat(Files.isSameFile(getStoredPath(sourceId), getStoredPath(id)), is(true));
+    assertThat(readContent(id), is(TEST_INPUT_CONTENTS));
+
+    deleteContentItem(sourceId);
+
+    assertThat(readContent(id), is(TEST_INPUT_CONTENTS));
+  }
+
+  @Test
+  public void testContentAddressedStorageRollback() throws Exception {
+    enableContentAddressedStorage();
+    ContentItem contentItem =
+        new ContentItemImpl(
+            UUID.randomUUID().toString().replaceAll("-", ""),
+            ByteSource.wrap(TEST_INPUT_CONTENTS.getBytes()),
+            NITF_MIME_TYPE,
+            TEST_INPUT_FILENAME,
+            TEST_INPUT_CONTENTS.length(),
+            mock(Metacard.class));
+    CreateStorageRequest createRequest =
+        new CreateStorageRequestImpl(Collections.singletonList(contentItem), null);
+
+    provider.create(createRequest);
+    assertThat(getBlobs(), hasSize(1));
+    provider.rollback(createRequest);
+
+    assertThat(getBlobs(), hasSize(0));
+  }
+
+  @Test
+  public void testContentAddressedStorageDeletesOrphanedContent() throws Exception {
+    Path orphan = getBlobDirectory().resolve("ab").resolve("cd").resolve("abcd");
+    Files.createDirectories(orphan.getParent());
+    Files.write(orphan, TEST_INPUT_CONTENTS.getBytes());
+    enableContentAddressedStorage();
+
+    createContentItem(TEST_INPUT_CONTENTS, null);
+
+    assertThat(Files.exists(orphan), is(false));
+    assertThat(getBlobs(), hasSize(1));
+  }
+
+  private void enableContentAddressedStorage() {
+    assumeTrue(ContentBlobStore.isSupported());
+    provider.setContentAddressed(true);
+  }
+
+  /** Creates a content item that must not be read if it has source content. */
+  private String createContentItem(String data, Map<String, URI> sourceContentUris)
+      throws Exception {
+    String id = UUID.randomUUID().toString().replaceAll("-", "");
+    ByteSource byteSource =
+        sourceContentUris == null
+            ? ByteSource.wrap(data.getBytes())
+            : new ByteSource() {
+              @Override
+              public InputStream openStream() throws IOException {
+                throw new IOException("Source content should not be read");
+              }
+            };
+    ContentItem contentItem =
+        new ContentItemImpl(
+            id,
+            byteSource,
+            NITF_MIME_TYPE,
+            TEST_INPUT_FILENAME,
+            data.length(),
+            mock(Metacard.class));
+
+    HashMap<String, Serializable> properties = new HashMap<>();
+    if (sourceContentUris != null) {
+      HashMap<String, Map<String, URI>> uris = new HashMap<>();
+      uris.put(id, sourceContentUris);
+      properties.put(Constants.SOURCE_CONTENT_URIS, uris);
+    }
+    CreateStorageRequest createRequest =
+        new CreateStorageRequestImpl(Collections.singletonList(contentItem), properties);
+    provider.create(createRequest);
+    provider.commit(createRequest);
+    return id;
+  }
+
+  private void deleteContentItem(String id) throws Exception {
+    Metacard metacard = mock(Metacard.class);
+    when(metacard.getId()).thenReturn(id);
+    DeleteStorageRequest deleteRequest =
+        new DeleteStorageRequestImpl(Collections.singletonList(metacard), null);
+    provider.delete(deleteRequest);
+    provider.commit(deleteRequest);
+  }
+
+  private String readContent(String id) throws Exception {
+    ContentItem contentItem =
+        provider
+            .read(
+                new ReadStorageRequestImpl(
+                    new URI(ContentItem.CONTENT_SCHEME + ":" + id), Collections.emptyMap()))
+            .getContentItem();
+    return IOUtils.toString(contentItem.getInputStream(), "UTF-8");
+  }
+
+  private Path getStoredPath(String id) {
+    return getBlobDirectory()
+        .resolveSibling(id.substring(0, 3))
+        .resolve(id.substring(3, 6))
+        .resolve(id)
+        .resolve(TEST_INPUT_FILENAME);
+  }
+
+  private Path getBlobDirectory() {
+    return Paths.get(
+        baseDir,
+        FileSystemStorageProvider.DEFAULT_CONTENT_REPOSITORY,
+        FileSystemStorageProvider.DEFAULT_CONTENT_STORE,
+        ContentBlobStore.BLOBS);
+  }
+
+  private List<Path> getBlobs() throws IOException {
+    if (!Files.exists(getBlobDirectory())) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> files = Files.walk(getBlobDirectory())) {
+      return files.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+  }
+
+  private ContentItem createFromStagedContent(ByteSource byteSource, long size, Path stagedPath)
+      throws Exception {
+    String id = UUID.randomUUID().toString().replaceAll("-", "");
+    ContentItem contentItem =
+        new ContentItemImpl(
+            id, byteSource, NITF_MIME_TYPE, TEST_INPUT_FILENAME, size, mock(Metacard.class));
+
+    HashMap<String, Map<String, Path>> contentPaths = new HashMap<>();
+    contentPaths.put(id, Collections.singletonMap(null, stagedPath));
+    Map<String, Serializable> properties = new HashMap<>();
+    properties.put(Constants.STAGED_CONTENT_PATHS, contentPaths);
+
+    CreateStorageRequest createRequest =
+        new CreateStorageRequestImpl(Collections.singletonList(contentItem), properties);
+    provider.create(createRequest);
+    provider.commit(createRequest);
+
+    return provider
+        .read(new ReadStorageRequestImpl(new URI(contentItem.getUri()), Collections.emptyMap()))
+        .getContentItem();
+  }
+
   /** ******************************************************************************* */
   private CreateStorageResponse assertContentItem(
       String data, String mimeTypeRawData, String filename, Map<String, Serializable> properties)
@@ -36,23 +36,22 @@
 import ddf.catalog.data.impl.MetacardTypeImpl;
 import ddf.catalog.data.types.Validation;
 import ddf.catalog.source.solr.json.MetacardTypeMapperFactory;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -67,9 +66,12 @@
 import lux.xml.SaxonDocBuilder;
 import lux.xml.XmlReader;
 import lux.xml.tinybin.TinyBinary;
+import net.sf.saxon.s9api.Axis;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmNodeKind;
+import net.sf.saxon.s9api.XdmSequenceIterator;
 import net.sf.saxon.tree.tiny.TinyDocumentImpl;
 import net.sf.saxon.tree.tiny.TinyTree;
 import org.apache.commons.collections.CollectionUtils;
@@ -100,6 +102,14 @@ public class DynamicSchemaResolver {
 
   public static final String LUX_XML_FIELD_NAME = "lux_xml";
 
+  /**
+   * Element and attribute path terms of the metadata, used by the {@code xpath_index} query to
+   * pre-filter XPath queries before they are evaluated against {@link #LUX_XML_FIELD_NAME}.
+   */
+  public static final String LUX_PATH_FIELD_NAME = "lux_path";
+
+  protected static final String LUX_PATH_DOCUMENT_TERM = "/";
+
   public static final String SCORE_FIELD_NAME = "score";
 
   public static final int TOKEN_MAXIMUM_BYTES = 32766;
@@ -130,6 +140,7 @@ public class DynamicSchemaResolver {
           SchemaFields.METACARD_TYPE_FIELD_NAME,
           SchemaFields.METACARD_TYPE_OBJECT_FIELD_NAME,
           LUX_XML_FIELD_NAME,
+          LUX_PATH_FIELD_NAME,
           SCORE_FIELD_NAME);
 
   private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
@@ -167,6 +178,13 @@ public class DynamicSchemaResolver {
 
   protected SchemaFields schemaFields;
 
+  /**
+   * Whether the schema of the core defines {@link #LUX_PATH_FIELD_NAME}. The schema is only copied
+   * to a core when the core is created, so cores created by earlier versions do not define it and
+   * Solr would reject documents that have it.
+   */
+  private volatile boolean luxPathFieldDefined;
+
   protected Cache<String, MetacardType> metacardTypesCache =
       CacheBuilder.newBuilder().maximumSize(4096).initialCapacity(64).build();
 
@@ -252,6 +270,14 @@ public void addFieldsFromClient(SolrClient client) throws SolrServerException, I
       LOGGER.debug(DynamicSchemaResolver.COULD_NOT_UPDATE_CACHE_FOR_FIELD_NAMES, e);
       throw e;
     }
+
+    luxPathFieldDefined = isDefinedInSchema(client, LUX_PATH_FIELD_NAME);
+    if (!luxPathFieldDefined) {
+      LOGGER.info(
+          "The Solr schema does not define the {} field. XPath queries will not be pre-filtered until it is added and the catalog is reindexed.",
+          LUX_PATH_FIELD_NAME);
+    }
+
     NamedList<?> fields = (SimpleOrderedMap<?>) (response.getResponse().get(FIELDS_KEY));
 
     if (fields == null) {
@@ -267,6 +293,22 @@ public void addFieldsFromClient(SolrClient client) throws SolrServerException, I
     }
   }
 
+  private boolean isDefinedInSchema(SolrClient client, String fieldName) {
+    SolrQuery query = new SolrQuery();
+    query.add("show", "schema");
+    query.setRequestHandler("/admin/luke");
+
+    try {
+      NamedList<?> schema =
+          (NamedList<?>) client.query(query, METHOD.POST).getResponse().get("schema");
+      NamedList<?> fields = schema == null ? null : (NamedList<?>) schema.get(FIELDS_KEY);
+      return fields != null && fields.get(fieldName) != null;
+    } catch (SolrServerException | SolrException | IOException | ClassCastException e) {
+      LOGGER.debug("Could not read the fields defined in the Solr schema.", e);
+      return false;
+    }
+  }
+
   /** Adds the fields of the Metacard into the {@link SolrInputDocument} */
   public void addFields(Metacard metacard, SolrInputDocument solrInputDocument)
       throws MetacardCreationException {
@@ -318,14 +360,11 @@ public void addFields(Metacard metacard, SolrInputDocument solrInputDocument)
                     + getSpecialIndexSuffix(AttributeFormat.STRING),
                 attributeValues);
           } else if (AttributeFormat.OBJECT.equals(format)) {
-            ByteArrayOutputStream byteArrayOS = new ByteArrayOutputStream();
             List<Serializable> byteArrays = new ArrayList<>();
 
-            try (ObjectOutputStream out = new ObjectOutputStream(byteArrayOS)) {
+            try {
               for (Serializable serializable : attributeValues) {
-                out.writeObject(serializable);
-                byteArrays.add(byteArrayOS.toByteArray());
-                out.reset();
+                byteArrays.add(ObjectValueCodec.encode(serializable));
               }
             } catch (IOException e) {
               throw new MetacardCreationException(COULD_NOT_SERIALIZE_OBJECT_MESSAGE, e);
@@ -356,8 +395,12 @@ public void addFields(Metacard metacard, SolrInputDocument solrInputDocument)
       String metadata = metacard.getMetadata();
       if (metadata.getBytes().length < metadataMaximumBytes) {
         try {
-          byte[] luxXml = createTinyBinary(metadata);
+          XdmNode document = parseMetadata(metadata);
+          byte[] luxXml = createTinyBinary(document);
           solrInputDocument.addField(LUX_XML_FIELD_NAME, luxXml);
+          if (luxPathFieldDefined) {
+            solrInputDocument.addField(LUX_PATH_FIELD_NAME, createPathTerms(document));
+          }
         } catch (XMLStreamException | SaxonApiException | IOException | RuntimeException e) {
           LOGGER.debug(
               "Unable to parse metadata field.  XPath support unavailable for metacard {}",
@@ -462,7 +505,7 @@ private String createCenterPoint(List<Serializable> values) {
     return centerPoint.getY() + "," + centerPoint.getX();
   }
 
-  private byte[] createTinyBinary(String xml)
+  private XdmNode parseMetadata(String xml)
       throws XMLStreamException, SaxonApiException, IOException {
     SaxonDocBuilder builder = new SaxonDocBuilder(processor);
 
@@ -471,14 +514,58 @@ private byte[] createTinyBinary(String xml)
     xmlReader.setStripNamespaces(true);
     xmlReader.read(IOUtils.toInputStream(xml, Charset.defaultCharset().name()));
 
-    XdmNode node = builder.getDocument();
+    return builder.getDocument();
+  }
 
+  private byte[] createTinyBinary(XdmNode node) {
     TinyTree tinyTree = ((TinyDocumentImpl) node.getUnderlyingNode()).getTree();
     TinyBinary tinyBinary = tinyBinaryFunction.apply(tinyTree);
 
     return tinyBinary.getBytes();
   }
 
+  /**
+   * Creates the {@link #LUX_PATH_FIELD_NAME} terms of a document: {@link #LUX_PATH_DOCUMENT_TERM},
+   * {@code name} for every element, {@code @name} for every attribute and {@code parent/name} or
+   * {@code parent/@name} for every element or attribute directly below an element.
+   */
+  private Set<String> createPathTerms(XdmNode document) {
+    Set<String> terms = new LinkedHashSet<>();
+    terms.add(LUX_PATH_DOCUMENT_TERM);
+
+    Deque<XdmNode> nodes = new ArrayDeque<>();
+    nodes.push(document);
+    while (!nodes.isEmpty()) {
+      XdmNode parent = nodes.pop();
+      String parentTerm = null;
+
+      if (parent.getNodeKind() == XdmNodeKind.ELEMENT) {
+        parentTerm = parent.getNodeName().getLocalName();
+        XdmSequenceIterator attributes = parent.axisIterator(Axis.ATTRIBUTE);
+        while (attributes.hasNext()) {
+          String term = "@" + ((XdmNode) attributes.next()).getNodeName().getLocalName();
+          terms.add(term);
+          terms.add(parentTerm + "/" + term);
+        }
+      }
+
+      XdmSequenceIterator children = parent.axisIterator(Axis.CHILD);
+      while (children.hasNext()) {
+        XdmNode child = (XdmNode) children.next();
+        if (child.getNodeKind() == XdmNodeKind.ELEMENT) {
+          String term = child.getNodeName().getLocalName();
+          terms.add(term);
+          if (parentTerm != null) {
+            terms.add(parentTerm + "/" + term);
+          }
+          nodes.push(child);
+        }
+      }
+    }
+
+    return terms;
+  }
+
   private TinyBinary newTinyBinary(TinyTree tinyTree) {
     return new TinyBinary(tinyTree, StandardCharsets.UTF_8);
   }
@@ -510,8 +597,6 @@ public List<Serializable> getDocValues(String solrFieldName, Collection<Object>
     return values;
   }
 
-  @SuppressWarnings(
-      "squid:S2093" /* try-with-resource will throw IOException with InputStream and we do not care to get that exception */)
   public Serializable getDocValue(String solrFieldName, Object docValue) {
 
     AttributeFormat format = getType(solrFieldName);
@@ -524,22 +609,13 @@ public Serializable getDocValue(String solrFieldName, Object docValue) {
        */
       return Short.parseShort(docValue.toString());
     } else if (AttributeFormat.OBJECT.equals(format)) {
-
-      ByteArrayInputStream bais = null;
-      ObjectInputStream in = null;
-
       try {
-        bais = new ByteArrayInputStream((byte[]) docValue);
-        in = new ObjectInputStream(bais);
-        return (Serializable) in.readObject();
+        return ObjectValueCodec.decode((byte[]) docValue);
       } catch (IOException e) {
         LOGGER.info("IO exception loading input document", e);
       } catch (ClassNotFoundException e) {
         LOGGER.info("Could not create object to return.", e);
         // TODO which exception to throw?
-      } finally {
-        IOUtils.closeQuietly(bais);
-        IOUtils.closeQuietly(in);
       }
 
       return null;
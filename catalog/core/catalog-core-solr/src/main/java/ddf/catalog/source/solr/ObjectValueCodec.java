@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.source.solr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the values of {@link ddf.catalog.data.AttributeType.AttributeFormat#OBJECT} attributes
+ * stored in Solr.
+ *
+ * <p>Strings, primitive wrappers, dates, byte arrays, big numbers and {@link ArrayList}s and {@link
+ * HashMap}s of those are written in a compact tagged binary format that starts with a header and a
+ * format version. Any other value is written with Java serialization, and values that were stored
+ * with Java serialization before this format existed are still read.
+ */
+final class ObjectValueCodec {
+
+  private static final byte HEADER_0 = (byte) 0xDD;
+
+  private static final byte HEADER_1 = (byte) 0xF0;
+
+  private static final byte VERSION = 1;
+
+  private static final byte NULL = 0;
+
+  private static final byte STRING = 1;
+
+  private static final byte BOOLEAN = 2;
+
+  private static final byte BYTE = 3;
+
+  private static final byte SHORT = 4;
+
+  private static final byte INTEGER = 5;
+
+  private static final byte LONG = 6;
+
+  private static final byte FLOAT = 7;
+
+  private static final byte DOUBLE = 8;
+
+  private static final byte DATE = 9;
+
+  private static final byte BYTES = 10;
+
+  private static final byte BIG_INTEGER = 11;
+
+  private static final byte BIG_DECIMAL = 12;
+
+  private static final byte LIST = 13;
+
+  private static final byte MAP = 14;
+
+  private ObjectValueCodec() {}
+
+  static byte[] encode(Serializable value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    if (isEncodable(value)) {
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeByte(HEADER_0);
+        out.writeByte(HEADER_1);
+        out.writeByte(VERSION);
+        write(out, value);
+      }
+    } else {
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(value);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  static Serializable decode(byte[] bytes) throws IOException, ClassNotFoundException {
+    if (bytes.length < 3 || bytes[0] != HEADER_0 || bytes[1] != HEADER_1) {
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+        return (Serializable) in.readObject();
+      }
+    }
+
+    if (bytes[2] != VERSION) {
+      throw new IOException("Unsupported object value format version " + bytes[2]);
+    }
+    try (DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3))) {
+      return (Serializable) read(in);
+    }
+  }
+
+  private static boolean isEncodable(Object value) {
+    if (value == null) {
+      return true;
+    }
+
+    Class<?> type = value.getClass();
+    if (type == ArrayList.class) {
+      return ((List<?>) value).stream().allMatch(ObjectValueCodec::isEncodable);
+    } else if (type == HashMap.class) {
+      return ((Map<?, ?>) value)
+          .entrySet()
+          .stream()
+          .allMatch(entry -> isEncodable(entry.getKey()) && isEncodable(entry.getValue()));
+    }
+
+    return type == String.class
+        || type == Boolean.class
+        || type == Byte.class
+        || type == Short.class
+        || type == Integer.class
+        || type == Long.class
+        || type == Float.class
+        || type == Double.class
+        || type == Date.class
+        || type == byte[].class
+        || type == BigInteger.class
+        || type == BigDecimal.class;
+  }
+
+  private static void write(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Date) {
+      out.writeByte(DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (value instanceof byte[]) {
+      out.writeByte(BYTES);
+      writeBytes(out, (byte[]) value);
+    } else if (value instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeBytes(out, ((BigInteger) value).toByteArray());
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(BIG_DECIMAL);
+      out.writeInt(((BigDecimal) value).scale());
+      writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.writeByte(LIST);
+      out.writeInt(list.size());
+      for (Object element : list) {
+        write(out, element);
+      }
+    } else {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(MAP);
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        write(out, entry.getKey());
+        write(out, entry.getValue());
+      }
+    }
+  }
+
+  private static Object read(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+      case BOOLEAN:
+        return in.readBoolean();
+      case BYTE:
+        return in.readByte();
+      case SHORT:
+        return in.readShort();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case DATE:
+        return new Date(in.readLong());
+      case BYTES:
+        return readBytes(in);
+      case BIG_INTEGER:
+        return new BigInteger(readBytes(in));
+      case BIG_DECIMAL:
+        int scale = in.readInt();
+        return new BigDecimal(new BigInteger(readBytes(in)), scale);
+      case LIST:
+        int size = in.readInt();
+        List<Object> list = new ArrayList<>(Math.min(size, in.available()));
+        for (int i = 0; i < size; i++) {
+          list.add(read(in));
+        }
+        return list;
+      case MAP:
+        int entries = in.readInt();
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+          map.put(read(in), read(in));
+        }
+        return map;
+      default:
+        throw new IOException("Unknown object value type " + tag);
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Invalid object value length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+}
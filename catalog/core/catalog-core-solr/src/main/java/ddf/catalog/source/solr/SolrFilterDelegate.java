@@ -248,10 +248,8 @@ private void combineXpathFilterQueries(
       for (String xpath : xpathIndexes) {
         indexes.add("(" + XPATH_FILTER_QUERY_INDEX + ":\"" + xpath + "\")");
       }
-      // TODO DDF-1882 add pre-filter xpath index
-      // String index = XPATH_QUERY_PARSER_PREFIX + StringUtils.join(indexes, operator);
-      // query.setParam(FILTER_QUERY_PARAM_NAME, filter, index);
-      query.setParam(FILTER_QUERY_PARAM_NAME, filter);
+      String index = XPATH_QUERY_PARSER_PREFIX + StringUtils.join(indexes, operator);
+      query.setParam(FILTER_QUERY_PARAM_NAME, filter, index);
     } else if (queryParams.size() > 0) {
       // Pass through original filter queries if only a single XPath is present
       query.setParam(FILTER_QUERY_PARAM_NAME, queryParams.toArray(new String[queryParams.size()]));
@@ -862,11 +860,9 @@ private SolrQuery getXPathQuery(
     }
 
     SolrQuery solrQuery = new SolrQuery(query);
-    solrQuery.addFilterQuery(XPATH_QUERY_PARSER_PREFIX + XPATH_FILTER_QUERY + ":\"" + xpath + "\"");
-    // TODO DDF-1882 add pre-filter xpath index
-    //        solrQuery.addFilterQuery(
-    //                XPATH_QUERY_PARSER_PREFIX + XPATH_FILTER_QUERY + ":\"" + xpath + "\"",
-    //                XPATH_QUERY_PARSER_PREFIX + XPATH_FILTER_QUERY_INDEX + ":\"" + xpath + "\"");
+    solrQuery.addFilterQuery(
+        XPATH_QUERY_PARSER_PREFIX + XPATH_FILTER_QUERY + ":\"" + xpath + "\"",
+        XPATH_QUERY_PARSER_PREFIX + XPATH_FILTER_QUERY_INDEX + ":\"" + xpath + "\"");
 
     return solrQuery;
   }
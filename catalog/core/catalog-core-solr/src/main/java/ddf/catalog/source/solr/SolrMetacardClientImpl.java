@@ -14,8 +14,10 @@
 package ddf.catalog.source.solr;
 
 import static ddf.catalog.Constants.ADDITIONAL_SORT_BYS;
+import static ddf.catalog.Constants.EXPERIMENTAL_CURSOR_MARK_KEY;
 import static ddf.catalog.Constants.EXPERIMENTAL_FACET_PROPERTIES_KEY;
 import static ddf.catalog.Constants.EXPERIMENTAL_FACET_RESULTS_KEY;
+import static ddf.catalog.Constants.EXPERIMENTAL_NEXT_CURSOR_MARK_KEY;
 import static ddf.catalog.Constants.SUGGESTION_BUILD_KEY;
 import static ddf.catalog.Constants.SUGGESTION_CONTEXT_KEY;
 import static ddf.catalog.Constants.SUGGESTION_DICT_KEY;
@@ -82,6 +84,7 @@
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.codice.solr.client.solrj.SolrClient;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.sort.SortOrder;
@@ -109,6 +112,8 @@ public class SolrMetacardClientImpl implements SolrMetacardClient {
 
   private static final String IDS_KEY = "ids";
 
+  private static final String ID_SORT_FIELD = Metacard.ID + SchemaFields.TEXT_SUFFIX;
+
   public static final String SORT_FIELD_KEY = "sfield";
 
   public static final String POINT_KEY = "pt";
@@ -225,6 +230,11 @@ public SourceResponse query(QueryRequest request) throws UnsupportedQueryExcepti
         addDocsToResults(docs, results);
       }
 
+      String nextCursorMark = solrResponse.getNextCursorMark();
+      if (nextCursorMark != null) {
+        responseProps.put(EXPERIMENTAL_NEXT_CURSOR_MARK_KEY, nextCursorMark);
+      }
+
       SuggesterResponse suggesterResponse = solrResponse.getSuggesterResponse();
 
       if (suggesterResponse != null) {
@@ -512,11 +522,39 @@ protected SolrQuery postAdapt(
 
     setSortProperty(request, query, filterDelegate);
 
+    Serializable cursorMark = request.getPropertyValue(EXPERIMENTAL_CURSOR_MARK_KEY);
+    if (cursorMark instanceof String) {
+      addCursorMark(query, (String) cursorMark);
+    }
+
     filterAttributes(request, query);
 
     return query;
   }
 
+  /**
+   * Pages with a Solr cursor instead of a start offset, so the cost of a page does not grow with
+   * its depth. Solr requires the unique key in the sort to break ties and a start of 0.
+   */
+  private void addCursorMark(SolrQuery query, String cursorMark) throws UnsupportedQueryException {
+    if (query.getStart() != null && query.getStart() > 0) {
+      throw new UnsupportedQueryException("Start index must be 1 when paging with a cursor mark");
+    }
+
+    boolean sortedById =
+        query
+            .getSorts()
+            .stream()
+            .map(SolrQuery.SortClause::getItem)
+            .anyMatch(ID_SORT_FIELD::equals);
+    if (!sortedById) {
+      query.addSort(ID_SORT_FIELD, SolrQuery.ORDER.asc);
+    }
+
+    LOGGER.debug("Paging with cursor mark {}", cursorMark);
+    query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+  }
+
   private void filterAttributes(QueryRequest request, SolrQuery query) {
     if (skipFilteredAttributes(request)) {
       return;
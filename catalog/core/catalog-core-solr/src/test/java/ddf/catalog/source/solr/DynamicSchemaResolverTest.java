@@ -14,6 +14,8 @@
 package ddf.catalog.source.solr;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
@@ -41,11 +43,20 @@
 import java.io.Serializable;
 import java.nio.BufferOverflowException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest.METHOD;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
@@ -180,6 +191,89 @@ public void testAddFieldsAddsMetadataIfSizeLessThanSizeLimit() throws Exception
     assertThat(solrInputDocument.getFieldValue("lux_xml"), is(notNullValue()));
   }
 
+  @Test
+  public void testAddFieldsAddsMetadataPathTerms() throws Exception {
+    System.setProperty("metadata.size.limit", "1000");
+    Set<AttributeDescriptor> attributeDescriptors = new HashSet<>(1);
+    attributeDescriptors.add(new CoreAttributes().getAttributeDescriptor(Metacard.METADATA));
+    Metacard mockMetacard = mock(Metacard.class, RETURNS_DEEP_STUBS);
+    when(mockMetacard.getId()).thenReturn("FAKE ID 3");
+    when(mockMetacard.getMetadata())
+        .thenReturn(
+            "<ns:metadata xmlns:ns=\"urn:example\"><title lang=\"en\">t</title>"
+                + "<content><title/></content></ns:metadata>");
+    when(mockMetacard.getMetacardType().getName()).thenReturn("states");
+    when(mockMetacard.getMetacardType().getAttributeDescriptors()).thenReturn(attributeDescriptors);
+    SolrInputDocument solrInputDocument = new SolrInputDocument();
+    DynamicSchemaResolver resolver = new DynamicSchemaResolver();
+    resolver.addFieldsFromClient(
+        mockClientWithSchemaFields(DynamicSchemaResolver.LUX_PATH_FIELD_NAME));
+
+    resolver.addFields(mockMetacard, solrInputDocument);
+
+    List<String> pathTerms =
+        solrInputDocument
+            .getFieldValues(DynamicSchemaResolver.LUX_PATH_FIELD_NAME)
+            .stream()
+            .map(Object::toString)
+            .collect(Collectors.toList());
+    assertThat(
+        pathTerms,
+        containsInAnyOrder(
+            "/",
+            "metadata",
+            "title",
+            "@lang",
+            "content",
+            "metadata/title",
+            "title/@lang",
+            "metadata/content",
+            "content/title"));
+  }
+
+  @Test
+  public void testAddFieldsOmitsPathTermsWhenSchemaDoesNotDefineThem() throws Exception {
+    System.setProperty("metadata.size.limit", "1000");
+    Set<AttributeDescriptor> attributeDescriptors = new HashSet<>(1);
+    attributeDescriptors.add(new CoreAttributes().getAttributeDescriptor(Metacard.METADATA));
+    Metacard mockMetacard = mock(Metacard.class, RETURNS_DEEP_STUBS);
+    when(mockMetacard.getId()).thenReturn("FAKE ID 4");
+    when(mockMetacard.getMetadata()).thenReturn("<metadata><title>t</title></metadata>");
+    when(mockMetacard.getMetacardType().getName()).thenReturn("states");
+    when(mockMetacard.getMetacardType().getAttributeDescriptors()).thenReturn(attributeDescriptors);
+    SolrInputDocument solrInputDocument = new SolrInputDocument();
+    DynamicSchemaResolver resolver = new DynamicSchemaResolver();
+    resolver.addFieldsFromClient(mockClientWithSchemaFields("lux_xml"));
+
+    resolver.addFields(mockMetacard, solrInputDocument);
+
+    assertThat(solrInputDocument.getFieldValue("lux_xml"), is(notNullValue()));
+    assertThat(
+        solrInputDocument.getFieldValues(DynamicSchemaResolver.LUX_PATH_FIELD_NAME),
+        is(nullValue()));
+  }
+
+  @Test
+  public void testAddFieldsEncodesEachObjectValue() throws Exception {
+    Set<AttributeDescriptor> attributeDescriptors = new HashSet<>(1);
+    attributeDescriptors.add(
+        new AttributeDescriptorImpl("values", true, true, false, true, BasicTypes.OBJECT_TYPE));
+    Metacard mockMetacard = mock(Metacard.class, RETURNS_DEEP_STUBS);
+    when(mockMetacard.getMetacardType().getName()).thenReturn("states");
+    when(mockMetacard.getMetacardType().getAttributeDescriptors()).thenReturn(attributeDescriptors);
+    when(mockMetacard.getAttribute("values"))
+        .thenReturn(
+            new AttributeImpl("values", Arrays.<Serializable>asList("first", new Date(1L))));
+    SolrInputDocument solrInputDocument = new SolrInputDocument();
+    DynamicSchemaResolver resolver = new DynamicSchemaResolver();
+
+    resolver.addFields(mockMetacard, solrInputDocument);
+
+    assertThat(
+        resolver.getDocValues("values_obj", solrInputDocument.getFieldValues("values_obj")),
+        contains((Serializable) "first", new Date(1L)));
+  }
+
   @Test
   public void testAddFieldsRevertsTo5mbMetadataSizeLimitTooLarge() throws Exception {
     long overflow = Integer.MAX_VALUE;
@@ -266,6 +360,23 @@ public void testAdditionalFieldConstructor() throws Exception {
     assertThat(resolver.fieldsCache, hasItem(anotherExtraField));
   }
 
+  private SolrClient mockClientWithSchemaFields(String... fieldNames) throws Exception {
+    NamedList<Object> fields = new SimpleOrderedMap<>();
+    for (String fieldName : fieldNames) {
+      fields.add(fieldName, new SimpleOrderedMap<>());
+    }
+    NamedList<Object> schema = new SimpleOrderedMap<>();
+    schema.add("fields", fields);
+    NamedList<Object> values = new NamedList<>();
+    values.add("schema", schema);
+
+    QueryResponse response = mock(QueryResponse.class);
+    when(response.getResponse()).thenReturn(values);
+    SolrClient client = mock(SolrClient.class);
+    when(client.query(Matchers.any(SolrParams.class), eq(METHOD.POST))).thenReturn(response);
+    return client;
+  }
+
   private MetacardType deserializeMetacardType(byte[] serializedMetacardType) throws IOException {
     return METACARD_TYPE_MAPPER.readValue(serializedMetacardType, MetacardType.class);
   }
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.source.solr;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import org.codice.ddf.test.common.benchmark.Benchmark;
+import org.junit.Test;
+
+public class ObjectValueCodecTest {
+
+  private static final String BENCHMARK_VALUES_PROPERTY = "solr.object.benchmark.values";
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    HashMap<String, Serializable> map = new HashMap<>();
+    map.put("classification", new ArrayList<>(Arrays.asList("U", null)));
+    map.put("count", 3L);
+
+    for (Serializable value :
+        Arrays.asList(
+            "value \u00e9",
+            true,
+            (byte) 1,
+            (short) 2,
+            3,
+            4L,
+            5.5f,
+            6.5d,
+            new Date(1234567890L),
+            new BigInteger("123456789012345678901234567890"),
+            new BigDecimal("-1234.5678"),
+            new ArrayList<>(Arrays.asList(1, "two", new Date(3L))),
+            map)) {
+      assertThat(ObjectValueCodec.decode(ObjectValueCodec.encode(value)), is(value));
+    }
+
+    byte[] bytes = {1, 2, 3};
+    assertThat(ObjectValueCodec.decode(ObjectValueCodec.encode(bytes)), is(bytes));
+  }
+
+  @Test
+  public void testOtherValuesUseJavaSerialization() throws Exception {
+    Timestamp timestamp = new Timestamp(1234567890L);
+    LinkedList<String> list = new LinkedList<>(Arrays.asList("a", "b"));
+    ArrayList<Serializable> mixed = new ArrayList<>(Arrays.asList("a", timestamp));
+
+    assertThat(ObjectValueCodec.encode(timestamp), is(javaSerialize(timestamp)));
+    assertThat(ObjectValueCodec.encode(list), is(javaSerialize(list)));
+    assertThat(ObjectValueCodec.encode(mixed), is(javaSerialize(mixed)));
+
+    Serializable decoded = ObjectValueCodec.decode(ObjectValueCodec.encode(timestamp));
+    assertThat(decoded, instanceOf(Timestamp.class));
+    assertThat(decoded, is(timestamp));
+  }
+
+  @Test
+  public void testReadsJavaSerializedValues() throws Exception {
+    Date date = new Date(1234567890L);
+
+    assertThat(ObjectValueCodec.decode(javaSerialize("value")), is("value"));
+    assertThat(ObjectValueCodec.decode(javaSerialize(date)), is(date));
+  }
+
+  @Test
+  public void testEncodingIsSmallerThanJavaSerialization() throws Exception {
+    ArrayList<Serializable> value = new ArrayList<>(Arrays.asList("a", 1, 2L, new Date(3L)));
+
+    assertThat(
+        ObjectValueCodec.encode(value).length, is(lessThan(javaSerialize(value).length / 4)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownVersion() throws Exception {
+    byte[] bytes = ObjectValueCodec.encode("value");
+    bytes[2] = 99;
+
+    ObjectValueCodec.decode(bytes);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedValue() throws Exception {
+    byte[] bytes = ObjectValueCodec.encode("value");
+
+    ObjectValueCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+  }
+
+  /**
+   * Compares the time taken to decode and encode an OBJECT value stored with this codec against the
+   * same value stored with Java serialization, which is how every OBJECT value was stored before.
+   * Only runs when the {@value Benchmark#BENCHMARK_PROPERTY} system property is {@code true}; the
+   * number of values per round can be changed with {@value #BENCHMARK_VALUES_PROPERTY}.
+   */
+  @Test
+  public void benchmarkDecodingAndEncoding() throws Exception {
+    Benchmark.assumeEnabled();
+
+    HashMap<String, Serializable> value = new HashMap<>();
+    value.put("classification", new ArrayList<>(Arrays.asList("U", "FOUO")));
+    value.put("count", 3L);
+    value.put("created", new Date(1234567890L));
+    value.put("title", "Title of the product");
+    byte[] encoded = ObjectValueCodec.encode(value);
+    byte[] javaSerialized = javaSerialize(value);
+
+    assertThat(ObjectValueCodec.decode(encoded), is(value));
+    assertThat(ObjectValueCodec.decode(javaSerialized), is(value));
+
+    Benchmark.named(
+            String.format(
+                "OBJECT value (%d bytes encoded, %d bytes Java serialized)",
+                encoded.length, javaSerialized.length))
+        .operations(Integer.getInteger(BENCHMARK_VALUES_PROPERTY, 100000))
+        .add("decode Java serialized", () -> ObjectValueCodec.decode(javaSerialized))
+        .add("decode encoded", () -> ObjectValueCodec.decode(encoded))
+        .add("Java serialize", () -> javaSerialize(value))
+        .add("encode", () -> ObjectValueCodec.encode(value))
+        .run();
+  }
+
+  private byte[] javaSerialize(Serializable value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -440,8 +440,10 @@ public void testDatePropertyIsBetween() {
   public void testXpathExists() {
     String xpath = "//root/sub/@attribute";
     String expectedQuery = "{!xpath}xpath:\"" + xpath + "\"";
+    String expectedIndex = "{!xpath}xpath_index:\"" + xpath + "\"";
     SolrQuery xpathQuery = toTest.xpathExists(xpath);
     assertThat(xpathQuery.getFilterQueries()[0], is(expectedQuery));
+    assertThat(xpathQuery.getFilterQueries()[1], is(expectedIndex));
   }
 
   @Test
@@ -477,10 +479,9 @@ public void testXpathOR() {
             + "(xpath_index:\""
             + xpath
             + "[contains(lower-case(.), 'example2')]\")";
-    // TODO DDF-1882 support xpath pre-filtering
-    //        assertThat(combinedQuery.getFilterQueries().length, is(2));
+    assertThat(combinedQuery.getFilterQueries().length, is(2));
     assertThat(combinedQuery.getFilterQueries()[0], is(combinedExpectedFilter));
-    //        assertThat(combinedQuery.getFilterQueries()[1], is(expectedIndex));
+    assertThat(combinedQuery.getFilterQueries()[1], is(expectedIndex));
   }
 
   @Test
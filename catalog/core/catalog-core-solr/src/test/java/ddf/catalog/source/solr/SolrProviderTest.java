@@ -18,6 +18,7 @@
 import ddf.catalog.filter.proxy.adapter.GeotoolsFilterAdapterImpl;
 import ddf.catalog.source.solr.provider.SolrProviderContentTypes;
 import ddf.catalog.source.solr.provider.SolrProviderCreate;
+import ddf.catalog.source.solr.provider.SolrProviderCursorPaging;
 import ddf.catalog.source.solr.provider.SolrProviderDelete;
 import ddf.catalog.source.solr.provider.SolrProviderExtensibleMetacards;
 import ddf.catalog.source.solr.provider.SolrProviderQuery;
@@ -49,6 +50,7 @@
 @Suite.SuiteClasses({
   SolrProviderContentTypes.class,
   SolrProviderCreate.class,
+  SolrProviderCursorPaging.class,
   SolrProviderDelete.class,
   SolrProviderExtensibleMetacards.class,
   SolrProviderQuery.class,
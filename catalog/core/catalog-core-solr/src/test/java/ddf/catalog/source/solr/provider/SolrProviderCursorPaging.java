@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.source.solr.provider;
+
+import static ddf.catalog.Constants.EXPERIMENTAL_CURSOR_MARK_KEY;
+import static ddf.catalog.Constants.EXPERIMENTAL_NEXT_CURSOR_MARK_KEY;
+import static ddf.catalog.source.solr.provider.SolrProviderTestUtil.create;
+import static ddf.catalog.source.solr.provider.SolrProviderTestUtil.deleteAll;
+import static ddf.catalog.source.solr.provider.SolrProviderTestUtil.getFilterBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertTrue;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.filter.impl.SortByImpl;
+import ddf.catalog.operation.SourceResponse;
+import ddf.catalog.operation.impl.QueryImpl;
+import ddf.catalog.operation.impl.QueryRequestImpl;
+import ddf.catalog.source.solr.SolrCatalogProvider;
+import ddf.catalog.source.solr.SolrProviderTest;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.codice.ddf.test.common.benchmark.Benchmark;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.filter.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SolrProviderCursorPaging {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrProviderCursorPaging.class);
+
+  private static final String BENCHMARK_RECORDS_PROPERTY = "solr.paging.benchmark.records";
+
+  private static final int PAGE_SIZE = 10;
+
+  private static SolrCatalogProvider provider;
+
+  @BeforeClass
+  public static void setUp() {
+    provider = SolrProviderTest.getProvider();
+  }
+
+  @Test
+  public void testCursorPagingReturnsEveryRecordOnce() throws Exception {
+    deleteAll(provider);
+    create(metacards(25), provider);
+
+    Set<String> ids = new HashSet<>();
+    String cursorMark = "*";
+    while (true) {
+      SourceResponse response = queryPage(cursorMark);
+      for (Result result : response.getResults()) {
+        assertTrue(
+            "Duplicate result " + result.getMetacard().getId(),
+            ids.add(result.getMetacard().getId()));
+      }
+
+      String nextCursorMark =
+          (String) response.getProperties().get(EXPERIMENTAL_NEXT_CURSOR_MARK_KEY);
+      assertThat(nextCursorMark, notNullValue());
+      if (nextCursorMark.equals(cursorMark)) {
+        break;
+      }
+      cursorMark = nextCursorMark;
+    }
+
+    assertThat(ids.size(), is(25));
+  }
+
+  @Test
+  public void testNoCursorMarkWithoutCursorRequest() throws Exception {
+    deleteAll(provider);
+    create(metacards(2), provider);
+
+    SourceResponse response = provider.query(new QueryRequestImpl(query(1)));
+
+    assertThat(response.getProperties().containsKey(EXPERIMENTAL_NEXT_CURSOR_MARK_KEY), is(false));
+  }
+
+  /**
+   * Compares the time to fetch a page with start index paging and with a cursor mark at ten depths
+   * spread across the index. Only runs when the {@value Benchmark#BENCHMARK_PROPERTY} system
+   * property is {@code true}; the number of records indexed can be changed with {@value
+   * #BENCHMARK_RECORDS_PROPERTY}.
+   */
+  @Test
+  public void benchmarkPageTimeAtDepth() throws Exception {
+    Benchmark.assumeEnabled();
+
+    int records = Integer.getInteger(BENCHMARK_RECORDS_PROPERTY, 20000);
+    deleteAll(provider);
+    for (int created = 0; created < records; created += 1000) {
+      create(metacards(Math.min(1000, records - created)), provider);
+    }
+
+    // Walk every page once to find the cursor mark that starts each sampled depth.
+    int pages = (records + PAGE_SIZE - 1) / PAGE_SIZE;
+    int sampleEvery = Math.max(1, pages / 10);
+    Map<Integer, String> cursorMarksByStartIndex = new LinkedHashMap<>();
+    String cursorMark = "*";
+    for (int page = 0; page < pages; page++) {
+      if (page % sampleEvery == 0) {
+        cursorMarksByStartIndex.put(page * PAGE_SIZE + 1, cursorMark);
+      }
+      cursorMark =
+          (String) queryPage(cursorMark).getProperties().get(EXPERIMENTAL_NEXT_CURSOR_MARK_KEY);
+    }
+
+    LOGGER.info("Page time at depth for {} records, page size {}", records, PAGE_SIZE);
+    for (Map.Entry<Integer, String> depth : cursorMarksByStartIndex.entrySet()) {
+      int startIndex = depth.getKey();
+      String depthCursorMark = depth.getValue();
+      Benchmark.named("Page at depth " + startIndex)
+          .operations(20)
+          .add("offset", () -> provider.query(new QueryRequestImpl(query(startIndex))))
+          .add("cursor", () -> queryPage(depthCursorMark))
+          .run();
+    }
+  }
+
+  private SourceResponse queryPage(String cursorMark) throws Exception {
+    Map<String, Serializable> properties = new HashMap<>();
+    properties.put(EXPERIMENTAL_CURSOR_MARK_KEY, cursorMark);
+    return provider.query(new QueryRequestImpl(query(1), properties));
+  }
+
+  private QueryImpl query(int startIndex) {
+    QueryImpl query =
+        new QueryImpl(getFilterBuilder().attribute(Metacard.ID).is().like().text("*"));
+    query.setStartIndex(startIndex);
+    query.setPageSize(PAGE_SIZE);
+    query.setSortBy(new SortByImpl(Metacard.TITLE, SortOrder.ASCENDING.name()));
+    return query;
+  }
+
+  private List<Metacard> metacards(int count) {
+    List<Metacard> metacards = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      MockMetacard metacard = new MockMetacard(Library.getFlagstaffRecord());
+      metacard.setTitle("Title " + (i % 7));
+      metacards.add(metacard);
+    }
+    return metacards;
+  }
+}
@@ -29,4 +29,28 @@ public interface SolrCacheMBean {
   void removeById(String[] ids) throws IOException, SolrServerException;
 
   List<Metacard> query(Filter filter) throws UnsupportedQueryException;
+
+  /** @return the number of cache queries that returned at least one result since startup */
+  long getCacheHits();
+
+  /** @return the number of cache queries that returned no results since startup */
+  long getCacheMisses();
+
+  /** @return the fraction of cache queries that returned at least one result */
+  double getHitRatio();
+
+  /** @return the number of documents removed to keep the cache under its maximum size */
+  long getEvictions();
+
+  /** @return the number of documents in the cache, or -1 if the cache core is unavailable */
+  long getDocumentCount();
+
+  /** @return the maximum number of documents kept in the cache, or 0 if it is unbounded */
+  long getMaxCacheSize();
+
+  /**
+   * @return the document count as a fraction of the maximum cache size, or 0 if the cache is
+   *     unbounded or unavailable
+   */
+  double getOccupancy();
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.cache.solr.impl;
+
+import ddf.catalog.data.Result;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best {@code capacity} {@link Result}s seen so far according to a {@link Comparator},
+ * without holding on to the rest. Each source response is offered as a run; when runs are known to
+ * be sorted on the same comparator the remainder of a run is skipped as soon as one of its results
+ * can no longer make it into the heap.
+ *
+ * <p>Results that compare equal keep the order in which they were offered, matching the stable
+ * {@link Collections#sort(List, Comparator)} this replaces.
+ *
+ * <p>This class is not thread-safe.
+ */
+class BoundedResultHeap {
+
+  private final int capacity;
+
+  private final Comparator<Entry> entryComparator;
+
+  /** Head of the queue is the worst result currently retained. */
+  private final PriorityQueue<Entry> heap;
+
+  private long sequence = 0;
+
+  BoundedResultHeap(Comparator<? super Result> comparator, int capacity) {
+    this.capacity = capacity;
+    this.entryComparator =
+        Comparator.<Entry, Result>comparing(entry -> entry.result, comparator)
+            .thenComparingLong(entry -> entry.sequence);
+    this.heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, this.entryComparator.reversed());
+  }
+
+  /**
+   * Offers every result of a single source response to the heap.
+   *
+   * @param run results returned by one source
+   * @param sorted whether {@code run} is already ordered by this heap's comparator
+   * @return the number of results from {@code run} that were examined
+   */
+  int offerRun(List<Result> run, boolean sorted) {
+    return offerRun(null, run, sorted);
+  }
+
+  /**
+   * Offers every result of a single source response to the heap, remembering which source each
+   * retained result came from.
+   *
+   * @param sourceId id of the source that returned {@code run}
+   * @param run results returned by one source
+   * @param sorted whether {@code run} is already ordered by this heap's comparator
+   * @return the number of results from {@code run} that were examined
+   */
+  int offerRun(String sourceId, List<Result> run, boolean sorted) {
+    int examined = 0;
+    for (Result result : run) {
+      if (!offer(sourceId, examined++, result) && sorted) {
+        break;
+      }
+    }
+    return examined;
+  }
+
+  /**
+   * Offers a single result to the heap.
+   *
+   * @return {@code true} if the result was retained, {@code false} if it ranked below every
+   *     retained result and the heap was already full
+   */
+  boolean offer(Result result) {
+    return offer(null, -1, result);
+  }
+
+  private boolean offer(String sourceId, int position, Result result) {
+    if (capacity <= 0) {
+      return false;
+    }
+
+    Entry entry = new Entry(sourceId, position, result, sequence++);
+    if (heap.size() < capacity) {
+      heap.add(entry);
+      return true;
+    }
+
+    if (entryComparator.compare(entry, heap.peek()) < 0) {
+      heap.poll();
+      heap.add(entry);
+      return true;
+    }
+    return false;
+  }
+
+  int size() {
+    return heap.size();
+  }
+
+  /**
+   * @return the position, within the run its source offered, of the last retained result from each
+   *     source, keyed by source id
+   */
+  Map<String, Integer> lastPositionBySource() {
+    Map<String, Integer> positions = new HashMap<>();
+    for (Entry entry : heap) {
+      if (entry.sourceId != null) {
+        positions.merge(entry.sourceId, entry.position, Math::max);
+      }
+    }
+    return positions;
+  }
+
+  /** @return the retained results, best first */
+  List<Result> toSortedList() {
+    List<Entry> entries = new ArrayList<>(heap);
+    entries.sort(entryComparator);
+
+    List<Result> results = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      results.add(entry.result);
+    }
+    return results;
+  }
+
+  private static class Entry {
+    private final String sourceId;
+
+    private final int position;
+
+    private final Result result;
+
+    private final long sequence;
+
+    Entry(String sourceId, int position, Result result, long sequence) {
+      this.sourceId = sourceId;
+      this.position = position;
+      this.result = result;
+      this.sequence = sequence;
+    }
+  }
+}
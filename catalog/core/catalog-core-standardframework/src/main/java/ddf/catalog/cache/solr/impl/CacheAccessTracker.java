@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.cache.solr.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tracks when documents in the {@link SolrCache} were last returned by a cache query so capacity
+ * eviction can remove the least recently used documents first.
+ *
+ * <p>Query threads only append the ids of their results to a pending queue; the ids are applied to
+ * the last-access table in batches by {@link #flush()}, which runs on the cache's scheduler.
+ * Documents that have never been read since they were cached, or since the node restarted, fall
+ * back to the time they were cached.
+ */
+class CacheAccessTracker {
+
+  private final Queue<PendingAccess> pending = new ConcurrentLinkedQueue<>();
+
+  private final Map<String, Long> lastAccess = new ConcurrentHashMap<>();
+
+  /**
+   * Records that the documents with the given cache ids were read.
+   *
+   * @param ids values of {@link SolrCache#METACARD_UNIQUE_ID_NAME} for the documents read
+   */
+  void record(List<String> ids) {
+    if (!ids.isEmpty()) {
+      pending.add(new PendingAccess(ids, System.currentTimeMillis()));
+    }
+  }
+
+  /** Applies the accesses recorded since the last flush to the last-access table. */
+  void flush() {
+    PendingAccess access;
+    while ((access = pending.poll()) != null) {
+      for (String id : access.ids) {
+        lastAccess.merge(id, access.time, Math::max);
+      }
+    }
+  }
+
+  /**
+   * @param id value of {@link SolrCache#METACARD_UNIQUE_ID_NAME} for the document
+   * @param cachedTime time, in milliseconds, the document was cached
+   * @return the later of the last flushed access to the document and the time it was cached
+   */
+  long getLastAccess(String id, long cachedTime) {
+    Long accessed = lastAccess.get(id);
+    return accessed == null ? cachedTime : Math.max(accessed, cachedTime);
+  }
+
+  /** Stops tracking documents that are no longer in the cache. */
+  void forget(Collection<String> ids) {
+    ids.forEach(lastAccess::remove);
+  }
+
+  /** Stops tracking accesses older than the given time, since those documents have expired. */
+  void forgetAccessedBefore(long time) {
+    lastAccess.values().removeIf(accessed -> accessed < time);
+  }
+
+  void clear() {
+    pending.clear();
+    lastAccess.clear();
+  }
+
+  int size() {
+    return lastAccess.size();
+  }
+
+  private static class PendingAccess {
+    private final List<String> ids;
+
+    private final long time;
+
+    PendingAccess(List<String> ids, long time) {
+      this.ids = ids;
+      this.time = time;
+    }
+  }
+}
@@ -20,6 +20,8 @@
 import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.data.impl.ResultImpl;
 import ddf.catalog.federation.FederationStrategy;
+import ddf.catalog.impl.QueryLatencyMetrics;
+import ddf.catalog.impl.QueryLatencyMetrics.Stage;
 import ddf.catalog.operation.CreateResponse;
 import ddf.catalog.operation.DeleteResponse;
 import ddf.catalog.operation.Query;
@@ -40,6 +42,7 @@
 import ddf.catalog.source.UnsupportedQueryException;
 import ddf.catalog.util.impl.RelevanceResultComparator;
 import ddf.catalog.util.impl.Requests;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -139,8 +142,26 @@ public class CachingFederationStrategy implements FederationStrategy, PostIngest
 
   private boolean cacheRemoteIngests = false;
 
+  private boolean mergeSortedSourceResponses = false;
+
+  private int maxPagingCursors = 0;
+
+  private long pagingCursorExpirationInMinutes = FederatedPagingCursors.DEFAULT_EXPIRATION_MINUTES;
+
+  private FederatedPagingCursors pagingCursors;
+
   private CacheQueryFactory cacheQueryFactory;
 
+  private long queryResultCacheTtlInSeconds = 0;
+
+  private long queryResultCacheStaleInSeconds = 0;
+
+  private long queryResultCacheMaxResults = QueryResultCache.DEFAULT_MAX_RESULTS;
+
+  private volatile QueryResultCache queryResultCache;
+
+  private QueryLatencyMetrics queryLatencyMetrics = new QueryLatencyMetrics();
+
   /**
    * Instantiates an {@code AbstractFederationStrategy} with the provided {@link ExecutorService}.
    *
@@ -187,6 +208,14 @@ void setCacheBulkProcessor(CacheBulkProcessor cacheBulkProcessor) {
     this.cacheBulkProcessor = cacheBulkProcessor;
   }
 
+  void setPagingCursors(FederatedPagingCursors pagingCursors) {
+    this.pagingCursors = pagingCursors;
+  }
+
+  void setQueryResultCache(QueryResultCache queryResultCache) {
+    this.queryResultCache = queryResultCache;
+  }
+
   @Override
   public QueryResponse federate(List<Source> sources, QueryRequest queryRequest) {
     Validate.noNullElements(sources, "Cannot federate with null sources.");
@@ -202,13 +231,57 @@ public QueryResponse federate(List<Source> sources, QueryRequest queryRequest) {
             sourceIds,
             queryRequest.getProperties());
 
+    Serializable queryMode = queryRequest.getProperties().get(QUERY_MODE);
+    QueryResultCache resultCache = queryResultCache;
+    String key = null;
+    if (resultCache != null
+        && !INDEX_QUERY_MODE.equals(queryMode)
+        && !UPDATE_QUERY_MODE.equals(queryMode)) {
+      key = resultCache.key(modifiedQueryRequest, String.valueOf(queryMode));
+    }
+    if (key == null) {
+      return doFederate(sources, modifiedQueryRequest);
+    }
+
+    return federateWithResultCache(resultCache, key, sources, modifiedQueryRequest);
+  }
+
+  private QueryResponse doFederate(List<Source> sources, QueryRequest queryRequest) {
     if (CACHE_QUERY_MODE.equals(queryRequest.getProperties().get(QUERY_MODE))) {
-      return queryCache(modifiedQueryRequest);
+      return queryCache(queryRequest);
     } else {
-      return sourceFederate(sources, modifiedQueryRequest);
+      return sourceFederate(sources, queryRequest);
     }
   }
 
+  /**
+   * Answers the request from the query result cache when it holds a response for it, refreshing
+   * that response in the background once it is stale. Otherwise the sources are queried and their
+   * merged response is cached as it is returned.
+   */
+  private QueryResponse federateWithResultCache(
+      QueryResultCache resultCache, String key, List<Source> sources, QueryRequest queryRequest) {
+    QueryResultCache.CachedResponse cached = resultCache.get(key);
+    if (cached != null) {
+      LOGGER.debug("Returning cached response for query {}", queryRequest.getQuery());
+      if (cached.startRefresh()) {
+        long generation = resultCache.getGeneration();
+        queryExecutorService.submit(
+            () ->
+                resultCache.refresh(
+                    key, generation, cached, () -> doFederate(sources, queryRequest)));
+      }
+      return cached.toResponse(queryRequest);
+    }
+
+    long generation = resultCache.getGeneration();
+    QueryResponse response = doFederate(sources, queryRequest);
+    QueryResponseImpl forwardedResponse = new QueryResponseImpl(queryRequest, null);
+    queryExecutorService.submit(
+        () -> resultCache.forward(key, generation, response, forwardedResponse));
+    return forwardedResponse;
+  }
+
   QueryResponse queryCache(QueryRequest queryRequest) {
     return sourceFederate(
         ImmutableList.of(cacheSource),
@@ -229,8 +302,15 @@ private QueryResponse sourceFederate(List<Source> sources, final QueryRequest qu
     int offset = originalQuery.getStartIndex();
     final int pageSize = originalQuery.getPageSize();
 
-    // limit offset to max value
-    if (offset > this.maxStartIndex) {
+    FederatedPagingCursors cursors = getPagingCursors(queryRequest, sources.size(), pageSize);
+    Map<String, Integer> sourceOffsets = null;
+    if (cursors != null && offset > 1) {
+      sourceOffsets = cursors.getSourceOffsets(queryRequest, offset);
+      LOGGER.debug("Paging cursor for start index {}: {}", offset, sourceOffsets);
+    }
+
+    // limit offset to max value, unless each source can resume where the previous page left it
+    if (sourceOffsets == null && offset > this.maxStartIndex) {
       offset = this.maxStartIndex;
     }
 
@@ -238,7 +318,10 @@ private QueryResponse sourceFederate(List<Source> sources, final QueryRequest qu
 
     Map<Future<SourceResponse>, QueryRequest> futures = new HashMap<>();
 
-    Query modifiedQuery = getModifiedQuery(originalQuery, sources.size(), offset, pageSize);
+    Query modifiedQuery =
+        sourceOffsets == null
+            ? getModifiedQuery(originalQuery, sources.size(), offset, pageSize)
+            : originalQuery;
     QueryRequest modifiedQueryRequest =
         new QueryRequestImpl(
             modifiedQuery,
@@ -254,9 +337,13 @@ private QueryResponse sourceFederate(List<Source> sources, final QueryRequest qu
       if (source != null) {
         LOGGER.debug("running query on source: {}", source.getId());
 
+        Query sourceQuery =
+            sourceOffsets == null
+                ? modifiedQuery
+                : getCursorQuery(originalQuery, sourceOffsets.getOrDefault(source.getId(), 0));
         QueryRequest sourceQueryRequest =
             new QueryRequestImpl(
-                modifiedQuery,
+                sourceQuery,
                 queryRequest.isEnterprise(),
                 Collections.singleton(source.getId()),
                 new HashMap<>(queryRequest.getProperties()));
@@ -278,23 +365,39 @@ private QueryResponse sourceFederate(List<Source> sources, final QueryRequest qu
       }
     }
 
+    boolean applyOffset = sourceOffsets == null && offset > 1 && sources.size() > 1;
+
     QueryResponseImpl offsetResults = null;
     // If there are offsets and more than one source, we have to get all the
     // results back and then
     // transfer them into a different Queue. That is what the
     // OffsetResultHandler does.
-    if (offset > 1 && sources.size() > 1) {
+    if (applyOffset) {
       offsetResults = new QueryResponseImpl(queryRequest, null);
       queryExecutorService.submit(
           new OffsetResultHandler(queryResponseQueue, offsetResults, pageSize, offset));
     }
 
+    FederatedPagingCursors.Cursor pagingCursor = null;
+    if (cursors != null) {
+      pagingCursor =
+          cursors.cursor(
+              queryRequest,
+              offset + pageSize,
+              sourceOffsets == null ? Collections.<String, Integer>emptyMap() : sourceOffsets);
+    }
+
     queryExecutorService.submit(
         sortedQueryMonitorFactory.createMonitor(
-            queryCompletion, futures, queryResponseQueue, modifiedQueryRequest, postQuery));
+            queryCompletion,
+            futures,
+            queryResponseQueue,
+            modifiedQueryRequest,
+            postQuery,
+            pagingCursor));
 
     QueryResponse queryResponse;
-    if (offset > 1 && sources.size() > 1) {
+    if (applyOffset) {
       queryResponse = offsetResults;
       LOGGER.debug("returning offsetResults");
     } else {
@@ -345,6 +448,34 @@ private Query getModifiedQuery(
     return query;
   }
 
+  /**
+   * Returns the paging cursor store when the query can be paged by cursor, that is when cursors are
+   * enabled, more than one source is queried, the page size is bounded and results are merged
+   * rather than read back from the cache.
+   */
+  private FederatedPagingCursors getPagingCursors(
+      QueryRequest queryRequest, int numberOfSources, int pageSize) {
+    if (pagingCursors == null
+        || numberOfSources < 2
+        || pageSize < 1
+        || INDEX_QUERY_MODE.equals(queryRequest.getPropertyValue(QUERY_MODE))) {
+      return null;
+    }
+    return pagingCursors;
+  }
+
+  /** Query for the page of a single source that follows the results already consumed from it. */
+  private Query getCursorQuery(Query originalQuery, int consumed) {
+    LOGGER.debug("Resuming source query at {}", consumed + 1);
+    return new QueryImpl(
+        originalQuery,
+        consumed + 1,
+        originalQuery.getPageSize(),
+        originalQuery.getSortBy(),
+        originalQuery.requestsTotalResultsCount(),
+        originalQuery.getTimeoutMillis());
+  }
+
   /** Base 1 offset, hence page size is one less. */
   private int computeModifiedPageSize(int offset, int pageSize) {
     return offset + pageSize - 1;
@@ -352,11 +483,13 @@ private int computeModifiedPageSize(int offset, int pageSize) {
 
   @Override
   public CreateResponse process(CreateResponse input) throws PluginExecutionException {
+    invalidateQueryResultCache();
     return input;
   }
 
   @Override
   public UpdateResponse process(UpdateResponse input) throws PluginExecutionException {
+    invalidateQueryResultCache();
 
     LOGGER.debug("Post ingest processing of UpdateResponse.");
     if (!isCacheRemoteIngests() && !Requests.isLocal(input.getRequest())) {
@@ -384,6 +517,7 @@ public UpdateResponse process(UpdateResponse input) throws PluginExecutionExcept
 
   @Override
   public DeleteResponse process(DeleteResponse input) throws PluginExecutionException {
+    invalidateQueryResultCache();
 
     LOGGER.debug("Post ingest processing of DeleteResponse.");
     if (!isCacheRemoteIngests() && !Requests.isLocal(input.getRequest())) {
@@ -403,6 +537,14 @@ public DeleteResponse process(DeleteResponse input) throws PluginExecutionExcept
     return input;
   }
 
+  private void invalidateQueryResultCache() {
+    QueryResultCache resultCache = queryResultCache;
+    if (resultCache != null) {
+      LOGGER.debug("Clearing query result cache after catalog change.");
+      resultCache.invalidateAll();
+    }
+  }
+
   int getMaxStartIndex() {
     return maxStartIndex;
   }
@@ -430,6 +572,10 @@ public void setExpirationAgeInMinutes(long expirationAgeInMinutes) {
     cache.setExpirationAgeInMinutes(expirationAgeInMinutes);
   }
 
+  public void setMaxCacheSize(long maxCacheSize) {
+    cache.setMaxCacheSize(maxCacheSize);
+  }
+
   public void setCachingEverything(boolean cachingEverything) {
     this.isCachingEverything = cachingEverything;
   }
@@ -442,6 +588,93 @@ public void setCacheRemoteIngests(boolean cacheRemoteIngests) {
     this.cacheRemoteIngests = cacheRemoteIngests;
   }
 
+  boolean isMergeSortedSourceResponses() {
+    return mergeSortedSourceResponses;
+  }
+
+  QueryLatencyMetrics getQueryLatencyMetrics() {
+    return queryLatencyMetrics;
+  }
+
+  public void setQueryLatencyMetrics(QueryLatencyMetrics queryLatencyMetrics) {
+    this.queryLatencyMetrics = queryLatencyMetrics;
+  }
+
+  /**
+   * When enabled, each source response is assumed to already be sorted on the query's {@link
+   * org.opengis.filter.sort.SortBy}, allowing the merge to stop reading a response as soon as its
+   * results can no longer make the requested page.
+   *
+   * @param mergeSortedSourceResponses whether source responses are pre-sorted runs
+   */
+  public void setMergeSortedSourceResponses(boolean mergeSortedSourceResponses) {
+    this.mergeSortedSourceResponses = mergeSortedSourceResponses;
+  }
+
+  /**
+   * Sets the number of federated paging cursors to keep. A value of 0 disables cursor paging, in
+   * which case deep pages re-fetch {@code startIndex + pageSize} results from every source.
+   *
+   * @param maxPagingCursors maximum number of cursors kept across all queries
+   */
+  public void setMaxPagingCursors(int maxPagingCursors) {
+    this.maxPagingCursors = maxPagingCursors;
+    updatePagingCursors();
+  }
+
+  public void setPagingCursorExpirationInMinutes(long pagingCursorExpirationInMinutes) {
+    this.pagingCursorExpirationInMinutes = pagingCursorExpirationInMinutes;
+    updatePagingCursors();
+  }
+
+  private void updatePagingCursors() {
+    if (maxPagingCursors > 0 && pagingCursorExpirationInMinutes > 0) {
+      pagingCursors = new FederatedPagingCursors(maxPagingCursors, pagingCursorExpirationInMinutes);
+    } else {
+      pagingCursors = null;
+    }
+  }
+
+  /**
+   * Sets how long a federated query response is reused for identical queries. A value of 0 disables
+   * the query result cache.
+   *
+   * @param queryResultCacheTtlInSeconds time to live of cached query responses
+   */
+  public void setQueryResultCacheTtlInSeconds(long queryResultCacheTtlInSeconds) {
+    this.queryResultCacheTtlInSeconds = queryResultCacheTtlInSeconds;
+    updateQueryResultCache();
+  }
+
+  /**
+   * Sets how long a cached query response is still returned after its time to live while it is
+   * refreshed in the background. A value of 0 re-queries the sources as soon as it expires.
+   *
+   * @param queryResultCacheStaleInSeconds stale-while-revalidate period of cached query responses
+   */
+  public void setQueryResultCacheStaleInSeconds(long queryResultCacheStaleInSeconds) {
+    this.queryResultCacheStaleInSeconds = queryResultCacheStaleInSeconds;
+    updateQueryResultCache();
+  }
+
+  /** @param queryResultCacheMaxResults total number of results kept by the query result cache */
+  public void setQueryResultCacheMaxResults(long queryResultCacheMaxResults) {
+    this.queryResultCacheMaxResults = queryResultCacheMaxResults;
+    updateQueryResultCache();
+  }
+
+  private void updateQueryResultCache() {
+    if (queryResultCacheTtlInSeconds > 0 && queryResultCacheMaxResults > 0) {
+      queryResultCache =
+          new QueryResultCache(
+              queryResultCacheMaxResults,
+              queryResultCacheTtlInSeconds,
+              Math.max(0, queryResultCacheStaleInSeconds));
+    } else {
+      queryResultCache = null;
+    }
+  }
+
   public void shutdown() {
     cacheCommitPhaser.shutdown();
     cacheBulkProcessor.shutdown();
@@ -510,7 +743,10 @@ public SourceResponse call() throws Exception {
     @SuppressWarnings("squid:S1181" /*Catching throwable intentionally*/)
     private SourceResponse getSourceResponse(QueryRequest queryRequest)
         throws UnsupportedQueryException {
+      long start = queryLatencyMetrics.start();
       final SourceResponse sourceResponse = source.query(queryRequest);
+      queryLatencyMetrics.record(Stage.SOURCE, source.getId(), start);
+      queryLatencyMetrics.record(Stage.SOURCE, start);
       final SourceResponse clonedSourceResponse = cloneResponse(sourceResponse);
 
       if (INDEX_QUERY_MODE.equals(request.getPropertyValue(QUERY_MODE))) {
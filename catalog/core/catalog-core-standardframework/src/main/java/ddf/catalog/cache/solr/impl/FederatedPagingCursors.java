@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.cache.solr.impl;
+
+import static ddf.catalog.Constants.ADDITIONAL_SORT_BYS;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import ddf.catalog.operation.Query;
+import ddf.catalog.operation.QueryRequest;
+import ddf.catalog.operation.impl.QueryImpl;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.BinaryLogicOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Not;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.sort.SortBy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers, for a federated query, how many results from each source were consumed by the pages
+ * already returned. A request for the next page can then ask every source for just the next {@code
+ * pageSize} results after its own consumed count instead of re-fetching {@code offset + pageSize}
+ * results from each of them.
+ *
+ * <p>Cursors are keyed on the query's filter, sort, page size, source set and the optional {@link
+ * #PAGING_CURSOR_ID} request property, plus the start index of the page they lead to. The store is
+ * bounded in size and entries expire after a period without access.
+ */
+class FederatedPagingCursors {
+
+  /**
+   * Optional {@link QueryRequest} property used to scope cursors to a single client session. When
+   * absent, cursors are shared by every request for the same query.
+   */
+  static final String PAGING_CURSOR_ID = "pagingCursorId";
+
+  static final int DEFAULT_MAX_CURSORS = 1000;
+
+  static final long DEFAULT_EXPIRATION_MINUTES = 10;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FederatedPagingCursors.class);
+
+  private final Cache<String, Map<String, Integer>> cursors;
+
+  FederatedPagingCursors(long maxCursors, long expirationInMinutes) {
+    this.cursors =
+        CacheBuilder.newBuilder()
+            .maximumSize(maxCursors)
+            .expireAfterAccess(expirationInMinutes, TimeUnit.MINUTES)
+            .build();
+  }
+
+  /**
+   * @return the number of results already consumed from each source before {@code startIndex}, or
+   *     {@code null} if no earlier page of this query led to {@code startIndex}
+   */
+  @Nullable
+  Map<String, Integer> getSourceOffsets(QueryRequest request, int startIndex) {
+    return cursors.getIfPresent(key(request, startIndex));
+  }
+
+  /**
+   * Records the per-source consumption after the page that ends just before {@code nextStartIndex}.
+   */
+  void record(QueryRequest request, int nextStartIndex, Map<String, Integer> sourceOffsets) {
+    LOGGER.trace("Recording paging cursor at {}: {}", nextStartIndex, sourceOffsets);
+    cursors.put(key(request, nextStartIndex), Collections.unmodifiableMap(sourceOffsets));
+  }
+
+  long size() {
+    return cursors.size();
+  }
+
+  /**
+   * Creates the handle a {@link SortedQueryMonitor} uses to record where the page it merges leaves
+   * each source.
+   *
+   * @param request the original, unmodified federated request
+   * @param nextStartIndex start index of the page following the one being merged
+   * @param baseOffsets per-source results consumed before the merged results, empty if every source
+   *     was queried from its first result
+   */
+  Cursor cursor(QueryRequest request, int nextStartIndex, Map<String, Integer> baseOffsets) {
+    return new Cursor(request, nextStartIndex, baseOffsets);
+  }
+
+  private String key(QueryRequest request, int startIndex) {
+    Query query = request.getQuery();
+    StringBuilder key = new StringBuilder();
+    key.append(request.getPropertyValue(PAGING_CURSOR_ID))
+        .append('|')
+        .append(filterKey(query))
+        .append('|')
+        .append(sortKey(query.getSortBy()));
+
+    Serializable additionalSortBys = request.getPropertyValue(ADDITIONAL_SORT_BYS);
+    if (additionalSortBys instanceof SortBy[]) {
+      Arrays.stream((SortBy[]) additionalSortBys).forEach(s -> key.append(',').append(sortKey(s)));
+    }
+
+    Set<String> sourceIds =
+        request.getSourceIds() == null
+            ? Collections.<String>emptySet()
+            : new TreeSet<>(request.getSourceIds());
+    return key.append('|')
+        .append(query.getPageSize())
+        .append('|')
+        .append(sourceIds)
+        .append('|')
+        .append(startIndex)
+        .toString();
+  }
+
+  /**
+   * {@link QueryImpl#toString()} includes the paging values, so only its filter can be used.
+   * Queries of any other type fall back on their own string form, which at worst means their
+   * cursors are never found.
+   */
+  static String filterKey(Query query) {
+    if (!(query instanceof QueryImpl)) {
+      return String.valueOf(query);
+    }
+
+    Filter filter = ((QueryImpl) query).getFilter();
+    StringBuilder key = new StringBuilder(String.valueOf(filter));
+    appendMatchOptions(filter, key);
+    return key.toString();
+  }
+
+  /**
+   * The string form of a filter leaves out whether its comparisons match case and which characters
+   * its like filters use as wildcards, so they are appended in the order the filters are nested.
+   */
+  private static void appendMatchOptions(Filter filter, StringBuilder key) {
+    if (filter instanceof BinaryLogicOperator) {
+      for (Filter child : ((BinaryLogicOperator) filter).getChildren()) {
+        appendMatchOptions(child, key);
+      }
+    } else if (filter instanceof Not) {
+      appendMatchOptions(((Not) filter).getFilter(), key);
+    } else if (filter instanceof PropertyIsLike) {
+      PropertyIsLike like = (PropertyIsLike) filter;
+      key.append('|')
+          .append(like.isMatchingCase())
+          .append(' ')
+          .append(like.getWildCard())
+          .append(' ')
+          .append(like.getSingleChar())
+          .append(' ')
+          .append(like.getEscape());
+    } else if (filter instanceof BinaryComparisonOperator) {
+      key.append('|').append(((BinaryComparisonOperator) filter).isMatchingCase());
+    }
+  }
+
+  static String sortKey(SortBy sortBy) {
+    if (sortBy == null || sortBy.getPropertyName() == null) {
+      return "";
+    }
+    return sortBy.getPropertyName().getPropertyName() + ' ' + sortBy.getSortOrder();
+  }
+
+  /** Records the per-source position reached by a single merged page. */
+  class Cursor {
+
+    private final QueryRequest request;
+
+    private final int nextStartIndex;
+
+    private final Map<String, Integer> baseOffsets;
+
+    private Cursor(QueryRequest request, int nextStartIndex, Map<String, Integer> baseOffsets) {
+      this.request = request;
+      this.nextStartIndex = nextStartIndex;
+      this.baseOffsets = baseOffsets;
+    }
+
+    /**
+     * @param consumedBySource number of results of each source's own response, before any
+     *     post-federation filtering, up to and including the last one merged into the requested
+     *     page
+     */
+    void advance(Map<String, Integer> consumedBySource) {
+      Map<String, Integer> offsets = new HashMap<>(baseOffsets);
+      consumedBySource.forEach((sourceId, count) -> offsets.merge(sourceId, count, Integer::sum));
+      record(request, nextStartIndex, offsets);
+    }
+  }
+}
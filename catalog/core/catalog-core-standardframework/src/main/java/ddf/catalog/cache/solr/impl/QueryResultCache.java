@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.cache.solr.impl;
+
+import static ddf.catalog.Constants.ADDITIONAL_SORT_BYS;
+import static ddf.catalog.Constants.EXPERIMENTAL_CURSOR_MARK_KEY;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.impl.ResultImpl;
+import ddf.catalog.operation.Query;
+import ddf.catalog.operation.QueryRequest;
+import ddf.catalog.operation.QueryResponse;
+import ddf.catalog.operation.impl.QueryResponseImpl;
+import ddf.security.SecurityConstants;
+import ddf.security.Subject;
+import ddf.security.SubjectUtils;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.opengis.filter.sort.SortBy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Short lived cache of complete federated query responses, so repeated identical queries are
+ * answered without querying every source and running the post-federated query plugins again.
+ *
+ * <p>Responses are keyed on the query's filter, sort, paging, source set and query mode, plus the
+ * security attributes of the requesting subject. The cache is bounded by the total number of
+ * results it holds. An entry is fresh for the configured time to live; when a stale period is also
+ * configured, it is then served for that much longer while a single background query refreshes it.
+ * Every catalog create, update or delete clears the cache, and responses to queries that were
+ * running when it was cleared are not cached.
+ *
+ * <p>Results are copied on the way in and out, since the framework's post-query plugins may modify
+ * the metacards they are given.
+ */
+class QueryResultCache {
+
+  static final long DEFAULT_MAX_RESULTS = 10000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+
+  private final Cache<String, CachedResponse> responses;
+
+  private final long timeToLiveMillis;
+
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * @param maxResults maximum number of results held across all cached responses
+   * @param timeToLiveInSeconds how long a cached response is served without being refreshed
+   * @param staleInSeconds how long a response older than its time to live is still served while it
+   *     is refreshed in the background, or 0 to stop serving it as soon as it is stale
+   */
+  QueryResultCache(long maxResults, long timeToLiveInSeconds, long staleInSeconds) {
+    this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLiveInSeconds);
+    this.responses =
+        CacheBuilder.newBuilder()
+            // a single segment so one large response can use the whole weight bound
+            .concurrencyLevel(1)
+            .maximumWeight(maxResults)
+            .weigher((String key, CachedResponse response) -> response.results.size() + 1)
+            .expireAfterWrite(timeToLiveInSeconds + staleInSeconds, TimeUnit.SECONDS)
+            .build();
+  }
+
+  /**
+   * @return the cache key for the request, or {@code null} if responses to it must not be cached
+   */
+  @Nullable
+  String key(QueryRequest request, String queryMode) {
+    Serializable subject = request.getPropertyValue(SecurityConstants.SECURITY_SUBJECT);
+    if (subject != null && !(subject instanceof Subject)) {
+      return null;
+    }
+
+    Query query = request.getQuery();
+    StringBuilder key = new StringBuilder();
+    key.append(new TreeMap<>(SubjectUtils.getSubjectAttributes((Subject) subject)))
+        .append('|')
+        .append(queryMode)
+        .append('|')
+        .append(request.isEnterprise())
+        .append('|')
+        .append(FederatedPagingCursors.filterKey(query))
+        .append('|')
+        .append(FederatedPagingCursors.sortKey(query.getSortBy()));
+
+    Serializable additionalSortBys = request.getPropertyValue(ADDITIONAL_SORT_BYS);
+    if (additionalSortBys instanceof SortBy[]) {
+      Arrays.stream((SortBy[]) additionalSortBys)
+          .forEach(sortBy -> key.append(',').append(FederatedPagingCursors.sortKey(sortBy)));
+    }
+
+    return key.append('|')
+        .append(query.getStartIndex())
+        .append('|')
+        .append(query.getPageSize())
+        .append('|')
+        .append(query.requestsTotalResultsCount())
+        .append('|')
+        .append(
+            request.getSourceIds() == null
+                ? Collections.emptySet()
+                : new TreeSet<>(request.getSourceIds()))
+        .append('|')
+        .append(request.getPropertyValue(EXPERIMENTAL_CURSOR_MARK_KEY))
+        .toString();
+  }
+
+  @Nullable
+  CachedResponse get(String key) {
+    return responses.getIfPresent(key);
+  }
+
+  /** @return the value to pass to {@link #forward} for a query that is about to be run */
+  long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Copies the results of a federated query into the response returned to the caller as they
+   * arrive, then caches them if every source answered and the cache was not cleared in the
+   * meantime. The response is cached before the caller sees the end of the results, so a query
+   * repeated as soon as the first one completes is answered from the cache.
+   *
+   * @param generation value of {@link #getGeneration()} from before the query was started
+   */
+  void forward(String key, long generation, QueryResponse source, QueryResponseImpl target) {
+    List<Result> results = new ArrayList<>();
+    try {
+      Result result;
+      while (source.hasMoreResults() && (result = source.take()) != null) {
+        results.add(result);
+        target.addResult(copy(result), false);
+      }
+
+      if (source.hasMoreResults() || !source.getProcessingDetails().isEmpty()) {
+        LOGGER.debug("Not caching incomplete query response.");
+      } else {
+        put(key, generation, source, results);
+      }
+    } finally {
+      target.setHits(source.getHits());
+      target.getProcessingDetails().addAll(source.getProcessingDetails());
+      target.getProperties().putAll(source.getProperties());
+      target.closeResultQueue();
+    }
+  }
+
+  /**
+   * Replaces a stale response with the complete response of a federated query. The stale response
+   * can be refreshed again if the query fails or its response is incomplete.
+   */
+  void refresh(String key, long generation, CachedResponse stale, Supplier<QueryResponse> query) {
+    boolean refreshed = false;
+    try {
+      refreshed = refresh(key, generation, query.get());
+    } catch (RuntimeException e) {
+      LOGGER.debug("Unable to refresh cached query response.", e);
+    } finally {
+      if (!refreshed) {
+        stale.refreshing.set(false);
+      }
+    }
+  }
+
+  /**
+   * Waits for every result of a federated query and caches the complete response.
+   *
+   * @return {@code true} if the response was cached
+   */
+  boolean refresh(String key, long generation, QueryResponse source) {
+    List<Result> results = source.getResults();
+    if (!source.getProcessingDetails().isEmpty()) {
+      LOGGER.debug("Not caching incomplete refreshed query response.");
+      return false;
+    }
+    return put(key, generation, source, results);
+  }
+
+  void invalidateAll() {
+    generation.incrementAndGet();
+    responses.invalidateAll();
+  }
+
+  long size() {
+    return responses.size();
+  }
+
+  private boolean put(String key, long generation, QueryResponse source, List<Result> results) {
+    CachedResponse response =
+        new CachedResponse(results, source.getHits(), new HashMap<>(source.getProperties()));
+    if (generation != this.generation.get()) {
+      return false;
+    }
+    responses.put(key, response);
+    return true;
+  }
+
+  private static Result copy(Result result) {
+    Metacard metacard = result.getMetacard();
+    ResultImpl copy =
+        new ResultImpl(
+            metacard == null ? null : new MetacardImpl(metacard, metacard.getMetacardType()));
+    copy.setRelevanceScore(result.getRelevanceScore());
+    copy.setDistanceInMeters(result.getDistanceInMeters());
+    return copy;
+  }
+
+  /** A complete federated query response. */
+  class CachedResponse {
+
+    private final List<Result> results;
+
+    private final long hits;
+
+    private final Map<String, Serializable> properties;
+
+    private final long cachedAt = System.currentTimeMillis();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private CachedResponse(List<Result> results, long hits, Map<String, Serializable> properties) {
+      this.results = results;
+      this.hits = hits;
+      this.properties = properties;
+    }
+
+    /**
+     * @return {@code true} if the response has outlived its time to live and no other caller has
+     *     started refreshing it
+     */
+    boolean startRefresh() {
+      return System.currentTimeMillis() - cachedAt >= timeToLiveMillis
+          && refreshing.compareAndSet(false, true);
+    }
+
+    QueryResponse toResponse(QueryRequest request) {
+      List<Result> copies = new ArrayList<>(results.size());
+      for (Result result : results) {
+        copies.add(copy(result));
+      }
+      return new QueryResponseImpl(request, copies, true, hits, new HashMap<>(properties));
+    }
+  }
+}
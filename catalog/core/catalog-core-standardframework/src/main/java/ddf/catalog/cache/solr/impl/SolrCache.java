@@ -16,6 +16,7 @@
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import ddf.catalog.cache.SolrCacheMBean;
 import ddf.catalog.data.ContentType;
 import ddf.catalog.data.Metacard;
@@ -37,12 +38,16 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanException;
@@ -54,8 +59,12 @@
 import javax.management.StandardMBean;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
 import org.codice.solr.client.solrj.SolrClient;
 import org.codice.solr.client.solrj.UnavailableSolrException;
@@ -64,7 +73,16 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Catalog cache implementation using Apache Solr */
+/**
+ * Catalog cache implementation using Apache Solr
+ *
+ * <p>Documents expire once they have been cached for longer than the expiration age. When a maximum
+ * cache size is set, the expiration task also evicts the least recently used documents whenever the
+ * cache holds more than that many documents, bringing it back down to 90% of the maximum so
+ * eviction does not run on every pass. Recency is the later of the time a document was cached and
+ * the last time it was returned by {@link #query(QueryRequest)}, as tracked by {@link
+ * CacheAccessTracker}.
+ */
 public class SolrCache implements SolrCacheMBean {
 
   public static final String METACARD_CACHE_CORE_NAME = "metacard_cache";
@@ -78,6 +96,12 @@ public class SolrCache implements SolrCacheMBean {
 
   public static final String CACHED_DATE = "cached" + SchemaFields.DATE_SUFFIX;
 
+  static final double EVICTION_LOW_WATER_MARK = 0.9;
+
+  private static final int EVICTION_PAGE_SIZE = 1000;
+
+  private static final long ACCESS_FLUSH_INTERVAL_IN_SECONDS = 30;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(SolrCache.class);
 
   private final SolrClient client;
@@ -94,6 +118,16 @@ public class SolrCache implements SolrCacheMBean {
 
   private long expirationAgeInMinutes = TimeUnit.DAYS.toMinutes(7);
 
+  private volatile long maxCacheSize = 0;
+
+  private final CacheAccessTracker accessTracker = new CacheAccessTracker();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
   /**
    * Constructor.
    *
@@ -137,7 +171,28 @@ private SolrCache(
   }
 
   public SourceResponse query(QueryRequest request) throws UnsupportedQueryException {
-    return metacardClient.query(request);
+    SourceResponse response = metacardClient.query(request);
+    recordAccess(response);
+    return response;
+  }
+
+  private void recordAccess(SourceResponse response) {
+    if (response == null || CollectionUtils.isEmpty(response.getResults())) {
+      misses.increment();
+      return;
+    }
+
+    hits.increment();
+    if (maxCacheSize > 0) {
+      List<String> ids = new ArrayList<>(response.getResults().size());
+      for (Result result : response.getResults()) {
+        Metacard metacard = result.getMetacard();
+        if (metacard != null) {
+          ids.add(metacard.getSourceId() + metacard.getId());
+        }
+      }
+      accessTracker.record(ids);
+    }
   }
 
   public void create(Collection<Metacard> metacards) {
@@ -198,6 +253,17 @@ public void setExpirationAgeInMinutes(long expirationAgeInMinutes) {
     this.expirationAgeInMinutes = expirationAgeInMinutes;
   }
 
+  /**
+   * @param maxCacheSize maximum number of documents kept in the cache, or 0 to only expire
+   *     documents by age
+   */
+  public void setMaxCacheSize(long maxCacheSize) {
+    this.maxCacheSize = Math.max(0, maxCacheSize);
+    if (this.maxCacheSize == 0) {
+      accessTracker.clear();
+    }
+  }
+
   private void configureCacheExpirationScheduler() {
     shutdownCacheExpirationScheduler();
     LOGGER.debug(
@@ -206,6 +272,11 @@ private void configureCacheExpirationScheduler() {
     this.scheduler = schedulerCreator.get();
     scheduler.scheduleAtFixedRate(
         new ExpirationRunner(), 0, expirationIntervalInMinutes, TimeUnit.MINUTES);
+    scheduler.scheduleWithFixedDelay(
+        accessTracker::flush,
+        ACCESS_FLUSH_INTERVAL_IN_SECONDS,
+        ACCESS_FLUSH_INTERVAL_IN_SECONDS,
+        TimeUnit.SECONDS);
   }
 
   private void configureMBean() {
@@ -285,6 +356,7 @@ public void shutdown() {
   @Override
   public void removeAll() throws IOException, SolrServerException {
     metacardClient.deleteByQuery("*:*");
+    accessTracker.clear();
   }
 
   @Override
@@ -301,6 +373,143 @@ public List<Metacard> query(Filter filter) throws UnsupportedQueryException {
     return getMetacardsFromResponse(response);
   }
 
+  @Override
+  public long getCacheHits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getCacheMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0 ? 0 : hitCount / (double) total;
+  }
+
+  @Override
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  @Override
+  public long getDocumentCount() {
+    try {
+      return countDocuments();
+    } catch (SolrServerException | SolrException | IOException e) {
+      LOGGER.debug("Unable to count cached documents.", e);
+      return -1;
+    }
+  }
+
+  @Override
+  public long getMaxCacheSize() {
+    return maxCacheSize;
+  }
+
+  @Override
+  public double getOccupancy() {
+    long maxSize = maxCacheSize;
+    long count = getDocumentCount();
+    return maxSize == 0 || count < 0 ? 0 : count / (double) maxSize;
+  }
+
+  /**
+   * Removes the least recently used documents if the cache holds more than the maximum cache size.
+   */
+  @VisibleForTesting
+  void evictLeastRecentlyUsed() throws SolrServerException, IOException {
+    accessTracker.flush();
+
+    long maxSize = maxCacheSize;
+    if (maxSize == 0) {
+      return;
+    }
+
+    long count = countDocuments();
+    if (count <= maxSize) {
+      return;
+    }
+
+    long target = (long) (maxSize * EVICTION_LOW_WATER_MARK);
+    int evictionCount = (int) Math.min(Integer.MAX_VALUE, count - target);
+    List<String> ids = findLeastRecentlyUsed(evictionCount);
+    LOGGER.debug("Evicting {} of {} cached documents.", ids.size(), count);
+    for (List<String> batch : Lists.partition(ids, EVICTION_PAGE_SIZE)) {
+      client.deleteById(batch);
+      accessTracker.forget(batch);
+      evictions.add(batch.size());
+      dirty.set(true);
+    }
+  }
+
+  private long countDocuments() throws SolrServerException, IOException {
+    SolrQuery query = new SolrQuery("*:*");
+    query.setRows(0);
+    return client.query(query).getResults().getNumFound();
+  }
+
+  /**
+   * Pages through the cache in the order documents were cached, keeping the {@code count} documents
+   * with the oldest last access. A document is never last used before it was cached, so the scan
+   * stops as soon as a document was cached after every candidate was last used.
+   */
+  private List<String> findLeastRecentlyUsed(int count) throws SolrServerException, IOException {
+    PriorityQueue<EvictionCandidate> candidates =
+        new PriorityQueue<>(
+            Comparator.comparingLong((EvictionCandidate candidate) -> candidate.lastAccess)
+                .reversed());
+
+    SolrQuery query = new SolrQuery("*:*");
+    query.setFields(METACARD_UNIQUE_ID_NAME, CACHED_DATE);
+    query.setRows(EVICTION_PAGE_SIZE);
+    query.addSort("field(" + CACHED_DATE + ",min)", SolrQuery.ORDER.asc);
+    query.addSort(METACARD_UNIQUE_ID_NAME, SolrQuery.ORDER.asc);
+
+    String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+    while (true) {
+      query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+      QueryResponse response = client.query(query);
+      for (SolrDocument doc : response.getResults()) {
+        long cachedTime = getCachedTime(doc);
+        if (candidates.size() == count && cachedTime >= candidates.peek().lastAccess) {
+          return getIds(candidates);
+        }
+
+        String id = String.valueOf(doc.getFirstValue(METACARD_UNIQUE_ID_NAME));
+        long lastAccess = accessTracker.getLastAccess(id, cachedTime);
+        if (candidates.size() < count) {
+          candidates.add(new EvictionCandidate(id, lastAccess));
+        } else if (lastAccess < candidates.peek().lastAccess) {
+          candidates.poll();
+          candidates.add(new EvictionCandidate(id, lastAccess));
+        }
+      }
+
+      String nextCursorMark = response.getNextCursorMark();
+      if (nextCursorMark == null || nextCursorMark.equals(cursorMark)) {
+        return getIds(candidates);
+      }
+      cursorMark = nextCursorMark;
+    }
+  }
+
+  private static long getCachedTime(SolrDocument doc) {
+    Object cached = doc.getFirstValue(CACHED_DATE);
+    return cached instanceof Date ? ((Date) cached).getTime() : 0;
+  }
+
+  private static List<String> getIds(Collection<EvictionCandidate> candidates) {
+    List<String> ids = new ArrayList<>(candidates.size());
+    for (EvictionCandidate candidate : candidates) {
+      ids.add(candidate.id);
+    }
+    return ids;
+  }
+
   Set<ContentType> getContentTypes() {
     return metacardClient.getContentTypes();
   }
@@ -327,6 +536,9 @@ public void run() {
       try {
         LOGGER.debug("Expiring cache.");
         client.deleteByQuery(CACHED_DATE + ":[* TO NOW-" + expirationAgeInMinutes + "MINUTES]");
+        accessTracker.forgetAccessedBefore(
+            System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(expirationAgeInMinutes));
+        evictLeastRecentlyUsed();
       } catch (UnavailableSolrException e) {
         LOGGER.debug("Unable to expire cache.", e);
       } catch (SolrServerException | SolrException | IOException e) {
@@ -335,4 +547,15 @@ public void run() {
       }
     }
   }
+
+  private static class EvictionCandidate {
+    private final String id;
+
+    private final long lastAccess;
+
+    EvictionCandidate(String id, long lastAccess) {
+      this.id = id;
+      this.lastAccess = lastAccess;
+    }
+  }
 }
@@ -19,6 +19,8 @@
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.Result;
 import ddf.catalog.federation.Federatable;
+import ddf.catalog.impl.QueryLatencyMetrics;
+import ddf.catalog.impl.QueryLatencyMetrics.Stage;
 import ddf.catalog.operation.ProcessingDetails;
 import ddf.catalog.operation.Query;
 import ddf.catalog.operation.QueryRequest;
@@ -38,9 +40,9 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -51,6 +53,7 @@
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.sort.SortOrder;
@@ -76,6 +79,8 @@ class SortedQueryMonitor implements Runnable {
 
   private long deadline;
 
+  private FederatedPagingCursors.Cursor pagingCursor;
+
   public SortedQueryMonitor(
       CachingFederationStrategy cachingFederationStrategy,
       CompletionService<SourceResponse> completionService,
@@ -83,6 +88,29 @@ public SortedQueryMonitor(
       QueryResponseImpl returnResults,
       QueryRequest request,
       List<PostFederatedQueryPlugin> postQuery) {
+    this(
+        cachingFederationStrategy,
+        completionService,
+        futures,
+        returnResults,
+        request,
+        postQuery,
+        null);
+  }
+
+  /**
+   * @param pagingCursor when not {@code null}, advanced once every source has responded with how
+   *     far into each source's response, before any post-federation filtering, the merged results
+   *     reached
+   */
+  public SortedQueryMonitor(
+      CachingFederationStrategy cachingFederationStrategy,
+      CompletionService<SourceResponse> completionService,
+      Map<Future<SourceResponse>, QueryRequest> futures,
+      QueryResponseImpl returnResults,
+      QueryRequest request,
+      List<PostFederatedQueryPlugin> postQuery,
+      @Nullable FederatedPagingCursors.Cursor pagingCursor) {
     this.cachingFederationStrategy = cachingFederationStrategy;
     this.completionService = completionService;
     this.returnResults = returnResults;
@@ -90,6 +118,7 @@ public SortedQueryMonitor(
     this.query = request.getQuery();
     this.futures = futures;
     this.postQuery = postQuery;
+    this.pagingCursor = pagingCursor;
     deadline = System.currentTimeMillis() + query.getTimeoutMillis();
   }
 
@@ -143,12 +172,24 @@ public void run() {
       resultComparator.addComparator(coreComparator);
     }
 
-    List<Result> resultList = new ArrayList<>();
+    int maxResults = Integer.MAX_VALUE;
+    if (query.getPageSize() > 0) {
+      maxResults = query.getPageSize();
+    }
+    BoundedResultHeap resultHeap = new BoundedResultHeap(resultComparator, maxResults);
+    boolean sortedRuns = cachingFederationStrategy.isMergeSortedSourceResponses();
+    boolean allSourcesResponded = true;
     long totalHits = 0;
     Set<ProcessingDetails> processingDetails = returnResults.getProcessingDetails();
 
     Map<String, Serializable> returnProperties = returnResults.getProperties();
     HashMap<String, Long> hitsPerSource = new HashMap<>();
+    Map<String, int[]> rawIndexesBySource = new HashMap<>();
+
+    // only the merging is timed, not the waiting on the sources in between
+    QueryLatencyMetrics queryLatencyMetrics = cachingFederationStrategy.getQueryLatencyMetrics();
+    long mergeStart = queryLatencyMetrics.start();
+    long mergeNanos = 0;
 
     for (int i = futures.size(); i > 0; i--) {
       String sourceId = "Unknown Source";
@@ -161,6 +202,7 @@ public void run() {
         } else {
           future = completionService.poll(getTimeRemaining(deadline), TimeUnit.MILLISECONDS);
           if (future == null) {
+            allSourcesResponded = false;
             timeoutRemainingSources(processingDetails);
             break;
           }
@@ -169,6 +211,7 @@ public void run() {
         queryRequest = futures.remove(future);
         if (queryRequest == null) {
           LOGGER.debug("Couldn't get completed federated query. Skipping {}", sourceId);
+          allSourcesResponded = false;
           continue;
         }
         sourceId = getSourceIdFromRequest(queryRequest);
@@ -177,11 +220,26 @@ public void run() {
 
         if (sourceResponse == null) {
           LOGGER.debug("Source {} returned null response", sourceId);
+          allSourcesResponded = false;
           executePostFederationQueryPluginsWithSourceError(
               queryRequest, sourceId, new NullPointerException(), processingDetails);
         } else if (queryRequest != null) {
+          List<Result> rawResults = sourceResponse.getResults();
           sourceResponse = executePostFederationQueryPlugins(sourceResponse, queryRequest);
-          resultList.addAll(sourceResponse.getResults());
+          if (pagingCursor != null) {
+            rawIndexesBySource.put(
+                sourceId, getRawIndexes(rawResults, sourceResponse.getResults()));
+          }
+          long start = queryLatencyMetrics.startStep(mergeStart);
+          int examined = resultHeap.offerRun(sourceId, sourceResponse.getResults(), sortedRuns);
+          if (queryLatencyMetrics.isSampled(start)) {
+            mergeNanos += System.nanoTime() - start;
+          }
+          LOGGER.trace(
+              "Merged {} of {} results from {}",
+              examined,
+              sourceResponse.getResults().size(),
+              sourceId);
           long hits = sourceResponse.getHits();
           totalHits += hits;
           hitsPerSource.merge(sourceId, hits, (l1, l2) -> l1 + l2);
@@ -190,6 +248,7 @@ public void run() {
           returnProperties.putAll(properties);
         }
       } catch (InterruptedException e) {
+        allSourcesResponded = false;
         if (queryRequest != null) {
           // First, add interrupted processing detail for this source
           LOGGER.debug("Search interrupted for {}", sourceId);
@@ -202,6 +261,7 @@ public void run() {
         Thread.currentThread().interrupt();
         break;
       } catch (ExecutionException e) {
+        allSourcesResponded = false;
         LOGGER.info(
             "Couldn't get results from completed federated query for sourceId = {}", sourceId, e);
         executePostFederationQueryPluginsWithSourceError(
@@ -209,7 +269,7 @@ public void run() {
       }
     }
     returnProperties.put("hitsPerSource", hitsPerSource);
-    LOGGER.debug("All sources finished returning results: {}", resultList.size());
+    LOGGER.debug("All sources finished returning results: {}", resultHeap.size());
 
     returnResults.setHits(totalHits);
     if (CachingFederationStrategy.INDEX_QUERY_MODE.equals(
@@ -217,19 +277,81 @@ public void run() {
       QueryResponse result = cachingFederationStrategy.queryCache(request);
       returnResults.addResults(result.getResults(), true);
     } else {
-      returnResults.addResults(sortedResults(resultList, resultComparator), true);
+      if (pagingCursor != null && allSourcesResponded) {
+        Map<String, Integer> consumedBySource =
+            getConsumedBySource(resultHeap.lastPositionBySource(), rawIndexesBySource);
+        if (consumedBySource != null) {
+          pagingCursor.advance(consumedBySource);
+        }
+      }
+      long start = queryLatencyMetrics.startStep(mergeStart);
+      List<Result> sortedResults = resultHeap.toSortedList();
+      if (queryLatencyMetrics.isSampled(start)) {
+        queryLatencyMetrics.recordNanos(Stage.MERGE, mergeNanos + System.nanoTime() - start);
+      }
+      returnResults.addResults(sortedResults, true);
     }
   }
 
-  List<Result> sortedResults(List<Result> results, Comparator<? super Result> comparator) {
-    Collections.sort(results, comparator);
+  /**
+   * Post-federation plugins may drop results, so a result's position in the merged run is not its
+   * position in the source's own response. Results are matched back to the unfiltered response by
+   * identity, or by metacard id when a plugin has replaced the {@link Result}.
+   *
+   * @return the index in {@code rawResults} of each of {@code results}, or -1 where none matches
+   */
+  private static int[] getRawIndexes(List<Result> rawResults, List<Result> results) {
+    Map<Result, Integer> byIdentity = new IdentityHashMap<>();
+    Map<String, Integer> byId = new HashMap<>();
+    for (int i = 0; i < rawResults.size(); i++) {
+      Result rawResult = rawResults.get(i);
+      byIdentity.put(rawResult, i);
+      String id = getMetacardId(rawResult);
+      if (id != null) {
+        byId.putIfAbsent(id, i);
+      }
+    }
 
-    int maxResults = Integer.MAX_VALUE;
-    if (query.getPageSize() > 0) {
-      maxResults = query.getPageSize();
+    int[] rawIndexes = new int[results.size()];
+    for (int i = 0; i < rawIndexes.length; i++) {
+      Result result = results.get(i);
+      Integer rawIndex = byIdentity.get(result);
+      if (rawIndex == null) {
+        rawIndex = byId.get(getMetacardId(result));
+      }
+      rawIndexes[i] = rawIndex == null ? -1 : rawIndex;
     }
+    return rawIndexes;
+  }
 
-    return results.size() > maxResults ? results.subList(0, maxResults) : results;
+  @Nullable
+  private static String getMetacardId(Result result) {
+    return result == null || result.getMetacard() == null ? null : result.getMetacard().getId();
+  }
+
+  /**
+   * @return the number of results of each source's unfiltered response up to and including the last
+   *     one merged, or {@code null} if a merged result can't be traced back to that response
+   */
+  @Nullable
+  private static Map<String, Integer> getConsumedBySource(
+      Map<String, Integer> lastPositionBySource, Map<String, int[]> rawIndexesBySource) {
+    Map<String, Integer> consumedBySource = new HashMap<>();
+    for (Map.Entry<String, Integer> lastPosition : lastPositionBySource.entrySet()) {
+      String sourceId = lastPosition.getKey();
+      int[] rawIndexes = rawIndexesBySource.get(sourceId);
+      int rawIndex =
+          rawIndexes == null || lastPosition.getValue() >= rawIndexes.length
+              ? -1
+              : rawIndexes[lastPosition.getValue()];
+      if (rawIndex < 0) {
+        LOGGER.debug(
+            "Not recording a paging cursor since a result from {} isn't in its response", sourceId);
+        return null;
+      }
+      consumedBySource.put(sourceId, rawIndex + 1);
+    }
+    return consumedBySource;
   }
 
   private static Comparable getAttributeValue(Result r, String attributeName) {
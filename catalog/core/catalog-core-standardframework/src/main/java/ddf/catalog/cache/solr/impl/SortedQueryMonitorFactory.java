@@ -21,6 +21,7 @@
 import java.util.Map;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 
 class SortedQueryMonitorFactory {
   private final CachingFederationStrategy cachingFederationStrategy;
@@ -34,9 +35,16 @@ public Runnable createMonitor(
       final Map<Future<SourceResponse>, QueryRequest> futures,
       final QueryResponseImpl returnResults,
       final QueryRequest request,
-      List<PostFederatedQueryPlugin> postQuery) {
+      List<PostFederatedQueryPlugin> postQuery,
+      @Nullable FederatedPagingCursors.Cursor pagingCursor) {
 
     return new SortedQueryMonitor(
-        cachingFederationStrategy, completionService, futures, returnResults, request, postQuery);
+        cachingFederationStrategy,
+        completionService,
+        futures,
+        returnResults,
+        request,
+        postQuery,
+        pagingCursor);
   }
 }
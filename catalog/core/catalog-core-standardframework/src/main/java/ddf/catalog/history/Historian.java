@@ -17,6 +17,7 @@
 
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteSource;
+import ddf.catalog.Constants;
 import ddf.catalog.content.StorageException;
 import ddf.catalog.content.StorageProvider;
 import ddf.catalog.content.data.ContentItem;
@@ -56,6 +57,9 @@
 import ddf.security.common.audit.SecurityLogger;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
@@ -545,11 +549,11 @@ private CreateStorageResponse versionContentItems(
       return null;
     }
 
+    Map<String, Serializable> properties = new HashMap<>();
+    properties.put(Constants.SOURCE_CONTENT_URIS, getSourceContentUris(items, versionedMetacards));
     CreateStorageResponse createStorageResponse =
         executeAsSystem(
-            () ->
-                storageProvider()
-                    .create(new CreateStorageRequestImpl(contentItems, new HashMap<>())));
+            () -> storageProvider().create(new CreateStorageRequestImpl(contentItems, properties)));
     tryCommitStorage(createStorageResponse);
     if (LOGGER.isTraceEnabled()) {
       LOGGER.trace(
@@ -558,6 +562,28 @@ private CreateStorageResponse versionContentItems(
     return createStorageResponse;
   }
 
+  /**
+   * Maps each versioned content item to the content it is a copy of, so that the storage provider
+   * can reference the stored content instead of copying it.
+   */
+  private HashMap<String, Map<String, URI>> getSourceContentUris(
+      Map<String, List<ContentItem>> items, Map<String, Metacard> versionedMetacards) {
+    HashMap<String, Map<String, URI>> sourceContentUris = new HashMap<>();
+    for (List<ContentItem> contentItems : items.values()) {
+      for (ContentItem content : contentItems) {
+        try {
+          sourceContentUris
+              .computeIfAbsent(
+                  versionedMetacards.get(content.getId()).getId(), id -> new HashMap<>())
+              .put(content.getQualifier(), new URI(content.getUri()));
+        } catch (URISyntaxException e) {
+          LOGGER.debug("Invalid content URI {} of {}", content.getUri(), content.getId(), e);
+        }
+      }
+    }
+    return sourceContentUris;
+  }
+
   private void tryCommitStorage(CreateStorageResponse createStorageResponse)
       throws IngestException {
     try {
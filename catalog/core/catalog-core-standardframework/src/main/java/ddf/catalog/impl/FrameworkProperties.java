@@ -47,6 +47,7 @@
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import org.codice.ddf.catalog.resource.download.internal.DownloadManager;
+import org.codice.ddf.checksum.ChecksumProvider;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -119,6 +120,8 @@ public class FrameworkProperties {
 
   private List<DownloadManager> downloadManagers = new ArrayList<>();
 
+  private List<ChecksumProvider> checksumProviders = new ArrayList<>();
+
   public List<CatalogProvider> getCatalogProviders() {
     return catalogProviders;
   }
@@ -371,6 +374,14 @@ public List<AttributeInjector> getAttributeInjectors() {
     return attributeInjectors;
   }
 
+  public List<ChecksumProvider> getChecksumProviders() {
+    return checksumProviders;
+  }
+
+  public void setChecksumProviders(List<ChecksumProvider> checksumProviders) {
+    this.checksumProviders = checksumProviders;
+  }
+
   public DownloadManager getDownloadManager() {
     if (!downloadManagers.isEmpty()) {
       return downloadManagers.get(0);
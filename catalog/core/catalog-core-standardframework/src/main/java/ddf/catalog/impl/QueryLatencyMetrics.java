@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.impl;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the stages of the query pipeline, and each plug-in, source and transformer within them.
+ *
+ * <p>Each stage is timed under {@code Queries.Latency.<stage>} and each plug-in, source or
+ * transformer under {@code Queries.Latency.<stage>.<name>}, in the {@value #MBEAN_DOMAIN} JMX
+ * domain. The timers keep latency histograms with their percentiles, and can be read over HTTP
+ * through Jolokia like the other catalog metrics.
+ *
+ * <p>Only a {@link #setSampleRate(Float) sample} of the stages are timed, each stage being sampled
+ * on its own. When the sample rate is 0, which is the default, nothing is timed and the clock is
+ * never read.
+ */
+public class QueryLatencyMetrics {
+
+  public static final String MBEAN_DOMAIN = "ddf.metrics.catalog";
+
+  static final String LATENCY_SCOPE = "Queries.Latency";
+
+  private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  /** The stages of the query pipeline, in the order they are executed. */
+  public enum Stage {
+    PRE_AUTHORIZATION_PRE_QUERY("PreAuthorization.PreQuery"),
+    POLICY_PRE_QUERY("Policy.PreQuery"),
+    ACCESS_PRE_QUERY("Access.PreQuery"),
+    PRE_QUERY("PreQuery"),
+    FEDERATION("Federation"),
+    SOURCE("Source"),
+    MERGE("Merge"),
+    PRE_AUTHORIZATION_POST_QUERY("PreAuthorization.PostQuery"),
+    POLICY_POST_QUERY("Policy.PostQuery"),
+    ACCESS_POST_QUERY("Access.PostQuery"),
+    POST_QUERY("PostQuery"),
+    TRANSFORM("Transform");
+
+    private final String metricName;
+
+    Stage(String metricName) {
+      this.metricName = MetricRegistry.name(LATENCY_SCOPE, metricName);
+    }
+
+    String getMetricName() {
+      return metricName;
+    }
+  }
+
+  private final MetricRegistry metrics = new MetricRegistry();
+
+  private final JmxReporter reporter =
+      JmxReporter.forRegistry(metrics)
+          .inDomain(MBEAN_DOMAIN)
+          .convertDurationsTo(TimeUnit.MILLISECONDS)
+          .build();
+
+  private volatile double sampleRate = 0;
+
+  public void init() {
+    reporter.start();
+  }
+
+  public void destroy() {
+    reporter.stop();
+  }
+
+  /** @param sampleRate fraction of the stages to time, from 0 to 1 */
+  public void setSampleRate(Float sampleRate) {
+    this.sampleRate = sampleRate == null ? 0 : Math.max(0, Math.min(1, sampleRate));
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Starts timing a stage if it is sampled.
+   *
+   * @return the start time to pass to {@link #record(Stage, long)}
+   */
+  public long start() {
+    double rate = sampleRate;
+    if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+      return NOT_SAMPLED;
+    }
+    return System.nanoTime();
+  }
+
+  /**
+   * Starts timing a step of a stage, such as a single plug-in, if the stage is sampled.
+   *
+   * @param stageStart start time of the stage returned by {@link #start()}
+   * @return the start time to pass to {@link #record(Stage, String, long)}
+   */
+  public long startStep(long stageStart) {
+    return isSampled(stageStart) ? System.nanoTime() : NOT_SAMPLED;
+  }
+
+  /** @return true if {@code start} was returned for a sampled stage or step */
+  public boolean isSampled(long start) {
+    return start != NOT_SAMPLED;
+  }
+
+  /** Records the time elapsed since {@code start} for the stage, if it was sampled. */
+  public void record(Stage stage, long start) {
+    if (isSampled(start)) {
+      recordNanos(stage, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records the time elapsed since {@code start} for the plug-in, source or transformer of the
+   * stage, if it was sampled.
+   */
+  public void record(Stage stage, String name, long start) {
+    if (isSampled(start)) {
+      recordNanos(stage, name, System.nanoTime() - start);
+    }
+  }
+
+  /** Records time measured for the stage, for stages made of several separate steps. */
+  public void recordNanos(Stage stage, long nanos) {
+    getTimer(stage).update(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Records time measured for the plug-in, source or transformer of the stage. */
+  public void recordNanos(Stage stage, String name, long nanos) {
+    getTimer(stage, name).update(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** @return the timer of the stage */
+  public Timer getTimer(Stage stage) {
+    return metrics.timer(stage.getMetricName());
+  }
+
+  /** @return the timer of the plug-in, source or transformer of the stage */
+  public Timer getTimer(Stage stage, String name) {
+    return metrics.timer(MetricRegistry.name(stage.getMetricName(), name));
+  }
+}
@@ -13,7 +13,9 @@
  */
 package ddf.catalog.impl.operations;
 
+import static ddf.catalog.Constants.CONTENT_CHECKSUMS;
 import static ddf.catalog.Constants.CONTENT_PATHS;
+import static ddf.catalog.Constants.STAGED_CONTENT_PATHS;
 
 import ddf.catalog.Constants;
 import ddf.catalog.content.StorageException;
@@ -128,6 +130,7 @@ public CreateResponse create(
     Map<String, Metacard> metacardMap = new HashMap<>();
     List<ContentItem> contentItems = new ArrayList<>(streamCreateRequest.getContentItems().size());
     HashMap<String, Map<String, Path>> tmpContentPaths = new HashMap<>();
+    HashMap<String, Map<String, String>> contentChecksums = new HashMap<>();
 
     CreateResponse createResponse = null;
     CreateStorageRequest createStorageRequest = null;
@@ -137,9 +140,13 @@ public CreateResponse create(
         opsStorageSupport.prepareStorageRequest(
             streamCreateRequest, streamCreateRequest::getContentItems);
 
-    // Operation populates the metacardMap, contentItems, and tmpContentPaths
+    // Operation populates the metacardMap, contentItems, tmpContentPaths, and contentChecksums
     opsMetacardSupport.generateMetacardAndContentItems(
-        streamCreateRequest.getContentItems(), metacardMap, contentItems, tmpContentPaths);
+        streamCreateRequest.getContentItems(),
+        metacardMap,
+        contentItems,
+        tmpContentPaths,
+        contentChecksums);
 
     if (blockCreateMetacards(metacardMap.values(), fanoutTagBlacklist)) {
       String message =
@@ -149,6 +156,7 @@ public CreateResponse create(
     }
 
     streamCreateRequest.getProperties().put(CONTENT_PATHS, tmpContentPaths);
+    streamCreateRequest.getProperties().put(CONTENT_CHECKSUMS, contentChecksums);
 
     injectAttributes(metacardMap);
     setDefaultValues(metacardMap);
@@ -160,6 +168,12 @@ public CreateResponse create(
             new CreateStorageRequestImpl(
                 contentItems, streamCreateRequest.getId(), streamCreateRequest.getProperties());
         createStorageRequest = processPreCreateStoragePlugins(createStorageRequest);
+        createStorageRequest
+            .getProperties()
+            .put(
+                STAGED_CONTENT_PATHS,
+                OperationsStorageSupport.getStagedContentPaths(
+                    createStorageRequest.getContentItems(), contentItems, tmpContentPaths));
 
         try {
           createStorageResponse = sourceOperations.getStorage().create(createStorageRequest);
@@ -26,13 +26,14 @@
 import ddf.catalog.source.IngestException;
 import ddf.mime.MimeTypeResolutionException;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -86,17 +87,27 @@ Metacard applyInjectors(Metacard original, List<AttributeInjector> injectors) {
     return metacard;
   }
 
+  /**
+   * Copies the incoming content to temporary files and generates a metacard for each unqualified
+   * content item. The content is read once: its size, checksums and the bytes used to detect its
+   * MIME type are all taken from that copy.
+   *
+   * @param contentChecksums populated with the checksums of each unqualified content item, keyed by
+   *     content item ID and then checksum algorithm
+   */
   void generateMetacardAndContentItems(
       List<ContentItem> incomingContentItems,
       Map<String, Metacard> metacardMap,
       List<ContentItem> contentItems,
-      Map<String, Map<String, Path>> tmpContentPaths)
+      Map<String, Map<String, Path>> tmpContentPaths,
+      Map<String, Map<String, String>> contentChecksums)
       throws IngestException {
     for (ContentItem contentItem : incomingContentItems) {
       try {
         Path tmpPath = null;
         String fileName;
-        long size;
+        StagedContent stagedContent;
+        boolean qualifiedContent = StringUtils.isNotEmpty(contentItem.getQualifier());
         try (InputStream inputStream = contentItem.getInputStream()) {
           fileName = contentItem.getFilename();
           if (inputStream == null) {
@@ -113,8 +124,15 @@ void generateMetacardAndContentItems(
               Files.createTempFile(
                   FilenameUtils.getBaseName(sanitizedFilename),
                   FilenameUtils.getExtension(sanitizedFilename));
-          Files.copy(inputStream, tmpPath, StandardCopyOption.REPLACE_EXISTING);
-          size = Files.size(tmpPath);
+          // Qualified content is derived from the product, so the product's checksum is the one
+          // that goes on the metacard
+          stagedContent =
+              StagedContent.stage(
+                  inputStream,
+                  tmpPath,
+                  qualifiedContent
+                      ? Collections.emptyList()
+                      : frameworkProperties.getChecksumProviders());
 
           final String key = contentItem.getId();
           Map<String, Path> pathAndQualifiers = tmpContentPaths.get(key);
@@ -134,7 +152,7 @@ void generateMetacardAndContentItems(
           throw new IngestException("Could not copy bytes of content message.", e);
         }
         String mimeTypeRaw = contentItem.getMimeTypeRawData();
-        mimeTypeRaw = guessMimeType(mimeTypeRaw, fileName, tmpPath);
+        mimeTypeRaw = guessMimeType(mimeTypeRaw, fileName, stagedContent);
 
         if (!InputValidation.isMimeTypeClientSideSafe(mimeTypeRaw)) {
           throw new IngestException("Unsupported mime type.");
@@ -148,7 +166,6 @@ void generateMetacardAndContentItems(
         }
 
         Metacard metacard;
-        boolean qualifiedContent = StringUtils.isNotEmpty(contentItem.getQualifier());
         if (qualifiedContent) {
           metacard = contentItem.getMetacard();
         } else {
@@ -156,6 +173,9 @@ void generateMetacardAndContentItems(
               metacardFactory.generateMetacard(mimeTypeRaw, contentItem.getId(), fileName, tmpPath);
         }
         metacardMap.put(metacard.getId(), metacard);
+        if (!qualifiedContent && !stagedContent.getChecksums().isEmpty()) {
+          contentChecksums.put(metacard.getId(), stagedContent.getChecksums());
+        }
 
         ContentItem generatedContentItem =
             new ContentItemImpl(
@@ -164,7 +184,7 @@ void generateMetacardAndContentItems(
                 com.google.common.io.Files.asByteSource(tmpPath.toFile()),
                 mimeTypeRaw,
                 fileName,
-                size,
+                stagedContent.getSize(),
                 metacard);
         contentItems.add(generatedContentItem);
       } catch (Exception e) {
@@ -174,6 +194,7 @@ void generateMetacardAndContentItems(
             .flatMap(id -> id.values().stream())
             .forEach(path -> FileUtils.deleteQuietly(path.toFile()));
         tmpContentPaths.clear();
+        contentChecksums.clear();
         throw new IngestException("Could not create metacard.", e);
       }
     }
@@ -228,11 +249,10 @@ private String updateFileExtension(String mimeTypeRaw, String fileName) {
   }
 
   // package-private for unit testing
-  String guessMimeType(String mimeTypeRaw, String fileName, Path tmpContentPath)
+  String guessMimeType(String mimeTypeRaw, String fileName, StagedContent stagedContent)
       throws IOException {
     if (ContentItem.DEFAULT_MIME_TYPE.equals(mimeTypeRaw)) {
-      try (InputStream inputStreamMessageCopy =
-          com.google.common.io.Files.asByteSource(tmpContentPath.toFile()).openStream()) {
+      try (InputStream inputStreamMessageCopy = openStream(stagedContent)) {
         String mimeTypeGuess =
             frameworkProperties
                 .getMimeTypeMapper()
@@ -244,8 +264,9 @@ String guessMimeType(String mimeTypeRaw, String fileName, Path tmpContentPath)
         LOGGER.debug("Unable to guess mime type for file.", e);
       }
       if (ContentItem.DEFAULT_MIME_TYPE.equals(mimeTypeRaw)) {
+        // Tika's magic detection looks no further than the staged head
         Detector detector = new DefaultProbDetector();
-        try (InputStream inputStreamMessageCopy = TikaInputStream.get(tmpContentPath)) {
+        try (InputStream inputStreamMessageCopy = TikaInputStream.get(stagedContent.getHead())) {
           MediaType mediaType = detector.detect(inputStreamMessageCopy, new Metadata());
           mimeTypeRaw = mediaType.toString();
         } catch (IOException e) {
@@ -253,18 +274,11 @@ String guessMimeType(String mimeTypeRaw, String fileName, Path tmpContentPath)
         }
       }
       if (mimeTypeRaw.equals("text/plain")) {
-        try (InputStream inputStreamMessageCopy =
-                com.google.common.io.Files.asByteSource(tmpContentPath.toFile()).openStream();
-            BufferedReader bufferedReader =
-                new BufferedReader(
-                    new InputStreamReader(inputStreamMessageCopy, Charset.forName("UTF-8")))) {
-          String line =
-              bufferedReader
-                  .lines()
-                  .map(String::trim)
-                  .filter(StringUtils::isNotEmpty)
-                  .findFirst()
-                  .orElse("");
+        try {
+          String line = getFirstLine(new ByteArrayInputStream(stagedContent.getHead()));
+          if (line.isEmpty() && !stagedContent.isHeadComplete()) {
+            line = getFirstLine(Files.newInputStream(stagedContent.getPath()));
+          }
 
           if (line.startsWith("<")) {
             mimeTypeRaw = "text/xml";
@@ -278,4 +292,24 @@ String guessMimeType(String mimeTypeRaw, String fileName, Path tmpContentPath)
     }
     return mimeTypeRaw;
   }
+
+  private InputStream openStream(StagedContent stagedContent) throws IOException {
+    if (stagedContent.isHeadComplete()) {
+      return new ByteArrayInputStream(stagedContent.getHead());
+    }
+    return Files.newInputStream(stagedContent.getPath());
+  }
+
+  /** Returns the first line of the stream that is not blank, trimmed, and closes the stream. */
+  private String getFirstLine(InputStream inputStream) throws IOException {
+    try (BufferedReader bufferedReader =
+        new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")))) {
+      return bufferedReader
+          .lines()
+          .map(String::trim)
+          .filter(StringUtils::isNotEmpty)
+          .findFirst()
+          .orElse("");
+    }
+  }
 }
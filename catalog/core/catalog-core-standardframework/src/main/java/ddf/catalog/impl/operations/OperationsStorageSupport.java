@@ -23,8 +23,12 @@
 import ddf.catalog.source.SourceUnavailableException;
 import ddf.catalog.util.impl.Requests;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
@@ -103,6 +107,40 @@ public void commitAndCleanup(
     tmpContentPaths.clear();
   }
 
+  /**
+   * Returns the staged file of each content item that the pre-storage plugins passed on unchanged.
+   * The content items the framework generates are immutable, so an item that is still the same
+   * instance still holds the staged content; any other item is left for the storage provider to
+   * read.
+   *
+   * @param storageItems content items of the storage request after the pre-storage plugins ran
+   * @param stagedItems content items the framework generated over the staged files
+   * @param tmpContentPaths staged files keyed by content item ID and then qualifier
+   */
+  static HashMap<String, Map<String, Path>> getStagedContentPaths(
+      List<ContentItem> storageItems,
+      List<ContentItem> stagedItems,
+      Map<String, Map<String, Path>> tmpContentPaths) {
+    Set<ContentItem> unchangedItems = Collections.newSetFromMap(new IdentityHashMap<>());
+    unchangedItems.addAll(stagedItems);
+
+    HashMap<String, Map<String, Path>> stagedContentPaths = new HashMap<>();
+    for (ContentItem item : storageItems) {
+      Map<String, Path> qualifiedPaths = tmpContentPaths.get(item.getId());
+      if (!unchangedItems.contains(item) || qualifiedPaths == null) {
+        continue;
+      }
+
+      Path path = qualifiedPaths.get(item.getQualifier());
+      if (path != null) {
+        stagedContentPaths
+            .computeIfAbsent(item.getId(), id -> new HashMap<>())
+            .put(item.getQualifier(), path);
+      }
+    }
+    return stagedContentPaths;
+  }
+
   private void rollbackStorage(StorageRequest storageRequest) {
     try {
       sourceOperations.getStorage().rollback(storageRequest);
@@ -29,6 +29,8 @@
 import ddf.catalog.filter.FilterDelegate;
 import ddf.catalog.filter.delegate.TagsFilterDelegate;
 import ddf.catalog.impl.FrameworkProperties;
+import ddf.catalog.impl.QueryLatencyMetrics;
+import ddf.catalog.impl.QueryLatencyMetrics.Stage;
 import ddf.catalog.operation.Operation;
 import ddf.catalog.operation.ProcessingDetails;
 import ddf.catalog.operation.Query;
@@ -121,6 +123,8 @@ public class QueryOperations extends DescribableImpl {
 
   private long queryTimeoutMillis = 300000;
 
+  private QueryLatencyMetrics queryLatencyMetrics = new QueryLatencyMetrics();
+
   public QueryOperations(
       FrameworkProperties frameworkProperties,
       SourceOperations sourceOperations,
@@ -148,6 +152,10 @@ public void setQueryTimeoutMillis(long queryTimeoutMillis) {
     this.queryTimeoutMillis = queryTimeoutMillis;
   }
 
+  public void setQueryLatencyMetrics(QueryLatencyMetrics queryLatencyMetrics) {
+    this.queryLatencyMetrics = queryLatencyMetrics;
+  }
+
   //
   // Delegate methods
   //
@@ -198,11 +206,15 @@ QueryResponse query(
         }
       }
 
+      // the results are read to include the time spent waiting on the sources
+      long federationStart = queryLatencyMetrics.start();
       queryResponse = doQuery(queryRequest, fedStrategy);
+      int actualResultSize = queryResponse.getResults().size();
+      queryLatencyMetrics.record(Stage.FEDERATION, federationStart);
 
       // Allow callers to determine the total results returned from the query; this value
       // may differ from the number of filtered results after processing plugins have been run.
-      queryResponse.getProperties().put("actualResultSize", queryResponse.getResults().size());
+      queryResponse.getProperties().put("actualResultSize", actualResultSize);
       LOGGER.trace("BeforePostQueryFilter result size: {}", queryResponse.getResults().size());
       queryResponse = injectAttributes(queryResponse);
       queryResponse = validateFixQueryResponse(queryResponse, overrideFanoutRename, fanoutEnabled);
@@ -393,7 +405,9 @@ boolean includesLocalSources(Set<String> sourceIds) {
 
   private QueryResponse processPostQueryPlugins(QueryResponse queryResponse)
       throws FederationException {
+    long stageStart = queryLatencyMetrics.start();
     for (PostQueryPlugin service : frameworkProperties.getPostQuery()) {
+      long start = queryLatencyMetrics.startStep(stageStart);
       try {
         queryResponse = service.process(queryResponse);
       } catch (PluginExecutionException see) {
@@ -401,19 +415,25 @@ private QueryResponse processPostQueryPlugins(QueryResponse queryResponse)
       } catch (StopProcessingException e) {
         throw new FederationException("Query could not be executed.", e);
       }
+      queryLatencyMetrics.record(Stage.POST_QUERY, service.getClass().getName(), start);
     }
+    queryLatencyMetrics.record(Stage.POST_QUERY, stageStart);
     return queryResponse;
   }
 
   private QueryResponse processPostQueryAccessPlugins(QueryResponse queryResponse)
       throws FederationException {
+    long stageStart = queryLatencyMetrics.start();
     for (AccessPlugin plugin : frameworkProperties.getAccessPlugins()) {
+      long start = queryLatencyMetrics.startStep(stageStart);
       try {
         queryResponse = plugin.processPostQuery(queryResponse);
       } catch (StopProcessingException e) {
         throw new FederationException("Query could not be executed.", e);
       }
+      queryLatencyMetrics.record(Stage.ACCESS_POST_QUERY, plugin.getClass().getName(), start);
     }
+    queryLatencyMetrics.record(Stage.ACCESS_POST_QUERY, stageStart);
     return queryResponse;
   }
 
@@ -422,27 +442,46 @@ private QueryResponse populateQueryResponsePolicyMap(QueryResponse queryResponse
     HashMap<String, Set<String>> responsePolicyMap = new HashMap<>();
     Map<String, Serializable> unmodifiableProperties =
         Collections.unmodifiableMap(queryResponse.getProperties());
+    List<PolicyPlugin> policyPlugins = frameworkProperties.getPolicyPlugins();
+    long stageStart = queryLatencyMetrics.start();
+    // the plugins are called once per result, so their time is added up over the results
+    long[] pluginNanos =
+        queryLatencyMetrics.isSampled(stageStart) ? new long[policyPlugins.size()] : null;
     for (Result result : queryResponse.getResults()) {
       HashMap<String, Set<String>> itemPolicyMap = new HashMap<>();
-      for (PolicyPlugin plugin : frameworkProperties.getPolicyPlugins()) {
+      for (int i = 0; i < policyPlugins.size(); i++) {
+        long start = queryLatencyMetrics.startStep(stageStart);
         try {
-          PolicyResponse policyResponse = plugin.processPostQuery(result, unmodifiableProperties);
+          PolicyResponse policyResponse =
+              policyPlugins.get(i).processPostQuery(result, unmodifiableProperties);
           opsSecuritySupport.buildPolicyMap(itemPolicyMap, policyResponse.itemPolicy().entrySet());
           opsSecuritySupport.buildPolicyMap(
               responsePolicyMap, policyResponse.operationPolicy().entrySet());
         } catch (StopProcessingException e) {
           throw new FederationException("Query could not be executed.", e);
         }
+        if (pluginNanos != null) {
+          pluginNanos[i] += System.nanoTime() - start;
+        }
       }
       result.getMetacard().setAttribute(new AttributeImpl(Metacard.SECURITY, itemPolicyMap));
     }
     queryResponse.getProperties().put(PolicyPlugin.OPERATION_SECURITY, responsePolicyMap);
+    if (pluginNanos != null) {
+      for (int i = 0; i < pluginNanos.length; i++) {
+        queryLatencyMetrics.recordNanos(
+            Stage.POLICY_POST_QUERY, policyPlugins.get(i).getClass().getName(), pluginNanos[i]);
+      }
+    }
+    queryLatencyMetrics.record(Stage.POLICY_POST_QUERY, stageStart);
 
     return queryResponse;
   }
 
   private QueryRequest processPreQueryPlugins(QueryRequest queryReq) throws FederationException {
+    long stageStart = queryLatencyMetrics.start();
     for (PreQueryPlugin service : frameworkProperties.getPreQuery()) {
+      long start = queryLatencyMetrics.startStep(stageStart);
       try {
         queryReq = service.process(queryReq);
       } catch (PluginExecutionException see) {
@@ -450,43 +489,59 @@ private QueryRequest processPreQueryPlugins(QueryRequest queryReq) throws Federa
       } catch (StopProcessingException e) {
         throw new FederationException("Query could not be executed.", e);
       }
+      queryLatencyMetrics.record(Stage.PRE_QUERY, service.getClass().getName(), start);
     }
+    queryLatencyMetrics.record(Stage.PRE_QUERY, stageStart);
     return queryReq;
   }
 
   private QueryRequest processPreQueryAccessPlugins(QueryRequest queryReq)
       throws FederationException {
+    long stageStart = queryLatencyMetrics.start();
     for (AccessPlugin plugin : frameworkProperties.getAccessPlugins()) {
+      long start = queryLatencyMetrics.startStep(stageStart);
       try {
         queryReq = plugin.processPreQuery(queryReq);
       } catch (StopProcessingException e) {
         throw new FederationException("Query could not be executed.", e);
       }
+      queryLatencyMetrics.record(Stage.ACCESS_PRE_QUERY, plugin.getClass().getName(), start);
     }
+    queryLatencyMetrics.record(Stage.ACCESS_PRE_QUERY, stageStart);
     return queryReq;
   }
 
   private QueryRequest preProcessPreAuthorizationPlugins(QueryRequest queryRequest)
       throws FederationException {
+    long stageStart = queryLatencyMetrics.start();
     for (PreAuthorizationPlugin plugin : frameworkProperties.getPreAuthorizationPlugins()) {
+      long start = queryLatencyMetrics.startStep(stageStart);
       try {
         queryRequest = plugin.processPreQuery(queryRequest);
       } catch (StopProcessingException e) {
         throw new FederationException("Query could not be executed.", e);
       }
+      queryLatencyMetrics.record(
+          Stage.PRE_AUTHORIZATION_PRE_QUERY, plugin.getClass().getName(), start);
     }
+    queryLatencyMetrics.record(Stage.PRE_AUTHORIZATION_PRE_QUERY, stageStart);
     return queryRequest;
   }
 
   private QueryResponse postProcessPreAuthorizationPlugins(QueryResponse queryResponse)
       throws FederationException {
+    long stageStart = queryLatencyMetrics.start();
     for (PreAuthorizationPlugin plugin : frameworkProperties.getPreAuthorizationPlugins()) {
+      long start = queryLatencyMetrics.startStep(stageStart);
       try {
         queryResponse = plugin.processPostQuery(queryResponse);
       } catch (StopProcessingException e) {
         throw new FederationException("Query could not be executed.", e);
       }
+      queryLatencyMetrics.record(
+          Stage.PRE_AUTHORIZATION_POST_QUERY, plugin.getClass().getName(), start);
     }
+    queryLatencyMetrics.record(Stage.PRE_AUTHORIZATION_POST_QUERY, stageStart);
     return queryResponse;
   }
 
@@ -495,7 +550,9 @@ private QueryRequest populateQueryRequestPolicyMap(QueryRequest queryReq)
     HashMap<String, Set<String>> requestPolicyMap = new HashMap<>();
     Map<String, Serializable> unmodifiableProperties =
         Collections.unmodifiableMap(queryReq.getProperties());
+    long stageStart = queryLatencyMetrics.start();
     for (PolicyPlugin plugin : frameworkProperties.getPolicyPlugins()) {
+      long start = queryLatencyMetrics.startStep(stageStart);
       try {
         PolicyResponse policyResponse =
             plugin.processPreQuery(queryReq.getQuery(), unmodifiableProperties);
@@ -504,7 +561,9 @@ private QueryRequest populateQueryRequestPolicyMap(QueryRequest queryReq)
       } catch (StopProcessingException e) {
         throw new FederationException("Query could not be executed.", e);
       }
+      queryLatencyMetrics.record(Stage.POLICY_PRE_QUERY, plugin.getClass().getName(), start);
     }
+    queryLatencyMetrics.record(Stage.POLICY_PRE_QUERY, stageStart);
     queryReq.getProperties().put(PolicyPlugin.OPERATION_SECURITY, requestPolicyMap);
 
     return queryReq;
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.impl.operations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.codice.ddf.checksum.ChecksumOutputStream;
+import org.codice.ddf.checksum.ChecksumProvider;
+
+/**
+ * Content copied to a temporary file for ingest, together with what was learned about it during
+ * that single read: its size, its first bytes for MIME type detection, and its checksums. Later
+ * ingest steps use these instead of reading the content again.
+ */
+public class StagedContent {
+
+  /** Number of leading bytes kept for MIME type detection. */
+  static final int HEAD_SIZE = 64 * 1024;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Path path;
+
+  private final long size;
+
+  private final byte[] head;
+
+  private final Map<String, String> checksums;
+
+  private StagedContent(Path path, long size, byte[] head, Map<String, String> checksums) {
+    this.path = path;
+    this.size = size;
+    this.head = head;
+    this.checksums = checksums;
+  }
+
+  /**
+   * Copies content to a file, calculating the checksum of every provider that supports {@link
+   * ChecksumProvider#newChecksumOutputStream()} as it goes.
+   *
+   * @param inputStream the content; not closed
+   * @param path the file to copy the content to, replacing it if it exists
+   * @param checksumProviders providers to calculate checksums for; may be empty
+   */
+  public static StagedContent stage(
+      InputStream inputStream, Path path, List<ChecksumProvider> checksumProviders)
+      throws IOException {
+    Map<String, ChecksumOutputStream> checksumStreams = new HashMap<>();
+    for (ChecksumProvider checksumProvider : checksumProviders) {
+      ChecksumOutputStream checksumStream = checksumProvider.newChecksumOutputStream();
+      if (checksumStream != null) {
+        checksumStreams.putIfAbsent(checksumProvider.getChecksumAlgorithm(), checksumStream);
+      }
+    }
+
+    byte[] head = new byte[HEAD_SIZE];
+    int headLength = 0;
+    long size = 0;
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (OutputStream outputStream = Files.newOutputStream(path)) {
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, read);
+        for (ChecksumOutputStream checksumStream : checksumStreams.values()) {
+          checksumStream.write(buffer, 0, read);
+        }
+        if (headLength < HEAD_SIZE) {
+          int headBytes = Math.min(read, HEAD_SIZE - headLength);
+          System.arraycopy(buffer, 0, head, headLength, headBytes);
+          headLength += headBytes;
+        }
+        size += read;
+      }
+    }
+
+    Map<String, String> checksums = new HashMap<>();
+    checksumStreams.forEach((algorithm, stream) -> checksums.put(algorithm, stream.getChecksum()));
+    return new StagedContent(
+        path, size, Arrays.copyOf(head, headLength), Collections.unmodifiableMap(checksums));
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /** @return up to the first {@value #HEAD_SIZE} bytes of the content */
+  public byte[] getHead() {
+    return head;
+  }
+
+  /** @return whether {@link #getHead()} holds all of the content */
+  public boolean isHeadComplete() {
+    return head.length == size;
+  }
+
+  /** @return checksum values keyed by checksum algorithm */
+  public Map<String, String> getChecksums() {
+    return checksums;
+  }
+}
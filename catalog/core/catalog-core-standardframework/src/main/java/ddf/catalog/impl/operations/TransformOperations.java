@@ -17,6 +17,8 @@
 import ddf.catalog.data.BinaryContent;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.impl.FrameworkProperties;
+import ddf.catalog.impl.QueryLatencyMetrics;
+import ddf.catalog.impl.QueryLatencyMetrics.Stage;
 import ddf.catalog.operation.SourceResponse;
 import ddf.catalog.transform.CatalogTransformerException;
 import ddf.catalog.transform.MetacardTransformer;
@@ -36,10 +38,16 @@
 public class TransformOperations {
   private FrameworkProperties frameworkProperties;
 
+  private QueryLatencyMetrics queryLatencyMetrics = new QueryLatencyMetrics();
+
   public TransformOperations(FrameworkProperties frameworkProperties) {
     this.frameworkProperties = frameworkProperties;
   }
 
+  public void setQueryLatencyMetrics(QueryLatencyMetrics queryLatencyMetrics) {
+    this.queryLatencyMetrics = queryLatencyMetrics;
+  }
+
   //
   // Delegate methods
   //
@@ -117,7 +125,11 @@ public BinaryContent transform(
     } else {
       QueryResponseTransformer transformer =
           (QueryResponseTransformer) frameworkProperties.getBundleContext().getService(refs[0]);
-      return transformer.transform(response, requestProperties);
+      long start = queryLatencyMetrics.start();
+      BinaryContent content = transformer.transform(response, requestProperties);
+      queryLatencyMetrics.record(Stage.TRANSFORM, transformerId, start);
+      queryLatencyMetrics.record(Stage.TRANSFORM, start);
+      return content;
     }
   }
 }
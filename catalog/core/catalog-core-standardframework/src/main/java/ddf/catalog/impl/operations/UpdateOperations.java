@@ -13,7 +13,9 @@
  */
 package ddf.catalog.impl.operations;
 
+import static ddf.catalog.Constants.CONTENT_CHECKSUMS;
 import static ddf.catalog.Constants.CONTENT_PATHS;
+import static ddf.catalog.Constants.STAGED_CONTENT_PATHS;
 
 import com.google.common.collect.Iterables;
 import ddf.catalog.Constants;
@@ -157,6 +159,7 @@ public UpdateResponse update(UpdateStorageRequest streamUpdateRequest)
     Map<String, Metacard> metacardMap = new HashMap<>();
     List<ContentItem> contentItems = new ArrayList<>(streamUpdateRequest.getContentItems().size());
     HashMap<String, Map<String, Path>> tmpContentPaths = new HashMap<>();
+    HashMap<String, Map<String, String>> contentChecksums = new HashMap<>();
 
     UpdateResponse updateResponse = null;
     UpdateStorageRequest updateStorageRequest = null;
@@ -166,11 +169,16 @@ public UpdateResponse update(UpdateStorageRequest streamUpdateRequest)
         opsStorageSupport.prepareStorageRequest(
             streamUpdateRequest, streamUpdateRequest::getContentItems);
 
-    // Operation populates the metacardMap, contentItems, and tmpContentPaths
+    // Operation populates the metacardMap, contentItems, tmpContentPaths, and contentChecksums
     opsMetacardSupport.generateMetacardAndContentItems(
-        streamUpdateRequest.getContentItems(), metacardMap, contentItems, tmpContentPaths);
+        streamUpdateRequest.getContentItems(),
+        metacardMap,
+        contentItems,
+        tmpContentPaths,
+        contentChecksums);
 
     streamUpdateRequest.getProperties().put(CONTENT_PATHS, tmpContentPaths);
+    streamUpdateRequest.getProperties().put(CONTENT_CHECKSUMS, contentChecksums);
 
     streamUpdateRequest = applyAttributeOverrides(streamUpdateRequest, metacardMap);
 
@@ -180,6 +188,12 @@ public UpdateResponse update(UpdateStorageRequest streamUpdateRequest)
             new UpdateStorageRequestImpl(
                 contentItems, streamUpdateRequest.getId(), streamUpdateRequest.getProperties());
         updateStorageRequest = processPreUpdateStoragePlugins(updateStorageRequest);
+        updateStorageRequest
+            .getProperties()
+            .put(
+                STAGED_CONTENT_PATHS,
+                OperationsStorageSupport.getStagedContentPaths(
+                    updateStorageRequest.getContentItems(), contentItems, tmpContentPaths));
 
         try {
           updateStorageResponse = sourceOperations.getStorage().update(updateStorageRequest);
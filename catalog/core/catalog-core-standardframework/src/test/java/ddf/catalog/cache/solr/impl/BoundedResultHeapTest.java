@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.cache.solr.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.ResultImpl;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class BoundedResultHeapTest {
+
+  private static final Comparator<Result> DISTANCE_ASCENDING =
+      Comparator.comparing(Result::getDistanceInMeters);
+
+  @Test
+  public void testKeepsBestResultsAcrossRuns() {
+    BoundedResultHeap heap = new BoundedResultHeap(DISTANCE_ASCENDING, 3);
+
+    heap.offerRun(results(5, 1, 9), false);
+    heap.offerRun(results(4, 8, 2), false);
+
+    assertThat(distances(heap.toSortedList())).containsExactly(1.0, 2.0, 4.0);
+  }
+
+  @Test
+  public void testSortedRunStopsOnceResultsCannotQualify() {
+    BoundedResultHeap heap = new BoundedResultHeap(DISTANCE_ASCENDING, 2);
+
+    assertThat(heap.offerRun(results(1, 2, 3), true)).isEqualTo(3);
+    assertThat(heap.offerRun(results(0, 5, 6, 7), true)).isEqualTo(2);
+
+    assertThat(distances(heap.toSortedList())).containsExactly(0.0, 1.0);
+  }
+
+  @Test
+  public void testUnsortedRunIsFullyExamined() {
+    BoundedResultHeap heap = new BoundedResultHeap(DISTANCE_ASCENDING, 2);
+
+    heap.offerRun(results(1, 2), false);
+
+    assertThat(heap.offerRun(results(7, 0, 6), false)).isEqualTo(3);
+    assertThat(distances(heap.toSortedList())).containsExactly(0.0, 1.0);
+  }
+
+  @Test
+  public void testEqualResultsKeepOfferOrder() {
+    BoundedResultHeap heap = new BoundedResultHeap(DISTANCE_ASCENDING, 2);
+    List<Result> run = results(1, 1, 1);
+
+    heap.offerRun(run, true);
+
+    assertThat(heap.toSortedList()).containsExactly(run.get(0), run.get(1));
+  }
+
+  @Test
+  public void testZeroCapacityRetainsNothing() {
+    BoundedResultHeap heap = new BoundedResultHeap(DISTANCE_ASCENDING, 0);
+
+    heap.offerRun(results(1, 2), false);
+
+    assertThat(heap.size()).isEqualTo(0);
+    assertThat(heap.toSortedList()).isEmpty();
+  }
+
+  private List<Result> results(double... distances) {
+    List<Result> results = new ArrayList<>();
+    for (double distance : distances) {
+      ResultImpl result = new ResultImpl();
+      result.setDistanceInMeters(distance);
+      results.add(result);
+    }
+    return results;
+  }
+
+  private List<Double> distances(List<Result> results) {
+    return results.stream().map(Result::getDistanceInMeters).collect(Collectors.toList());
+  }
+}
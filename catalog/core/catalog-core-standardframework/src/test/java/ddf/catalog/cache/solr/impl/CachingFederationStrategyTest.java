@@ -66,6 +66,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -160,7 +161,8 @@ public void setup() throws Exception {
             any(Map.class),
             responseArgumentCaptor.capture(),
             requestArgumentCaptor.capture(),
-            any(List.class)))
+            any(List.class),
+            any()))
         .thenReturn(mockSortedQueryMonitor);
 
     strategy.setSortedQueryMonitorFactory(mockSortedQueryMonitorFactory);
@@ -251,6 +253,48 @@ public void testFederateGetEmptyHits() throws Exception {
     assertThat(federateResponse.getHits(), is((long) 0));
   }
 
+  @Test
+  public void testFederateReturnsCachedResponse() throws Exception {
+    federateStrategy.setQueryResultCache(new QueryResultCache(100, 60, 0));
+    QueryRequest fedQueryRequest = new QueryRequestImpl(mockQuery, false, null, properties);
+    Source mockSource = getMockSource();
+    List<Source> sourceList = ImmutableList.of(mockSource);
+
+    federateStrategy.federate(sourceList, fedQueryRequest).getResults();
+    QueryResponse cachedResponse = federateStrategy.federate(sourceList, fedQueryRequest);
+
+    assertThat(cachedResponse.getResults().size(), is(1));
+    verify(mockSource, times(1)).query(any(QueryRequest.class));
+  }
+
+  @Test
+  public void testIngestClearsCachedResponses() throws Exception {
+    federateStrategy.setQueryResultCache(new QueryResultCache(100, 60, 0));
+    QueryRequest fedQueryRequest = new QueryRequestImpl(mockQuery, false, null, properties);
+    Source mockSource = getMockSource();
+    List<Source> sourceList = ImmutableList.of(mockSource);
+
+    federateStrategy.federate(sourceList, fedQueryRequest).getResults();
+    federateStrategy.process(mock(CreateResponseImpl.class));
+    federateStrategy.federate(sourceList, fedQueryRequest).getResults();
+
+    verify(mockSource, times(2)).query(any(QueryRequest.class));
+  }
+
+  @Test
+  public void testIndexQueryNotServedFromCachedResponses() throws Exception {
+    federateStrategy.setQueryResultCache(new QueryResultCache(100, 60, 0));
+    properties.put(QUERY_MODE, INDEX_QUERY_MODE);
+    QueryRequest fedQueryRequest = new QueryRequestImpl(mockQuery, false, null, properties);
+    Source mockSource = getMockSource();
+    List<Source> sourceList = ImmutableList.of(mockSource);
+
+    federateStrategy.federate(sourceList, fedQueryRequest).getResults();
+    federateStrategy.federate(sourceList, fedQueryRequest).getResults();
+
+    verify(mockSource, times(2)).query(any(QueryRequest.class));
+  }
+
   @Test
   public void testFederateQueryCache() throws Exception {
     properties.put(QUERY_MODE, CACHE_QUERY_MODE);
@@ -431,6 +475,58 @@ public void testStartIndexGreaterThanMaxStartIndex() throws Exception {
     assertThat(requestArgumentCaptor.getValue().getQuery().getStartIndex(), is(1));
   }
 
+  @Test
+  public void testStartIndexResumedFromPagingCursor() throws Exception {
+    FederatedPagingCursors pagingCursors = new FederatedPagingCursors(10, 10);
+    strategy.setPagingCursors(pagingCursors);
+
+    Query mockQ =
+        new QueryImpl(
+            mock(NullFilterImpl.class),
+            CachingFederationStrategy.DEFAULT_MAX_START_INDEX + 5,
+            10,
+            mock(SortBy.class),
+            true,
+            LONG_TIMEOUT);
+
+    List<Source> sources = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Source mockSource = mock(Source.class);
+      when(mockSource.getId()).thenReturn("mock source " + i);
+      sources.add(mockSource);
+    }
+
+    Map<String, Integer> sourceOffsets = new HashMap<>();
+    sourceOffsets.put("mock source 0", 30000);
+    sourceOffsets.put("mock source 1", 20004);
+    pagingCursors.record(
+        new QueryRequestImpl(
+            mockQ,
+            false,
+            new HashSet<>(Arrays.asList("mock source 0", "mock source 1")),
+            properties),
+        CachingFederationStrategy.DEFAULT_MAX_START_INDEX + 5,
+        sourceOffsets);
+
+    QueryResponse federateResponse =
+        strategy.federate(sources, new QueryRequestImpl(mockQ, properties));
+
+    ArgumentCaptor<QueryRequest> sourceRequest0 = ArgumentCaptor.forClass(QueryRequest.class);
+    ArgumentCaptor<QueryRequest> sourceRequest1 = ArgumentCaptor.forClass(QueryRequest.class);
+    verify(sources.get(0), atLeastOnce()).query(sourceRequest0.capture());
+    verify(sources.get(1), atLeastOnce()).query(sourceRequest1.capture());
+
+    assertThat(sourceRequest0.getValue().getQuery().getStartIndex(), is(30001));
+    assertThat(sourceRequest0.getValue().getQuery().getPageSize(), is(10));
+    assertThat(sourceRequest1.getValue().getQuery().getStartIndex(), is(20005));
+    assertThat(sourceRequest1.getValue().getQuery().getPageSize(), is(10));
+    // The merged page is returned directly rather than through an OffsetResultHandler
+    assertThat(requestArgumentCaptor.getValue().getQuery().getPageSize(), is(10));
+    assertThat(
+        federateResponse.getRequest().getQuery().getStartIndex(),
+        is(CachingFederationStrategy.DEFAULT_MAX_START_INDEX + 5));
+  }
+
   @Test
   public void testOffsetResultHandler() throws Exception {
     QueryResponseImpl originalResults = mock(QueryResponseImpl.class);
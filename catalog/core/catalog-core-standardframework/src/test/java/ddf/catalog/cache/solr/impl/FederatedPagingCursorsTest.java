@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.cache.solr.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ddf.catalog.filter.FilterBuilder;
+import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
+import ddf.catalog.operation.QueryRequest;
+import ddf.catalog.operation.impl.QueryImpl;
+import ddf.catalog.operation.impl.QueryRequestImpl;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+
+public class FederatedPagingCursorsTest {
+
+  private static final int PAGE_SIZE = 10;
+
+  private static final FilterBuilder FILTER_BUILDER = new GeotoolsFilterBuilder();
+
+  private FederatedPagingCursors pagingCursors;
+
+  private Filter filter;
+
+  @Before
+  public void setUp() {
+    pagingCursors = new FederatedPagingCursors(10, 10);
+    filter = Filter.INCLUDE;
+  }
+
+  @Test
+  public void testNoCursorForUnseenPage() {
+    assertThat(pagingCursors.getSourceOffsets(request(11, new HashMap<>()), 11)).isNull();
+  }
+
+  @Test
+  public void testCursorAdvancesFromFirstPage() {
+    pagingCursors
+        .cursor(request(1, new HashMap<>()), 11, Collections.emptyMap())
+        .advance(counts(7, 3));
+
+    assertThat(pagingCursors.getSourceOffsets(request(11, new HashMap<>()), 11))
+        .containsEntry("source0", 7)
+        .containsEntry("source1", 3);
+  }
+
+  @Test
+  public void testCursorAddsToBaseOffsets() {
+    pagingCursors.cursor(request(11, new HashMap<>()), 21, counts(7, 3)).advance(counts(2, 8));
+
+    assertThat(pagingCursors.getSourceOffsets(request(21, new HashMap<>()), 21))
+        .containsEntry("source0", 9)
+        .containsEntry("source1", 11);
+  }
+
+  @Test
+  public void testCursorsAreScopedToCursorId() {
+    Map<String, Serializable> session1 = new HashMap<>();
+    session1.put(FederatedPagingCursors.PAGING_CURSOR_ID, "session-1");
+    Map<String, Serializable> session2 = new HashMap<>();
+    session2.put(FederatedPagingCursors.PAGING_CURSOR_ID, "session-2");
+
+    pagingCursors.record(request(1, session1), 11, counts(5, 5));
+
+    assertThat(pagingCursors.getSourceOffsets(request(11, session1), 11)).isNotNull();
+    assertThat(pagingCursors.getSourceOffsets(request(11, session2), 11)).isNull();
+  }
+
+  @Test
+  public void testCursorsAreScopedToFilter() {
+    pagingCursors.record(request(1, new HashMap<>()), 11, counts(5, 5));
+    filter = Filter.EXCLUDE;
+
+    assertThat(pagingCursors.getSourceOffsets(request(11, new HashMap<>()), 11)).isNull();
+  }
+
+  @Test
+  public void testCursorsAreScopedToMatchCase() {
+    filter = FILTER_BUILDER.attribute("title").is().like().caseSensitiveText("Boston*");
+    pagingCursors.record(request(1, new HashMap<>()), 11, counts(5, 5));
+    filter = FILTER_BUILDER.attribute("title").is().like().text("Boston*");
+
+    assertThat(pagingCursors.getSourceOffsets(request(11, new HashMap<>()), 11)).isNull();
+  }
+
+  @Test
+  public void testStoreIsBounded() {
+    FederatedPagingCursors bounded = new FederatedPagingCursors(2, 10);
+    for (int i = 1; i <= 5; i++) {
+      bounded.record(request(1, new HashMap<>()), i * PAGE_SIZE + 1, counts(i, i));
+    }
+
+    assertThat(bounded.size()).isLessThanOrEqualTo(2);
+  }
+
+  private QueryRequest request(int startIndex, Map<String, Serializable> properties) {
+    return new QueryRequestImpl(
+        new QueryImpl(filter, startIndex, PAGE_SIZE, null, false, 0),
+        false,
+        new HashSet<>(Arrays.asList("source0", "source1")),
+        properties);
+  }
+
+  private Map<String, Integer> counts(int source0, int source1) {
+    Map<String, Integer> counts = new HashMap<>();
+    counts.put("source0", source0);
+    counts.put("source1", source1);
+    return counts;
+  }
+}
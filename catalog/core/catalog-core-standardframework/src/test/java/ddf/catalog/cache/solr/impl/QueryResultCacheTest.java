@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.cache.solr.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.impl.ResultImpl;
+import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
+import ddf.catalog.operation.QueryRequest;
+import ddf.catalog.operation.QueryResponse;
+import ddf.catalog.operation.impl.ProcessingDetailsImpl;
+import ddf.catalog.operation.impl.QueryImpl;
+import ddf.catalog.operation.impl.QueryRequestImpl;
+import ddf.catalog.operation.impl.QueryResponseImpl;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+
+public class QueryResultCacheTest {
+
+  private QueryResultCache resultCache;
+
+  @Before
+  public void setUp() {
+    resultCache = new QueryResultCache(100, 60, 0);
+  }
+
+  @Test
+  public void testForwardCachesCompleteResponse() {
+    QueryRequest request = request(1);
+    String key = resultCache.key(request, "null");
+    QueryResponseImpl forwarded = new QueryResponseImpl(request, null);
+
+    resultCache.forward(key, resultCache.getGeneration(), response(request, 3), forwarded);
+
+    assertThat(forwarded.getResults()).hasSize(3);
+    assertThat(forwarded.getHits()).isEqualTo(3);
+    QueryResponse cached = resultCache.get(key).toResponse(request);
+    assertThat(cached.getResults()).hasSize(3);
+    assertThat(cached.getHits()).isEqualTo(3);
+  }
+
+  @Test
+  public void testCachedResultsAreCopied() {
+    QueryRequest request = request(1);
+    String key = resultCache.key(request, "null");
+    QueryResponseImpl forwarded = new QueryResponseImpl(request, null);
+    resultCache.forward(key, resultCache.getGeneration(), response(request, 1), forwarded);
+
+    Metacard forwardedMetacard = forwarded.getResults().get(0).getMetacard();
+    forwardedMetacard.setAttribute(new AttributeImpl(Metacard.TITLE, "changed"));
+
+    Result cached = resultCache.get(key).toResponse(request).getResults().get(0);
+    assertThat(cached).isNotSameAs(forwarded.getResults().get(0));
+    assertThat(cached.getMetacard().getTitle()).isNull();
+  }
+
+  @Test
+  public void testIncompleteResponseNotCached() {
+    QueryRequest request = request(1);
+    String key = resultCache.key(request, "null");
+    QueryResponseImpl response = response(request, 2);
+    response.getProcessingDetails().add(new ProcessingDetailsImpl("source0", new Exception()));
+
+    resultCache.forward(
+        key, resultCache.getGeneration(), response, new QueryResponseImpl(request, null));
+
+    assertThat(resultCache.get(key)).isNull();
+  }
+
+  @Test
+  public void testResponseToQueryRunningWhenInvalidatedNotCached() {
+    QueryRequest request = request(1);
+    String key = resultCache.key(request, "null");
+    long generation = resultCache.getGeneration();
+
+    resultCache.invalidateAll();
+    resultCache.forward(
+        key, generation, response(request, 2), new QueryResponseImpl(request, null));
+
+    assertThat(resultCache.get(key)).isNull();
+  }
+
+  @Test
+  public void testKeysAreScopedToPagingAndMode() {
+    String key = resultCache.key(request(1), "null");
+
+    assertThat(key).isEqualTo(resultCache.key(request(1), "null"));
+    assertThat(key).isNotEqualTo(resultCache.key(request(11), "null"));
+    assertThat(key).isNotEqualTo(resultCache.key(request(1), "cache"));
+  }
+
+  @Test
+  public void testKeysAreScopedToMatchCase() {
+    GeotoolsFilterBuilder filterBuilder = new GeotoolsFilterBuilder();
+    Filter caseSensitive = filterBuilder.attribute("title").is().like().caseSensitiveText("Boston");
+    Filter caseInsensitive = filterBuilder.attribute("title").is().like().text("Boston");
+
+    assertThat(resultCache.key(request(caseSensitive), "null"))
+        .isNotEqualTo(resultCache.key(request(caseInsensitive), "null"));
+  }
+
+  @Test
+  public void testStaleResponseRefreshedOnce() {
+    QueryResultCache staleCache = new QueryResultCache(100, 0, 60);
+    QueryRequest request = request(1);
+    String key = staleCache.key(request, "null");
+    staleCache.refresh(key, staleCache.getGeneration(), response(request, 1));
+
+    QueryResultCache.CachedResponse cached = staleCache.get(key);
+
+    assertThat(cached.startRefresh()).isTrue();
+    assertThat(cached.startRefresh()).isFalse();
+  }
+
+  @Test
+  public void testResponseCachedBeforeForwardedResultsEnd() {
+    QueryRequest request = request(1);
+    String key = resultCache.key(request, "null");
+    List<Boolean> cachedWhenClosed = new ArrayList<>();
+    QueryResponseImpl forwarded =
+        new QueryResponseImpl(request, null) {
+          @Override
+          public void closeResultQueue() {
+            cachedWhenClosed.add(resultCache.get(key) != null);
+            super.closeResultQueue();
+          }
+        };
+
+    resultCache.forward(key, resultCache.getGeneration(), response(request, 2), forwarded);
+
+    assertThat(cachedWhenClosed).containsExactly(true);
+  }
+
+  @Test
+  public void testFailedRefreshCanBeRetried() {
+    QueryResultCache staleCache = new QueryResultCache(100, 0, 60);
+    QueryRequest request = request(1);
+    String key = staleCache.key(request, "null");
+    staleCache.refresh(key, staleCache.getGeneration(), response(request, 1));
+    QueryResultCache.CachedResponse cached = staleCache.get(key);
+
+    assertThat(cached.startRefresh()).isTrue();
+    staleCache.refresh(
+        key,
+        staleCache.getGeneration(),
+        cached,
+        () -> {
+          throw new IllegalStateException("source unavailable");
+        });
+
+    assertThat(staleCache.get(key)).isSameAs(cached);
+    assertThat(cached.startRefresh()).isTrue();
+  }
+
+  @Test
+  public void testCacheIsBoundedByResultCount() {
+    for (int i = 1; i <= 10; i++) {
+      QueryRequest request = request(i * 10 + 1);
+      resultCache.refresh(
+          resultCache.key(request, "null"), resultCache.getGeneration(), response(request, 30));
+    }
+
+    assertThat(resultCache.size()).isLessThanOrEqualTo(3);
+  }
+
+  private QueryRequest request(int startIndex) {
+    return request(Filter.INCLUDE, startIndex);
+  }
+
+  private QueryRequest request(Filter filter) {
+    return request(filter, 1);
+  }
+
+  private QueryRequest request(Filter filter, int startIndex) {
+    return new QueryRequestImpl(
+        new QueryImpl(filter, startIndex, 10, null, false, 0),
+        false,
+        new HashSet<>(Arrays.asList("source0", "source1")),
+        new HashMap<>());
+  }
+
+  private QueryResponseImpl response(QueryRequest request, int count) {
+    List<Result> results = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      MetacardImpl metacard = new MetacardImpl();
+      metacard.setId("id" + i);
+      results.add(new ResultImpl(metacard));
+    }
+    return new QueryResponseImpl(request, results, true, count);
+  }
+}
@@ -14,12 +14,15 @@
 package ddf.catalog.cache.solr.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,8 +38,14 @@
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.SolrParams;
 import org.codice.solr.client.solrj.SolrClient;
 import org.junit.Before;
 import org.junit.Test;
@@ -244,6 +253,98 @@ public void queryWithResults() throws Exception {
     assertThat(metacardsList.get(0), is(expectedMetacard));
   }
 
+  @Test
+  public void queryRecordsHitsAndMisses() throws Exception {
+    QueryRequest mockQuery = mock(QueryRequest.class);
+    when(mockCacheSolrMetacardClient.query(mockQuery))
+        .thenReturn(new QueryResponseImpl(mockQuery))
+        .thenReturn(responseFor(mockQuery, "source", "id"));
+
+    solrCache.query(mockQuery);
+    solrCache.query(mockQuery);
+    solrCache.query(mockQuery);
+
+    assertThat(solrCache.getCacheMisses(), is(1L));
+    assertThat(solrCache.getCacheHits(), is(2L));
+    assertThat(solrCache.getHitRatio(), closeTo(2 / 3.0, 0.0001));
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() throws Exception {
+    solrCache.setMaxCacheSize(10);
+    mockCachedDocuments(12);
+    QueryRequest mockQuery = mock(QueryRequest.class);
+    when(mockCacheSolrMetacardClient.query(mockQuery)).thenReturn(responseFor(mockQuery, "d", "1"));
+    solrCache.query(mockQuery);
+
+    solrCache.evictLeastRecentlyUsed();
+
+    ArgumentCaptor<List> idsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(mockSolrClient).deleteById(idsCaptor.capture());
+    assertThat((List<String>) idsCaptor.getValue(), containsInAnyOrder("d2", "d3", "d4"));
+    assertThat(solrCache.getEvictions(), is(3L));
+  }
+
+  @Test
+  public void noEvictionUnderMaxCacheSize() throws Exception {
+    solrCache.setMaxCacheSize(20);
+    mockCachedDocuments(12);
+
+    solrCache.evictLeastRecentlyUsed();
+
+    verify(mockSolrClient, never()).deleteById(any(List.class));
+    assertThat(solrCache.getOccupancy(), closeTo(0.6, 0.0001));
+  }
+
+  @Test
+  public void noEvictionWhenUnbounded() throws Exception {
+    mockCachedDocuments(12);
+
+    solrCache.evictLeastRecentlyUsed();
+
+    verify(mockSolrClient, never()).query(any(SolrParams.class));
+    verify(mockSolrClient, never()).deleteById(any(List.class));
+  }
+
+  private SourceResponse responseFor(QueryRequest request, String sourceId, String id) {
+    MetacardImpl metacard = new MetacardImpl();
+    metacard.setSourceId(sourceId);
+    metacard.setId(id);
+    Result result = mock(Result.class);
+    when(result.getMetacard()).thenReturn(metacard);
+    return new QueryResponseImpl(request, Collections.singletonList(result), 1);
+  }
+
+  /** Mocks cache documents {@code d1} to {@code dN}, cached one second apart in that order. */
+  private void mockCachedDocuments(int count) throws Exception {
+    SolrDocumentList documents = new SolrDocumentList();
+    for (int i = 1; i <= count; i++) {
+      SolrDocument document = new SolrDocument();
+      document.setField(SolrCache.METACARD_UNIQUE_ID_NAME, "d" + i);
+      document.setField(SolrCache.CACHED_DATE, new Date(i * 1000L));
+      documents.add(document);
+    }
+    documents.setNumFound(count);
+
+    when(mockSolrClient.query(any(SolrParams.class)))
+        .thenAnswer(
+            invocation -> {
+              SolrParams params = (SolrParams) invocation.getArguments()[0];
+              QueryResponse response = mock(QueryResponse.class);
+              String cursorMark = params.get(CursorMarkParams.CURSOR_MARK_PARAM);
+              if (CursorMarkParams.CURSOR_MARK_START.equals(cursorMark)) {
+                when(response.getResults()).thenReturn(documents);
+                when(response.getNextCursorMark()).thenReturn("end");
+              } else {
+                SolrDocumentList page = new SolrDocumentList();
+                page.setNumFound(count);
+                when(response.getResults()).thenReturn(page);
+                when(response.getNextCursorMark()).thenReturn("end");
+              }
+              return response;
+            });
+  }
+
   private DeleteRequest setupDeleteRequest(String attributeToReturn) {
     DeleteRequest mockRequest = mock(DeleteRequest.class);
     when(mockRequest.getAttributeName()).thenReturn(attributeToReturn);
@@ -31,10 +31,13 @@
 import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.data.impl.ResultImpl;
+import ddf.catalog.impl.QueryLatencyMetrics;
+import ddf.catalog.impl.QueryLatencyMetrics.Stage;
 import ddf.catalog.operation.Query;
 import ddf.catalog.operation.QueryRequest;
 import ddf.catalog.operation.SourceResponse;
 import ddf.catalog.operation.impl.QueryResponseImpl;
+import ddf.catalog.plugin.PostFederatedQueryPlugin;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -48,6 +51,7 @@
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -69,6 +73,8 @@ public class SortedQueryMonitorTest {
 
   private Query query;
 
+  private QueryLatencyMetrics queryLatencyMetrics;
+
   private static final String TEST_PROPERTY = "test";
 
   private static final Date TEST_DATE_1 = new Date(11000);
@@ -77,6 +83,8 @@ public class SortedQueryMonitorTest {
   @Before
   public void setUp() throws Exception {
     cachingFederationStrategy = mock(CachingFederationStrategy.class);
+    queryLatencyMetrics = new QueryLatencyMetrics();
+    when(cachingFederationStrategy.getQueryLatencyMetrics()).thenReturn(queryLatencyMetrics);
     completionService = mock(CompletionService.class);
     queryRequest = mock(QueryRequest.class);
     queryResponse = new QueryResponseImpl(queryRequest);
@@ -115,6 +123,49 @@ public void setUp() throws Exception {
     }
   }
 
+  @Test
+  public void mergeIsTimedWhenSampled() throws Exception {
+    when(query.getTimeoutMillis()).thenReturn(0L);
+    when(queryRequest.getQuery()).thenReturn(query);
+    queryLatencyMetrics.setSampleRate(1f);
+
+    SortedQueryMonitor queryMonitor =
+        new SortedQueryMonitor(
+            cachingFederationStrategy,
+            completionService,
+            futures,
+            queryResponse,
+            queryRequest,
+            new ArrayList<>());
+
+    final Iterator<Future<SourceResponse>> futureIter = getFutureIterator();
+    when(completionService.take()).thenAnswer((invocationOnMock -> futureIter.next()));
+    queryMonitor.run();
+
+    assertThat(queryLatencyMetrics.getTimer(Stage.MERGE).getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void mergeIsNotTimedByDefault() throws Exception {
+    when(query.getTimeoutMillis()).thenReturn(0L);
+    when(queryRequest.getQuery()).thenReturn(query);
+
+    SortedQueryMonitor queryMonitor =
+        new SortedQueryMonitor(
+            cachingFederationStrategy,
+            completionService,
+            futures,
+            queryResponse,
+            queryRequest,
+            new ArrayList<>());
+
+    final Iterator<Future<SourceResponse>> futureIter = getFutureIterator();
+    when(completionService.take()).thenAnswer((invocationOnMock -> futureIter.next()));
+    queryMonitor.run();
+
+    assertThat(queryLatencyMetrics.getTimer(Stage.MERGE).getCount()).isEqualTo(0);
+  }
+
   @Test
   public void noQueryTimeout() throws Exception {
     when(query.getTimeoutMillis()).thenReturn(0L);
@@ -241,6 +292,61 @@ public void interruptThirdFuture() throws Exception {
             NullPointerException.class, InterruptedException.class, InterruptedException.class);
   }
 
+  @Test
+  public void pagingCursorCountsResultsDroppedByPostFederationPlugins() throws Exception {
+    when(query.getTimeoutMillis()).thenReturn(0L);
+    when(query.getPageSize()).thenReturn(2);
+    when(queryRequest.getQuery()).thenReturn(query);
+
+    List<Result> results = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      MetacardImpl metacard = new MetacardImpl();
+      metacard.setId("id" + i);
+      ResultImpl result = new ResultImpl(metacard);
+      result.setRelevanceScore(1.0 - i * 0.1);
+      results.add(result);
+    }
+    Future future = mock(Future.class);
+    SourceResponse sourceResponse = getMockedResponse(results);
+    when(future.get()).thenReturn(sourceResponse);
+    QueryRequest sourceRequest = mock(QueryRequest.class);
+    when(sourceRequest.getSourceIds()).thenReturn(Collections.singleton("Source-0"));
+    Map<Future<SourceResponse>, QueryRequest> futures = new LinkedHashMap<>();
+    futures.put(future, sourceRequest);
+
+    // drops id1 and hands back copies of the rest
+    PostFederatedQueryPlugin filteringPlugin =
+        response ->
+            new QueryResponseImpl(
+                response.getRequest(),
+                response
+                    .getResults()
+                    .stream()
+                    .filter(result -> !"id1".equals(result.getMetacard().getId()))
+                    .map(result -> new ResultImpl(result.getMetacard()))
+                    .collect(Collectors.toList()),
+                response.getHits());
+
+    FederatedPagingCursors pagingCursors = new FederatedPagingCursors(10, 10);
+    SortedQueryMonitor queryMonitor =
+        new SortedQueryMonitor(
+            cachingFederationStrategy,
+            completionService,
+            futures,
+            queryResponse,
+            queryRequest,
+            Collections.singletonList(filteringPlugin),
+            pagingCursors.cursor(queryRequest, 3, Collections.emptyMap()));
+
+    when(completionService.take()).thenReturn(future);
+    queryMonitor.run();
+
+    assertThat(queryResponse.getResults())
+        .extracting(result -> result.getMetacard().getId())
+        .containsExactly("id0", "id2");
+    assertThat(pagingCursors.getSourceOffsets(queryRequest, 3)).containsEntry("Source-0", 3);
+  }
+
   @Test
   public void testSortAscendingNullFirst() throws Exception {
     testSorting(new String[] {null, "a"}, new String[] {null, "a"}, SortOrder.ASCENDING);
@@ -331,6 +437,7 @@ private void testSorting(
     when(sortBy.getPropertyName()).thenReturn(propertyName);
 
     CachingFederationStrategy cachingFederationStrategy = mock(CachingFederationStrategy.class);
+    when(cachingFederationStrategy.getQueryLatencyMetrics()).thenReturn(new QueryLatencyMetrics());
     CompletionService completionService = mock(CompletionService.class);
     QueryRequest queryRequest = mock(QueryRequest.class);
     Query query = mock(Query.class);
@@ -16,21 +16,25 @@
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
+import ddf.catalog.Constants;
 import ddf.catalog.content.StorageException;
 import ddf.catalog.content.StorageProvider;
 import ddf.catalog.content.data.ContentItem;
+import ddf.catalog.content.operation.CreateStorageRequest;
 import ddf.catalog.content.operation.CreateStorageResponse;
 import ddf.catalog.content.operation.DeleteStorageRequest;
 import ddf.catalog.content.operation.ReadStorageRequest;
@@ -271,6 +275,34 @@ public void testUpdateStorageResponse()
         storageResponse.getUpdatedContentItems().get(0).getUri(), not(equalTo(RESOURCE_URI)));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testUpdateStorageResponseReferencesSourceContent() throws Exception {
+    List<Metacard> metacards = getMetacardUpdatePair();
+    UpdateStorageRequest storageRequest = mock(UpdateStorageRequest.class);
+    UpdateStorageResponse storageResponse = mock(UpdateStorageResponse.class);
+    UpdateResponse updateResponse = mock(UpdateResponse.class);
+    Update update1 = mock(Update.class);
+    when(update1.getOldMetacard()).thenReturn(metacards.get(0));
+    when(updateResponse.getUpdatedMetacards()).thenReturn(ImmutableList.of(update1));
+    storeMetacard(metacards.get(0));
+    updateMetacard(storageRequest, storageResponse, metacards.get(1));
+    mockQuery(metacards.get(1));
+
+    InMemoryStorageProvider spyStorageProvider = spy(storageProvider);
+    historian.setStorageProviders(Collections.singletonList(spyStorageProvider));
+    historian.version(storageRequest, storageResponse, updateResponse);
+
+    ArgumentCaptor<CreateStorageRequest> createRequest =
+        ArgumentCaptor.forClass(CreateStorageRequest.class);
+    verify(spyStorageProvider).create(createRequest.capture());
+    Map<String, Map<String, URI>> sourceContentUris =
+        (Map<String, Map<String, URI>>)
+            createRequest.getValue().getPropertyValue(Constants.SOURCE_CONTENT_URIS);
+    assertThat(
+        sourceContentUris.values(), hasItem(Collections.singletonMap(null, new URI(RESOURCE_URI))));
+  }
+
   @Test
   public void testUpdateStorageResponseWithOnlyQualifiedContentItems()
       throws UnsupportedQueryException, SourceUnavailableException, IngestException,
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+import ddf.catalog.impl.QueryLatencyMetrics.Stage;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryLatencyMetricsTest {
+
+  private static final String PLUGIN = "test-plugin";
+
+  private QueryLatencyMetrics queryLatencyMetrics;
+
+  @Before
+  public void setUp() {
+    queryLatencyMetrics = new QueryLatencyMetrics();
+  }
+
+  @Test
+  public void testNotSampledByDefault() {
+    long stageStart = queryLatencyMetrics.start();
+    long start = queryLatencyMetrics.startStep(stageStart);
+    queryLatencyMetrics.record(Stage.PRE_QUERY, PLUGIN, start);
+    queryLatencyMetrics.record(Stage.PRE_QUERY, stageStart);
+
+    assertThat(queryLatencyMetrics.isSampled(stageStart), is(false));
+    assertThat(queryLatencyMetrics.isSampled(start), is(false));
+    assertThat(queryLatencyMetrics.getTimer(Stage.PRE_QUERY).getCount(), is(0L));
+    assertThat(queryLatencyMetrics.getTimer(Stage.PRE_QUERY, PLUGIN).getCount(), is(0L));
+  }
+
+  @Test
+  public void testSampled() throws Exception {
+    queryLatencyMetrics.setSampleRate(1f);
+
+    long stageStart = queryLatencyMetrics.start();
+    long start = queryLatencyMetrics.startStep(stageStart);
+    Thread.sleep(5);
+    queryLatencyMetrics.record(Stage.PRE_QUERY, PLUGIN, start);
+    queryLatencyMetrics.record(Stage.PRE_QUERY, stageStart);
+
+    assertThat(queryLatencyMetrics.getTimer(Stage.PRE_QUERY).getCount(), is(1L));
+    assertThat(queryLatencyMetrics.getTimer(Stage.PRE_QUERY, PLUGIN).getCount(), is(1L));
+    assertThat(
+        queryLatencyMetrics.getTimer(Stage.PRE_QUERY, PLUGIN).getSnapshot().getMax(),
+        is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5))));
+    assertThat(queryLatencyMetrics.getTimer(Stage.POST_QUERY).getCount(), is(0L));
+  }
+
+  @Test
+  public void testRecordNanos() {
+    queryLatencyMetrics.recordNanos(Stage.MERGE, 10);
+    queryLatencyMetrics.recordNanos(Stage.POLICY_POST_QUERY, PLUGIN, 20);
+
+    assertThat(queryLatencyMetrics.getTimer(Stage.MERGE).getSnapshot().getMax(), is(10L));
+    assertThat(
+        queryLatencyMetrics.getTimer(Stage.POLICY_POST_QUERY, PLUGIN).getSnapshot().getMax(),
+        is(20L));
+  }
+
+  @Test
+  public void testSampleRateIsBounded() {
+    queryLatencyMetrics.setSampleRate(2f);
+    assertThat(queryLatencyMetrics.getSampleRate(), is(1d));
+
+    queryLatencyMetrics.setSampleRate(-1f);
+    assertThat(queryLatencyMetrics.getSampleRate(), is(0d));
+
+    queryLatencyMetrics.setSampleRate(null);
+    assertThat(queryLatencyMetrics.getSampleRate(), is(0d));
+  }
+
+  @Test
+  public void testStageMetricNames() {
+    assertThat(Stage.SOURCE.getMetricName(), is("Queries.Latency.Source"));
+    assertThat(
+        Stage.PRE_AUTHORIZATION_PRE_QUERY.getMetricName(),
+        is("Queries.Latency.PreAuthorization.PreQuery"));
+  }
+}
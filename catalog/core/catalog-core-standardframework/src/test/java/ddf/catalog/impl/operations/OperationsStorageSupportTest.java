@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.impl.operations;
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.io.ByteSource;
+import ddf.catalog.content.data.ContentItem;
+import ddf.catalog.content.data.impl.ContentItemImpl;
+import ddf.catalog.data.Metacard;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class OperationsStorageSupportTest {
+
+  private static final Path STAGED_PATH = Paths.get("staged");
+
+  @Test
+  public void testUnchangedItemsKeepTheirStagedPath() {
+    ContentItem stagedItem = contentItem("id", "Hello World");
+
+    Map<String, Map<String, Path>> stagedContentPaths =
+        OperationsStorageSupport.getStagedContentPaths(
+            Collections.singletonList(stagedItem),
+            Collections.singletonList(stagedItem),
+            tmpContentPaths("id"));
+
+    assertThat(stagedContentPaths.get("id").get(null), is(STAGED_PATH));
+  }
+
+  @Test
+  public void testReplacedItemsLoseTheirStagedPath() {
+    ContentItem stagedItem = contentItem("id", "Hello World");
+    ContentItem otherStagedItem = contentItem("other", "Hello World");
+    // same ID, qualifier and size as the staged item, but different bytes
+    ContentItem replacedItem = contentItem("id", "Hello Earth");
+
+    Map<String, Map<String, Path>> stagedContentPaths =
+        OperationsStorageSupport.getStagedContentPaths(
+            Arrays.asList(replacedItem, otherStagedItem),
+            Arrays.asList(stagedItem, otherStagedItem),
+            tmpContentPaths("id", "other"));
+
+    assertThat(stagedContentPaths, not(hasKey("id")));
+    assertThat(stagedContentPaths.get("other").get(null), is(STAGED_PATH));
+  }
+
+  private ContentItem contentItem(String id, String content) {
+    return new ContentItemImpl(
+        id,
+        null,
+        ByteSource.wrap(content.getBytes()),
+        "text/plain",
+        "file.txt",
+        content.length(),
+        mock(Metacard.class));
+  }
+
+  private Map<String, Map<String, Path>> tmpContentPaths(String... ids) {
+    Map<String, Map<String, Path>> tmpContentPaths = new HashMap<>();
+    for (String id : ids) {
+      tmpContentPaths.put(id, Collections.singletonMap(null, STAGED_PATH));
+    }
+    return tmpContentPaths;
+  }
+}
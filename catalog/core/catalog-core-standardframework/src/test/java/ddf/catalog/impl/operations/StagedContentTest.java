@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.impl.operations;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import org.codice.ddf.checksum.ChecksumProvider;
+import org.codice.ddf.checksum.impl.Adler32ChecksumProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StagedContentTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testStageLargeContent() throws Exception {
+    byte[] content = new byte[StagedContent.HEAD_SIZE * 3 + 17];
+    new Random(1).nextBytes(content);
+    ChecksumProvider checksumProvider = new Adler32ChecksumProvider();
+    Path path = temporaryFolder.newFile().toPath();
+
+    StagedContent stagedContent =
+        StagedContent.stage(
+            new ByteArrayInputStream(content), path, Collections.singletonList(checksumProvider));
+
+    assertThat(Files.readAllBytes(path), is(content));
+    assertThat(stagedContent.getSize(), is((long) content.length));
+    assertThat(stagedContent.getHead(), is(Arrays.copyOf(content, StagedContent.HEAD_SIZE)));
+    assertThat(stagedContent.isHeadComplete(), is(false));
+    assertThat(
+        stagedContent.getChecksums().get("Adler32"),
+        is(checksumProvider.calculateChecksum(new ByteArrayInputStream(content))));
+  }
+
+  @Test
+  public void testStageSmallContent() throws Exception {
+    byte[] content = "Hello World".getBytes();
+
+    StagedContent stagedContent =
+        StagedContent.stage(
+            new ByteArrayInputStream(content),
+            temporaryFolder.newFile().toPath(),
+            Collections.emptyList());
+
+    assertThat(stagedContent.getHead(), is(content));
+    assertThat(stagedContent.isHeadComplete(), is(true));
+    assertThat(stagedContent.getChecksums().isEmpty(), is(true));
+  }
+
+  @Test
+  public void testProviderWithoutChecksumOutputStreamIsSkipped() throws Exception {
+    ChecksumProvider checksumProvider = mock(ChecksumProvider.class);
+    when(checksumProvider.getChecksumAlgorithm()).thenReturn("MD5");
+
+    StagedContent stagedContent =
+        StagedContent.stage(
+            new ByteArrayInputStream("Hello World".getBytes()),
+            temporaryFolder.newFile().toPath(),
+            Collections.singletonList(checksumProvider));
+
+    assertThat(stagedContent.getChecksums().isEmpty(), is(true));
+  }
+}
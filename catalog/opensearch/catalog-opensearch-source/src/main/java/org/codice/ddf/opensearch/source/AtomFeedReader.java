@@ -0,0 +1,486 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.opensearch.source;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
+import org.jdom2.Attribute;
+import org.jdom2.CDATA;
+import org.jdom2.Comment;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.EntityRef;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.Text;
+
+/**
+ * Reads an Atom 1.0 OpenSearch response one entry at a time.
+ *
+ * <p>Only the current entry is held in memory. The metacard XML in an entry's {@code content}, and
+ * in any of its foreign markup elements named in the markup set, is copied to a {@link
+ * TemporaryFileBackedOutputStream} so it can be handed to an {@link
+ * ddf.catalog.transform.InputTransformer} without building a DOM. Foreign markup of the feed
+ * itself, such as {@code os:totalResults}, is small and is kept as JDOM elements.
+ */
+class AtomFeedReader implements Closeable {
+
+  static final String ATOM_NAMESPACE = "http://www.w3.org/2005/Atom";
+
+  private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  static {
+    XML_OUTPUT_FACTORY.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+  }
+
+  private final XMLStreamReader reader;
+
+  private final Set<String> markUpNames;
+
+  private final List<Element> foreignMarkup = new ArrayList<>();
+
+  private boolean endOfFeed;
+
+  /**
+   * @param xmlInputFactory factory used to create the reader
+   * @param inputStream response to read, positioned at the start of the document
+   * @param markUpNames local names of entry foreign markup elements that contain metacards
+   * @throws XMLStreamException if the response does not start with an XML element
+   */
+  AtomFeedReader(
+      XMLInputFactory xmlInputFactory, InputStream inputStream, Collection<String> markUpNames)
+      throws XMLStreamException {
+    this.reader = xmlInputFactory.createXMLStreamReader(inputStream);
+    this.markUpNames =
+        markUpNames == null ? Collections.emptySet() : new LinkedHashSet<>(markUpNames);
+
+    int event = reader.getEventType();
+    while (event != XMLStreamConstants.START_ELEMENT && reader.hasNext()) {
+      event = reader.next();
+    }
+    if (event != XMLStreamConstants.START_ELEMENT) {
+      throw new XMLStreamException("The response does not contain an XML element.");
+    }
+  }
+
+  /** @return {@code true} if the document is an Atom 1.0 feed */
+  boolean isAtomFeed() {
+    return ATOM_NAMESPACE.equals(reader.getNamespaceURI()) && "feed".equals(reader.getLocalName());
+  }
+
+  /**
+   * Reads the whole document into memory. Used for responses that are not Atom 1.0 feeds, such as
+   * RSS, which are still parsed with ROME.
+   *
+   * @return the document
+   */
+  Document readDocument() throws XMLStreamException {
+    return new Document(readElement());
+  }
+
+  /**
+   * Reads the next entry of the feed, collecting any foreign markup of the feed that comes before
+   * it. The previous entry should be closed before this is called.
+   *
+   * @return the next entry, or {@code null} if there are no more entries
+   */
+  Entry nextEntry() throws XMLStreamException, IOException {
+    while (!endOfFeed) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        endOfFeed = true;
+      } else if (event == XMLStreamConstants.START_ELEMENT) {
+        if (!ATOM_NAMESPACE.equals(reader.getNamespaceURI())) {
+          foreignMarkup.add(readElement());
+        } else if ("entry".equals(reader.getLocalName())) {
+          return readEntry();
+        } else {
+          skipElement();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the foreign markup of the feed, complete once {@link #nextEntry()} has returned {@code
+   *     null}
+   */
+  List<Element> getForeignMarkup() {
+    return foreignMarkup;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to close the Atom feed reader.", e);
+    }
+  }
+
+  private Entry readEntry() throws XMLStreamException, IOException {
+    Entry entry = new Entry();
+    try {
+      while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+        if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+          readEntryElement(entry);
+        }
+      }
+    } catch (XMLStreamException | IOException | RuntimeException e) {
+      entry.close();
+      throw e;
+    }
+    return entry;
+  }
+
+  private void readEntryElement(Entry entry) throws XMLStreamException, IOException {
+    String localName = reader.getLocalName();
+    if (!ATOM_NAMESPACE.equals(reader.getNamespaceURI())) {
+      if ("score".equals(localName)) {
+        entry.relevance = readText().trim();
+      } else if (markUpNames.contains(localName)) {
+        entry.markUps.add(copyElement());
+      } else {
+        skipElement();
+      }
+      return;
+    }
+
+    switch (localName) {
+      case "id":
+        entry.id = readText().trim();
+        break;
+      case "title":
+        entry.title = readText();
+        break;
+      case "category":
+        entry.categories.add(reader.getAttributeValue(null, "term"));
+        skipElement();
+        break;
+      case "content":
+        Content content = readContent();
+        if (content != null) {
+          entry.contents.add(content);
+        }
+        break;
+      default:
+        skipElement();
+    }
+  }
+
+  /**
+   * Reads an Atom {@code content} element. Inline XML is copied as it is; text, including escaped
+   * XML, is decoded.
+   */
+  private Content readContent() throws XMLStreamException, IOException {
+    Content content = null;
+    StringBuilder text = new StringBuilder();
+    try {
+      while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+        switch (reader.getEventType()) {
+          case XMLStreamConstants.START_ELEMENT:
+            if (content == null) {
+              content = copyElement();
+            } else {
+              skipElement();
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            text.append(reader.getText());
+            break;
+          default:
+            break;
+        }
+      }
+    } catch (XMLStreamException | IOException | RuntimeException e) {
+      if (content != null) {
+        content.close();
+      }
+      throw e;
+    }
+
+    if (content != null || StringUtils.isBlank(text)) {
+      return content;
+    }
+
+    TemporaryFileBackedOutputStream data = new TemporaryFileBackedOutputStream();
+    data.write(text.toString().getBytes(StandardCharsets.UTF_8));
+    return new Content(data, Collections.emptySet());
+  }
+
+  /** Copies the current element and its descendants as a standalone XML document. */
+  private Content copyElement() throws XMLStreamException, IOException {
+    TemporaryFileBackedOutputStream data = new TemporaryFileBackedOutputStream();
+    Set<String> namespaces = new LinkedHashSet<>();
+    try {
+      XMLStreamWriter writer =
+          XML_OUTPUT_FACTORY.createXMLStreamWriter(data, StandardCharsets.UTF_8.name());
+      int depth = 0;
+      do {
+        switch (reader.getEventType()) {
+          case XMLStreamConstants.START_ELEMENT:
+            depth++;
+            namespaces.add(reader.getNamespaceURI());
+            writeStartElement(writer);
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            depth--;
+            writer.writeEndElement();
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+            writer.writeCharacters(
+                reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            break;
+          case XMLStreamConstants.CDATA:
+            writer.writeCData(reader.getText());
+            break;
+          case XMLStreamConstants.ENTITY_REFERENCE:
+            writer.writeEntityRef(reader.getLocalName());
+            break;
+          case XMLStreamConstants.COMMENT:
+            writer.writeComment(reader.getText());
+            break;
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+            break;
+          default:
+            break;
+        }
+      } while (depth > 0 && reader.next() != XMLStreamConstants.END_DOCUMENT);
+      writer.close();
+    } catch (XMLStreamException | RuntimeException e) {
+      data.close();
+      throw e;
+    }
+    return new Content(data, namespaces);
+  }
+
+  private void writeStartElement(XMLStreamWriter writer) throws XMLStreamException {
+    writer.writeStartElement(
+        StringUtils.defaultString(reader.getPrefix()),
+        reader.getLocalName(),
+        StringUtils.defaultString(reader.getNamespaceURI()));
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      String prefix = reader.getNamespacePrefix(i);
+      String namespace = StringUtils.defaultString(reader.getNamespaceURI(i));
+      if (StringUtils.isEmpty(prefix)) {
+        writer.writeDefaultNamespace(namespace);
+      } else {
+        writer.writeNamespace(prefix, namespace);
+      }
+    }
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      writer.writeAttribute(
+          StringUtils.defaultString(reader.getAttributePrefix(i)),
+          StringUtils.defaultString(reader.getAttributeNamespace(i)),
+          reader.getAttributeLocalName(i),
+          reader.getAttributeValue(i));
+    }
+  }
+
+  /** Builds a JDOM element from the current element and its descendants. */
+  private Element readElement() throws XMLStreamException {
+    Element element =
+        new Element(
+            reader.getLocalName(),
+            Namespace.getNamespace(
+                StringUtils.defaultString(reader.getPrefix()),
+                StringUtils.defaultString(reader.getNamespaceURI())));
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      String prefix = StringUtils.defaultString(reader.getNamespacePrefix(i));
+      String namespace = reader.getNamespaceURI(i);
+      if (StringUtils.isNotEmpty(namespace) && !prefix.equals(element.getNamespacePrefix())) {
+        element.addNamespaceDeclaration(Namespace.getNamespace(prefix, namespace));
+      }
+    }
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      element.setAttribute(
+          new Attribute(
+              reader.getAttributeLocalName(i),
+              reader.getAttributeValue(i),
+              Namespace.getNamespace(
+                  StringUtils.defaultString(reader.getAttributePrefix(i)),
+                  StringUtils.defaultString(reader.getAttributeNamespace(i)))));
+    }
+
+    while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+      switch (reader.getEventType()) {
+        case XMLStreamConstants.START_ELEMENT:
+          element.addContent(readElement());
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+          element.addContent(new Text(reader.getText()));
+          break;
+        case XMLStreamConstants.CDATA:
+          element.addContent(new CDATA(reader.getText()));
+          break;
+        case XMLStreamConstants.ENTITY_REFERENCE:
+          element.addContent(new EntityRef(reader.getLocalName()));
+          break;
+        case XMLStreamConstants.COMMENT:
+          element.addContent(new Comment(reader.getText()));
+          break;
+        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+          element.addContent(new ProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+          break;
+        default:
+          break;
+      }
+    }
+    return element;
+  }
+
+  /** @return the text of the current element and its descendants */
+  private String readText() throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    int depth = 1;
+    while (depth > 0) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          text.append(reader.getText());
+          break;
+        default:
+          break;
+      }
+    }
+    return text.toString();
+  }
+
+  private void skipElement() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  /** The parts of an Atom entry used to create results. */
+  static class Entry implements Closeable {
+
+    private String id;
+
+    private String title;
+
+    private String relevance;
+
+    private final List<String> categories = new ArrayList<>();
+
+    private final List<Content> markUps = new ArrayList<>();
+
+    private final List<Content> contents = new ArrayList<>();
+
+    /** @return the text of {@code atom:id} */
+    String getId() {
+      return id;
+    }
+
+    String getTitle() {
+      return title;
+    }
+
+    /** @return the text of the {@code score} foreign markup element, or {@code null} */
+    String getRelevance() {
+      return relevance;
+    }
+
+    /** @return the terms of the entry's categories, in document order */
+    List<String> getCategories() {
+      return categories;
+    }
+
+    /** @return the foreign markup elements named in the markup set, in document order */
+    List<Content> getMarkUps() {
+      return markUps;
+    }
+
+    /** @return the entry's {@code atom:content}, in document order */
+    List<Content> getContents() {
+      return contents;
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (Content content : markUps) {
+        content.close();
+      }
+      for (Content content : contents) {
+        content.close();
+      }
+    }
+  }
+
+  /** Metacard content copied out of an entry. */
+  static class Content implements Closeable {
+
+    private final TemporaryFileBackedOutputStream data;
+
+    private final Set<String> namespaces;
+
+    private Content(TemporaryFileBackedOutputStream data, Set<String> namespaces) {
+      this.data = data;
+      this.namespaces = namespaces;
+    }
+
+    /**
+     * @return the namespaces of the copied elements in the order they first appear, or an empty set
+     *     if the content was text
+     */
+    Set<String> getNamespaces() {
+      return namespaces;
+    }
+
+    InputStream openStream() throws IOException {
+      data.flush();
+      return data.asByteSource().openStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+      data.close();
+    }
+  }
+}
@@ -51,7 +51,6 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -68,6 +67,7 @@
 import java.util.Queue;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.Response;
 import javax.xml.stream.XMLInputFactory;
@@ -494,28 +494,45 @@ void setForeignMarkupBiConsumer(
     this.foreignMarkupBiConsumer = foreignMarkupBiConsumer;
   }
 
+  /**
+   * Reads the response one entry at a time, creating the results of each entry before reading the
+   * next. Responses that are not Atom 1.0 feeds, such as RSS, are read into memory and parsed with
+   * ROME.
+   */
   private SourceResponseImpl processResponse(InputStream is, QueryRequest queryRequest)
       throws UnsupportedQueryException {
     List<Result> resultQueue = new ArrayList<>();
+    long entryCount = 0;
+    List<Element> foreignMarkup = null;
 
-    SyndFeedInput syndFeedInput = new SyndFeedInput();
-    SyndFeed syndFeed = null;
-    try {
-      syndFeed = syndFeedInput.build(new InputStreamReader(is, StandardCharsets.UTF_8));
-    } catch (FeedException e) {
+    try (AtomFeedReader feedReader = new AtomFeedReader(xmlInputFactory, is, markUpSet)) {
+      if (feedReader.isAtomFeed()) {
+        AtomFeedReader.Entry entry;
+        while ((entry = feedReader.nextEntry()) != null) {
+          try (AtomFeedReader.Entry current = entry) {
+            resultQueue.addAll(createResponseFromEntry(current));
+          }
+          entryCount++;
+        }
+        foreignMarkup = feedReader.getForeignMarkup();
+      } else {
+        SyndFeed syndFeed = new SyndFeedInput().build(feedReader.readDocument());
+        List<SyndEntry> entries = syndFeed.getEntries();
+        for (SyndEntry entry : entries) {
+          resultQueue.addAll(createResponseFromEntry(entry));
+        }
+        entryCount = entries.size();
+        foreignMarkup = syndFeed.getForeignMarkup();
+      }
+    } catch (XMLStreamException | IOException | FeedException | IllegalArgumentException e) {
       LOGGER.debug("Unable to read RSS/Atom feed.", e);
+      resultQueue.clear();
+      entryCount = 0;
+      foreignMarkup = null;
     }
 
-    List<SyndEntry> entries;
-    long totalResults = 0;
-    List<Element> foreignMarkup = null;
-    if (syndFeed != null) {
-      entries = syndFeed.getEntries();
-      for (SyndEntry entry : entries) {
-        resultQueue.addAll(createResponseFromEntry(entry));
-      }
-      totalResults = entries.size();
-      foreignMarkup = syndFeed.getForeignMarkup();
+    long totalResults = entryCount;
+    if (foreignMarkup != null) {
       for (Element element : foreignMarkup) {
         if (element.getName().equals("totalResults")) {
           try {
@@ -538,26 +555,40 @@ private SourceResponseImpl processResponse(InputStream is, QueryRequest queryReq
     return response;
   }
 
+  /**
+   * Creates the results of a single Atom entry read by an {@link AtomFeedReader}.
+   *
+   * @param entry a single Atom entry
+   * @return the results of the entry
+   */
+  private List<Result> createResponseFromEntry(AtomFeedReader.Entry entry)
+      throws UnsupportedQueryException {
+    String id = getMetacardId(entry.getId());
+
+    List<Metacard> metacards = new ArrayList<>();
+    for (AtomFeedReader.Content markUp : entry.getMarkUps()) {
+      addIfNotNull(metacards, parseContent(markUp, id));
+    }
+    for (AtomFeedReader.Content content : entry.getContents()) {
+      addIfNotNull(metacards, setDefaultTitle(parseContent(content, id), entry.getTitle()));
+    }
+
+    return createResults(metacards, entry.getCategories(), entry.getRelevance());
+  }
+
   /**
    * Creates a single response from input parameters. Performs XPath operations on the document to
    * retrieve data not passed in.
    *
-   * @param entry a single Atom entry
+   * @param entry a single RSS or Atom entry parsed by ROME
    * @return single response
    */
   private List<Result> createResponseFromEntry(SyndEntry entry) throws UnsupportedQueryException {
-    String id = entry.getUri();
-    if (StringUtils.isNotEmpty(id)) {
-      id = id.substring(id.lastIndexOf(':') + 1);
-    }
+    String id = getMetacardId(entry.getUri());
 
-    List<SyndContent> contents = entry.getContents();
-    List<SyndCategory> categories = entry.getCategories();
     List<Metacard> metacards = new ArrayList<>();
-    List<Element> foreignMarkup = entry.getForeignMarkup();
     String relevance = "";
-
-    for (Element element : foreignMarkup) {
+    for (Element element : entry.getForeignMarkup()) {
       if (element.getName().equals("score")) {
         relevance = element.getContent(0).getValue();
       }
@@ -565,32 +596,51 @@ private List<Result> createResponseFromEntry(SyndEntry entry) throws Unsupported
     }
     // we currently do not support downloading content via an RSS enclosure, this support can be
     // added at a later date if we decide to include it
-    for (SyndContent content : contents) {
-      Metacard metacard = parseContent(content.getValue(), id);
-      if (metacard != null) {
-        metacard.setSourceId(this.shortname);
-        String title = metacard.getTitle();
-        if (StringUtils.isEmpty(title)) {
-          metacard.setAttribute(new AttributeImpl(Core.TITLE, entry.getTitle()));
-        }
-        metacards.add(metacard);
+    for (SyndContent content : entry.getContents()) {
+      addIfNotNull(
+          metacards, setDefaultTitle(parseContent(content.getValue(), id), entry.getTitle()));
+    }
+
+    List<String> categories =
+        entry.getCategories().stream().map(SyndCategory::getName).collect(Collectors.toList());
+    return createResults(metacards, categories, relevance);
+  }
+
+  private String getMetacardId(String entryId) {
+    if (StringUtils.isNotEmpty(entryId)) {
+      return entryId.substring(entryId.lastIndexOf(':') + 1);
+    }
+    return entryId;
+  }
+
+  @Nullable
+  private Metacard setDefaultTitle(@Nullable Metacard metacard, String title) {
+    if (metacard != null) {
+      metacard.setSourceId(this.shortname);
+      if (StringUtils.isEmpty(metacard.getTitle())) {
+        metacard.setAttribute(new AttributeImpl(Core.TITLE, title));
       }
     }
+    return metacard;
+  }
+
+  private List<Result> createResults(
+      List<Metacard> metacards, List<String> categories, String relevance) {
     for (int i = 0; i < categories.size() && i < metacards.size(); i++) {
-      SyndCategory category = categories.get(i);
       Metacard metacard = metacards.get(i);
       if (StringUtils.isBlank(metacard.getContentTypeName())) {
-        metacard.setAttribute(new AttributeImpl(Metacard.CONTENT_TYPE, category.getName()));
+        metacard.setAttribute(new AttributeImpl(Metacard.CONTENT_TYPE, categories.get(i)));
       }
     }
 
+    if (StringUtils.isEmpty(relevance)) {
+      LOGGER.debug("Couldn't find valid relevance. Setting relevance to 0");
+      relevance = "0";
+    }
+
     List<Result> results = new ArrayList<>();
     for (Metacard metacard : metacards) {
       ResultImpl result = new ResultImpl(metacard);
-      if (StringUtils.isEmpty(relevance)) {
-        LOGGER.debug("Couldn't find valid relevance. Setting relevance to 0");
-        relevance = "0";
-      }
       result.setRelevanceScore(new Double(relevance));
       results.add(result);
     }
@@ -598,6 +648,40 @@ private List<Result> createResponseFromEntry(SyndEntry entry) throws Unsupported
     return results;
   }
 
+  private static void addIfNotNull(List<Metacard> metacards, @Nullable Metacard metacard) {
+    if (metacard != null) {
+      metacards.add(metacard);
+    }
+  }
+
+  /**
+   * Transforms metacard content copied out of an Atom entry. The input transformer is chosen from
+   * the namespaces seen while the content was copied, so the content is only parsed once more.
+   */
+  @Nullable
+  private Metacard parseContent(AtomFeedReader.Content content, String id)
+      throws UnsupportedQueryException {
+    try {
+      InputTransformer inputTransformer;
+      if (content.getNamespaces().isEmpty()) {
+        try (InputStream inputStream = content.openStream()) {
+          inputTransformer = getInputTransformer(inputStream);
+        }
+      } else {
+        inputTransformer = getInputTransformer(content.getNamespaces());
+      }
+
+      try (InputStream inputStream = content.openStream()) {
+        return inputTransformer.transform(inputStream, id);
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read metacard content from Atom feed.", e);
+    } catch (CatalogTransformerException e) {
+      LOGGER.debug("Unable to convert metacard content from Atom feed into Metacard object.", e);
+    }
+    return null;
+  }
+
   @Nullable
   private Metacard parseContent(String content, String id) throws UnsupportedQueryException {
     if (StringUtils.isNotEmpty(content)) {
@@ -700,6 +784,23 @@ private InputTransformer getInputTransformer(InputStream inputStream)
         "Unable to find applicable InputTransformer for metacard content from Atom feed.");
   }
 
+  private InputTransformer getInputTransformer(Collection<String> namespaceUris)
+      throws UnsupportedQueryException {
+    try {
+      for (String namespaceUri : namespaceUris) {
+        InputTransformer transformerReference = lookupTransformerReference(namespaceUri);
+        if (transformerReference != null) {
+          return transformerReference;
+        }
+      }
+    } catch (InvalidSyntaxException e) {
+      LOGGER.debug("Failed to parse transformer namespace", e);
+    }
+
+    throw new UnsupportedQueryException(
+        "Unable to find applicable InputTransformer for metacard content from Atom feed.");
+  }
+
   @Nullable
   protected InputTransformer lookupTransformerReference(String namespaceUri)
       throws InvalidSyntaxException {
@@ -15,9 +15,11 @@
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.collection.IsMapContaining.hasEntry;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
@@ -60,6 +62,7 @@
 import java.io.Serializable;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -634,6 +637,42 @@ public void testQueryResponseWithForeignMarkup() throws UnsupportedQueryExceptio
     assertThat(metacard.getContentTypeName(), is(RESOURCE_TAG));
   }
 
+  @Test
+  public void testQueryResponseWithMultipleEntries() throws Exception {
+    String entry =
+        SAMPLE_ATOM.substring(SAMPLE_ATOM.indexOf("    <entry"), SAMPLE_ATOM.indexOf("</feed>"));
+    String feed =
+        SAMPLE_ATOM
+            .replace("    <os:totalResults>1</os:totalResults>\r\n", "")
+            .replace("</feed>", entry + "</feed>");
+    when(response.getEntity())
+        .thenReturn(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)));
+
+    List<String> transformedContent = new ArrayList<>();
+    InputTransformer inputTransformer = mock(InputTransformer.class);
+    when(inputTransformer.transform(isA(InputStream.class), isA(String.class)))
+        .thenAnswer(
+            invocation -> {
+              transformedContent.add(
+                  IOUtils.toString(
+                      (InputStream) invocation.getArguments()[0], StandardCharsets.UTF_8));
+              return getSimpleMetacard();
+            });
+    source.setBundle(getMockBundleContext(inputTransformer));
+
+    Filter filter =
+        FILTER_BUILDER.attribute(NOT_ID_ATTRIBUTE_NAME).like().text(SAMPLE_SEARCH_PHRASE);
+
+    SourceResponse response = source.query(new QueryRequestImpl(new QueryImpl(filter)));
+    assertThat(response.getHits(), is(2L));
+    assertThat(response.getResults(), hasSize(2));
+    assertThat(transformedContent, hasSize(2));
+    for (String content : transformedContent) {
+      assertThat(content, startsWith("<ns3:metacard"));
+      assertThat(content, containsString("Example description."));
+    }
+  }
+
   /** Basic retrieve product case. Tests the url sent to the connection is correct. */
   @Test
   public void testRetrieveResource() throws Exception {
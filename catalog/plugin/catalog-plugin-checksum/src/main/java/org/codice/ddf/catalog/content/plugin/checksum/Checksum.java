@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.catalog.content.plugin.checksum;
 
+import ddf.catalog.Constants;
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.content.operation.CreateStorageRequest;
 import ddf.catalog.content.operation.UpdateStorageRequest;
@@ -23,8 +24,11 @@
 import ddf.catalog.plugin.PluginExecutionException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.codice.ddf.checksum.ChecksumProvider;
 
@@ -40,7 +44,7 @@ public CreateStorageRequest process(CreateStorageRequest input) throws PluginExe
     if (input == null) {
       throw new IllegalArgumentException("CreateStorageRequest cannot be null");
     }
-    runChecksum(input.getContentItems());
+    runChecksum(input.getContentItems(), input.getProperties());
 
     return input;
   }
@@ -50,12 +54,15 @@ public UpdateStorageRequest process(UpdateStorageRequest input) throws PluginExe
     if (input == null) {
       throw new IllegalArgumentException("UpdateStorageRequest cannot be null");
     }
-    runChecksum(input.getContentItems());
+    runChecksum(input.getContentItems(), input.getProperties());
 
     return input;
   }
 
-  private void runChecksum(List<ContentItem> contentItems) throws PluginExecutionException {
+  private void runChecksum(List<ContentItem> contentItems, Map<String, Serializable> properties)
+      throws PluginExecutionException {
+    Map<String, Map<String, String>> stagedChecksums = getStagedChecksums(properties);
+
     for (ContentItem contentItem : contentItems) {
       if (StringUtils.isNotEmpty(contentItem.getQualifier())) {
         // We are dealing with a derived resource, and this Metacard's checksum should reflect the
@@ -63,6 +70,17 @@ private void runChecksum(List<ContentItem> contentItems) throws PluginExecutionE
         continue;
       }
 
+      String stagedChecksum =
+          stagedChecksums
+              .getOrDefault(contentItem.getId(), Collections.emptyMap())
+              .get(checksumProvider.getChecksumAlgorithm());
+      if (stagedChecksum != null) {
+        // The framework already calculated it while copying the content
+        addChecksumAttributes(
+            contentItem.getMetacard(), checksumProvider.getChecksumAlgorithm(), stagedChecksum);
+        continue;
+      }
+
       try (InputStream inputStream = contentItem.getInputStream()) {
         // calculate checksum so that it can be added as an attribute on metacard
         String checksumAlgorithm = checksumProvider.getChecksumAlgorithm();
@@ -83,6 +101,15 @@ private void runChecksum(List<ContentItem> contentItems) throws PluginExecutionE
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, String>> getStagedChecksums(
+      Map<String, Serializable> properties) {
+    if (properties != null && properties.get(Constants.CONTENT_CHECKSUMS) instanceof Map) {
+      return (Map<String, Map<String, String>>) properties.get(Constants.CONTENT_CHECKSUMS);
+    }
+    return Collections.emptyMap();
+  }
+
   private void addChecksumAttributes(
       Metacard metacard, final String checksumAlgorithm, final String checksumValue) {
     metacard.setAttribute(new AttributeImpl(Metacard.CHECKSUM_ALGORITHM, checksumAlgorithm));
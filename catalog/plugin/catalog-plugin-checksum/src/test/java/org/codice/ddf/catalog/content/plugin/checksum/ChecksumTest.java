@@ -24,6 +24,7 @@
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import ddf.catalog.Constants;
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.content.operation.CreateStorageRequest;
 import ddf.catalog.content.operation.UpdateStorageRequest;
@@ -33,9 +34,13 @@
 import ddf.catalog.plugin.PluginExecutionException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.codice.ddf.checksum.ChecksumProvider;
 import org.junit.Before;
 import org.junit.Test;
@@ -125,6 +130,49 @@ public void testProcessUpdateWithValidInput() throws PluginExecutionException {
     assertThat(checksumAlgorithm, is(SAMPLE_CHECKSUM_ALGORITHM));
   }
 
+  @Test
+  public void testProcessCreateUsesStagedChecksum() throws Exception {
+    ContentItem mockContentItem = mock(ContentItem.class);
+    when(mockContentItem.getId()).thenReturn("contentId");
+    when(mockContentItem.getMetacard()).thenReturn(new MetacardImpl());
+
+    HashMap<String, Map<String, String>> stagedChecksums = new HashMap<>();
+    stagedChecksums.put(
+        "contentId", Collections.singletonMap(SAMPLE_CHECKSUM_ALGORITHM, "stagedChecksum"));
+    Map<String, Serializable> properties = new HashMap<>();
+    properties.put(Constants.CONTENT_CHECKSUMS, stagedChecksums);
+
+    CreateStorageRequest mockCreateRequest = mock(CreateStorageRequest.class);
+    when(mockCreateRequest.getContentItems())
+        .thenReturn(Collections.singletonList(mockContentItem));
+    when(mockCreateRequest.getProperties()).thenReturn(properties);
+
+    CreateStorageRequest request = checksum.process(mockCreateRequest);
+
+    Metacard metacard = request.getContentItems().get(0).getMetacard();
+    assertThat(metacard.getAttribute(Metacard.CHECKSUM).getValue(), is("stagedChecksum"));
+    assertThat(
+        metacard.getAttribute(Metacard.CHECKSUM_ALGORITHM).getValue(),
+        is(SAMPLE_CHECKSUM_ALGORITHM));
+    verify(mockContentItem, never()).getInputStream();
+    verify(mockChecksumProvider, never()).calculateChecksum(any(InputStream.class));
+  }
+
+  @Test
+  public void testProcessCreateIgnoresStagedChecksumOfOtherAlgorithm() throws Exception {
+    HashMap<String, Map<String, String>> stagedChecksums = new HashMap<>();
+    stagedChecksums.put(null, Collections.singletonMap("Adler32", "stagedChecksum"));
+    Map<String, Serializable> properties = new HashMap<>();
+    properties.put(Constants.CONTENT_CHECKSUMS, stagedChecksums);
+    when(mockCreateRequest.getProperties()).thenReturn(properties);
+
+    CreateStorageRequest request = checksum.process(mockCreateRequest);
+
+    assertThat(
+        request.getContentItems().get(0).getMetacard().getAttribute(Metacard.CHECKSUM).getValue(),
+        is(SAMPLE_CHECKSUM_VALUE));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testProcessCreateWithNullInput() throws PluginExecutionException {
     checksum.process((CreateStorageRequest) null);
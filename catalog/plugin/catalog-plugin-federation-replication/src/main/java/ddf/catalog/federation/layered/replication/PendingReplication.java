@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.federation.layered.replication;
+
+import java.io.Serializable;
+
+/** A create, update or delete of one metacard that has not yet been sent to the parent. */
+class PendingReplication implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  enum Operation {
+    CREATE,
+    UPDATE,
+    DELETE
+  }
+
+  private final Operation operation;
+
+  private final String id;
+
+  private final String data;
+
+  private final String mimeType;
+
+  // volatile because the queue is saved while replications are being sent
+  private volatile int attempts;
+
+  private volatile long notBefore;
+
+  /**
+   * @param operation operation to replicate
+   * @param id metacard ID the operation applies to
+   * @param data transformed metacard, or {@code null} for deletes
+   * @param mimeType MIME type of {@code data}, or {@code null} for deletes
+   */
+  PendingReplication(Operation operation, String id, String data, String mimeType) {
+    this.operation = operation;
+    this.id = id;
+    this.data = data;
+    this.mimeType = mimeType;
+  }
+
+  Operation getOperation() {
+    return operation;
+  }
+
+  String getId() {
+    return id;
+  }
+
+  String getData() {
+    return data;
+  }
+
+  String getMimeType() {
+    return mimeType;
+  }
+
+  /** @return the number of failed attempts to send this replication */
+  int getAttempts() {
+    return attempts;
+  }
+
+  /** @return the earliest time, in epoch milliseconds, at which this may be sent again */
+  long getNotBefore() {
+    return notBefore;
+  }
+
+  void retryAfter(long notBefore) {
+    this.attempts++;
+    this.notBefore = notBefore;
+  }
+
+  /**
+   * Combines a replication that has not been sent with a later one for the same metacard.
+   *
+   * @return the single replication that has the effect of both, or {@code null} if together they
+   *     have no effect on the parent
+   */
+  static PendingReplication coalesce(PendingReplication earlier, PendingReplication later) {
+    switch (later.operation) {
+      case DELETE:
+        return earlier.operation == Operation.CREATE ? null : later;
+      case UPDATE:
+        if (earlier.operation == Operation.CREATE) {
+          return new PendingReplication(Operation.CREATE, later.id, later.data, later.mimeType);
+        }
+        return later;
+      default:
+        if (earlier.operation == Operation.DELETE) {
+          // the parent still has the metacard because the delete was never sent
+          return new PendingReplication(Operation.UPDATE, later.id, later.data, later.mimeType);
+        }
+        return later;
+    }
+  }
+}
@@ -0,0 +1,386 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.federation.layered.replication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends {@link PendingReplication}s to the parent in the background.
+ *
+ * <p>Replications for the same metacard that are still waiting are coalesced into one, and only one
+ * replication per metacard is sent at a time so they reach the parent in order. At most {@code
+ * maxConcurrentRequests} are sent at once. A replication that fails with a connection error or a
+ * server error is retried after a delay that doubles with each attempt; one rejected with a client
+ * error is dropped. Waiting and in-flight replications are saved to a file periodically and on
+ * {@link #stop()}, and reloaded by {@link #start()}. The file is written from a copy of the queue,
+ * so queueing replications does not wait for it.
+ *
+ * <p>At most {@code maxPendingReplications} are held. Once the queue is full, replications of
+ * metacards that are not already waiting are dropped until the parent catches up.
+ */
+class ReplicationQueue {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationQueue.class);
+
+  private static final long DISPATCH_INTERVAL_MILLIS = 250;
+
+  private static final long SAVE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  private static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+
+  private static final long STOP_TIMEOUT_SECONDS = 10;
+
+  static final int DEFAULT_MAX_PENDING_REPLICATIONS = 10000;
+
+  private final Sender sender;
+
+  /** Replications waiting to be sent, by metacard ID, in the order they were first queued. */
+  private final LinkedHashMap<String, PendingReplication> waiting = new LinkedHashMap<>();
+
+  private final Map<String, PendingReplication> inFlight = new LinkedHashMap<>();
+
+  private volatile int maxConcurrentRequests;
+
+  private volatile long maxRetryDelayMillis;
+
+  private volatile int maxPendingReplications = DEFAULT_MAX_PENDING_REPLICATIONS;
+
+  private volatile Path pendingFile;
+
+  private boolean modified;
+
+  private long lastSaved;
+
+  private boolean full;
+
+  /** Number of copies of the queue taken to be saved. */
+  private long snapshots;
+
+  /** Guards writing the pending file, so a copy is never written over a later one. */
+  private final Object fileLock = new Object();
+
+  /** Last copy of the queue written to the pending file, guarded by {@link #fileLock}. */
+  private long savedSnapshot;
+
+  private ScheduledExecutorService dispatcher;
+
+  private ExecutorService senders;
+
+  /**
+   * @param sender sends a single replication to the parent
+   * @param maxConcurrentRequests maximum number of replications sent at once
+   * @param maxRetryDelaySeconds longest delay between attempts to send a failed replication
+   */
+  ReplicationQueue(Sender sender, int maxConcurrentRequests, long maxRetryDelaySeconds) {
+    this.sender = sender;
+    setMaxConcurrentRequests(maxConcurrentRequests);
+    setMaxRetryDelaySeconds(maxRetryDelaySeconds);
+  }
+
+  /** Loads saved replications and starts sending. */
+  synchronized void start() {
+    if (dispatcher != null) {
+      return;
+    }
+
+    load();
+    senders =
+        Executors.newCachedThreadPool(
+            StandardThreadFactoryBuilder.newThreadFactory("replicationSenderThread"));
+    dispatcher =
+        Executors.newSingleThreadScheduledExecutor(
+            StandardThreadFactoryBuilder.newThreadFactory("replicationDispatchThread"));
+    dispatcher.scheduleWithFixedDelay(
+        this::dispatchAndSave,
+        DISPATCH_INTERVAL_MILLIS,
+        DISPATCH_INTERVAL_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops sending and saves the replications that have not been sent. Replications that are being
+   * sent are given a short time to finish.
+   */
+  void stop() {
+    ScheduledExecutorService stoppingDispatcher;
+    ExecutorService stoppingSenders;
+    synchronized (this) {
+      stoppingDispatcher = dispatcher;
+      stoppingSenders = senders;
+      dispatcher = null;
+      senders = null;
+    }
+
+    if (stoppingDispatcher == null) {
+      return;
+    }
+
+    stoppingDispatcher.shutdownNow();
+    stoppingSenders.shutdown();
+    try {
+      if (!stoppingSenders.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOGGER.debug("Replication requests did not finish before shutdown.");
+        stoppingSenders.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    save();
+  }
+
+  /**
+   * Queues a replication, coalescing it with a waiting replication of the same metacard.
+   *
+   * @return {@code false} if the replication was dropped because the queue is full
+   */
+  synchronized boolean add(PendingReplication replication) {
+    if (!waiting.containsKey(replication.getId()) && size() >= maxPendingReplications) {
+      if (!full) {
+        LOGGER.info(
+            "Replication queue is full with {} requests. Dropping requests for other metacards.",
+            size());
+        full = true;
+      }
+      LOGGER.debug("Dropping {} of metacard {}", replication.getOperation(), replication.getId());
+      return false;
+    }
+    full = false;
+
+    PendingReplication earlier = waiting.remove(replication.getId());
+    PendingReplication combined =
+        earlier == null ? replication : PendingReplication.coalesce(earlier, replication);
+    if (combined != null) {
+      waiting.put(replication.getId(), combined);
+    }
+    modified = true;
+    return true;
+  }
+
+  /** @return the number of replications waiting or being sent */
+  synchronized int size() {
+    return waiting.size() + inFlight.size();
+  }
+
+  void setMaxConcurrentRequests(int maxConcurrentRequests) {
+    this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+  }
+
+  void setMaxRetryDelaySeconds(long maxRetryDelaySeconds) {
+    this.maxRetryDelayMillis =
+        Math.max(INITIAL_RETRY_DELAY_MILLIS, TimeUnit.SECONDS.toMillis(maxRetryDelaySeconds));
+  }
+
+  /** @param maxPendingReplications maximum number of replications waiting or being sent */
+  void setMaxPendingReplications(int maxPendingReplications) {
+    this.maxPendingReplications = Math.max(1, maxPendingReplications);
+  }
+
+  /** @param pendingFile file unsent replications are saved to, or {@code null} to not save them */
+  void setPendingFile(Path pendingFile) {
+    this.pendingFile = pendingFile;
+  }
+
+  /** Starts sending as many ready replications as the concurrency limit allows. */
+  void dispatch() {
+    List<PendingReplication> ready;
+    ExecutorService currentSenders;
+    synchronized (this) {
+      currentSenders = senders;
+      if (currentSenders == null) {
+        return;
+      }
+      ready = takeReady(System.currentTimeMillis());
+    }
+
+    for (PendingReplication replication : ready) {
+      try {
+        currentSenders.execute(() -> send(replication));
+      } catch (RejectedExecutionException e) {
+        // stopping; keep the replication so it is saved
+        complete(replication, true);
+      }
+    }
+  }
+
+  private void dispatchAndSave() {
+    try {
+      dispatch();
+      boolean saveDue;
+      synchronized (this) {
+        saveDue = modified && System.currentTimeMillis() - lastSaved >= SAVE_INTERVAL_MILLIS;
+      }
+      if (saveDue) {
+        save();
+      }
+    } catch (RuntimeException e) {
+      LOGGER.debug("Unable to dispatch replication requests.", e);
+    }
+  }
+
+  private List<PendingReplication> takeReady(long now) {
+    List<PendingReplication> ready = new ArrayList<>();
+    Iterator<PendingReplication> iterator = waiting.values().iterator();
+    while (iterator.hasNext() && inFlight.size() < maxConcurrentRequests) {
+      PendingReplication replication = iterator.next();
+      if (replication.getNotBefore() <= now && !inFlight.containsKey(replication.getId())) {
+        iterator.remove();
+        inFlight.put(replication.getId(), replication);
+        ready.add(replication);
+      }
+    }
+    return ready;
+  }
+
+  private void send(PendingReplication replication) {
+    boolean retry;
+    try {
+      int status = sender.send(replication);
+      retry = status >= 500 || status == 408 || status == 429;
+      if (status >= 400 && !retry) {
+        LOGGER.debug(
+            "Parent rejected {} of metacard {} with status {}. Not retrying.",
+            replication.getOperation(),
+            replication.getId(),
+            status);
+      }
+    } catch (RuntimeException e) {
+      LOGGER.debug(
+          "Unable to send {} of metacard {} to the parent.",
+          replication.getOperation(),
+          replication.getId(),
+          e);
+      retry = true;
+    }
+
+    complete(replication, retry);
+    dispatch();
+  }
+
+  private synchronized void complete(PendingReplication replication, boolean retry) {
+    inFlight.remove(replication.getId());
+    modified = true;
+    if (!retry) {
+      return;
+    }
+
+    replication.retryAfter(System.currentTimeMillis() + getRetryDelay(replication.getAttempts()));
+    LOGGER.debug(
+        "Retrying {} of metacard {} after attempt {}",
+        replication.getOperation(),
+        replication.getId(),
+        replication.getAttempts());
+
+    PendingReplication later = waiting.remove(replication.getId());
+    PendingReplication combined =
+        later == null ? replication : PendingReplication.coalesce(replication, later);
+    if (combined != null) {
+      waiting.put(replication.getId(), combined);
+    }
+  }
+
+  private long getRetryDelay(int attempts) {
+    int doublings = Math.min(Math.max(0, attempts - 1), 30);
+    return Math.min(maxRetryDelayMillis, INITIAL_RETRY_DELAY_MILLIS << doublings);
+  }
+
+  /**
+   * Copies the unsent replications and writes them to the pending file without holding the queue.
+   */
+  private void save() {
+    Path file = pendingFile;
+    if (file == null) {
+      return;
+    }
+
+    List<PendingReplication> unsent;
+    long snapshot;
+    synchronized (this) {
+      unsent = new ArrayList<>(inFlight.values());
+      unsent.addAll(waiting.values());
+      modified = false;
+      lastSaved = System.currentTimeMillis();
+      snapshot = ++snapshots;
+    }
+
+    synchronized (fileLock) {
+      if (snapshot < savedSnapshot) {
+        return;
+      }
+
+      try {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temporary);
+            ObjectOutputStream objects = new ObjectOutputStream(output)) {
+          objects.writeObject(unsent);
+        }
+        Files.move(
+            temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedSnapshot = snapshot;
+      } catch (IOException e) {
+        LOGGER.info("Unable to save {} unsent replication requests to {}", unsent.size(), file, e);
+        synchronized (this) {
+          modified = true;
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void load() {
+    Path file = pendingFile;
+    if (file == null || !Files.exists(file)) {
+      return;
+    }
+
+    try (InputStream input = Files.newInputStream(file);
+        ObjectInputStream objects = new ObjectInputStream(input)) {
+      List<PendingReplication> unsent = (List<PendingReplication>) objects.readObject();
+      unsent.forEach(this::add);
+      LOGGER.debug("Loaded {} unsent replication requests from {}", unsent.size(), file);
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      LOGGER.info("Unable to load unsent replication requests from {}", file, e);
+    }
+  }
+
+  @FunctionalInterface
+  interface Sender {
+    /**
+     * @param replication replication to send
+     * @return the HTTP status the parent responded with
+     */
+    int send(PendingReplication replication);
+  }
+}
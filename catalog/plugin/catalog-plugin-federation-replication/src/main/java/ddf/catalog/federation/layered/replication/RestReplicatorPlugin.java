@@ -15,6 +15,7 @@
 
 import ddf.catalog.data.BinaryContent;
 import ddf.catalog.data.Metacard;
+import ddf.catalog.federation.layered.replication.PendingReplication.Operation;
 import ddf.catalog.operation.CreateResponse;
 import ddf.catalog.operation.DeleteResponse;
 import ddf.catalog.operation.Update;
@@ -27,18 +28,33 @@
 import ddf.catalog.util.impl.Requests;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.UUID;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.cxf.jaxrs.client.WebClient;
 import org.codice.ddf.configuration.PropertyResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Replicates local creates, updates and deletes to a parent catalog's REST endpoint.
+ *
+ * <p>Metacards are transformed on the ingest thread, so transformation errors are still reported to
+ * the caller, but the requests to the parent are sent in the background by a {@link
+ * ReplicationQueue}. Ingest therefore does not wait for, or fail because of, the parent.
+ */
 public class RestReplicatorPlugin implements PostIngestPlugin {
 
+  public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
+  public static final long DEFAULT_MAX_RETRY_DELAY_SECONDS = 300;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(RestReplicatorPlugin.class);
 
   private static final String RESPONSE = "RESPONSE: [{}]";
@@ -48,27 +64,36 @@ public class RestReplicatorPlugin implements PostIngestPlugin {
 
   private MetacardTransformer transformer = null;
 
-  private WebClient client;
+  private volatile WebClient client;
+
+  private final ReplicationQueue queue =
+      new ReplicationQueue(
+          this::send, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_RETRY_DELAY_SECONDS);
 
   public RestReplicatorPlugin(String endpointAddress) {
     setParentAddress(endpointAddress);
   }
 
+  /** Loads replications that were not sent before the last shutdown and starts sending. */
+  public void init() {
+    queue.start();
+  }
+
+  /** Stops sending and saves the replications that have not been sent. */
+  public void destroy() {
+    queue.stop();
+  }
+
   @Override
   public CreateResponse process(CreateResponse input) throws PluginExecutionException {
 
     if (Requests.isLocal(input.getRequest()) && client != null && transformer != null) {
 
+      List<PendingReplication> replications = new ArrayList<>();
       for (Metacard m : input.getCreatedMetacards()) {
-
-        String data = transform(m, client);
-
-        Response r = client.post(data);
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("Posted the following GeoJSON: {}\n", data);
-          LOGGER.debug(RESPONSE, ToStringBuilder.reflectionToString(r));
-        }
+        replications.add(transform(Operation.CREATE, getKey(m.getId()), m));
       }
+      replications.forEach(queue::add);
     }
 
     return input;
@@ -79,10 +104,6 @@ public UpdateResponse process(UpdateResponse input) throws PluginExecutionExcept
 
     if (Requests.isLocal(input.getRequest()) && client != null && transformer != null) {
 
-      WebClient updateClient = WebClient.fromClient(client);
-
-      updateClient.type(MediaType.APPLICATION_JSON);
-
       List<Update> updates = input.getUpdatedMetacards();
 
       if (updates == null) {
@@ -96,6 +117,7 @@ public UpdateResponse process(UpdateResponse input) throws PluginExecutionExcept
                 "Cannot replicate records that are not updated by " + Metacard.ID));
       }
 
+      List<PendingReplication> replications = new ArrayList<>();
       for (int i = 0; i < updates.size(); i++) {
 
         Update update = updates.get(i);
@@ -105,18 +127,12 @@ public UpdateResponse process(UpdateResponse input) throws PluginExecutionExcept
             && request.getUpdates().get(i) != null
             && request.getUpdates().get(i).getKey() != null) {
 
-          updateClient.path(request.getUpdates().get(i).getKey());
+          String id = request.getUpdates().get(i).getKey().toString();
 
-          Metacard newMetacard = update.getNewMetacard();
-
-          String newData = transform(newMetacard, updateClient);
-
-          Response r = updateClient.put(newData);
-          if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(RESPONSE, ToStringBuilder.reflectionToString(r));
-          }
+          replications.add(transform(Operation.UPDATE, id, update.getNewMetacard()));
         }
       }
+      replications.forEach(queue::add);
     }
 
     return input;
@@ -127,26 +143,14 @@ public DeleteResponse process(DeleteResponse input) throws PluginExecutionExcept
 
     if (input != null && Requests.isLocal(input.getRequest()) && client != null) {
 
-      WebClient updateClient = WebClient.fromClient(client);
-
-      updateClient.type(MediaType.APPLICATION_JSON);
-
       if (input.getDeletedMetacards() == null || input.getDeletedMetacards().isEmpty()) {
         return input;
       }
 
-      for (int i = 0; i < input.getDeletedMetacards().size(); i++) {
-
-        Metacard metacard = input.getDeletedMetacards().get(i);
+      for (Metacard metacard : input.getDeletedMetacards()) {
 
         if (metacard != null && metacard.getId() != null) {
-
-          updateClient.path(metacard.getId());
-
-          Response r = updateClient.delete();
-          if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(RESPONSE, ToStringBuilder.reflectionToString(r));
-          }
+          queue.add(new PendingReplication(Operation.DELETE, metacard.getId(), null, null));
         }
       }
     }
@@ -189,13 +193,78 @@ public void setTransformer(MetacardTransformer transformer) {
     LOGGER.debug("Changed transformer to [{}]", this.transformer);
   }
 
-  private String transform(Metacard m, WebClient client) throws PluginExecutionException {
+  /** @param maxConcurrentRequests maximum number of requests sent to the parent at once */
+  public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+    queue.setMaxConcurrentRequests(maxConcurrentRequests);
+  }
+
+  /** @param maxRetryDelaySeconds longest delay between attempts to resend a failed request */
+  public void setMaxRetryDelaySeconds(long maxRetryDelaySeconds) {
+    queue.setMaxRetryDelaySeconds(maxRetryDelaySeconds);
+  }
+
+  /**
+   * @param maxPendingReplications maximum number of requests waiting to be sent to the parent,
+   *     beyond which requests for other metacards are dropped
+   */
+  public void setMaxPendingReplications(int maxPendingReplications) {
+    queue.setMaxPendingReplications(maxPendingReplications);
+  }
+
+  /**
+   * @param pendingFile file that replications not yet sent to the parent are saved to across
+   *     restarts
+   */
+  public void setPendingFile(String pendingFile) {
+    queue.setPendingFile(
+        StringUtils.isBlank(pendingFile)
+            ? null
+            : Paths.get(PropertyResolver.resolveProperties(pendingFile)));
+  }
+
+  int send(PendingReplication replication) {
+    WebClient currentClient = client;
+    if (currentClient == null) {
+      throw new IllegalStateException("No parent address is configured.");
+    }
+
+    WebClient replicationClient = WebClient.fromClient(currentClient);
+    Response r;
+    switch (replication.getOperation()) {
+      case CREATE:
+        r = replicationClient.type(replication.getMimeType()).post(replication.getData());
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("Posted the following GeoJSON: {}\n", replication.getData());
+        }
+        break;
+      case UPDATE:
+        r =
+            replicationClient
+                .path(replication.getId())
+                .type(replication.getMimeType())
+                .put(replication.getData());
+        break;
+      default:
+        r = replicationClient.path(replication.getId()).delete();
+    }
+
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(RESPONSE, ToStringBuilder.reflectionToString(r));
+    }
+    return r.getStatus();
+  }
+
+  private PendingReplication transform(Operation operation, String id, Metacard m)
+      throws PluginExecutionException {
 
     BinaryContent binaryContent;
     try {
       binaryContent = transformer.transform(m, new HashMap<>());
-      client.type(getValidMimeType(binaryContent.getMimeTypeValue()));
-      return new String(binaryContent.getByteArray(), StandardCharsets.UTF_8);
+      return new PendingReplication(
+          operation,
+          id,
+          new String(binaryContent.getByteArray(), StandardCharsets.UTF_8),
+          getValidMimeType(binaryContent.getMimeTypeValue()));
     } catch (IOException e) {
       LOGGER.debug("Could not understand metacard.", e);
       throw new PluginExecutionException("Could not send metacard.");
@@ -205,6 +274,11 @@ private String transform(Metacard m, WebClient client) throws PluginExecutionExc
     }
   }
 
+  /** Creates of metacards without an ID are never coalesced with another replication. */
+  private String getKey(String id) {
+    return id == null ? UUID.randomUUID().toString() : id;
+  }
+
   private String getValidMimeType(String mimeTypeValue) {
     if (mimeTypeValue == null) {
       return MediaType.APPLICATION_OCTET_STREAM;
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.federation.layered.replication;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import ddf.catalog.federation.layered.replication.PendingReplication.Operation;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReplicationQueueTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+
+  private ReplicationQueue queue;
+
+  @After
+  public void tearDown() {
+    if (queue != null) {
+      queue.stop();
+    }
+  }
+
+  @Test
+  public void testUpdateOfUnsentCreateIsSentAsCreate() {
+    PendingReplication combined =
+        PendingReplication.coalesce(
+            replication(Operation.CREATE, "1", "old"), replication(Operation.UPDATE, "1", "new"));
+
+    assertThat(combined.getOperation(), is(Operation.CREATE));
+    assertThat(combined.getData(), is("new"));
+  }
+
+  @Test
+  public void testDeleteOfUnsentCreateIsNotSent() {
+    assertThat(
+        PendingReplication.coalesce(
+            replication(Operation.CREATE, "1", "data"), replication(Operation.DELETE, "1", null)),
+        nullValue());
+  }
+
+  @Test
+  public void testDeleteReplacesUnsentUpdate() {
+    PendingReplication combined =
+        PendingReplication.coalesce(
+            replication(Operation.UPDATE, "1", "data"), replication(Operation.DELETE, "1", null));
+
+    assertThat(combined.getOperation(), is(Operation.DELETE));
+  }
+
+  @Test
+  public void testCreateAfterUnsentDeleteIsSentAsUpdate() {
+    PendingReplication combined =
+        PendingReplication.coalesce(
+            replication(Operation.DELETE, "1", null), replication(Operation.CREATE, "1", "new"));
+
+    assertThat(combined.getOperation(), is(Operation.UPDATE));
+    assertThat(combined.getData(), is("new"));
+  }
+
+  @Test
+  public void testWaitingReplicationsAreCoalesced() throws Exception {
+    queue = new ReplicationQueue(this::record, 2, 1);
+    queue.add(replication(Operation.CREATE, "1", "first"));
+    queue.add(replication(Operation.UPDATE, "1", "second"));
+    queue.add(replication(Operation.CREATE, "2", "data"));
+    queue.add(replication(Operation.DELETE, "2", null));
+
+    assertThat(queue.size(), is(1));
+
+    queue.start();
+    waitFor(() -> queue.size() == 0);
+
+    assertThat(sent, contains("CREATE 1 second"));
+  }
+
+  @Test
+  public void testConcurrentRequestsAreBounded() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    queue =
+        new ReplicationQueue(
+            replication -> {
+              maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+              sleep(20);
+              running.decrementAndGet();
+              return record(replication);
+            },
+            2,
+            1);
+    for (int i = 0; i < 10; i++) {
+      queue.add(replication(Operation.CREATE, Integer.toString(i), "data"));
+    }
+
+    queue.start();
+    waitFor(() -> queue.size() == 0);
+
+    assertThat(sent.size(), is(10));
+    assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+  }
+
+  @Test
+  public void testUnavailableParentIsRetried() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    queue =
+        new ReplicationQueue(
+            replication -> {
+              if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("connection refused");
+              }
+              return record(replication);
+            },
+            1,
+            1);
+    queue.add(replication(Operation.UPDATE, "1", "data"));
+
+    queue.start();
+    waitFor(() -> queue.size() == 0);
+
+    assertThat(attempts.get(), is(2));
+    assertThat(sent, contains("UPDATE 1 data"));
+  }
+
+  @Test
+  public void testRejectedReplicationIsNotRetried() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    queue =
+        new ReplicationQueue(
+            replication -> {
+              attempts.incrementAndGet();
+              return 400;
+            },
+            1,
+            1);
+    queue.add(replication(Operation.UPDATE, "1", "data"));
+
+    queue.start();
+    waitFor(() -> queue.size() == 0);
+    sleep(1500);
+
+    assertThat(attempts.get(), is(1));
+  }
+
+  @Test
+  public void testUnsentReplicationsSurviveRestart() throws Exception {
+    Path pendingFile = temporaryFolder.getRoot().toPath().resolve("replication/pending.ser");
+    queue =
+        new ReplicationQueue(
+            replication -> {
+              throw new IllegalStateException("connection refused");
+            },
+            1,
+            60);
+    queue.setPendingFile(pendingFile);
+    queue.start();
+    queue.add(replication(Operation.CREATE, "1", "data"));
+    queue.add(replication(Operation.DELETE, "2", null));
+    queue.stop();
+
+    queue = new ReplicationQueue(this::record, 1, 1);
+    queue.setPendingFile(pendingFile);
+    queue.start();
+    waitFor(() -> queue.size() == 0);
+
+    assertThat(sent.size(), is(2));
+    assertTrue(sent.contains("CREATE 1 data"));
+    assertTrue(sent.contains("DELETE 2 null"));
+  }
+
+  @Test
+  public void testReplicationsOfOtherMetacardsDroppedWhenFull() {
+    queue = new ReplicationQueue(this::record, 1, 1);
+    queue.setMaxPendingReplications(2);
+
+    assertThat(queue.add(replication(Operation.CREATE, "1", "data")), is(true));
+    assertThat(queue.add(replication(Operation.CREATE, "2", "data")), is(true));
+    assertThat(queue.add(replication(Operation.CREATE, "3", "data")), is(false));
+    assertThat(queue.add(replication(Operation.UPDATE, "2", "new")), is(true));
+    assertThat(queue.size(), is(2));
+  }
+
+  private int record(PendingReplication replication) {
+    sent.add(
+        String.format(
+            "%s %s %s", replication.getOperation(), replication.getId(), replication.getData()));
+    return 200;
+  }
+
+  private static PendingReplication replication(Operation operation, String id, String data) {
+    return new PendingReplication(operation, id, data, data == null ? null : "application/json");
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue("Timed out waiting for replication", System.nanoTime() < deadline);
+      Thread.sleep(20);
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -36,7 +36,6 @@
 import ddf.security.SubjectUtils;
 import ddf.security.common.audit.SecurityLogger;
 import ddf.security.permission.CollectionPermission;
-import ddf.security.permission.KeyValueCollectionPermission;
 import java.io.Serializable;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -44,7 +43,6 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.StringJoiner;
 import java.util.TreeMap;
 import org.apache.shiro.subject.Subject;
@@ -87,21 +85,20 @@ protected Subject getSystemSubject() {
 
   @Override
   public CreateRequest processPreCreate(CreateRequest input) throws StopProcessingException {
-    KeyValueCollectionPermission securityPermission =
-        new KeyValueCollectionPermission(CollectionPermission.CREATE_ACTION);
     List<Metacard> metacards = input.getMetacards();
     Subject subject = getSubject(input);
-    Subject systemSubject = getSystemSubject();
+    PermissionDecisions userPermissions =
+        new PermissionDecisions(subject, CollectionPermission.CREATE_ACTION);
+    PermissionDecisions systemPermissions =
+        new PermissionDecisions(getSystemSubject(), CollectionPermission.CREATE_ACTION);
     List<String> userNotPermittedTitles = new ArrayList<>();
     List<String> systemNotPermittedTitles = new ArrayList<>();
     for (Metacard metacard : metacards) {
       Attribute attr = metacard.getAttribute(Metacard.SECURITY);
-      if (!checkPermissions(
-          attr, securityPermission, subject, CollectionPermission.CREATE_ACTION)) {
+      if (!userPermissions.isPermitted(attr)) {
         userNotPermittedTitles.add(metacard.getTitle());
       }
-      if (!checkPermissions(
-          attr, securityPermission, systemSubject, CollectionPermission.CREATE_ACTION)) {
+      if (!systemPermissions.isPermitted(attr)) {
         systemNotPermittedTitles.add(metacard.getTitle());
       }
     }
@@ -126,11 +123,11 @@ public CreateRequest processPreCreate(CreateRequest input) throws StopProcessing
   @Override
   public UpdateRequest processPreUpdate(UpdateRequest input, Map<String, Metacard> metacards)
       throws StopProcessingException {
-    KeyValueCollectionPermission securityPermission =
-        new KeyValueCollectionPermission(CollectionPermission.UPDATE_ACTION);
     List<Map.Entry<Serializable, Metacard>> updates = input.getUpdates();
-    Subject subject = getSubject(input);
-    Subject systemSubject = getSystemSubject();
+    PermissionDecisions userPermissions =
+        new PermissionDecisions(getSubject(input), CollectionPermission.UPDATE_ACTION);
+    PermissionDecisions systemPermissions =
+        new PermissionDecisions(getSystemSubject(), CollectionPermission.UPDATE_ACTION);
     List<String> unknownIds = new ArrayList<>();
     List<String> userNotPermittedIds = new ArrayList<>();
     List<String> systemNotPermittedIds = new ArrayList<>();
@@ -148,13 +145,10 @@ public UpdateRequest processPreUpdate(UpdateRequest input, Map<String, Metacard>
         unknownIds.add(id);
       } else {
         Attribute oldAttr = oldMetacard.getAttribute(Metacard.SECURITY);
-        if (!checkPermissions(attr, securityPermission, subject, CollectionPermission.UPDATE_ACTION)
-            || !checkPermissions(
-                oldAttr, securityPermission, subject, CollectionPermission.UPDATE_ACTION)) {
+        if (!userPermissions.isPermitted(attr) || !userPermissions.isPermitted(oldAttr)) {
           userNotPermittedIds.add(newMetacard.getId());
         }
-        if (!checkPermissions(
-            attr, securityPermission, systemSubject, CollectionPermission.UPDATE_ACTION)) {
+        if (!systemPermissions.isPermitted(attr)) {
           systemNotPermittedIds.add(newMetacard.getId());
         }
       }
@@ -191,12 +185,12 @@ public DeleteResponse processPostDelete(DeleteResponse input) throws StopProcess
 
     List<Metacard> results = input.getDeletedMetacards();
     List<Metacard> newResults = new ArrayList<>(results.size());
-    KeyValueCollectionPermission securityPermission =
-        new KeyValueCollectionPermission(CollectionPermission.READ_ACTION);
+    PermissionDecisions permissions =
+        new PermissionDecisions(subject, CollectionPermission.READ_ACTION);
     int filteredMetacards = 0;
     for (Metacard metacard : results) {
       Attribute attr = metacard.getAttribute(Metacard.SECURITY);
-      if (!checkPermissions(attr, securityPermission, subject, CollectionPermission.READ_ACTION)) {
+      if (!permissions.isPermitted(attr)) {
         for (FilterStrategy filterStrategy : filterStrategies.values()) {
           FilterResult filterResult = filterStrategy.process(input, metacard);
           if (filterResult.processed()) {
@@ -240,13 +234,13 @@ public QueryResponse processPostQuery(QueryResponse input) throws StopProcessing
     List<Result> results = input.getResults();
     List<Result> newResults = new ArrayList<>(results.size());
     Metacard metacard;
-    KeyValueCollectionPermission securityPermission =
-        new KeyValueCollectionPermission(CollectionPermission.READ_ACTION);
+    PermissionDecisions permissions =
+        new PermissionDecisions(subject, CollectionPermission.READ_ACTION);
     int filteredMetacards = 0;
     for (Result result : results) {
       metacard = result.getMetacard();
       Attribute attr = metacard.getAttribute(Metacard.SECURITY);
-      if (!checkPermissions(attr, securityPermission, subject, CollectionPermission.READ_ACTION)) {
+      if (!permissions.isPermitted(attr)) {
         for (FilterStrategy filterStrategy : filterStrategies.values()) {
           FilterResult filterResult = filterStrategy.process(input, metacard);
           if (filterResult.processed()) {
@@ -263,6 +257,11 @@ public QueryResponse processPostQuery(QueryResponse input) throws StopProcessing
       }
     }
 
+    LOGGER.debug(
+        "Checked {} query results with {} permission decisions.",
+        permissions.getChecks(),
+        permissions.getDecisions());
+
     if (filteredMetacards > 0) {
       SecurityLogger.audit(
           "Filtered " + filteredMetacards + " metacards, returned " + newResults.size(), subject);
@@ -286,11 +285,10 @@ public ResourceResponse processPostResource(ResourceResponse input, Metacard met
       throw new StopProcessingException(
           "Unable to filter contents of current message, no user Subject available.");
     }
-    KeyValueCollectionPermission securityPermission =
-        new KeyValueCollectionPermission(CollectionPermission.READ_ACTION);
-    Subject subject = getSubject(input);
+    PermissionDecisions permissions =
+        new PermissionDecisions(getSubject(input), CollectionPermission.READ_ACTION);
     Attribute attr = metacard.getAttribute(Metacard.SECURITY);
-    if (!checkPermissions(attr, securityPermission, subject, CollectionPermission.READ_ACTION)) {
+    if (!permissions.isPermitted(attr)) {
       for (FilterStrategy filterStrategy : filterStrategies.values()) {
         FilterResult filterResult = filterStrategy.process(input, metacard);
         if (filterResult.processed()) {
@@ -332,20 +330,4 @@ private Subject getSubject(Request input) throws StopProcessingException {
     }
     return subject;
   }
-
-  private boolean checkPermissions(
-      Attribute attr,
-      KeyValueCollectionPermission securityPermission,
-      Subject subject,
-      String action) {
-    Map<String, Set<String>> map = null;
-
-    if (attr != null) {
-      map = (Map<String, Set<String>>) attr.getValue();
-    }
-    if (map != null) {
-      securityPermission = new KeyValueCollectionPermission(action, map);
-    }
-    return subject.isPermitted(securityPermission);
-  }
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package ddf.catalog.security.filter.plugin;
+
+import ddf.catalog.data.Attribute;
+import ddf.security.permission.KeyValueCollectionPermission;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.shiro.subject.Subject;
+
+/**
+ * Decides whether a subject is permitted an action on the security markings of metacards, checking
+ * each distinct set of markings only once. An instance is meant to be used for a single request.
+ */
+class PermissionDecisions {
+
+  private final Subject subject;
+
+  private final String action;
+
+  private final Map<Map<String, Set<String>>, Boolean> decisions = new HashMap<>();
+
+  private int checks;
+
+  PermissionDecisions(Subject subject, String action) {
+    this.subject = subject;
+    this.action = action;
+  }
+
+  /**
+   * @param securityAttribute {@link ddf.catalog.data.Metacard#SECURITY} attribute of a metacard, or
+   *     {@code null} if it has none
+   * @return true if the subject is permitted the action on the metacard
+   */
+  boolean isPermitted(Attribute securityAttribute) {
+    checks++;
+    return decisions.computeIfAbsent(
+        getMarkings(securityAttribute),
+        markings -> subject.isPermitted(new KeyValueCollectionPermission(action, markings)));
+  }
+
+  /** @return the number of metacards checked */
+  int getChecks() {
+    return checks;
+  }
+
+  /** @return the number of checks that needed a permission check of the subject */
+  int getDecisions() {
+    return decisions.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Set<String>> getMarkings(Attribute securityAttribute) {
+    Map<String, ? extends Collection<String>> values = null;
+    if (securityAttribute != null) {
+      values = (Map<String, ? extends Collection<String>>) securityAttribute.getValue();
+    }
+    if (values == null || values.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    // the same markings may come in different collection types and orders
+    Map<String, Set<String>> markings = new HashMap<>();
+    for (Map.Entry<String, ? extends Collection<String>> entry : values.entrySet()) {
+      markings.put(entry.getKey(), new HashSet<>(entry.getValue()));
+    }
+    return markings;
+  }
+}
@@ -19,6 +19,8 @@
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ddf.catalog.data.Metacard;
@@ -80,6 +82,8 @@ public class FilterPluginTest {
 
   FilterPlugin plugin;
 
+  AuthorizingRealm realm;
+
   QueryResponseImpl incomingResponse;
 
   ResourceResponseImpl resourceResponse;
@@ -96,7 +100,7 @@ public class FilterPluginTest {
 
   @Before
   public void setup() {
-    AuthorizingRealm realm = mock(AuthorizingRealm.class);
+    realm = mock(AuthorizingRealm.class);
 
     when(realm.getName()).thenReturn("mockRealm");
     when(realm.isPermitted(any(PrincipalCollection.class), any(Permission.class)))
@@ -212,6 +216,21 @@ public void testPluginFilterNoStrategies() {
     }
   }
 
+  @Test
+  public void testPluginFilterChecksEachDistinctMarkingOnce() throws StopProcessingException {
+    QueryResponseImpl response = new QueryResponseImpl(incomingResponse.getRequest());
+    for (int i = 0; i < 10; i++) {
+      response.addResult(new ResultImpl(getExactRolesMetacard()), false);
+      response.addResult(new ResultImpl(getMoreRolesMetacard()), false);
+    }
+    response.addResult(new ResultImpl(getExactRolesMetacard()), true);
+
+    QueryResponse filteredResponse = plugin.processPostQuery(response);
+
+    assertThat(filteredResponse.getResults().size(), is(11));
+    verify(realm, times(2)).isPermitted(any(PrincipalCollection.class), any(Permission.class));
+  }
+
   @Test
   public void testPluginFilterResourceGood() throws StopProcessingException {
     plugin.processPostResource(resourceResponse, getExactRolesMetacard());
@@ -23,6 +23,7 @@
 import com.thoughtworks.xstream.io.xml.XppReader;
 import ddf.catalog.data.types.Core;
 import ddf.catalog.resource.impl.ResourceImpl;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,6 +41,7 @@
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.ext.MessageBodyReader;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.cxf.jaxrs.ext.multipart.ContentDisposition;
 import org.codice.ddf.spatial.ogc.csw.catalog.common.CswConstants;
@@ -60,6 +62,11 @@ public class GetRecordsMessageBodyReader implements MessageBodyReader<CswRecordC
 
   public static final String BYTES_SKIPPED = "bytes-skipped";
 
+  private static final String EXCEPTION_REPORT = "ExceptionReport";
+
+  /** Number of bytes at the start of a response kept to be returned if it is an error. */
+  private static final int MAX_REPLAY_BYTES = 64 * 1024;
+
   private XStream xstream;
 
   private DataHolder argumentHolder;
@@ -128,45 +135,65 @@ public CswRecordCollection readFrom(
       return cswRecords;
     }
 
-    // Save original input stream for any exception message that might need to be
-    // created
-    String originalInputStream = IOUtils.toString(inStream, "UTF-8");
-    LOGGER.debug("Converting to CswRecordCollection: \n {}", originalInputStream);
-
-    // Re-create the input stream (since it has already been read for potential
-    // exception message creation)
-    inStream = new ByteArrayInputStream(originalInputStream.getBytes("UTF-8"));
+    // Only the start of the response is kept so that an ExceptionReport can be handed back
+    // without holding every record of a large response in memory
+    BufferedInputStream bufferedStream = new BufferedInputStream(inStream);
+    bufferedStream.mark(MAX_REPLAY_BYTES);
 
     try {
       HierarchicalStreamReader reader =
           new XppReader(
-              new InputStreamReader(inStream, StandardCharsets.UTF_8),
+              new InputStreamReader(bufferedStream, StandardCharsets.UTF_8),
               XmlPullParserFactory.newInstance().newPullParser());
+      if (isExceptionReport(reader.getNodeName())) {
+        throw new WebApplicationException(createExceptionResponse(bufferedStream));
+      }
       cswRecords = (CswRecordCollection) xstream.unmarshal(reader, null, argumentHolder);
     } catch (XmlPullParserException e) {
       LOGGER.debug("Unable to create XmlPullParser, and cannot parse CSW Response.", e);
     } catch (XStreamException e) {
       // If an ExceptionReport is sent from the remote CSW site it will be sent with an
       // JAX-RS "OK" status, hence the ErrorResponse exception mapper will not fire.
-      // Instead the ExceptionReport will come here and be treated like a GetRecords
-      // response, resulting in an XStreamException since ExceptionReport cannot be
-      // unmarshalled. So this catch clause is responsible for catching that XStream
-      // exception and creating a JAX-RS response containing the original stream
-      // (with the ExceptionReport) and rethrowing it as a WebApplicatioNException,
-      // which CXF will wrap as a ClientException that the CswSource catches, converts
-      // to a CswException, and logs.
-      ByteArrayInputStream bis =
-          new ByteArrayInputStream(originalInputStream.getBytes(StandardCharsets.UTF_8));
-      ResponseBuilder responseBuilder = Response.ok(bis);
-      responseBuilder.type("text/xml");
-      Response response = responseBuilder.build();
-      throw new WebApplicationException(e, response);
+      // ExceptionReports are normally recognized by their root element above; this catch clause
+      // handles any other response that cannot be unmarshalled by creating a JAX-RS response
+      // containing the start of the original stream and rethrowing it as a
+      // WebApplicationException, which CXF will wrap as a ClientException that the CswSource
+      // catches, converts to a CswException, and logs.
+      throw new WebApplicationException(e, createExceptionResponse(bufferedStream));
     } finally {
       IOUtils.closeQuietly(inStream);
     }
     return cswRecords;
   }
 
+  private boolean isExceptionReport(String rootElementName) {
+    return EXCEPTION_REPORT.equals(
+            StringUtils.substringAfter(rootElementName, CswConstants.NAMESPACE_DELIMITER))
+        || EXCEPTION_REPORT.equals(rootElementName);
+  }
+
+  /**
+   * Creates a response containing the start of the original stream, up to {@link
+   * #MAX_REPLAY_BYTES}, for the {@link
+   * org.codice.ddf.spatial.ogc.csw.catalog.common.source.CswResponseExceptionMapper}.
+   */
+  private Response createExceptionResponse(BufferedInputStream bufferedStream) {
+    byte[] replay = new byte[0];
+    try {
+      bufferedStream.reset();
+      replay = IOUtils.toByteArray(new BoundedInputStream(bufferedStream, MAX_REPLAY_BYTES));
+    } catch (IOException e) {
+      LOGGER.debug(
+          "Unable to replay the CSW response. More than {} bytes were read before it failed.",
+          MAX_REPLAY_BYTES,
+          e);
+    }
+
+    ResponseBuilder responseBuilder = Response.ok(new ByteArrayInputStream(replay));
+    responseBuilder.type("text/xml");
+    return responseBuilder.build();
+  }
+
   /**
    * Check Content-Disposition header for filename and return it
    *
@@ -19,8 +19,10 @@
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,13 +38,16 @@
 import ddf.security.encryption.EncryptionService;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import org.apache.commons.io.IOUtils;
 import org.codice.ddf.spatial.ogc.csw.catalog.common.CswAxisOrder;
 import org.codice.ddf.spatial.ogc.csw.catalog.common.CswConstants;
 import org.codice.ddf.spatial.ogc.csw.catalog.common.CswRecordCollection;
@@ -171,6 +176,33 @@ public void testGetMultipleMetacardsWithForeignText() throws Exception {
     assertThat(metacards, contains(metacard));
   }
 
+  @Test
+  public void testExceptionReport() throws Exception {
+    CswSourceConfiguration config = new CswSourceConfiguration(encryptionService);
+    config.setMetacardCswMappings(DefaultCswRecordMap.getCswToMetacardAttributeNames());
+    config.setOutputSchema(CswConstants.CSW_OUTPUT_SCHEMA);
+    GetRecordsMessageBodyReader reader = new GetRecordsMessageBodyReader(mockProvider, config);
+
+    String exceptionReport =
+        "<ows:ExceptionReport xmlns:ows=\"http://www.opengis.net/ows\" version=\"1.2.0\">"
+            + "<ows:Exception exceptionCode=\"InvalidParameterValue\" locator=\"typeNames\">"
+            + "<ows:ExceptionText>Unknown type</ows:ExceptionText>"
+            + "</ows:Exception>"
+            + "</ows:ExceptionReport>";
+    InputStream is = new ByteArrayInputStream(exceptionReport.getBytes(StandardCharsets.UTF_8));
+    MultivaluedMap<String, String> httpHeaders = new MultivaluedHashMap<>();
+
+    try {
+      reader.readFrom(CswRecordCollection.class, null, null, null, httpHeaders, is);
+      fail("Expected a WebApplicationException for an ExceptionReport.");
+    } catch (WebApplicationException e) {
+      InputStream entity = (InputStream) e.getResponse().getEntity();
+      assertThat(IOUtils.toString(entity, StandardCharsets.UTF_8), is(exceptionReport));
+    }
+
+    verify(mockProvider, never()).unmarshal(any(), any());
+  }
+
   @Test
   public void testReadProductData() throws Exception {
     CswSourceConfiguration config = new CswSourceConfiguration(encryptionService);
@@ -25,25 +25,19 @@
 import ddf.catalog.transformer.api.PrintWriterProvider;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.CharArrayWriter;
-import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -58,7 +52,6 @@
 import net.opengis.cat.csw.v_2_0_2.GetRecordsType;
 import net.opengis.cat.csw.v_2_0_2.ObjectFactory;
 import net.opengis.cat.csw.v_2_0_2.ResultType;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
 import org.codice.ddf.spatial.ogc.csw.catalog.common.CswConstants;
@@ -126,7 +119,7 @@ public class CswQueryResponseTransformer implements QueryResponseTransformer {
 
   private static final int BLOCKING_Q_INITIAL_SIZE = 1024;
 
-  private static final int ACCUM_INITIAL_SIZE = 4096;
+  private static final int RECORDS_AHEAD_PER_THREAD = 4;
 
   public CswQueryResponseTransformer(
       TransformerManager metacardTransformerManager, PrintWriterProvider writerProvider) {
@@ -142,24 +135,29 @@ public BinaryContent transform(SourceResponse sourceResponse, Map<String, Serial
 
     CswRecordCollection recordCollection = buildCollection(sourceResponse, arguments);
 
-    ByteArrayInputStream bais;
+    InputStream inputStream;
 
     if (ResultType.VALIDATE.equals(recordCollection.getResultType())) {
       ByteArrayOutputStream baos = writeAcknowledgement(recordCollection.getRequest());
-      bais = new ByteArrayInputStream(baos.toByteArray());
+      inputStream = new ByteArrayInputStream(baos.toByteArray());
     } else {
       // "catches" recordCollection.getResultType() == null
       List<Result> results = sourceResponse.getResults();
-      String xmlString = convert(recordCollection, results, arguments);
-      bais = new ByteArrayInputStream(xmlString.getBytes(StandardCharsets.UTF_8));
+      inputStream = convert(recordCollection, results, arguments);
     }
 
     BinaryContent transformedContent =
-        new BinaryContentImpl(bais, CswRecordConverter.XML_MIME_TYPE);
+        new BinaryContentImpl(inputStream, CswRecordConverter.XML_MIME_TYPE);
     return transformedContent;
   }
 
-  private String convert(
+  /**
+   * Writes the response around the records. The records themselves are transformed while the
+   * returned stream is read, so the response is never held in memory as a whole. Since the header
+   * is sent first, numberOfRecordsReturned is the number of results, including any record that is
+   * left out because it fails to transform.
+   */
+  private InputStream convert(
       CswRecordCollection cswRecordCollection,
       List<Result> results,
       Map<String, Serializable> arguments)
@@ -186,14 +184,11 @@ private String convert(
       nextRecord = 0;
     }
 
-    String metacardsString = null;
-    AtomicLong numReturned = new AtomicLong(cswRecordCollection.getNumberOfRecordsReturned());
+    InputStream records = null;
 
     if (!ResultType.HITS.equals(cswRecordCollection.getResultType())) {
       arguments.put(CswConstants.OMIT_XML_DECLARATION, Boolean.TRUE);
-      metacardsString =
-          multiThreadedMarshal(
-              results, numReturned, cswRecordCollection.getOutputSchema(), arguments);
+      records = multiThreadedMarshal(results, cswRecordCollection.getOutputSchema(), arguments);
     }
 
     if (!cswRecordCollection.isById()) {
@@ -218,7 +213,9 @@ private String convert(
       if (ResultType.HITS.equals(cswRecordCollection.getResultType())) {
         writer.addAttribute(NUMBER_OF_RECORDS_RETURNED_ATTRIBUTE, Long.toString(0));
       } else {
-        writer.addAttribute(NUMBER_OF_RECORDS_RETURNED_ATTRIBUTE, numReturned.toString());
+        writer.addAttribute(
+            NUMBER_OF_RECORDS_RETURNED_ATTRIBUTE,
+            Long.toString(cswRecordCollection.getNumberOfRecordsReturned()));
         writer.addAttribute(NEXT_RECORD_ATTRIBUTE, Long.toString(nextRecord));
       }
 
@@ -230,8 +227,11 @@ private String convert(
       }
     }
 
-    if (!ResultType.HITS.equals(cswRecordCollection.getResultType())) {
-      writer.setRawValue(metacardsString);
+    String header = "";
+    if (records != null) {
+      // closes the start tag of the node the records are written in
+      writer.setRawValue("");
+      header = writer.makeString();
     }
 
     if (!cswRecordCollection.isById()) {
@@ -240,82 +240,48 @@ private String convert(
 
     writer.endNode(); // RECORDS_RESPONSE_QNAME
 
-    return writer.makeString();
+    String document = writer.makeString();
+    if (records == null) {
+      return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String footer = document.substring(header.length());
+    return new SequenceInputStream(
+        Collections.enumeration(
+            Arrays.asList(
+                new ByteArrayInputStream(header.getBytes(StandardCharsets.UTF_8)),
+                records,
+                new ByteArrayInputStream(footer.getBytes(StandardCharsets.UTF_8)))));
   }
 
   /**
    * Multi-threaded marshal of metacard assumes that the query size is unbounded to guard against
    * resource exhaustion with fixed thread-pool and fixed work-queue. CPU-bound for optimum
-   * utilization from availableProcessors()+1 thread pool.
+   * utilization from availableProcessors()+1 thread pool. Only {@link #RECORDS_AHEAD_PER_THREAD}
+   * records per thread are transformed ahead of the reader of the returned stream.
    *
    * @param results - the list of results to marshal
    * @param recordSchema - the schema
    * @param arguments - additional args
-   * @return - the marshaled results
+   * @return - the marshaled results, in the order of the results
    * @throws CatalogTransformerException
    */
-  private String multiThreadedMarshal(
-      List<Result> results,
-      AtomicLong numResults,
-      String recordSchema,
-      final Map<String, Serializable> arguments)
+  private InputStream multiThreadedMarshal(
+      List<Result> results, String recordSchema, final Map<String, Serializable> arguments)
       throws CatalogTransformerException {
 
-    CompletionService<BinaryContent> completionService =
-        new ExecutorCompletionService<>(queryExecutor);
-
     final MetacardTransformer transformer =
         metacardTransformerManager.getTransformerBySchema(recordSchema);
     if (transformer == null) {
       throw new CatalogTransformerException("Cannot find transformer for schema: " + recordSchema);
     }
 
-    Map<Future<BinaryContent>, Result> futures = new HashMap<>(results.size());
-    for (Result result : results) {
-      final Metacard mc = result.getMetacard();
-
-      // the "current" thread will run submitted task when queueSize exceeded; effectively
-      // blocking enqueue of more tasks.
-      futures.put(
-          completionService.submit(
-              () -> {
-                BinaryContent content = transformer.transform(mc, arguments);
-                return content;
-              }),
-          result);
-    }
-
-    InputStream[] contents = new InputStream[results.size()];
-
-    while (!futures.isEmpty()) {
-      try {
-        Future<BinaryContent> completedFuture = completionService.take();
-        int index = results.indexOf(futures.get(completedFuture));
-        try {
-          contents[index] = completedFuture.get().getInputStream();
-        } catch (ExecutionException | CancellationException | InterruptedException e) {
-          LOGGER.debug("Error transforming Metacard", e);
-          numResults.decrementAndGet();
-        } finally {
-          futures.remove(completedFuture);
-        }
-      } catch (InterruptedException e) {
-        LOGGER.debug("Metacard transform interrupted", e);
-      }
-    }
-
-    CharArrayWriter accum = new CharArrayWriter(ACCUM_INITIAL_SIZE);
-    for (InputStream is : contents) {
-      try {
-        if (is != null) {
-          IOUtils.copy(is, accum);
-        }
-      } catch (IOException e) {
-        LOGGER.debug("Error copying Metacard Binary content", e);
-      }
-    }
-
-    return accum.toString();
+    return new TransformedRecordsInputStream(
+        results,
+        transformer,
+        arguments,
+        queryExecutor,
+        queryExecutor.getMaximumPoolSize() * RECORDS_AHEAD_PER_THREAD);
   } // end multiThreadedMarshal()
 
   private boolean isByIdQuery(Map<String, Serializable> arguments) {
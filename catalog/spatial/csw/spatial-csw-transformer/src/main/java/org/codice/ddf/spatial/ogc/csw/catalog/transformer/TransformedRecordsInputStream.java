@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.spatial.ogc.csw.catalog.transformer;
+
+import ddf.catalog.data.BinaryContent;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.transform.MetacardTransformer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the transformed metacards of a query response, in result order, as one stream.
+ *
+ * <p>Metacards are transformed on an executor, at most {@code maxTransformsAhead} ahead of the
+ * record being read, so a slow reader holds back the transforms instead of the transformed records
+ * accumulating in memory. A metacard that fails to transform is logged and left out.
+ */
+class TransformedRecordsInputStream extends InputStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransformedRecordsInputStream.class);
+
+  private final Iterator<Result> results;
+
+  private final MetacardTransformer transformer;
+
+  private final Map<String, Serializable> arguments;
+
+  private final ExecutorService executor;
+
+  private final int maxTransformsAhead;
+
+  private final Deque<Future<BinaryContent>> pending = new ArrayDeque<>();
+
+  private InputStream current;
+
+  private boolean closed;
+
+  /**
+   * @param results results whose metacards are transformed
+   * @param transformer transformer for the requested output schema
+   * @param arguments arguments passed to the transformer
+   * @param executor executor the transforms are run on
+   * @param maxTransformsAhead maximum number of metacards transformed or being transformed that
+   *     have not been read yet
+   */
+  TransformedRecordsInputStream(
+      List<Result> results,
+      MetacardTransformer transformer,
+      Map<String, Serializable> arguments,
+      ExecutorService executor,
+      int maxTransformsAhead) {
+    this.results = results.iterator();
+    this.transformer = transformer;
+    this.arguments = arguments;
+    this.executor = executor;
+    this.maxTransformsAhead = Math.max(1, maxTransformsAhead);
+    submitTransforms();
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] buffer = new byte[1];
+    int read = read(buffer, 0, 1);
+    return read == -1 ? -1 : buffer[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (length == 0) {
+      return 0;
+    }
+
+    while (true) {
+      if (current != null) {
+        int read = current.read(buffer, offset, length);
+        if (read != -1) {
+          return read;
+        }
+        current.close();
+        current = null;
+      }
+
+      if (pending.isEmpty()) {
+        return -1;
+      }
+      current = nextRecord();
+    }
+  }
+
+  /** Stops reading and cancels the transforms of the records that have not been read. */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    pending.forEach(future -> future.cancel(true));
+    pending.clear();
+    if (current != null) {
+      current.close();
+      current = null;
+    }
+  }
+
+  private void submitTransforms() {
+    while (pending.size() < maxTransformsAhead && results.hasNext()) {
+      final Metacard metacard = results.next().getMetacard();
+      FutureTask<BinaryContent> transform =
+          new FutureTask<>(() -> transformer.transform(metacard, arguments));
+      if (executor.isShutdown()) {
+        // a shut down executor would drop the transform rather than run it
+        transform.run();
+      } else {
+        // the executor runs the transform on this thread when its queue is full
+        executor.execute(transform);
+      }
+      pending.add(transform);
+    }
+  }
+
+  private InputStream nextRecord() throws IOException {
+    Future<BinaryContent> future = pending.remove();
+    submitTransforms();
+    try {
+      BinaryContent content = future.get();
+      return content == null ? null : content.getInputStream();
+    } catch (ExecutionException | CancellationException e) {
+      LOGGER.debug("Error transforming Metacard", e);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Metacard transform interrupted");
+    }
+  }
+}
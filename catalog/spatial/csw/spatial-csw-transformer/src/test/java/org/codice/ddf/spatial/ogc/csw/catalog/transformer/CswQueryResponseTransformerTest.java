@@ -383,16 +383,17 @@ public void testMarshalAcknowledgementWithFailedTransforms()
         new CswQueryResponseTransformer(mockTransformerManager, mockPrintWriterProvider);
     cswQueryResponseTransformer.init();
     BinaryContent content = cswQueryResponseTransformer.transform(sourceResponse, args);
+    String xml = new String(content.getByteArray());
     cswQueryResponseTransformer.destroy();
 
-    String xml = new String(content.getByteArray());
     assertThat(
         xml,
         containsString(CswQueryResponseTransformer.NUMBER_OF_RECORDS_MATCHED_ATTRIBUTE + " 6"));
     assertThat(
         xml,
-        containsString(CswQueryResponseTransformer.NUMBER_OF_RECORDS_RETURNED_ATTRIBUTE + " 5"));
+        containsString(CswQueryResponseTransformer.NUMBER_OF_RECORDS_RETURNED_ATTRIBUTE + " 6"));
     assertThat(xml, containsString(CswQueryResponseTransformer.NEXT_RECORD_ATTRIBUTE + " 0"));
+    assertThat(StringUtils.countMatches(xml, "id_"), is(5));
   }
 
   @Test
@@ -421,7 +422,8 @@ public void verifyResultOrderIsMaintained() throws CatalogTransformerException,
 
     // given
     transformer.init();
-    transformer.transform(mockSourceResponse, mockArguments);
+    BinaryContent content = transformer.transform(mockSourceResponse, mockArguments);
+    String order = new String(content.getByteArray());
     transformer.destroy();
 
     // then
@@ -432,9 +434,6 @@ public void verifyResultOrderIsMaintained() throws CatalogTransformerException,
     ArgumentCaptor<Metacard> mcCaptor = ArgumentCaptor.forClass(Metacard.class);
     verify(mockMetacardTransformer, times(10)).transform(mcCaptor.capture(), mapCaptor.capture());
 
-    ArgumentCaptor<String> strCaptor = ArgumentCaptor.forClass(String.class);
-    verify(mockPrintWriter, times(2)).setRawValue(strCaptor.capture());
-    String order = strCaptor.getAllValues().get(1);
     String[] ids = order.split(",");
     for (int i = 1; i < ids.length; i++) {
       assertThat(ids[i - 1], is(String.valueOf("id_" + i)));
@@ -40,6 +40,7 @@
 import ddf.catalog.operation.impl.DeleteRequestImpl;
 import ddf.catalog.operation.impl.QueryImpl;
 import ddf.catalog.operation.impl.QueryRequestImpl;
+import ddf.catalog.plugin.PluginExecutionException;
 import ddf.catalog.source.CatalogProvider;
 import ddf.catalog.source.IngestException;
 import ddf.catalog.source.SourceUnavailableException;
@@ -67,6 +68,7 @@
 import org.codice.ddf.spatial.geocoding.GeoEntryIndexingException;
 import org.codice.ddf.spatial.geocoding.GeoNamesRemoteDownloadException;
 import org.codice.ddf.spatial.geocoding.ProgressCallback;
+import org.codice.ddf.spatial.geocoding.query.GazetteerIndexPlugin;
 import org.opengis.filter.Filter;
 import org.opengis.filter.sort.SortBy;
 import org.slf4j.Logger;
@@ -95,6 +97,8 @@ public class GeoNamesCatalogIndexer implements GeoEntryIndexer {
 
   private FilterBuilder filterBuilder;
 
+  private GazetteerIndexPlugin gazetteerIndexPlugin;
+
   public GeoNamesCatalogIndexer(
       CatalogFramework catalogFramework,
       UuidGenerator uuidGenerator,
@@ -120,6 +124,14 @@ public GeoNamesCatalogIndexer(
                 .text(GAZETTEER_METACARD_TAG));
   }
 
+  /**
+   * @param gazetteerIndexPlugin plugin told about the metacards deleted from the catalog provider,
+   *     since deleting them through the provider skips the post-ingest plugins
+   */
+  public void setGazetteerIndexPlugin(GazetteerIndexPlugin gazetteerIndexPlugin) {
+    this.gazetteerIndexPlugin = gazetteerIndexPlugin;
+  }
+
   private Metacard transformGeoEntryToMetacard(GeoEntry geoEntry) {
     if (!GeoCodingConstants.CITY_FEATURE_CODES.contains(geoEntry.getFeatureCode())) {
       return null;
@@ -291,6 +303,13 @@ private void removeMetacards(
       DeleteResponse deleteResponse = catalogProvider.delete(deleteRequest);
       List<Metacard> deletedMetacards = deleteResponse.getDeletedMetacards();
       LOGGER.debug("{} metacards deleted.", deletedMetacards == null ? 0 : deletedMetacards.size());
+      if (gazetteerIndexPlugin != null && deletedMetacards != null) {
+        try {
+          gazetteerIndexPlugin.process(deleteResponse);
+        } catch (PluginExecutionException e) {
+          LOGGER.debug("Unable to remove the deleted metacards from the gazetteer index.", e);
+        }
+      }
       extractionCallback.updateProgress((int) (((double) (i + 1) / metacards.size()) * 50));
     }
   }
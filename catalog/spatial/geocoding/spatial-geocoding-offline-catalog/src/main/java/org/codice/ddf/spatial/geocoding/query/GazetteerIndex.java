@@ -0,0 +1,854 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.spatial.geocoding.query;
+
+import static org.codice.ddf.spatial.geocoding.GeoCodingConstants.GAZETTEER_METACARD_TAG;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.Result;
+import ddf.catalog.data.types.Core;
+import ddf.catalog.filter.FilterBuilder;
+import ddf.catalog.operation.impl.QueryImpl;
+import ddf.catalog.operation.impl.QueryRequestImpl;
+import ddf.catalog.util.impl.CatalogQueryException;
+import ddf.catalog.util.impl.ResultIterable;
+import ddf.security.service.SecurityServiceException;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import org.codice.ddf.security.common.Security;
+import org.codice.ddf.spatial.geocoding.GeoCodingConstants;
+import org.codice.ddf.spatial.geocoding.GeoEntryAttributes;
+import org.codice.ddf.spatial.geocoding.Suggestion;
+import org.codice.ddf.spatial.geocoding.context.impl.SuggestionImpl;
+import org.opengis.filter.sort.SortBy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the gazetteer metacards, used to answer place name suggestions and nearest
+ * city lookups without querying the catalog.
+ *
+ * <p>Names are kept in a sorted map keyed by every word of the lower case name, so a prefix of any
+ * word finds the place. Matches are ranked like the catalog's suggester: by gazetteer sort value,
+ * then by population. Prefixes of one or two letters match a large part of the names, so their best
+ * matches are kept until the index changes rather than ranked again for every request. Places with
+ * a location are also kept in a grid of one degree cells, and a radius lookup only visits the cells
+ * that overlap the radius.
+ *
+ * <p>When enabled, the index is read from a snapshot file if there is one, and otherwise loaded
+ * from the catalog. It is then kept up to date by {@link GazetteerIndexPlugin}. The snapshot is
+ * deleted as soon as the index changes and written again shortly after, so a snapshot that exists
+ * is never older than the catalog.
+ */
+public class GazetteerIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GazetteerIndex.class);
+
+  private static final String ENABLED = "enabled";
+
+  private static final int FILE_MAGIC = 0x47415a49;
+
+  private static final int FILE_VERSION = 1;
+
+  private static final int LOAD_BATCH_SIZE = 1000;
+
+  private static final long LOAD_TIMEOUT = TimeUnit.SECONDS.toMillis(90);
+
+  private static final long SAVE_DELAY_SECONDS = 60;
+
+  private static final long RETRY_DELAY_SECONDS = 60;
+
+  private static final double KM_PER_DEGREE = 111.195;
+
+  private static final double EARTH_RADIUS_IN_KM = 6371.0088;
+
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private static final int SHORT_PREFIX_LENGTH = 2;
+
+  private static final ThreadLocal<WKTReader> WKT_READER_THREAD_LOCAL =
+      ThreadLocal.withInitial(WKTReader::new);
+
+  /** Orders places from the best suggestion to the worst. */
+  private static final Comparator<Place> BY_RANK =
+      Comparator.comparingInt((Place place) -> place.sortValue)
+          .thenComparingLong(place -> place.population)
+          .reversed()
+          .thenComparing(place -> place.title);
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<String, Place> places = new HashMap<>();
+
+  private final NavigableMap<String, Place> names = new TreeMap<>();
+
+  private final Map<Integer, List<Place>> cells = new HashMap<>();
+
+  /** Best matches of the short prefixes, cleared whenever the index changes. */
+  private final Map<String, RankedPlaces> shortPrefixMatches = new ConcurrentHashMap<>();
+
+  /** IDs of places deleted while the index was being loaded from the catalog. */
+  private final Set<String> removedWhileLoading = new HashSet<>();
+
+  private final CatalogFramework catalogFramework;
+
+  private final FilterBuilder filterBuilder;
+
+  private final ScheduledExecutorService executor;
+
+  private final Security security;
+
+  private Path indexFile;
+
+  private boolean enabled;
+
+  private volatile boolean available;
+
+  private boolean loading;
+
+  private boolean modified;
+
+  private ScheduledFuture<?> pendingSave;
+
+  public GazetteerIndex(
+      CatalogFramework catalogFramework,
+      FilterBuilder filterBuilder,
+      ScheduledExecutorService executor) {
+    this(catalogFramework, filterBuilder, executor, Security.getInstance());
+  }
+
+  GazetteerIndex(
+      CatalogFramework catalogFramework,
+      FilterBuilder filterBuilder,
+      ScheduledExecutorService executor,
+      Security security) {
+    this.catalogFramework = catalogFramework;
+    this.filterBuilder = filterBuilder;
+    this.executor = executor;
+    this.security = security;
+  }
+
+  public void init() {
+    if (enabled) {
+      scheduleOpen(0);
+    }
+  }
+
+  public void destroy() {
+    synchronized (this) {
+      if (pendingSave != null) {
+        pendingSave.cancel(false);
+      }
+      if (modified) {
+        save();
+      }
+      enabled = false;
+      available = false;
+    }
+    executor.shutdownNow();
+  }
+
+  public void updateConfiguration(Map<String, Object> properties) {
+    boolean enable =
+        Optional.ofNullable(properties)
+            .map(p -> p.get(ENABLED))
+            .filter(Boolean.class::isInstance)
+            .map(Boolean.class::cast)
+            .orElse(false);
+
+    synchronized (this) {
+      if (enable == enabled) {
+        return;
+      }
+      enabled = enable;
+    }
+
+    if (enable) {
+      LOGGER.debug("Enabling the in-memory gazetteer index.");
+      scheduleOpen(0);
+    } else {
+      LOGGER.debug("Disabling the in-memory gazetteer index.");
+      close();
+    }
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setIndexFile(String indexFile) {
+    this.indexFile = Paths.get(indexFile);
+  }
+
+  /** @return {@code true} if the index is enabled and holds every gazetteer metacard */
+  public boolean isAvailable() {
+    return available;
+  }
+
+  /**
+   * @param queryString the start of a word in the place names
+   * @param maxResults the maximum number of suggestions
+   * @return the best ranked places with a word starting with {@code queryString}
+   */
+  public List<Suggestion> getSuggestedNames(String queryString, int maxResults) {
+    String prefix = normalize(queryString).trim();
+    if (prefix.isEmpty() || maxResults < 1) {
+      return Collections.emptyList();
+    }
+
+    List<Place> best;
+    lock.readLock().lock();
+    try {
+      if (prefix.length() > SHORT_PREFIX_LENGTH) {
+        best = findBest(prefix, maxResults);
+      } else {
+        RankedPlaces ranked = shortPrefixMatches.get(prefix);
+        if (ranked == null || ranked.limit < maxResults) {
+          ranked = new RankedPlaces(findBest(prefix, maxResults), maxResults);
+          if (!ranked.places.isEmpty()) {
+            // kept while holding the read lock, so a change to the index can't be missed
+            shortPrefixMatches.put(prefix, ranked);
+          }
+        }
+        best = ranked.places.subList(0, Math.min(maxResults, ranked.places.size()));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    return best.stream()
+        .map(place -> new SuggestionImpl(place.id, place.title))
+        .collect(Collectors.toList());
+  }
+
+  /** @return the best ranked places with a word starting with {@code prefix}, best first */
+  private List<Place> findBest(String prefix, int maxResults) {
+    PriorityQueue<Place> best = new PriorityQueue<>(BY_RANK.reversed());
+    Set<Place> seen = new HashSet<>();
+    for (Place place : names.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+      if (seen.add(place)) {
+        best.add(place);
+        if (best.size() > maxResults) {
+          best.poll();
+        }
+      }
+    }
+    return best.stream().sorted(BY_RANK).collect(Collectors.toList());
+  }
+
+  /**
+   * @param latitude latitude of the center, in degrees
+   * @param longitude longitude of the center, in degrees
+   * @param radiusInKm the search radius
+   * @param maxResults the maximum number of cities to return
+   * @return the cities within the radius, nearest first
+   */
+  List<Place> getNearestCities(double latitude, double longitude, int radiusInKm, int maxResults) {
+    List<Place> cities = new ArrayList<>();
+
+    lock.readLock().lock();
+    try {
+      for (int cell : getCells(latitude, longitude, radiusInKm)) {
+        for (Place place : cells.getOrDefault(cell, Collections.emptyList())) {
+          if (!GeoCodingConstants.CITY_FEATURE_CODES.contains(place.featureCode)) {
+            continue;
+          }
+          if (getDistanceInKm(latitude, longitude, place.latitude, place.longitude) <= radiusInKm) {
+            cities.add(place);
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    cities.sort(
+        Comparator.comparingDouble(
+            place -> getDistanceInKm(latitude, longitude, place.latitude, place.longitude)));
+    return cities.size() > maxResults ? cities.subList(0, maxResults) : cities;
+  }
+
+  /** Adds or replaces the place described by a gazetteer metacard. */
+  void add(Metacard metacard) {
+    Place place = Place.fromMetacard(metacard);
+    if (place == null) {
+      LOGGER.debug("Gazetteer metacard {} has no title. Not indexing it.", metacard.getId());
+      return;
+    }
+
+    lock.writeLock().lock();
+    try {
+      removeFromIndex(place.id);
+      addToIndex(place);
+      if (loading) {
+        removedWhileLoading.remove(place.id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    changed();
+  }
+
+  /** Removes the place with the given metacard ID. */
+  void remove(String id) {
+    lock.writeLock().lock();
+    try {
+      removeFromIndex(id);
+      if (loading) {
+        removedWhileLoading.add(id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    changed();
+  }
+
+  /** @return {@code true} if changes from the catalog should be applied to the index */
+  synchronized boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return the number of indexed places */
+  int size() {
+    lock.readLock().lock();
+    try {
+      return places.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Reads the snapshot or, if there isn't one, loads the gazetteer metacards from the catalog. */
+  void open() {
+    synchronized (this) {
+      if (!enabled || available) {
+        return;
+      }
+    }
+
+    boolean loaded = load();
+    if (!loaded) {
+      setLoading(true);
+      try {
+        loaded =
+            security.runAsAdmin(
+                () -> {
+                  try {
+                    return security.runWithSubjectOrElevate(this::loadFromCatalog);
+                  } catch (SecurityServiceException | InvocationTargetException e) {
+                    LOGGER.debug("Unable to load the gazetteer index from the catalog.", e);
+                    return false;
+                  }
+                });
+      } finally {
+        setLoading(false);
+      }
+    }
+
+    synchronized (this) {
+      if (!loaded) {
+        LOGGER.info(
+            "Unable to load the in-memory gazetteer index. Retrying in {} seconds.",
+            RETRY_DELAY_SECONDS);
+        scheduleOpen(RETRY_DELAY_SECONDS);
+        return;
+      }
+      available = enabled;
+    }
+    LOGGER.debug("In-memory gazetteer index holds {} places.", size());
+  }
+
+  /**
+   * Reads the snapshot file into the index.
+   *
+   * @return {@code true} if the snapshot was read
+   */
+  boolean load() {
+    Path file = indexFile;
+    if (file == null || !Files.exists(file)) {
+      return false;
+    }
+
+    List<Place> loaded = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+        LOGGER.debug("Ignoring gazetteer index file {} with an unknown format.", file);
+        return false;
+      }
+
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        loaded.add(Place.read(buffer));
+      }
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      LOGGER.info("Unable to read the gazetteer index file {}", file, e);
+      return false;
+    }
+
+    lock.writeLock().lock();
+    try {
+      for (Place place : loaded) {
+        removeFromIndex(place.id);
+        addToIndex(place);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    LOGGER.debug("Read {} places from the gazetteer index file {}", loaded.size(), file);
+    return true;
+  }
+
+  /** Writes the index to the snapshot file, unless it is still being loaded. */
+  synchronized void save() {
+    Path file = indexFile;
+    if (file == null || !available) {
+      return;
+    }
+
+    lock.readLock().lock();
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+      try (OutputStream output = Files.newOutputStream(temporary);
+          DataOutputStream data = new DataOutputStream(output)) {
+        data.writeInt(FILE_MAGIC);
+        data.writeInt(FILE_VERSION);
+        data.writeInt(places.size());
+        for (Place place : places.values()) {
+          place.write(data);
+        }
+      }
+      Files.move(
+          temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      modified = false;
+    } catch (IOException e) {
+      LOGGER.info("Unable to write the gazetteer index file {}", file, e);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private boolean loadFromCatalog() {
+    QueryImpl query =
+        new QueryImpl(
+            filterBuilder.attribute(Core.METACARD_TAGS).is().like().text(GAZETTEER_METACARD_TAG),
+            1,
+            LOAD_BATCH_SIZE,
+            SortBy.NATURAL_ORDER,
+            false,
+            LOAD_TIMEOUT);
+
+    List<Place> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+    try {
+      for (Result result :
+          ResultIterable.resultIterable(catalogFramework, new QueryRequestImpl(query))) {
+        Place place = Place.fromMetacard(result.getMetacard());
+        if (place != null) {
+          batch.add(place);
+        }
+        if (batch.size() == LOAD_BATCH_SIZE) {
+          addLoaded(batch);
+          batch.clear();
+        }
+      }
+    } catch (CatalogQueryException e) {
+      LOGGER.debug("Unable to query the gazetteer metacards.", e);
+      return false;
+    }
+    addLoaded(batch);
+
+    changed();
+    LOGGER.debug("Loaded the gazetteer index from the catalog.");
+    return true;
+  }
+
+  private void addLoaded(List<Place> loaded) {
+    lock.writeLock().lock();
+    try {
+      for (Place place : loaded) {
+        // changes that reached the index while loading are newer than the query results
+        if (!places.containsKey(place.id) && !removedWhileLoading.contains(place.id)) {
+          addToIndex(place);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void scheduleOpen(long delaySeconds) {
+    try {
+      executor.schedule(this::open, delaySeconds, TimeUnit.SECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Unable to open the gazetteer index.", e);
+    }
+  }
+
+  private void close() {
+    synchronized (this) {
+      available = false;
+      modified = false;
+      if (pendingSave != null) {
+        pendingSave.cancel(false);
+      }
+    }
+
+    lock.writeLock().lock();
+    try {
+      places.clear();
+      names.clear();
+      cells.clear();
+      shortPrefixMatches.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    // changes made while disabled are not tracked, so the snapshot can't be trusted anymore
+    deleteIndexFile();
+  }
+
+  private void setLoading(boolean loading) {
+    lock.writeLock().lock();
+    try {
+      this.loading = loading;
+      removedWhileLoading.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private synchronized void changed() {
+    if (!modified) {
+      modified = true;
+      deleteIndexFile();
+    }
+
+    if (pendingSave == null || pendingSave.isDone()) {
+      try {
+        pendingSave = executor.schedule(this::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+      } catch (RejectedExecutionException e) {
+        LOGGER.debug("Unable to schedule writing the gazetteer index file.", e);
+      }
+    }
+  }
+
+  private void deleteIndexFile() {
+    if (indexFile == null) {
+      return;
+    }
+
+    try {
+      Files.deleteIfExists(indexFile);
+    } catch (IOException e) {
+      LOGGER.debug("Unable to delete the gazetteer index file {}", indexFile, e);
+    }
+  }
+
+  private void addToIndex(Place place) {
+    shortPrefixMatches.clear();
+    places.put(place.id, place);
+    for (String word : getWords(place.title)) {
+      names.put(word + KEY_SEPARATOR + place.id, place);
+    }
+    if (place.hasLocation()) {
+      cells
+          .computeIfAbsent(getCell(place.latitude, place.longitude), k -> new ArrayList<>())
+          .add(place);
+    }
+  }
+
+  private void removeFromIndex(String id) {
+    Place place = places.remove(id);
+    if (place == null) {
+      return;
+    }
+
+    shortPrefixMatches.clear();
+    for (String word : getWords(place.title)) {
+      names.remove(word + KEY_SEPARATOR + place.id);
+    }
+    if (place.hasLocation()) {
+      int cell = getCell(place.latitude, place.longitude);
+      List<Place> cellPlaces = cells.get(cell);
+      if (cellPlaces != null) {
+        cellPlaces.remove(place);
+        if (cellPlaces.isEmpty()) {
+          cells.remove(cell);
+        }
+      }
+    }
+  }
+
+  /** @return the lower case name starting at each of its words */
+  private static Set<String> getWords(String title) {
+    String name = normalize(title);
+    Set<String> words = new LinkedHashSet<>();
+    for (int i = 0; i < name.length(); i++) {
+      if (Character.isLetterOrDigit(name.charAt(i))
+          && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+        words.add(name.substring(i));
+      }
+    }
+    return words;
+  }
+
+  private static String normalize(String name) {
+    return name == null ? "" : name.toLowerCase(Locale.ROOT);
+  }
+
+  private static int getCell(double latitude, double longitude) {
+    return getCellIndex((int) Math.floor(latitude), (int) Math.floor(longitude));
+  }
+
+  private static int getCellIndex(int latitude, int longitude) {
+    return (Math.min(Math.max(latitude, -90), 89) + 90) * 360 + Math.floorMod(longitude + 180, 360);
+  }
+
+  /** @return the cells that overlap the circle around the center */
+  private static Set<Integer> getCells(double latitude, double longitude, double radiusInKm) {
+    double latitudeSpan = radiusInKm / KM_PER_DEGREE;
+    int minLatitude = (int) Math.floor(Math.max(-90, latitude - latitudeSpan));
+    int maxLatitude = (int) Math.floor(Math.min(90, latitude + latitudeSpan));
+
+    double farthestLatitude =
+        Math.min(
+            90, Math.max(Math.abs(latitude - latitudeSpan), Math.abs(latitude + latitudeSpan)));
+    double cosine = Math.cos(Math.toRadians(farthestLatitude));
+    double longitudeSpan = cosine <= 0 ? 180 : latitudeSpan / cosine;
+
+    int minLongitude;
+    int maxLongitude;
+    if (longitudeSpan >= 180) {
+      minLongitude = -180;
+      maxLongitude = 179;
+    } else {
+      minLongitude = (int) Math.floor(longitude - longitudeSpan);
+      maxLongitude = (int) Math.floor(longitude + longitudeSpan);
+    }
+
+    Set<Integer> overlapping = new HashSet<>();
+    for (int lat = minLatitude; lat <= maxLatitude; lat++) {
+      for (int lon = minLongitude; lon <= maxLongitude; lon++) {
+        overlapping.add(getCellIndex(lat, lon));
+      }
+    }
+    return overlapping;
+  }
+
+  private static double getDistanceInKm(
+      double latitude1, double longitude1, double latitude2, double longitude2) {
+    double latitudeDifference = Math.toRadians(latitude2 - latitude1);
+    double longitudeDifference = Math.toRadians(longitude2 - longitude1);
+    double a =
+        Math.sin(latitudeDifference / 2) * Math.sin(latitudeDifference / 2)
+            + Math.cos(Math.toRadians(latitude1))
+                * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(longitudeDifference / 2)
+                * Math.sin(longitudeDifference / 2);
+    return 2 * EARTH_RADIUS_IN_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  /** A place in the index. */
+  private static class RankedPlaces {
+    private final List<Place> places;
+
+    /** The maximum number of places that were looked for. */
+    private final int limit;
+
+    RankedPlaces(List<Place> places, int limit) {
+      this.places = places;
+      this.limit = limit;
+    }
+  }
+
+  static class Place {
+    private final String id;
+
+    private final String title;
+
+    private final String featureCode;
+
+    private final long population;
+
+    private final int sortValue;
+
+    private final double latitude;
+
+    private final double longitude;
+
+    Place(
+        String id,
+        String title,
+        String featureCode,
+        long population,
+        int sortValue,
+        double latitude,
+        double longitude) {
+      this.id = id;
+      this.title = title;
+      this.featureCode = featureCode;
+      this.population = population;
+      this.sortValue = sortValue;
+      this.latitude = latitude;
+      this.longitude = longitude;
+    }
+
+    String getTitle() {
+      return title;
+    }
+
+    double getLatitude() {
+      return latitude;
+    }
+
+    double getLongitude() {
+      return longitude;
+    }
+
+    boolean hasLocation() {
+      return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    static Place fromMetacard(Metacard metacard) {
+      String id = metacard.getId();
+      String title = getValue(metacard, Core.TITLE, String.class);
+      if (id == null || title == null) {
+        return null;
+      }
+
+      Long population =
+          getValue(metacard, GeoEntryAttributes.POPULATION_ATTRIBUTE_NAME, Long.class);
+      Integer sortValue =
+          getValue(metacard, GeoEntryAttributes.GAZETTEER_SORT_VALUE, Integer.class);
+
+      double latitude = Double.NaN;
+      double longitude = Double.NaN;
+      String location = getValue(metacard, Core.LOCATION, String.class);
+      if (location != null && !location.isEmpty()) {
+        try {
+          Geometry geometry = WKT_READER_THREAD_LOCAL.get().read(location);
+          Coordinate coordinate = geometry.getCoordinate();
+          if (coordinate != null) {
+            latitude = coordinate.y;
+            longitude = coordinate.x;
+          }
+        } catch (com.vividsolutions.jts.io.ParseException e) {
+          LOGGER.debug("Gazetteer metacard {} has an invalid location.", id);
+        }
+      }
+
+      return new Place(
+          id,
+          title,
+          getValue(metacard, GeoEntryAttributes.FEATURE_CODE_ATTRIBUTE_NAME, String.class),
+          population == null ? 0 : population,
+          sortValue == null ? 0 : sortValue,
+          latitude,
+          longitude);
+    }
+
+    static Place read(ByteBuffer buffer) {
+      return new Place(
+          readString(buffer),
+          readString(buffer),
+          readString(buffer),
+          buffer.getLong(),
+          buffer.getInt(),
+          buffer.getDouble(),
+          buffer.getDouble());
+    }
+
+    void write(DataOutputStream output) throws IOException {
+      writeString(output, id);
+      writeString(output, title);
+      writeString(output, featureCode);
+      output.writeLong(population);
+      output.writeInt(sortValue);
+      output.writeDouble(latitude);
+      output.writeDouble(longitude);
+    }
+
+    private static <T> T getValue(Metacard metacard, String name, Class<T> type) {
+      Attribute attribute = metacard.getAttribute(name);
+      if (attribute != null) {
+        Serializable value = attribute.getValue();
+        if (type.isInstance(value)) {
+          return type.cast(value);
+        }
+      }
+      return null;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+      int length = buffer.getInt();
+      if (length < 0) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+      if (value == null) {
+        output.writeInt(-1);
+        return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+}
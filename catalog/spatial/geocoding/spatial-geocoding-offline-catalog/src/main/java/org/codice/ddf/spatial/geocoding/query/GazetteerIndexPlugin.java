@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.spatial.geocoding.query;
+
+import static org.codice.ddf.spatial.geocoding.GeoCodingConstants.GAZETTEER_METACARD_TAG;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.operation.CreateResponse;
+import ddf.catalog.operation.DeleteResponse;
+import ddf.catalog.operation.Update;
+import ddf.catalog.operation.UpdateResponse;
+import ddf.catalog.plugin.PluginExecutionException;
+import ddf.catalog.plugin.PostIngestPlugin;
+import java.util.List;
+
+/** Applies created, updated and deleted gazetteer metacards to the {@link GazetteerIndex}. */
+public class GazetteerIndexPlugin implements PostIngestPlugin {
+
+  private final GazetteerIndex gazetteerIndex;
+
+  public GazetteerIndexPlugin(GazetteerIndex gazetteerIndex) {
+    this.gazetteerIndex = gazetteerIndex;
+  }
+
+  @Override
+  public CreateResponse process(CreateResponse input) throws PluginExecutionException {
+    if (gazetteerIndex.isEnabled()) {
+      addGazetteerMetacards(input.getCreatedMetacards());
+    }
+    return input;
+  }
+
+  @Override
+  public UpdateResponse process(UpdateResponse input) throws PluginExecutionException {
+    if (gazetteerIndex.isEnabled()) {
+      for (Update update : input.getUpdatedMetacards()) {
+        Metacard newMetacard = update.getNewMetacard();
+        if (isGazetteerMetacard(newMetacard)) {
+          gazetteerIndex.add(newMetacard);
+        } else if (isGazetteerMetacard(update.getOldMetacard())) {
+          gazetteerIndex.remove(update.getOldMetacard().getId());
+        }
+      }
+    }
+    return input;
+  }
+
+  @Override
+  public DeleteResponse process(DeleteResponse input) throws PluginExecutionException {
+    if (gazetteerIndex.isEnabled()) {
+      input
+          .getDeletedMetacards()
+          .stream()
+          .filter(this::isGazetteerMetacard)
+          .map(Metacard::getId)
+          .forEach(gazetteerIndex::remove);
+    }
+    return input;
+  }
+
+  private void addGazetteerMetacards(List<Metacard> metacards) {
+    metacards.stream().filter(this::isGazetteerMetacard).forEach(gazetteerIndex::add);
+  }
+
+  private boolean isGazetteerMetacard(Metacard metacard) {
+    return metacard != null && metacard.getTags().contains(GAZETTEER_METACARD_TAG);
+  }
+}
@@ -99,6 +99,8 @@ public class GazetteerQueryCatalog implements GeoEntryQueryable {
 
   private List<Filter> featureCodeFilters;
 
+  private GazetteerIndex gazetteerIndex;
+
   public GazetteerQueryCatalog(CatalogFramework catalogFramework, FilterBuilder filterBuilder) {
     this.catalogFramework = catalogFramework;
     this.filterBuilder = filterBuilder;
@@ -118,6 +120,14 @@ public GazetteerQueryCatalog(CatalogFramework catalogFramework, FilterBuilder fi
         filterBuilder.attribute(Core.METACARD_TAGS).is().like().text(GAZETTEER_METACARD_TAG);
   }
 
+  /**
+   * @param gazetteerIndex index used for suggestions and nearest cities, instead of querying the
+   *     catalog, while it is available
+   */
+  public void setGazetteerIndex(GazetteerIndex gazetteerIndex) {
+    this.gazetteerIndex = gazetteerIndex;
+  }
+
   @Override
   public List<GeoEntry> query(String queryString, int maxResults) throws GeoEntryQueryException {
     Filter textFilter = filterBuilder.attribute(Core.TITLE).is().like().text(queryString);
@@ -176,6 +186,10 @@ public GeoEntry queryById(String id) throws GeoEntryQueryException {
   @Override
   public List<Suggestion> getSuggestedNames(String queryString, int maxResults)
       throws GeoEntryQueryException {
+    if (isGazetteerIndexAvailable()) {
+      return gazetteerIndex.getSuggestedNames(queryString, maxResults);
+    }
+
     Map<String, Serializable> suggestProps = new HashMap<>();
     suggestProps.put(SUGGESTION_QUERY_KEY, queryString);
     suggestProps.put(SUGGESTION_CONTEXT_KEY, GAZETTEER_METACARD_TAG);
@@ -269,6 +283,13 @@ private String getStringAttributeFromMetacard(Metacard metacard, String attribut
   @Override
   public List<NearbyLocation> getNearestCities(String location, int radiusInKm, int maxResults)
       throws ParseException, GeoEntryQueryException {
+    if (isGazetteerIndexAvailable()) {
+      Optional<Point> center = getPoint(location);
+      if (center.isPresent()) {
+        return getNearestCitiesFromIndex(center.get(), radiusInKm, maxResults);
+      }
+    }
+
     Filter featureCodeFilter = filterBuilder.anyOf(featureCodeFilters);
     int radiusInMeters = radiusInKm * KM_TO_M;
 
@@ -295,6 +316,39 @@ public List<NearbyLocation> getNearestCities(String location, int radiusInKm, in
         .collect(Collectors.toList());
   }
 
+  private boolean isGazetteerIndexAvailable() {
+    return gazetteerIndex != null && gazetteerIndex.isAvailable();
+  }
+
+  /** @return the location if it is a point, which the index can search around */
+  private Optional<Point> getPoint(String location) {
+    try {
+      Geometry geometry = WKT_READER_THREAD_LOCAL.get().read(location);
+      if (geometry instanceof Point) {
+        return Optional.of((Point) geometry);
+      }
+    } catch (com.vividsolutions.jts.io.ParseException e) {
+      LOGGER.debug("Unable to parse location {}", location, e);
+    }
+    return Optional.empty();
+  }
+
+  private List<NearbyLocation> getNearestCitiesFromIndex(
+      Point center, int radiusInKm, int maxResults) {
+    // same axis order as transformMetacardToNearbyLocation, so both give the same results
+    PointImpl centerPoint = new PointImpl(center.getY(), center.getX(), SPATIAL_CONTEXT);
+    return gazetteerIndex
+        .getNearestCities(center.getY(), center.getX(), radiusInKm, maxResults)
+        .stream()
+        .map(
+            place ->
+                new NearbyLocationImpl(
+                    centerPoint,
+                    new PointImpl(place.getLatitude(), place.getLongitude(), SPATIAL_CONTEXT),
+                    place.getTitle()))
+        .collect(Collectors.toList());
+  }
+
   private NearbyLocation transformMetacardToNearbyLocation(String location, Metacard metacard) {
     String metacardLocation = getStringAttributeFromMetacard(metacard, Core.LOCATION);
     String name = getStringAttributeFromMetacard(metacard, Core.TITLE);
@@ -49,6 +49,7 @@
 import org.codice.ddf.spatial.geocoding.GeoEntryCreator;
 import org.codice.ddf.spatial.geocoding.ProgressCallback;
 import org.codice.ddf.spatial.geocoding.extract.GeoNamesFileExtractor;
+import org.codice.ddf.spatial.geocoding.query.GazetteerIndexPlugin;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -173,6 +174,17 @@ public void testUpdateIndexWithCreate() throws Exception {
     verify(catalogFramework, times(2)).query(any(QueryRequest.class));
   }
 
+  @Test
+  public void testUpdateIndexWithCreateRemovesDeletedMetacardsFromGazetteerIndex()
+      throws Exception {
+    GazetteerIndexPlugin gazetteerIndexPlugin = mock(GazetteerIndexPlugin.class);
+    geoNamesCatalogIndexer.setGazetteerIndexPlugin(gazetteerIndexPlugin);
+    setupTestForCreate();
+    geoNamesCatalogIndexer.updateIndex(GOOD_FILE_PATH, geoEntryExtractor, true, progressCallback);
+    verify(catalogProvider, times(1)).delete(any(DeleteRequest.class));
+    verify(gazetteerIndexPlugin, times(1)).process(any(DeleteResponse.class));
+  }
+
   @Test
   public void testUpdateIndexWithCreateIngestException() throws Exception {
     when(catalogProvider.delete(any(DeleteRequest.class))).thenThrow(IngestException.class);
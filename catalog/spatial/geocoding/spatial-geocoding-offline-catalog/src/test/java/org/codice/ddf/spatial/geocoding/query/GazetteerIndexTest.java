@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.spatial.geocoding.query;
+
+import static org.codice.ddf.spatial.geocoding.GeoCodingConstants.GAZETTEER_METACARD_TAG;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.MetacardType;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.impl.MetacardTypeImpl;
+import ddf.catalog.data.impl.ResultImpl;
+import ddf.catalog.data.impl.types.LocationAttributes;
+import ddf.catalog.data.types.Core;
+import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
+import ddf.catalog.operation.QueryRequest;
+import ddf.catalog.operation.impl.QueryResponseImpl;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import org.codice.ddf.security.common.Security;
+import org.codice.ddf.spatial.geocoding.GeoEntryAttributes;
+import org.codice.ddf.spatial.geocoding.Suggestion;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GazetteerIndexTest {
+
+  private static final MetacardType GEO_ENTRY_METACARD_TYPE =
+      new MetacardTypeImpl(
+          "GeoEntryAttributes", Arrays.asList(new LocationAttributes(), new GeoEntryAttributes()));
+
+  private static final double BOSTON_LATITUDE = 42.35771940022451;
+
+  private static final double BOSTON_LONGITUDE = -71.0595703125;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private CatalogFramework catalogFramework;
+
+  private Security security;
+
+  private GazetteerIndex gazetteerIndex;
+
+  @Before
+  public void setUp() throws Exception {
+    catalogFramework = mock(CatalogFramework.class);
+    security = mock(Security.class);
+    doAnswer(invocation -> ((PrivilegedAction) invocation.getArguments()[0]).run())
+        .when(security)
+        .runAsAdmin(any(PrivilegedAction.class));
+    doAnswer(invocation -> ((Callable) invocation.getArguments()[0]).call())
+        .when(security)
+        .runWithSubjectOrElevate(any(Callable.class));
+    when(catalogFramework.query(any(QueryRequest.class)))
+        .thenReturn(new QueryResponseImpl(mock(QueryRequest.class), Collections.emptyList(), 0));
+
+    gazetteerIndex = createGazetteerIndex();
+  }
+
+  @Test
+  public void testSuggestionsMatchAnyWordAndAreRanked() {
+    gazetteerIndex.add(createMetacard("1", "Newton, US", "PPL", 88_000L, 0, 42.33, -71.20));
+    gazetteerIndex.add(createMetacard("2", "New York, US", "PPL", 8_000_000L, 0, 40.71, -74.0));
+    gazetteerIndex.add(createMetacard("3", "Port Newark, US", "PPL", 1_000L, 0, 40.69, -74.15));
+    gazetteerIndex.add(createMetacard("4", "Boston, US", "PPL", 600_000L, 0, 42.36, -71.06));
+
+    assertThat(getSuggestedIds("new", 10), contains("2", "1", "3"));
+    assertThat(getSuggestedIds("NEW Y", 10), contains("2"));
+    assertThat(getSuggestedIds("york", 10), contains("2"));
+    assertThat(getSuggestedIds("new", 2), contains("2", "1"));
+    assertThat(getSuggestedIds("ork", 10), is(empty()));
+  }
+
+  @Test
+  public void testSuggestionsPreferGazetteerSortValue() {
+    gazetteerIndex.add(createMetacard("1", "Lake Erie", "LK", 0L, 10, 42.2, -81.2));
+    gazetteerIndex.add(createMetacard("2", "Lakewood, US", "PPL", 50_000L, 0, 41.48, -81.8));
+
+    assertThat(getSuggestedIds("lake", 10), contains("1", "2"));
+  }
+
+  @Test
+  public void testShortPrefixSuggestionsFollowIndexChanges() {
+    gazetteerIndex.add(createMetacard("1", "Newton, US", "PPL", 88_000L, 0, 42.33, -71.20));
+    gazetteerIndex.add(createMetacard("2", "New York, US", "PPL", 8_000_000L, 0, 40.71, -74.0));
+
+    assertThat(getSuggestedIds("n", 1), contains("2"));
+    assertThat(getSuggestedIds("n", 10), contains("2", "1"));
+    assertThat(getSuggestedIds("ne", 1), contains("2"));
+
+    gazetteerIndex.add(createMetacard("3", "Nevada, US", "ADM1", 3_000_000L, 5, 39.0, -117.0));
+
+    assertThat(getSuggestedIds("n", 10), contains("3", "2", "1"));
+    assertThat(getSuggestedIds("ne", 1), contains("3"));
+
+    gazetteerIndex.remove("3");
+
+    assertThat(getSuggestedIds("n", 10), contains("2", "1"));
+    assertThat(getSuggestedIds("ne", 1), contains("2"));
+  }
+
+  @Test
+  public void testNearestCities() {
+    gazetteerIndex.add(createMetacard("1", "Boston, US", "PPL", 600_000L, 0, 42.3601, -71.0589));
+    gazetteerIndex.add(createMetacard("2", "Quincy, US", "PPL", 90_000L, 0, 42.2529, -71.0023));
+    gazetteerIndex.add(createMetacard("3", "Worcester, US", "PPL", 180_000L, 0, 42.26, -71.80));
+    gazetteerIndex.add(createMetacard("4", "Boston Harbor", "BAY", 0L, 0, 42.34, -70.96));
+
+    assertThat(getNearestCityTitles(50, 10), contains("Boston, US", "Quincy, US"));
+    assertThat(
+        getNearestCityTitles(100, 10), contains("Boston, US", "Quincy, US", "Worcester, US"));
+    assertThat(getNearestCityTitles(100, 1), contains("Boston, US"));
+  }
+
+  @Test
+  public void testNearestCitiesAcrossTheAntimeridian() {
+    gazetteerIndex.add(createMetacard("1", "Vaitele, WS", "PPL", 7_000L, 0, -13.83, -171.80));
+
+    List<String> titles =
+        gazetteerIndex
+            .getNearestCities(-13.80, 179.9, 1000, 10)
+            .stream()
+            .map(GazetteerIndex.Place::getTitle)
+            .collect(Collectors.toList());
+    assertThat(titles, contains("Vaitele, WS"));
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    gazetteerIndex.add(createMetacard("1", "Boston, US", "PPL", 600_000L, 0, 42.36, -71.06));
+    gazetteerIndex.add(createMetacard("1", "Beantown, US", "PPL", 600_000L, 0, 42.36, -71.06));
+
+    assertThat(getSuggestedIds("boston", 10), is(empty()));
+    assertThat(getSuggestedIds("bean", 10), contains("1"));
+    assertThat(gazetteerIndex.size(), is(1));
+
+    gazetteerIndex.remove("1");
+
+    assertThat(getSuggestedIds("bean", 10), is(empty()));
+    assertThat(getNearestCityTitles(50, 10), is(empty()));
+    assertThat(gazetteerIndex.size(), is(0));
+  }
+
+  @Test
+  public void testOpenLoadsFromTheCatalog() throws Exception {
+    when(catalogFramework.query(any(QueryRequest.class)))
+        .thenReturn(
+            new QueryResponseImpl(
+                mock(QueryRequest.class),
+                Arrays.asList(
+                    new ResultImpl(
+                        createMetacard("1", "Boston, US", "PPL", 600_000L, 0, 42.36, -71.06)),
+                    new ResultImpl(
+                        createMetacard("2", "Quincy, US", "PPL", 90_000L, 0, 42.25, -71.0))),
+                2));
+
+    gazetteerIndex.setEnabled(true);
+    gazetteerIndex.open();
+
+    assertThat(gazetteerIndex.isAvailable(), is(true));
+    assertThat(getNearestCityTitles(50, 10), contains("Boston, US", "Quincy, US"));
+  }
+
+  @Test
+  public void testOpenLoadsPastFilteredPages() throws Exception {
+    Map<String, Serializable> filteredPage = new HashMap<>();
+    filteredPage.put("actualResultSize", 1000);
+    when(catalogFramework.query(any(QueryRequest.class)))
+        .thenReturn(
+            new QueryResponseImpl(
+                mock(QueryRequest.class),
+                Collections.singletonList(
+                    new ResultImpl(
+                        createMetacard("1", "Boston, US", "PPL", 600_000L, 0, 42.36, -71.06))),
+                true,
+                1001,
+                filteredPage))
+        .thenReturn(
+            new QueryResponseImpl(
+                mock(QueryRequest.class),
+                Collections.singletonList(
+                    new ResultImpl(
+                        createMetacard("2", "Quincy, US", "PPL", 90_000L, 0, 42.25, -71.0))),
+                1001));
+
+    gazetteerIndex.setEnabled(true);
+    gazetteerIndex.open();
+
+    assertThat(getNearestCityTitles(50, 10), contains("Boston, US", "Quincy, US"));
+  }
+
+  @Test
+  public void testLoadingTheSnapshotAgainReplacesPlaces() throws Exception {
+    gazetteerIndex.setEnabled(true);
+    gazetteerIndex.open();
+    gazetteerIndex.add(createMetacard("1", "Boston, US", "PPL", 600_000L, 0, 42.36, -71.06));
+    gazetteerIndex.save();
+
+    assertThat(gazetteerIndex.load(), is(true));
+
+    assertThat(gazetteerIndex.size(), is(1));
+    assertThat(getNearestCityTitles(50, 10), contains("Boston, US"));
+  }
+
+  @Test
+  public void testSnapshotIsReadOnOpen() throws Exception {
+    gazetteerIndex.setEnabled(true);
+    gazetteerIndex.open();
+    gazetteerIndex.add(createMetacard("1", "Boston, US", "PPL", 600_000L, 0, 42.36, -71.06));
+    gazetteerIndex.add(createMetacard("2", "Lake Erie", "LK", 0L, 10, 42.2, -81.2));
+    gazetteerIndex.save();
+
+    GazetteerIndex reopened = createGazetteerIndex();
+    reopened.setEnabled(true);
+    reopened.open();
+
+    assertThat(reopened.isAvailable(), is(true));
+    assertThat(reopened.size(), is(2));
+    assertThat(
+        reopened
+            .getSuggestedNames("lake", 10)
+            .stream()
+            .map(Suggestion::getName)
+            .collect(Collectors.toList()),
+        contains("Lake Erie"));
+  }
+
+  @Test
+  public void testSnapshotIsDeletedWhenTheIndexChanges() throws Exception {
+    gazetteerIndex.setEnabled(true);
+    gazetteerIndex.open();
+    gazetteerIndex.add(createMetacard("1", "Boston, US", "PPL", 600_000L, 0, 42.36, -71.06));
+    gazetteerIndex.save();
+    assertThat(Files.exists(temporaryFolder.getRoot().toPath().resolve("index.bin")), is(true));
+
+    gazetteerIndex.remove("1");
+
+    assertThat(Files.exists(temporaryFolder.getRoot().toPath().resolve("index.bin")), is(false));
+  }
+
+  private GazetteerIndex createGazetteerIndex() {
+    GazetteerIndex index =
+        new GazetteerIndex(
+            catalogFramework,
+            new GeotoolsFilterBuilder(),
+            mock(ScheduledExecutorService.class),
+            security);
+    index.setIndexFile(temporaryFolder.getRoot().toPath().resolve("index.bin").toString());
+    return index;
+  }
+
+  private List<String> getSuggestedIds(String queryString, int maxResults) {
+    return gazetteerIndex
+        .getSuggestedNames(queryString, maxResults)
+        .stream()
+        .map(Suggestion::getId)
+        .collect(Collectors.toList());
+  }
+
+  private List<String> getNearestCityTitles(int radiusInKm, int maxResults) {
+    return gazetteerIndex
+        .getNearestCities(BOSTON_LATITUDE, BOSTON_LONGITUDE, radiusInKm, maxResults)
+        .stream()
+        .map(GazetteerIndex.Place::getTitle)
+        .collect(Collectors.toList());
+  }
+
+  private Metacard createMetacard(
+      String id,
+      String title,
+      String featureCode,
+      long population,
+      int sortValue,
+      double latitude,
+      double longitude) {
+    Metacard metacard = new MetacardImpl(GEO_ENTRY_METACARD_TYPE);
+    metacard.setAttribute(new AttributeImpl(Core.ID, id));
+    metacard.setAttribute(new AttributeImpl(Core.TITLE, title));
+    metacard.setAttribute(
+        new AttributeImpl(GeoEntryAttributes.FEATURE_CODE_ATTRIBUTE_NAME, featureCode));
+    metacard.setAttribute(
+        new AttributeImpl(GeoEntryAttributes.POPULATION_ATTRIBUTE_NAME, population));
+    metacard.setAttribute(new AttributeImpl(GeoEntryAttributes.GAZETTEER_SORT_VALUE, sortValue));
+    metacard.setAttribute(
+        new AttributeImpl(Core.LOCATION, String.format("POINT (%s %s)", longitude, latitude)));
+    metacard.setAttribute(new AttributeImpl(Core.METACARD_TAGS, GAZETTEER_METACARD_TAG));
+    return metacard;
+  }
+}
@@ -29,19 +29,31 @@
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
 import javax.xml.bind.DataBindingException;
 import org.codice.ddf.parser.Parser;
 import org.codice.ddf.platform.util.ForkJoinPoolFactory;
+import org.codice.ddf.platform.util.StandardThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xmlpull.v1.XmlPullParserException;
@@ -55,6 +67,19 @@ public class XmlResponseQueueTransformer extends AbstractXmlTransformer
 
   public static final int BUFFER_SIZE = 1024;
 
+  public static final int DEFAULT_STREAMING_WINDOW = 64;
+
+  public static final int DEFAULT_MAX_STREAMING_WRITERS = 16;
+
+  public static final int DEFAULT_STREAMING_WRITE_TIMEOUT_SECONDS = 60;
+
+  private static final int PIPE_SIZE = 64 * BUFFER_SIZE;
+
+  private static final String METACARDS_PLACEHOLDER = "${metacards}";
+
+  private static final Map<String, Serializable> MARSHAL_ARGUMENTS =
+      Collections.singletonMap(MetacardMarshallerImpl.OMIT_XML_DECL, Boolean.TRUE);
+
   private static class MetacardForkTask extends RecursiveTask<StringWriter> {
     private static final long serialVersionUID = 1L;
 
@@ -164,8 +189,17 @@ private void readObject(ObjectInputStream stream) throws IOException, ClassNotFo
 
   private final MetacardMarshaller metacardMarshaller;
 
+  private final ThreadPoolExecutor streamingWriters;
+
   private int threshold;
 
+  private boolean streaming;
+
+  private int streamingWindow = DEFAULT_STREAMING_WINDOW;
+
+  private long streamingWriteTimeoutMillis =
+      TimeUnit.SECONDS.toMillis(DEFAULT_STREAMING_WRITE_TIMEOUT_SECONDS);
+
   private static final Logger LOGGER = LoggerFactory.getLogger(XmlResponseQueueTransformer.class);
 
   private final MimeType mimeType;
@@ -199,6 +233,15 @@ public XmlResponseQueueTransformer(
       Parser parser, PrintWriterProvider pwp, MetacardMarshaller mcm, MimeType mimeType) {
     super(parser);
     this.fjp = ForkJoinPoolFactory.getNewForkJoinPool(null, false);
+    this.streamingWriters =
+        new ThreadPoolExecutor(
+            DEFAULT_MAX_STREAMING_WRITERS,
+            DEFAULT_MAX_STREAMING_WRITERS,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            StandardThreadFactoryBuilder.newThreadFactory("xmlResponseWriterThread"));
+    streamingWriters.allowCoreThreadTimeOut(true);
     geometryTransformer = new GeometryTransformer(parser);
     this.printWriterProvider = pwp;
     this.metacardMarshaller = mcm;
@@ -220,18 +263,61 @@ public void setThreshold(int threshold) {
     this.threshold = threshold <= 1 ? 2 : threshold;
   }
 
+  /**
+   * @param streaming whether to return responses as a stream that each metacard is written to as
+   *     soon as it is marshalled, instead of building the whole response in memory first
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * @param streamingWindow when streaming, the maximum number of metacards being marshalled in
+   *     parallel or waiting to be written to the response
+   */
+  public void setStreamingWindow(int streamingWindow) {
+    this.streamingWindow = Math.max(1, streamingWindow);
+  }
+
+  /**
+   * @param maxStreamingWriters when streaming, the maximum number of responses written at once;
+   *     further responses wait for a writer
+   */
+  public void setMaxStreamingWriters(int maxStreamingWriters) {
+    int writers = Math.max(1, maxStreamingWriters);
+    if (writers > streamingWriters.getMaximumPoolSize()) {
+      streamingWriters.setMaximumPoolSize(writers);
+      streamingWriters.setCorePoolSize(writers);
+    } else {
+      streamingWriters.setCorePoolSize(writers);
+      streamingWriters.setMaximumPoolSize(writers);
+    }
+  }
+
+  /**
+   * @param streamingWriteTimeoutSeconds when streaming, how long the response may go unread before
+   *     it is abandoned and its writer freed
+   */
+  public void setStreamingWriteTimeoutSeconds(int streamingWriteTimeoutSeconds) {
+    this.streamingWriteTimeoutMillis =
+        TimeUnit.SECONDS.toMillis(Math.max(1, streamingWriteTimeoutSeconds));
+  }
+
+  public void destroy() {
+    streamingWriters.shutdownNow();
+    fjp.shutdown();
+  }
+
   @Override
   public BinaryContent transform(SourceResponse response, Map<String, Serializable> args)
       throws CatalogTransformerException {
     try {
-      PrintWriter writer = printWriterProvider.build(Metacard.class);
-      writer.setRawValue("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
-
-      writer.startNode("metacards");
-      for (Map.Entry<String, String> nsRow : NAMESPACE_MAP.entrySet()) {
-        writer.addAttribute(nsRow.getKey(), nsRow.getValue());
+      if (streaming) {
+        return streamingTransform(response);
       }
 
+      PrintWriter writer = startDocument();
+
       if (response.getResults() != null && !response.getResults().isEmpty()) {
         StringWriter metacardContent =
             fjp.invoke(
@@ -256,4 +342,167 @@ public BinaryContent transform(SourceResponse response, Map<String, Serializable
       throw new CatalogTransformerException("Failed Query response transformation");
     }
   }
+
+  private PrintWriter startDocument() {
+    PrintWriter writer = printWriterProvider.build(Metacard.class);
+    writer.setRawValue("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+
+    writer.startNode("metacards");
+    for (Map.Entry<String, String> nsRow : NAMESPACE_MAP.entrySet()) {
+      writer.addAttribute(nsRow.getKey(), nsRow.getValue());
+    }
+    return writer;
+  }
+
+  /**
+   * Returns the response as a pipe that a writer thread fills in result order. Metacards are
+   * marshalled in parallel on the fork join pool, but at most {@code streamingWindow} of them are
+   * in flight at once, so memory use doesn't grow with the number of results. A response that the
+   * client stops reading is abandoned after the write timeout.
+   */
+  private BinaryContent streamingTransform(SourceResponse response) throws IOException {
+    // Build the metacards element around a placeholder so the streamed envelope is exactly
+    // what the buffered transform produces.
+    PrintWriter writer = startDocument();
+    writer.setRawValue(METACARDS_PLACEHOLDER);
+    writer.endNode(); // metacards
+    String document = writer.makeString();
+    int placeholder = document.indexOf(METACARDS_PLACEHOLDER);
+    String header = document.substring(0, placeholder);
+    String footer = document.substring(placeholder + METACARDS_PLACEHOLDER.length());
+
+    List<Result> results =
+        response.getResults() == null ? Collections.emptyList() : response.getResults();
+
+    MetacardPipe pipe = new MetacardPipe(streamingWriteTimeoutMillis);
+    PipedOutputStream pipeOutput = new PipedOutputStream(pipe);
+    streamingWriters.execute(() -> writeMetacards(results, header, footer, pipeOutput, pipe));
+
+    return new BinaryContentImpl(pipe, mimeType);
+  }
+
+  private void writeMetacards(
+      List<Result> results,
+      String header,
+      String footer,
+      PipedOutputStream pipeOutput,
+      MetacardPipe pipe) {
+    Deque<Future<String>> window = new ArrayDeque<>(streamingWindow);
+    try {
+      pipe.write(header, pipeOutput);
+      for (Result result : results) {
+        if (window.size() >= streamingWindow) {
+          pipe.write(window.poll().get(), pipeOutput);
+        }
+        Metacard metacard = result.getMetacard();
+        window.add(fjp.submit(() -> metacardMarshaller.marshal(metacard, MARSHAL_ARGUMENTS)));
+      }
+      while (!window.isEmpty()) {
+        pipe.write(window.poll().get(), pipeOutput);
+      }
+      pipe.write(footer, pipeOutput);
+    } catch (IOException | ExecutionException | RuntimeException e) {
+      LOGGER.info("Failed to stream query response", e);
+      pipe.fail(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pipe.fail(e);
+    } finally {
+      window.forEach(future -> future.cancel(true));
+      try {
+        pipeOutput.close();
+      } catch (IOException e) {
+        LOGGER.debug("Unable to close query response stream", e);
+      }
+    }
+  }
+
+  /**
+   * Pipe that the streamed response is read from. If the response could not be completely written,
+   * reaching the end of the pipe throws an {@link IOException} instead of returning a truncated
+   * document.
+   *
+   * <p>The writer only writes as much as the pipe has room for, so it never blocks in {@link
+   * PipedOutputStream#write}, and gives up if the pipe stays full for the write timeout because the
+   * client stopped reading.
+   */
+  private static class MetacardPipe extends PipedInputStream {
+
+    private final long writeTimeoutMillis;
+
+    private volatile Exception failure;
+
+    private long lastRead = System.currentTimeMillis();
+
+    MetacardPipe(long writeTimeoutMillis) {
+      super(PIPE_SIZE);
+      this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    void fail(Exception e) {
+      failure = e;
+    }
+
+    void write(String text, PipedOutputStream output) throws IOException, InterruptedException {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      int offset = 0;
+      while (offset < bytes.length) {
+        int length = Math.min(awaitSpace(), bytes.length - offset);
+        output.write(bytes, offset, length);
+        offset += length;
+      }
+      output.flush();
+    }
+
+    /** @return the number of bytes that can be written without blocking */
+    private synchronized int awaitSpace() throws IOException, InterruptedException {
+      int space;
+      while ((space = buffer.length - available()) == 0) {
+        long remaining = lastRead + writeTimeoutMillis - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw new IOException(
+              "Query response was not read for " + writeTimeoutMillis + " ms, abandoning it");
+        }
+        wait(remaining);
+      }
+      return space;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+      int read = super.read();
+      readProgressed();
+      if (read == -1) {
+        checkFailure();
+      }
+      return read;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      readProgressed();
+      if (read == -1) {
+        checkFailure();
+      }
+      return read;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      super.close();
+      notifyAll();
+    }
+
+    private void readProgressed() {
+      lastRead = System.currentTimeMillis();
+      notifyAll();
+    }
+
+    private void checkFailure() throws IOException {
+      if (failure != null) {
+        throw new IOException("Failed to write query response", failure);
+      }
+    }
+  }
 }
@@ -502,6 +502,75 @@ public void testMetacardMarshallThrowsXmlPullParserException()
     // then exception
   }
 
+  @Test
+  public void testStreamingMatchesBuffered() throws Exception {
+    MetacardStub[] metacards = new MetacardStub[200];
+    for (int i = 0; i < metacards.length; i++) {
+      metacards[i] = new MetacardStub("source" + i, "id" + i);
+    }
+    SourceResponse response = givenSourceResponse(metacards);
+
+    transformer.setThreshold(2);
+    String bufferedOutput = new String(transformer.transform(response, null).getByteArray());
+
+    transformer.setStreaming(true);
+    transformer.setStreamingWindow(4);
+    BinaryContent streamedContent = transformer.transform(response, null);
+    String streamedOutput = new String(streamedContent.getByteArray());
+
+    assertThat(streamedContent.getMimeType(), is(mimeType));
+    assertXpathEvaluatesTo("200", "count(/mc:metacards/mc:metacard)", streamedOutput);
+    assertXpathEvaluatesTo("id0", "/mc:metacards/mc:metacard[1]/@gml:id", streamedOutput);
+    assertXpathEvaluatesTo("id199", "/mc:metacards/mc:metacard[200]/@gml:id", streamedOutput);
+    assertEquals(bufferedOutput.replaceAll("\\s", ""), streamedOutput.replaceAll("\\s", ""));
+  }
+
+  @Test
+  public void testStreamingEmptySourceResponse() throws Exception {
+    transformer.setStreaming(true);
+
+    SourceResponse response = new SourceResponseImpl(null, Collections.<Result>emptyList());
+
+    String output = new String(transformer.transform(response, null).getByteArray());
+
+    assertXpathEvaluatesTo("", "/mc:metacards", output);
+  }
+
+  @Test(expected = IOException.class)
+  public void testStreamingResponseAbandonedWhenNotRead() throws Exception {
+    MetacardStub[] metacards = new MetacardStub[1000];
+    for (int i = 0; i < metacards.length; i++) {
+      metacards[i] = new MetacardStub("source" + i, "id" + i);
+    }
+    transformer.setStreaming(true);
+    transformer.setStreamingWriteTimeoutSeconds(1);
+
+    BinaryContent streamedContent = transformer.transform(givenSourceResponse(metacards), null);
+    Thread.sleep(2500);
+
+    // The writer gave up once the pipe stayed full, so the response ends with a failure.
+    streamedContent.getByteArray();
+  }
+
+  @Test(expected = IOException.class)
+  public void testStreamingMetacardMarshallThrowsXmlPullParserException() throws Exception {
+    SourceResponse response =
+        givenSourceResponse(new MetacardStub("source1", "id1"), new MetacardStub("source2", "id2"));
+
+    PrintWriterProvider pwp = new PrintWriterProviderImpl();
+    MetacardMarshaller mockMetacardMarshaller = mock(MetacardMarshaller.class);
+
+    when(mockMetacardMarshaller.marshal(any(Metacard.class), any(Map.class)))
+        .thenThrow(new XmlPullParserException(""));
+
+    XmlResponseQueueTransformer xrqt =
+        new XmlResponseQueueTransformer(parser, pwp, mockMetacardMarshaller, getMimeType());
+    xrqt.setStreaming(true);
+
+    // The failure is reported when the response is read instead of ending it early.
+    xrqt.transform(response, null).getByteArray();
+  }
+
   /** @return */
   private MetacardType getMetacardTypeStub(String name, Set<AttributeDescriptor> descriptors) {
 
@@ -33,4 +33,16 @@ public interface ChecksumProvider {
    * @return checksum algorithm identifier
    */
   String getChecksumAlgorithm();
+
+  /**
+   * Returns a stream that calculates this provider's checksum over the bytes written to it, so the
+   * checksum can be calculated while content is being copied somewhere else instead of reading the
+   * content again.
+   *
+   * @return a new {@link ChecksumOutputStream}, or {@code null} if this provider can only calculate
+   *     checksums with {@link #calculateChecksum(InputStream)}
+   */
+  default ChecksumOutputStream newChecksumOutputStream() {
+    return null;
+  }
 }
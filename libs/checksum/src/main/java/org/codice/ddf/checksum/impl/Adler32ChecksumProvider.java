@@ -19,6 +19,7 @@
 import java.util.zip.Adler32;
 import java.util.zip.CheckedInputStream;
 import org.codice.ddf.checksum.AbstractChecksumProvider;
+import org.codice.ddf.checksum.ChecksumOutputStream;
 
 /**
  * The Adler32 checksum algorithm is nearly as reliable as CRC32 but is significantly faster. For
@@ -51,4 +52,25 @@ public String calculateChecksum(InputStream inputStream)
   public String getChecksumAlgorithm() {
     return DIGEST_ALGORITHM;
   }
+
+  @Override
+  public ChecksumOutputStream newChecksumOutputStream() {
+    Adler32 adler32 = new Adler32();
+    return new ChecksumOutputStream() {
+      @Override
+      public void write(int b) {
+        adler32.update(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        adler32.update(b, off, len);
+      }
+
+      @Override
+      public String getChecksum() {
+        return Long.toHexString(adler32.getValue());
+      }
+    };
+  }
 }
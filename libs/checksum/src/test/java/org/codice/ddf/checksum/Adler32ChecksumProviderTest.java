@@ -23,6 +23,7 @@
 import java.io.ObjectOutputStream;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
 import org.codice.ddf.checksum.impl.Adler32ChecksumProvider;
 import org.junit.Assert;
 import org.junit.Before;
@@ -81,6 +82,22 @@ public void testCalculateChecksumObject() throws IOException, NoSuchAlgorithmExc
     Assert.assertThat(checksumValue, is(checksumCompareHash));
   }
 
+  @Test
+  public void testChecksumOutputStreamMatchesCalculateChecksum()
+      throws IOException, NoSuchAlgorithmException {
+    final char[] chars = new char[1024 * 100];
+    Arrays.fill(chars, 'a');
+    byte[] bytes = IOUtils.toByteArray(getInputStreamFromObject(chars));
+
+    ChecksumOutputStream checksumOutputStream = checksumProvider.newChecksumOutputStream();
+    checksumOutputStream.write(bytes[0]);
+    checksumOutputStream.write(bytes, 1, bytes.length - 1);
+
+    assertThat(
+        checksumOutputStream.getChecksum(),
+        is(checksumProvider.calculateChecksum(new ByteArrayInputStream(bytes))));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testCalculateChecksumWithNullInputStream()
       throws IOException, NoSuchAlgorithmException {
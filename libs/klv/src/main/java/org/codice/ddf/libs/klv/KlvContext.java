@@ -45,6 +45,8 @@ public class KlvContext {
 
   private final Map<String, KlvDataElement> keyToDataElementMap;
 
+  private volatile KlvKeyIndex keyIndex;
+
   /**
    * Constructs a {@code KlvContext} containing the properties of a specific KLV-encoded data set.
    *
@@ -95,6 +97,7 @@ public void addDataElement(final KlvDataElement dataElement) {
     Preconditions.checkArgument(dataElement != null, "The data element cannot be null.");
     nameToDataElementMap.put(dataElement.getName(), dataElement);
     keyToDataElementMap.put(dataElement.getKeyAsString(), dataElement);
+    keyIndex = null;
   }
 
   /**
@@ -111,6 +114,7 @@ public void addDataElements(final Collection<? extends KlvDataElement> dataEleme
           nameToDataElementMap.put(dataElement.getName(), dataElement);
           keyToDataElementMap.put(dataElement.getKeyAsString(), dataElement);
         });
+    keyIndex = null;
   }
 
   public KeyLength getKeyLength() {
@@ -157,4 +161,17 @@ public KlvDataElement getDataElementByName(final String name) {
   Map<String, KlvDataElement> getKeyToDataElementMap() {
     return keyToDataElementMap;
   }
+
+  /**
+   * Returns an index for looking up this context's {@link KlvDataElement}s by the key bytes in an
+   * encoded buffer. The index is built on first use and rebuilt after data elements are added.
+   */
+  KlvKeyIndex getKeyIndex() {
+    KlvKeyIndex index = keyIndex;
+    if (index == null) {
+      index = new KlvKeyIndex(keyLength, keyToDataElementMap.values());
+      keyIndex = index;
+    }
+    return index;
+  }
 }
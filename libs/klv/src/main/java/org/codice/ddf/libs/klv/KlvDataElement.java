@@ -14,6 +14,7 @@
 package org.codice.ddf.libs.klv;
 
 import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import javax.xml.bind.DatatypeConverter;
 import org.codice.ddf.libs.klv.data.Klv;
@@ -59,6 +60,28 @@ public final String getName() {
 
   protected abstract void decodeValue(Klv klv);
 
+  /**
+   * Decodes the value stored in {@code length} bytes of {@code buffer} starting at {@code offset}
+   * and returns it, without changing this data element or the buffer's position. This is used by
+   * {@link KlvDecoder#decode(ByteBuffer, KlvVisitor)}.
+   *
+   * <p>The default implementation copies the value out of the buffer and decodes it with a copy of
+   * this data element. Child classes should override it if they can read their value directly from
+   * the buffer.
+   *
+   * @param buffer the buffer containing the value
+   * @param offset the index of the first byte of the value
+   * @param length the number of bytes in the value
+   * @return the decoded value
+   */
+  @SuppressWarnings("unchecked")
+  protected T decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    final KlvDataElement<T> dataElementCopy = copy();
+    dataElementCopy.decodeValue(
+        Klv.fromKeyAndValue(keyBytes, Klv.getValue(buffer, offset, length)));
+    return dataElementCopy.getValue();
+  }
+
   public T getValue() {
     return value;
   }
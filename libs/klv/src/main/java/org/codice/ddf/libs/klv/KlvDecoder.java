@@ -14,13 +14,20 @@
 package org.codice.ddf.libs.klv;
 
 import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import javax.xml.bind.DatatypeConverter;
 import org.codice.ddf.libs.klv.data.Klv;
+import org.codice.ddf.libs.klv.data.Klv.LengthEncoding;
+import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Decodes bytes that contain KLV-encoded data. */
 public class KlvDecoder {
+  private static final Logger LOGGER = LoggerFactory.getLogger(KlvDecoder.class);
+
   private final KlvContext klvContext;
 
   /**
@@ -87,4 +94,147 @@ public KlvContext decode(final byte[] klvBytes) throws KlvDecodingException {
 
     return decodedContext;
   }
+
+  /**
+   * Decodes the KLV data between the position and the limit of {@code buffer} according to the
+   * properties in the {@link KlvContext} that was provided in the constructor, passing each data
+   * element that is in the {@code KlvContext} to {@code visitor} along with its decoded value.
+   *
+   * <p>Unlike {@link #decode(byte[])}, keys, lengths and values are read directly from the buffer
+   * and looked up in an index built once per {@code KlvContext}, so no intermediate list of KLV
+   * sets, key strings or data element copies are created. Any {@link KlvLocalSet}s given in the
+   * {@code KlvContext} are decoded in place between calls to {@link
+   * KlvVisitor#enterLocalSet(KlvLocalSet)} and {@link KlvVisitor#exitLocalSet(KlvLocalSet)}.
+   *
+   * <p>Data elements are passed to the visitor as they are decoded, so the visitor may already have
+   * received some of them when a {@link KlvDecodingException} is thrown. The buffer's position and
+   * limit are not changed.
+   *
+   * @param buffer buffer containing data in KLV format
+   * @param visitor the {@code KlvVisitor} receiving the decoded data elements
+   * @throws IllegalArgumentException if {@code buffer} or {@code visitor} is null
+   * @throws KlvDecodingException if the KLV cannot be decoded using the given context information
+   */
+  public void decode(final ByteBuffer buffer, final KlvVisitor visitor)
+      throws KlvDecodingException {
+    Preconditions.checkArgument(buffer != null, "The buffer to decode cannot be null.");
+    Preconditions.checkArgument(visitor != null, "The visitor cannot be null.");
+
+    decode(buffer, buffer.position(), buffer.limit(), klvContext, visitor);
+  }
+
+  private static void decode(
+      final ByteBuffer buffer,
+      final int start,
+      final int end,
+      final KlvContext context,
+      final KlvVisitor visitor)
+      throws KlvDecodingException {
+    final KlvKeyIndex keyIndex = context.getKeyIndex();
+    final int keyLength = context.getKeyLength().value();
+
+    int offset = start;
+    while (offset < end) {
+      if (end - offset < keyLength) {
+        throw notEnoughBytes(
+            context, String.format("Not enough bytes for %d-byte key.", keyLength));
+      }
+      final KlvDataElement dataElement = keyIndex.get(buffer, offset);
+      offset += keyLength;
+
+      final int lengthFieldSize = getLengthFieldSize(buffer, offset, end, context);
+      final int length = getLength(buffer, offset, context);
+      offset += lengthFieldSize;
+      if (end - offset < length) {
+        throw notEnoughBytes(
+            context,
+            String.format(
+                "Not enough bytes left in buffer (%d) for the declared length (%d).",
+                end - offset, length));
+      }
+
+      if (dataElement instanceof KlvLocalSet) {
+        decodeLocalSet(buffer, offset, offset + length, (KlvLocalSet) dataElement, visitor);
+      } else if (dataElement != null) {
+        visitor.visit(dataElement, dataElement.decodeValue(buffer, offset, length));
+      }
+      offset += length;
+    }
+  }
+
+  private static void decodeLocalSet(
+      final ByteBuffer buffer,
+      final int start,
+      final int end,
+      final KlvLocalSet localSet,
+      final KlvVisitor visitor) {
+    if (!visitor.enterLocalSet(localSet)) {
+      return;
+    }
+
+    try {
+      decode(buffer, start, end, localSet.getLocalSetKlvContext(), visitor);
+    } catch (KlvDecodingException e) {
+      LOGGER.debug("Couldn't decode the KLV local set named {}", localSet.getName(), e);
+    }
+    visitor.exitLocalSet(localSet);
+  }
+
+  private static int getLengthFieldSize(
+      final ByteBuffer buffer, final int offset, final int end, final KlvContext context)
+      throws KlvDecodingException {
+    final LengthEncoding lengthEncoding = context.getLengthEncoding();
+
+    int size = lengthEncoding.value();
+    if (lengthEncoding == LengthEncoding.BER && end > offset) {
+      // Short BER form: if the high bit is not set, the byte is the length.
+      // Long BER form: if the high bit is set, the low seven bits are the number
+      // of bytes that follow and hold the length as an unsigned integer.
+      final int ber = buffer.get(offset) & 0xFF;
+      size = (ber & 0x80) == 0 ? 1 : 1 + (ber & 0x7F);
+    }
+
+    if (end - offset < size) {
+      throw notEnoughBytes(
+          context, String.format("Not enough bytes for %s length encoding.", lengthEncoding));
+    }
+    return size;
+  }
+
+  private static int getLength(final ByteBuffer buffer, final int offset, final KlvContext context)
+      throws KlvDecodingException {
+    int start = offset;
+    int bytes = context.getLengthEncoding().value();
+    if (context.getLengthEncoding() == LengthEncoding.BER) {
+      final int ber = buffer.get(offset) & 0xFF;
+      if ((ber & 0x80) == 0) {
+        return ber;
+      }
+      start++;
+      bytes = ber & 0x7F;
+    }
+
+    // Like Klv, only lengths that fit in an int are supported.
+    long length = 0;
+    for (int i = 0; i < bytes; i++) {
+      length = (length << 8) | (buffer.get(start + i) & 0xFF);
+      if (length > Integer.MAX_VALUE) {
+        throw new KlvDecodingException(
+            String.format(
+                "Could not decode KLV using the given key length %s and length encoding %s: the"
+                    + " length is too large.",
+                context.getKeyLength(), context.getLengthEncoding()));
+      }
+    }
+    return (int) length;
+  }
+
+  private static KlvDecodingException notEnoughBytes(
+      final KlvContext context, final String message) {
+    return new KlvDecodingException(
+        String.format(
+            "Could not decode KLV using the given key length %s and length encoding %s",
+            context.getKeyLength(), context.getLengthEncoding()),
+        new IndexOutOfBoundsException(message));
+  }
 }
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.libs.klv;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import org.codice.ddf.libs.klv.data.Klv.KeyLength;
+
+/**
+ * Looks up {@link KlvDataElement}s by the key bytes at an offset in a {@link ByteBuffer} without
+ * creating a key object for each lookup.
+ *
+ * <p>One-byte keys index directly into a 256-entry table. Longer keys are packed into two longs
+ * (the first and last eight bytes of a 16-byte key, or just the low long for shorter keys) and
+ * looked up in an open-addressing table.
+ */
+final class KlvKeyIndex {
+  private final int keyLength;
+
+  private final KlvDataElement[] elements;
+
+  private final long[] highs;
+
+  private final long[] lows;
+
+  private final int mask;
+
+  KlvKeyIndex(final KeyLength keyLength, final Collection<KlvDataElement> dataElements) {
+    this.keyLength = keyLength.value();
+
+    if (this.keyLength == 1) {
+      elements = new KlvDataElement[256];
+      highs = null;
+      lows = null;
+      mask = 0;
+      for (final KlvDataElement dataElement : dataElements) {
+        final byte[] key = dataElement.keyBytes;
+        if (key.length == 1) {
+          elements[key[0] & 0xFF] = dataElement;
+        }
+      }
+      return;
+    }
+
+    final int capacity = Integer.highestOneBit(Math.max(dataElements.size(), 1) * 2 - 1) << 1;
+    elements = new KlvDataElement[capacity];
+    highs = new long[capacity];
+    lows = new long[capacity];
+    mask = capacity - 1;
+
+    for (final KlvDataElement dataElement : dataElements) {
+      final byte[] key = dataElement.keyBytes;
+      if (key.length != this.keyLength) {
+        continue;
+      }
+
+      final ByteBuffer keyBuffer = ByteBuffer.wrap(key);
+      final long high = high(keyBuffer, 0);
+      final long low = low(keyBuffer, 0);
+      int slot = slot(high, low);
+      while (elements[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      elements[slot] = dataElement;
+      highs[slot] = high;
+      lows[slot] = low;
+    }
+  }
+
+  /**
+   * Returns the data element whose key is at {@code offset} in {@code buffer}.
+   *
+   * @param buffer the buffer containing the key
+   * @param offset the index of the first byte of the key; there must be at least as many bytes
+   *     remaining as the key length
+   * @return the data element with the key, or null if there isn't one
+   */
+  KlvDataElement get(final ByteBuffer buffer, final int offset) {
+    if (keyLength == 1) {
+      return elements[buffer.get(offset) & 0xFF];
+    }
+
+    final long high = high(buffer, offset);
+    final long low = low(buffer, offset);
+    int slot = slot(high, low);
+    KlvDataElement dataElement;
+    while ((dataElement = elements[slot]) != null) {
+      if (highs[slot] == high && lows[slot] == low) {
+        return dataElement;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  private int slot(final long high, final long low) {
+    final long hash = (high * 31 + low) * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & mask;
+  }
+
+  private long high(final ByteBuffer buffer, final int offset) {
+    return keyLength > 8 ? read(buffer, offset, keyLength - 8) : 0;
+  }
+
+  private long low(final ByteBuffer buffer, final int offset) {
+    return keyLength > 8
+        ? read(buffer, offset + keyLength - 8, 8)
+        : read(buffer, offset, keyLength);
+  }
+
+  private static long read(final ByteBuffer buffer, final int offset, final int length) {
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value = (value << 8) | (buffer.get(offset + i) & 0xFF);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.libs.klv;
+
+import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
+
+/**
+ * Receives the data elements decoded by {@link KlvDecoder#decode(java.nio.ByteBuffer, KlvVisitor)}.
+ *
+ * <p>The {@link KlvDataElement}s passed to a visitor are the ones in the {@link KlvContext} given
+ * to the decoder, so their {@link KlvDataElement#getValue()} is not the decoded value; the decoded
+ * value is passed alongside them instead.
+ */
+@FunctionalInterface
+public interface KlvVisitor {
+  /**
+   * Called for each data element found in the KLV data, in the order they are encoded.
+   *
+   * @param dataElement the data element describing the value
+   * @param value the decoded value, of the type returned by the data element's {@link
+   *     KlvDataElement#getValue()}
+   */
+  void visit(KlvDataElement<?> dataElement, Object value);
+
+  /**
+   * Called when a {@link KlvLocalSet} is found, before any of the data elements inside it are
+   * visited.
+   *
+   * @param localSet the local set
+   * @return {@code true} to decode the data elements inside the local set, {@code false} to skip
+   *     them
+   */
+  default boolean enterLocalSet(KlvLocalSet localSet) {
+    return true;
+  }
+
+  /**
+   * Called after all of the data elements inside a {@link KlvLocalSet} have been visited. Not
+   * called if {@link #enterLocalSet(KlvLocalSet)} returned {@code false}.
+   *
+   * @param localSet the local set
+   */
+  default void exitLocalSet(KlvLocalSet localSet) {}
+}
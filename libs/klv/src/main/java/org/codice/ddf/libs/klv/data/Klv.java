@@ -15,6 +15,7 @@
 
 import com.google.common.base.Preconditions;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -111,6 +112,26 @@ public int value() {
    */
   private int offsetAfterInstantiation;
 
+  /**
+   * Creates a KLV set from a key and a value that have already been separated.
+   *
+   * @param key the 1-, 2-, 4- or 16-byte key
+   * @param value the value
+   * @throws IllegalArgumentException if the key length is not supported
+   */
+  private Klv(final byte[] key, final byte[] value) {
+    final KeyLength length =
+        Arrays.stream(KeyLength.values())
+            .filter(keyLength -> keyLength.value() == key.length)
+            .findFirst()
+            .orElseThrow(
+                () ->
+                    new IllegalArgumentException(
+                        String.format("Unsupported key length %d.", key.length)));
+    setKey(key, 0, length);
+    this.value = Arrays.copyOf(value, value.length);
+  }
+
   /**
    * Creates a KLV set from the given byte array, the given offset in that array, the total length
    * of the KLV set in the byte array, the specified key length, and the specified length field
@@ -527,6 +548,63 @@ public static List<Klv> bytesToList(
     return list;
   }
 
+  /**
+   * Creates a KLV set from a key and a value that have already been separated, such as when the
+   * value was read directly from a {@link ByteBuffer}.
+   *
+   * @param key the 1-, 2-, 4- or 16-byte key
+   * @param value the value
+   * @return a KLV set with the given key and a copy of the given value
+   * @throws IllegalArgumentException if either argument is null or the key length is not supported
+   */
+  public static Klv fromKeyAndValue(final byte[] key, final byte[] value) {
+    Preconditions.checkArgument(key != null, "The key cannot be null.");
+    Preconditions.checkArgument(value != null, "The value cannot be null.");
+    return new Klv(key, value);
+  }
+
+  /**
+   * Returns a copy of {@code length} bytes of {@code buffer} starting at {@code offset}, without
+   * changing the buffer's position.
+   *
+   * @param buffer the buffer containing the value
+   * @param offset the index of the first byte of the value
+   * @param length the number of bytes in the value
+   * @return the value
+   */
+  public static byte[] getValue(final ByteBuffer buffer, final int offset, final int length) {
+    final byte[] bytes = new byte[length];
+    if (buffer.hasArray()) {
+      System.arraycopy(buffer.array(), buffer.arrayOffset() + offset, bytes, 0, length);
+    } else {
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(offset + i);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Reads up to the first {@code maxBytes} bytes of a value in {@code buffer} as a big-endian
+   * integer, the same way the {@code getValueAs*} methods do, but without copying the value or
+   * changing the buffer's position.
+   *
+   * @param buffer the buffer containing the value
+   * @param offset the index of the first byte of the value
+   * @param length the number of bytes in the value
+   * @param maxBytes the size in bytes of the integer being read
+   * @return the value as an unsigned integer of up to {@code maxBytes} bytes
+   */
+  public static long getValueAsLong(
+      final ByteBuffer buffer, final int offset, final int length, final int maxBytes) {
+    final int longLen = length < maxBytes ? length : maxBytes;
+    long value = 0;
+    for (int i = 0; i < longLen; i++) {
+      value |= (long) (buffer.get(offset + i) & 0xFF) << (longLen * 8 - i * 8 - 8);
+    }
+    return value;
+  }
+
   private void checkEnoughBytesRemaining(
       final int actualNumberOfBytesRemaining,
       final int minimumExpectedNumberOfBytesRemaining,
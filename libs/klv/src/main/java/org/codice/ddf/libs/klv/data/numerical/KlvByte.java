@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -44,6 +45,11 @@ protected void decodeValue(final Klv klv) {
     value = (byte) klv.getValueAs8bitSignedInt();
   }
 
+  @Override
+  protected Byte decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return length > 0 ? buffer.get(offset) : 0;
+  }
+
   @Override
   protected KlvByte copy() {
     return new KlvByte(keyBytes, name, errorIndicatorValue);
@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -46,6 +47,13 @@ protected void decodeValue(final Klv klv) {
     value = klv.getValueAsDouble();
   }
 
+  @Override
+  protected Double decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return length < 8
+        ? Double.NaN
+        : Double.longBitsToDouble(Klv.getValueAsLong(buffer, offset, length, 8));
+  }
+
   @Override
   protected KlvDouble copy() {
     return new KlvDouble(keyBytes, name, errorIndicatorValue);
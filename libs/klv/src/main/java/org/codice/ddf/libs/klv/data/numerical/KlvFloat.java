@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -46,6 +47,13 @@ protected void decodeValue(final Klv klv) {
     value = klv.getValueAsFloat();
   }
 
+  @Override
+  protected Float decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return length < 4
+        ? Float.NaN
+        : Float.intBitsToFloat((int) Klv.getValueAsLong(buffer, offset, length, 4));
+  }
+
   @Override
   protected KlvFloat copy() {
     return new KlvFloat(keyBytes, name, errorIndicatorValue);
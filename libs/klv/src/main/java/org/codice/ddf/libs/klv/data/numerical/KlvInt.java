@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -44,6 +45,11 @@ protected void decodeValue(final Klv klv) {
     value = klv.getValueAs32bitInt();
   }
 
+  @Override
+  protected Integer decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return (int) Klv.getValueAsLong(buffer, offset, length, 4);
+  }
+
   @Override
   protected KlvInt copy() {
     return new KlvInt(keyBytes, name, errorIndicatorValue);
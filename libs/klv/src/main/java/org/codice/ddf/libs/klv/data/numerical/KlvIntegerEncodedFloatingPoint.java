@@ -14,6 +14,7 @@
 package org.codice.ddf.libs.klv.data.numerical;
 
 import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -129,6 +130,16 @@ protected void decodeValue(final Klv klv) {
             actualRangeMax);
   }
 
+  @Override
+  protected Double decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return convert(
+        klvRawDataValue.decodeValue(buffer, offset, length).longValue(),
+        encodedRangeMin,
+        encodedRangeMax,
+        actualRangeMin,
+        actualRangeMax);
+  }
+
   @Override
   protected KlvIntegerEncodedFloatingPoint copy() {
     return new KlvIntegerEncodedFloatingPoint(
@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -44,6 +45,11 @@ protected void decodeValue(final Klv klv) {
     value = klv.getValueAs64bitLong();
   }
 
+  @Override
+  protected Long decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return Klv.getValueAsLong(buffer, offset, length, 8);
+  }
+
   @Override
   protected KlvLong copy() {
     return new KlvLong(keyBytes, name, errorIndicatorValue);
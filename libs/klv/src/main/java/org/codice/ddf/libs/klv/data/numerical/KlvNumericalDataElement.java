@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.KlvDataElement;
 import org.codice.ddf.libs.klv.data.Klv;
@@ -52,6 +53,12 @@ public KlvNumericalDataElement(
   @Override
   protected abstract void decodeValue(Klv klv);
 
+  // Redeclared so that KlvIntegerEncodedFloatingPoint can decode through its raw data element.
+  @Override
+  protected T decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return super.decodeValue(buffer, offset, length);
+  }
+
   @Override
   protected abstract KlvNumericalDataElement<T> copy();
 
@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -47,6 +48,11 @@ protected void decodeValue(final Klv klv) {
     value = (short) klv.getValueAs16bitSignedInt();
   }
 
+  @Override
+  protected Short decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return (short) Klv.getValueAsLong(buffer, offset, length, 2);
+  }
+
   @Override
   protected KlvShort copy() {
     return new KlvShort(keyBytes, name, errorIndicatorValue);
@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -46,6 +47,11 @@ protected void decodeValue(final Klv klv) {
     value = (short) klv.getValueAs8bitUnsignedInt();
   }
 
+  @Override
+  protected Short decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return length > 0 ? (short) (buffer.get(offset) & 0xFF) : 0;
+  }
+
   @Override
   protected KlvUnsignedByte copy() {
     return new KlvUnsignedByte(keyBytes, name, errorIndicatorValue);
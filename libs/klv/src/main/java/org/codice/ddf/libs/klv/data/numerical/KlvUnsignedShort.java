@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.numerical;
 
+import java.nio.ByteBuffer;
 import org.codice.ddf.libs.klv.data.Klv;
 
 /** Represents a KLV element that has an unsigned <strong>short</strong> value. */
@@ -33,6 +34,11 @@ protected void decodeValue(final Klv klv) {
     value = klv.getValueAs16bitUnsignedInt();
   }
 
+  @Override
+  protected Integer decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return (int) Klv.getValueAsLong(buffer, offset, length, 2);
+  }
+
   @Override
   protected KlvUnsignedShort copy() {
     return new KlvUnsignedShort(keyBytes, name);
@@ -13,6 +13,7 @@
  */
 package org.codice.ddf.libs.klv.data.raw;
 
+import java.nio.ByteBuffer;
 import org.codice.ddf.libs.klv.KlvDataElement;
 import org.codice.ddf.libs.klv.data.Klv;
 
@@ -34,6 +35,11 @@ protected void decodeValue(final Klv klv) {
     value = klv.getValue();
   }
 
+  @Override
+  protected byte[] decodeValue(final ByteBuffer buffer, final int offset, final int length) {
+    return Klv.getValue(buffer, offset, length);
+  }
+
   @Override
   protected KlvDataElement copy() {
     return new KlvBytes(keyBytes, name);
@@ -40,6 +40,15 @@ public KlvLocalSet(final byte[] key, final String name, final KlvContext localSe
     this.localSetKlvContext = localSetKlvContext;
   }
 
+  /**
+   * Returns the {@link KlvContext} describing the local KLV set.
+   *
+   * @return the {@code KlvContext} describing the local KLV set
+   */
+  public KlvContext getLocalSetKlvContext() {
+    return localSetKlvContext;
+  }
+
   @Override
   protected void decodeValue(final Klv klv) {
     try {
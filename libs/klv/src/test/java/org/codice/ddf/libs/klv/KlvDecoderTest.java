@@ -26,13 +26,18 @@
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import org.apache.commons.io.IOUtils;
@@ -49,10 +54,13 @@
 import org.codice.ddf.libs.klv.data.raw.KlvBytes;
 import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
 import org.codice.ddf.libs.klv.data.text.KlvString;
+import org.codice.ddf.test.common.benchmark.Benchmark;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 public class KlvDecoderTest {
+  private static final String BENCHMARK_SETS_PROPERTY = "klv.decoding.benchmark.sets";
+
   private static final String UAS_DATALINK_LOCAL_SET_UNIVERSAL_KEY =
       "UAS Datalink Local Set Universal Key";
 
@@ -192,12 +200,7 @@ private KlvContext getKLVContext(final Set<? extends KlvDataElement> dataElement
 
   @Test
   public void testKLVSet() throws Exception {
-    byte[] klvBytes;
-
-    try (final InputStream inputStream =
-        getClass().getClassLoader().getResourceAsStream("testKLV.klv")) {
-      klvBytes = IOUtils.toByteArray(inputStream);
-    }
+    final byte[] klvBytes = getTestKlvBytes();
 
     final KlvContext klvContext = getKLVContext(DATA_ELEMENTS);
 
@@ -224,6 +227,120 @@ public void testKLVSet() throws Exception {
         });
   }
 
+  @Test
+  public void testKLVSetWithVisitor() throws Exception {
+    final byte[] klvBytes = getTestKlvBytes();
+
+    // Only the bytes between the buffer's position and limit should be decoded.
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(klvBytes.length + 8);
+    buffer.position(4);
+    buffer.put(klvBytes);
+    buffer.position(4);
+    buffer.limit(4 + klvBytes.length);
+
+    final Map<String, Object> values = new HashMap<>();
+    final List<String> localSets = new ArrayList<>();
+
+    new KlvDecoder(getKLVContext(DATA_ELEMENTS))
+        .decode(
+            buffer,
+            new KlvVisitor() {
+              @Override
+              public void visit(KlvDataElement<?> dataElement, Object value) {
+                values.put(dataElement.getName(), value);
+              }
+
+              @Override
+              public boolean enterLocalSet(KlvLocalSet localSet) {
+                localSets.add("enter " + localSet.getName());
+                return true;
+              }
+
+              @Override
+              public void exitLocalSet(KlvLocalSet localSet) {
+                localSets.add("exit " + localSet.getName());
+              }
+            });
+
+    assertThat(
+        localSets,
+        is(
+            Arrays.asList(
+                "enter " + UAS_DATALINK_LOCAL_SET_UNIVERSAL_KEY,
+                "exit " + UAS_DATALINK_LOCAL_SET_UNIVERSAL_KEY)));
+    assertThat(values.size(), is(DATA_ELEMENTS.size()));
+    values.forEach(
+        (name, value) -> {
+          final Object expectedValue = EXPECTED_VALUES.get(name);
+          assertThat(String.format("%s is not %s", name, expectedValue), value, is(expectedValue));
+        });
+    assertThat(buffer.position(), is(4));
+    assertThat(buffer.limit(), is(4 + klvBytes.length));
+  }
+
+  @Test
+  public void testVisitorSkipsLocalSet() throws Exception {
+    final List<String> visited = new ArrayList<>();
+
+    new KlvDecoder(getKLVContext(DATA_ELEMENTS))
+        .decode(
+            ByteBuffer.wrap(getTestKlvBytes()),
+            new KlvVisitor() {
+              @Override
+              public void visit(KlvDataElement<?> dataElement, Object value) {
+                visited.add(dataElement.getName());
+              }
+
+              @Override
+              public boolean enterLocalSet(KlvLocalSet localSet) {
+                return false;
+              }
+
+              @Override
+              public void exitLocalSet(KlvLocalSet localSet) {
+                visited.add(localSet.getName());
+              }
+            });
+
+    assertThat(visited.isEmpty(), is(true));
+  }
+
+  /**
+   * Compares the time taken by {@link KlvDecoder#decode(byte[])} and {@link
+   * KlvDecoder#decode(ByteBuffer, KlvVisitor)} to decode the UAS Datalink Local Set in the test KLV
+   * many times, the way the local set in each packet of a STANAG 4609 stream is decoded. Only runs
+   * when the {@value Benchmark#BENCHMARK_PROPERTY} system property is {@code true}; the number of
+   * local sets decoded per round can be changed with {@value #BENCHMARK_SETS_PROPERTY}.
+   */
+  @Test
+  public void benchmarkDecoding() throws Exception {
+    Benchmark.assumeEnabled();
+
+    final int sets = Integer.getInteger(BENCHMARK_SETS_PROPERTY, 100000);
+    final byte[] klvBytes = getTestKlvBytes();
+    final ByteBuffer buffer = ByteBuffer.wrap(klvBytes);
+    final KlvDecoder decoder = new KlvDecoder(getKLVContext(DATA_ELEMENTS));
+    final int[] visited = new int[1];
+    final KlvVisitor visitor = (dataElement, value) -> visited[0]++;
+
+    Benchmark.named("Decoding a UAS Datalink Local Set")
+        .operations(sets)
+        .warmupRounds(2)
+        .rounds(3)
+        .add("decode(byte[])", () -> decoder.decode(klvBytes))
+        .add("decode(ByteBuffer, KlvVisitor)", () -> decoder.decode(buffer, visitor))
+        .run();
+
+    assertThat(visited[0], is(5 * sets * DATA_ELEMENTS.size()));
+  }
+
+  private byte[] getTestKlvBytes() throws IOException {
+    try (final InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("testKLV.klv")) {
+      return IOUtils.toByteArray(inputStream);
+    }
+  }
+
   private KlvContext decodeKLV(
       final KeyLength keyLength,
       final LengthEncoding lengthEncoding,
@@ -232,7 +349,28 @@ private KlvContext decodeKLV(
       throws KlvDecodingException {
     final KlvContext klvContext = new KlvContext(keyLength, lengthEncoding);
     klvContext.addDataElement(dataElement);
-    return new KlvDecoder(klvContext).decode(encodedBytes);
+    final KlvContext decodedKlvContext = new KlvDecoder(klvContext).decode(encodedBytes);
+    assertVisitorDecodesSameValues(klvContext, encodedBytes, decodedKlvContext);
+    return decodedKlvContext;
+  }
+
+  private void assertVisitorDecodesSameValues(
+      final KlvContext klvContext, final byte[] encodedBytes, final KlvContext decodedKlvContext)
+      throws KlvDecodingException {
+    final Map<String, Object> values = new HashMap<>();
+    new KlvDecoder(klvContext)
+        .decode(
+            ByteBuffer.wrap(encodedBytes),
+            (dataElement, value) -> values.put(dataElement.getName(), value));
+
+    final Map<String, KlvDataElement> decodedDataElements = decodedKlvContext.getDataElements();
+    assertThat(values.keySet(), is(decodedDataElements.keySet()));
+    decodedDataElements.forEach(
+        (name, dataElement) ->
+            assertThat(
+                String.format("%s decoded differently with a visitor", name),
+                Objects.deepEquals(values.get(name), dataElement.getValue()),
+                is(true)));
   }
 
   private byte[] getValueBytes(
@@ -528,6 +666,19 @@ public void testMissingBytes() {
     }
   }
 
+  @Test
+  public void testMissingBytesWithVisitor() {
+    final byte[] klvBytes = {-8, 4, (byte) 0x87, (byte) 0xF8, 0x4B};
+    final KlvContext klvContext = new KlvContext(KeyLength.OneByte, LengthEncoding.OneByte);
+    klvContext.addDataElement(new KlvInt(new byte[] {-8}, "test"));
+    try {
+      new KlvDecoder(klvContext).decode(ByteBuffer.wrap(klvBytes), (dataElement, value) -> {});
+      fail("Should have thrown a KlvDecodingException.");
+    } catch (KlvDecodingException e) {
+      assertThat(e.getCause(), instanceOf(IndexOutOfBoundsException.class));
+    }
+  }
+
   private boolean isErrorIndicatedByte(byte value, Optional<Byte> errorValue)
       throws KlvDecodingException {
     KlvByte klvByte = new KlvByte(new byte[] {0}, "test", errorValue);
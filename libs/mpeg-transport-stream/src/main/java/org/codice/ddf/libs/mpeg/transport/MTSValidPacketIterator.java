@@ -18,7 +18,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
-import org.taktik.mpegts.sources.ResettableMTSSource;
+import org.taktik.mpegts.sources.MTSSource;
 
 /**
  * Support class for working with a stream of packets from a source where the underlying data may
@@ -32,7 +32,7 @@
 public class MTSValidPacketIterator {
   private static final Logger LOGGER = LoggerFactory.getLogger(MTSValidPacketIterator.class);
 
-  private final ResettableMTSSource source;
+  private final MTSSource source;
 
   private MTSPacket currentPacket;
 
@@ -50,7 +50,7 @@ public long getPacketsFailed() {
     return packetsFailed;
   }
 
-  public MTSValidPacketIterator(ResettableMTSSource source) {
+  public MTSValidPacketIterator(MTSSource source) {
     notNull(source);
     this.source = source;
 
@@ -14,16 +14,21 @@
 package org.codice.ddf.libs.mpeg.transport;
 
 import com.google.common.io.ByteSource;
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.jcodec.api.JCodecException;
 import org.jcodec.containers.mps.MTSUtils.StreamType;
 import org.jcodec.containers.mps.psi.PMTSection;
@@ -34,14 +39,27 @@
 import org.taktik.mpegts.PATSection;
 import org.taktik.mpegts.sources.MTSSource;
 import org.taktik.mpegts.sources.MTSSources;
-import org.taktik.mpegts.sources.ResettableMTSSource;
 
-/** This class is for extracting arbitrary metadata (as raw bytes) from an MPEG transport stream. */
+/**
+ * This class is for extracting arbitrary metadata (as raw bytes) from an MPEG transport stream.
+ *
+ * <p>The transport stream is read once. The program association and program map tables are parsed
+ * as they are encountered; packets that arrive before every program map table has been seen are
+ * held in a bounded buffer and handled once the tables are known. Metadata packets are passed to
+ * the callback on the reading thread as soon as they are complete, so a slow callback slows the
+ * read rather than letting packets accumulate.
+ *
+ * <p>For very large streams, {@link #setSampleInterval(int)} and {@link #setMaxScanTime(long,
+ * TimeUnit)} trade completeness for speed.
+ */
 public class MpegTransportStreamMetadataExtractor {
   private static final Logger LOGGER =
       LoggerFactory.getLogger(MpegTransportStreamMetadataExtractor.class);
 
-  private final ByteSource byteSource;
+  /** Maximum number of packets held while waiting for the program map tables. */
+  private static final int MAX_PENDING_PACKETS = 4096;
+
+  private final Callable<MTSSource> sourceFactory;
 
   private final Set<Integer> programMapTablePacketIdDirectory = new HashSet<>();
 
@@ -49,7 +67,19 @@ public class MpegTransportStreamMetadataExtractor {
 
   private final Map<Integer, PMTStream> programElementaryStreams = new HashMap<>();
 
-  private final Map<Integer, byte[]> currentMetadataPacketBytesByStream = new HashMap<>();
+  private final Map<Integer, ByteArrayOutputStream> currentMetadataPacketBytesByStream =
+      new HashMap<>();
+
+  private final Map<Integer, Long> metadataPacketCountByStream = new HashMap<>();
+
+  private final Deque<MTSPacket> pendingPackets = new ArrayDeque<>();
+
+  /** Set once a program map table has been seen for every program in the association table. */
+  private boolean allProgramMapTablesFound;
+
+  private int sampleInterval = 1;
+
+  private long maxScanTimeMillis = 0;
 
   /**
    * Constructs an {@code MpegTransportStreamMetadataExtractor} with the given {@link ByteSource} as
@@ -58,7 +88,51 @@ public class MpegTransportStreamMetadataExtractor {
    * @param byteSource the {@code ByteSource} providing the transport stream bytes
    */
   public MpegTransportStreamMetadataExtractor(final ByteSource byteSource) {
-    this.byteSource = byteSource;
+    this.sourceFactory = () -> MTSSources.from(byteSource);
+  }
+
+  /**
+   * Constructs an {@code MpegTransportStreamMetadataExtractor} that reads the transport stream from
+   * the given channel, which is closed once the metadata has been extracted. The channel can only
+   * be read once.
+   *
+   * @param channel the channel providing the transport stream bytes
+   */
+  public MpegTransportStreamMetadataExtractor(final ReadableByteChannel channel) {
+    this.sourceFactory = () -> TransportStreamPacketSource.from(channel);
+  }
+
+  /**
+   * Constructs an {@code MpegTransportStreamMetadataExtractor} that reads the transport stream from
+   * the remaining bytes of the given buffer, for example a {@link java.nio.MappedByteBuffer} of a
+   * file. The buffer's position is not changed.
+   *
+   * @param buffer the buffer holding the transport stream bytes
+   */
+  public MpegTransportStreamMetadataExtractor(final ByteBuffer buffer) {
+    this.sourceFactory = () -> TransportStreamPacketSource.from(buffer);
+  }
+
+  /**
+   * Only passes every {@code sampleInterval}th metadata packet of each metadata stream to the
+   * callback, starting with the first. Defaults to 1, every packet.
+   *
+   * @param sampleInterval the interval between sampled metadata packets, at least 1
+   */
+  public void setSampleInterval(final int sampleInterval) {
+    if (sampleInterval < 1) {
+      throw new IllegalArgumentException("Sample interval must be at least 1.");
+    }
+    this.sampleInterval = sampleInterval;
+  }
+
+  /**
+   * Stops reading the transport stream once it has been read for the given amount of time. The
+   * metadata packets found up to that point are still passed to the callback. A value of 0 or less,
+   * the default, reads the whole transport stream.
+   */
+  public void setMaxScanTime(final long maxScanTime, final TimeUnit unit) {
+    this.maxScanTimeMillis = unit.toMillis(maxScanTime);
   }
 
   /**
@@ -77,7 +151,8 @@ public void getMetadata(final BiConsumer<Integer, byte[]> callback) throws Excep
 
   /**
    * Parses the transport stream and returns all the metadata packet payloads (in the order in which
-   * they were encountered) that belong to each metadata stream.
+   * they were encountered) that belong to each metadata stream. Every payload is held in memory;
+   * prefer {@link #getMetadata(BiConsumer)} for large transport streams.
    *
    * @return a {@link Map} whose keys are the packet IDs of the metadata streams and whose values
    *     are the packet payloads belonging to that stream
@@ -100,11 +175,11 @@ public Map<Integer, List<byte[]>> getMetadata() throws Exception {
 
   private void extractTransportStreamMetadata(final BiConsumer<Integer, byte[]> callback)
       throws Exception {
-    final ResettableMTSSource source = MTSSources.from(byteSource);
+    resetState();
 
-    getProgramSpecificInformation(source);
-
-    source.reset();
+    final MTSSource source = sourceFactory.call();
+    final long deadline =
+        maxScanTimeMillis > 0 ? System.currentTimeMillis() + maxScanTimeMillis : Long.MAX_VALUE;
 
     MTSValidPacketIterator packetIterator = new MTSValidPacketIterator(source);
     MTSPacket transportStreamPacket = packetIterator.getNextValidPacket();
@@ -115,10 +190,11 @@ private void extractTransportStreamMetadata(final BiConsumer<Integer, byte[]> ca
             "First valid packet found after {} failures", packetIterator.getPacketsFailed());
       }
       while (transportStreamPacket != null) {
-        final int packetId = transportStreamPacket.getPid();
+        handlePacket(transportStreamPacket, callback);
 
-        if (isElementaryStreamPacket(packetId)) {
-          handleElementaryStreamPacket(transportStreamPacket, packetId, callback);
+        if (System.currentTimeMillis() > deadline) {
+          LOGGER.debug("Stopping transport stream scan after {} ms", maxScanTimeMillis);
+          break;
         }
 
         transportStreamPacket = packetIterator.getNextValidPacket();
@@ -128,23 +204,69 @@ private void extractTransportStreamMetadata(final BiConsumer<Integer, byte[]> ca
           "Mpegts Packet Processing Complete: Total Processed {}, Total Failed: {}",
           packetIterator.getPacketsProcessed(),
           packetIterator.getPacketsFailed());
-      handleLastPacketOfEachStream(callback);
+      try {
+        handlePendingPackets(callback);
+        handleLastPacketOfEachStream(callback);
+      } finally {
+        source.close();
+      }
     }
   }
 
-  private void getProgramSpecificInformation(final MTSSource source) throws Exception {
-    MTSPacket packet;
+  private void resetState() {
+    programMapTablePacketIdDirectory.clear();
+    programMapTables.clear();
+    programElementaryStreams.clear();
+    currentMetadataPacketBytesByStream.clear();
+    metadataPacketCountByStream.clear();
+    pendingPackets.clear();
+    allProgramMapTablesFound = false;
+  }
+
+  private void handlePacket(final MTSPacket packet, final BiConsumer<Integer, byte[]> callback)
+      throws JCodecException {
+    final int packetId = packet.getPid();
 
-    while ((packet = source.nextPacket()) != null) {
-      if (isProgramAssociationTable(packet) && !seenProgramAssociationTable()) {
+    if (isProgramAssociationTable(packet)) {
+      if (!seenProgramAssociationTable()) {
         getProgramAssociationTable(packet);
-      } else if (isProgramMapTable(packet) && !seenProgramMapTable(packet)) {
+      }
+    } else if (isProgramMapTable(packet)) {
+      if (!seenProgramMapTable(packet)) {
         getProgramMapTable(packet);
 
-        if (foundAllProgramMapTables()) {
-          break;
+        if (allProgramMapTablesFound) {
+          handlePendingPackets(callback);
         }
       }
+    } else if (isElementaryStreamPacket(packetId)) {
+      if (allProgramMapTablesFound) {
+        handleElementaryStreamPacket(packet, packetId, callback);
+      } else {
+        holdPacket(packet);
+      }
+    }
+  }
+
+  /**
+   * Until every program map table has been seen it is not known which packets belong to metadata
+   * streams, so they are held, up to a limit, and replayed in order once it is.
+   */
+  private void holdPacket(final MTSPacket packet) {
+    if (pendingPackets.size() >= MAX_PENDING_PACKETS) {
+      pendingPackets.removeFirst();
+      LOGGER.debug("Dropping packet received before the program map tables were found");
+    }
+    pendingPackets.addLast(packet);
+  }
+
+  private void handlePendingPackets(final BiConsumer<Integer, byte[]> callback) {
+    MTSPacket packet;
+    while ((packet = pendingPackets.pollFirst()) != null) {
+      final int packetId = packet.getPid();
+      if (isElementaryStreamPacket(packetId)) {
+        handleElementaryStreamPacket(packet, packetId, callback);
+      }
     }
   }
 
@@ -194,53 +316,63 @@ private void getProgramMapTable(final MTSPacket packet) {
     for (final PMTStream stream : pmt.getStreams()) {
       programElementaryStreams.put(stream.getPid(), stream);
     }
-  }
 
-  private boolean foundAllProgramMapTables() {
-    final Set<Integer> packetIdsOfProgramMapTablesSeen = programMapTables.keySet();
-    return CollectionUtils.isEqualCollection(
-        packetIdsOfProgramMapTablesSeen, programMapTablePacketIdDirectory);
+    allProgramMapTablesFound =
+        CollectionUtils.isEqualCollection(
+            programMapTables.keySet(), programMapTablePacketIdDirectory);
   }
 
   private boolean isElementaryStreamPacket(final int packetId) {
     return packetId != 0 && !programMapTablePacketIdDirectory.contains(packetId);
   }
 
-  private byte[] getByteBufferAsBytes(final ByteBuffer buffer) {
-    final byte[] bytes = new byte[buffer.remaining()];
-    buffer.get(bytes);
-    return bytes;
-  }
-
   private void handleElementaryStreamPacket(
       final MTSPacket packet, final int packetId, final BiConsumer<Integer, byte[]> callback) {
     if (programElementaryStreams.containsKey(packetId)) {
       final PMTStream stream = programElementaryStreams.get(packetId);
 
       if (isMetadataStream(stream)) {
-        final byte[] currentMetadataPacketBytes = currentMetadataPacketBytesByStream.get(packetId);
+        final ByteArrayOutputStream currentMetadataPacketBytes =
+            currentMetadataPacketBytesByStream.get(packetId);
 
         final boolean startingNewMetadataPacket = packet.isPayloadUnitStartIndicator();
         final boolean currentMetadataPacketToHandle = currentMetadataPacketBytes != null;
         final boolean reachedEndOfCurrentMetadataPacket =
             startingNewMetadataPacket && currentMetadataPacketToHandle;
 
-        final byte[] payloadBytes = getByteBufferAsBytes(packet.getPayload());
-
         if (reachedEndOfCurrentMetadataPacket) {
-          callback.accept(packetId, currentMetadataPacketBytes);
-          startNewMetadataPacketBytes(packetId, payloadBytes);
+          handleMetadataPacket(packetId, currentMetadataPacketBytes, callback);
+          startNewMetadataPacketBytes(packetId, packet.getPayload());
         } else if (startingNewMetadataPacket) {
-          startNewMetadataPacketBytes(packetId, payloadBytes);
+          startNewMetadataPacketBytes(packetId, packet.getPayload());
         } else if (currentMetadataPacketToHandle) {
-          final byte[] concatenatedMetadataPacket =
-              ArrayUtils.addAll(currentMetadataPacketBytes, payloadBytes);
-          currentMetadataPacketBytesByStream.put(packetId, concatenatedMetadataPacket);
+          appendPayload(currentMetadataPacketBytes, packet.getPayload());
         }
       }
     }
   }
 
+  private void handleMetadataPacket(
+      final int packetId,
+      final ByteArrayOutputStream metadataPacketBytes,
+      final BiConsumer<Integer, byte[]> callback) {
+    final long metadataPacketNumber =
+        metadataPacketCountByStream.merge(packetId, 1L, Long::sum) - 1;
+    if (metadataPacketNumber % sampleInterval == 0) {
+      callback.accept(packetId, metadataPacketBytes.toByteArray());
+    }
+  }
+
+  private void appendPayload(final ByteArrayOutputStream bytes, final ByteBuffer payload) {
+    if (payload.hasArray()) {
+      bytes.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+    } else {
+      final byte[] payloadBytes = new byte[payload.remaining()];
+      payload.get(payloadBytes);
+      bytes.write(payloadBytes, 0, payloadBytes.length);
+    }
+  }
+
   private boolean isPrivateDataStream(final PMTStream stream) {
     return stream.getStreamType() == StreamType.PRIVATE_DATA;
   }
@@ -253,8 +385,10 @@ private boolean isMetadataStream(final PMTStream stream) {
     return isPrivateDataStream(stream) || isMetadataPesStream(stream);
   }
 
-  private void startNewMetadataPacketBytes(final int packetId, final byte[] newMetadataBytes) {
-    currentMetadataPacketBytesByStream.put(packetId, newMetadataBytes);
+  private void startNewMetadataPacketBytes(final int packetId, final ByteBuffer payload) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.remaining());
+    appendPayload(bytes, payload);
+    currentMetadataPacketBytesByStream.put(packetId, bytes);
   }
 
   /*
@@ -266,6 +400,8 @@ private void startNewMetadataPacketBytes(final int packetId, final byte[] newMet
    * over the transport stream and they will need to be handled separately.
    */
   private void handleLastPacketOfEachStream(final BiConsumer<Integer, byte[]> callback) {
-    currentMetadataPacketBytesByStream.forEach(callback);
+    currentMetadataPacketBytesByStream.forEach(
+        (packetId, bytes) -> handleMetadataPacket(packetId, bytes, callback));
+    currentMetadataPacketBytesByStream.clear();
   }
 }
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.libs.mpeg.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import org.taktik.mpegts.MTSPacket;
+import org.taktik.mpegts.sources.MTSSource;
+
+/**
+ * An {@link MTSSource} that reads fixed-size transport stream packets either from a {@link
+ * ReadableByteChannel}, in bulk reads of many packets at a time, or directly from a {@link
+ * ByteBuffer} such as a memory-mapped file. A trailing partial packet is ignored.
+ */
+class TransportStreamPacketSource implements MTSSource {
+
+  static final int PACKET_SIZE = 188;
+
+  private static final int PACKETS_PER_READ = 256;
+
+  private final ReadableByteChannel channel;
+
+  private final ByteBuffer buffer;
+
+  private boolean endOfChannel;
+
+  private TransportStreamPacketSource(ReadableByteChannel channel, ByteBuffer buffer) {
+    this.channel = channel;
+    this.buffer = buffer;
+    this.endOfChannel = channel == null;
+  }
+
+  static TransportStreamPacketSource from(ReadableByteChannel channel) {
+    ByteBuffer buffer = ByteBuffer.allocate(PACKET_SIZE * PACKETS_PER_READ);
+    buffer.flip();
+    return new TransportStreamPacketSource(channel, buffer);
+  }
+
+  static TransportStreamPacketSource from(ByteBuffer buffer) {
+    return new TransportStreamPacketSource(null, buffer.duplicate());
+  }
+
+  @Override
+  public MTSPacket nextPacket() throws IOException {
+    if (buffer.remaining() < PACKET_SIZE && !fill()) {
+      return null;
+    }
+
+    ByteBuffer packet;
+    if (channel == null) {
+      // the buffer is never refilled, so the packet can share it
+      packet = buffer.slice();
+      packet.limit(PACKET_SIZE);
+      buffer.position(buffer.position() + PACKET_SIZE);
+    } else {
+      byte[] bytes = new byte[PACKET_SIZE];
+      buffer.get(bytes);
+      packet = ByteBuffer.wrap(bytes);
+    }
+    return new MTSPacket(packet);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /** @return {@code true} if at least one whole packet is buffered */
+  private boolean fill() throws IOException {
+    while (!endOfChannel && buffer.remaining() < PACKET_SIZE) {
+      buffer.compact();
+      try {
+        if (channel.read(buffer) < 0) {
+          endOfChannel = true;
+        }
+      } finally {
+        buffer.flip();
+      }
+    }
+    return buffer.remaining() >= PACKET_SIZE;
+  }
+}
@@ -22,7 +22,10 @@
 import static org.mockito.Mockito.verify;
 
 import com.google.common.io.ByteSource;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -32,10 +35,12 @@
 import org.mockito.ArgumentCaptor;
 
 public class MpegTransportStreamMetadataExtractorTest {
+  private byte[] getTransportStreamBytes() throws IOException {
+    return IOUtils.toByteArray(getClass().getClassLoader().getResourceAsStream("dayflight.mpg"));
+  }
+
   private MpegTransportStreamMetadataExtractor getExtractor() throws IOException {
-    final ByteSource byteSource =
-        ByteSource.wrap(
-            IOUtils.toByteArray(getClass().getClassLoader().getResourceAsStream("dayflight.mpg")));
+    final ByteSource byteSource = ByteSource.wrap(getTransportStreamBytes());
 
     return new MpegTransportStreamMetadataExtractor(byteSource);
   }
@@ -72,6 +77,50 @@ public void testExtractAll() throws Exception {
     verifyExtractedBytes(metadataStreams.get(497));
   }
 
+  @Test
+  public void testExtractFromChannel() throws Exception {
+    final MpegTransportStreamMetadataExtractor extractor =
+        new MpegTransportStreamMetadataExtractor(
+            Channels.newChannel(new ByteArrayInputStream(getTransportStreamBytes())));
+
+    final Map<Integer, List<byte[]>> metadataStreams = extractor.getMetadata();
+
+    assertThat(metadataStreams, hasKey(497));
+
+    verifyExtractedBytes(metadataStreams.get(497));
+  }
+
+  @Test
+  public void testExtractFromBuffer() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.wrap(getTransportStreamBytes());
+    final MpegTransportStreamMetadataExtractor extractor =
+        new MpegTransportStreamMetadataExtractor(buffer);
+
+    final Map<Integer, List<byte[]>> metadataStreams = extractor.getMetadata();
+
+    assertThat(metadataStreams, hasKey(497));
+    verifyExtractedBytes(metadataStreams.get(497));
+    assertThat(buffer.position(), is(0));
+  }
+
+  @Test
+  public void testSampleInterval() throws Exception {
+    final MpegTransportStreamMetadataExtractor extractor = getExtractor();
+    extractor.setSampleInterval(5);
+
+    final Map<Integer, List<byte[]>> metadataStreams = extractor.getMetadata();
+
+    // Packets 0, 5 and 10 of the 12 in the stream are sampled; packet 10 has the payload.
+    final List<byte[]> metadataPackets = metadataStreams.get(497);
+    assertThat(metadataPackets.size(), is(3));
+    assertThat(metadataPackets.get(2).length, is(0xA6 + 6));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSampleInterval() throws Exception {
+    getExtractor().setSampleInterval(0);
+  }
+
   private void verifyExtractedBytes(final List<byte[]> metadataPackets) {
     assertThat(metadataPackets.size(), is(12));
 
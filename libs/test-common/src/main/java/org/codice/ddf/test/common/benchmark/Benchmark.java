@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.ddf.test.common.benchmark;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assume;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class provides a small timing harness for opt-in benchmarks written as plain JUnit tests. A
+ * benchmark compares one or more labelled operations by running each of them a number of times per
+ * round, discarding the warm-up rounds that give the JIT a chance to compile them, and logging the
+ * average time per operation over the measured rounds.
+ *
+ * <p>Benchmarks are skipped unless the {@value #BENCHMARK_PROPERTY} system property is {@code
+ * true}, e.g. {@code mvn test -Dddf.benchmark=true -Dtest=KlvDecoderTest#benchmarkDecoding}.
+ */
+public class Benchmark {
+
+  /** Set to {@code true} to run the tests that call {@link #assumeEnabled()}. */
+  public static final String BENCHMARK_PROPERTY = "ddf.benchmark";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(Benchmark.class);
+
+  private final String name;
+
+  private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+  private int operationsPerRound = 1;
+
+  private int warmupRounds = 2;
+
+  private int rounds = 3;
+
+  private Benchmark(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Skips the calling test unless the {@value #BENCHMARK_PROPERTY} system property is {@code true}.
+   * Should be called before any expensive set up.
+   */
+  public static void assumeEnabled() {
+    Assume.assumeTrue(
+        "Set " + BENCHMARK_PROPERTY + "=true to run benchmarks",
+        Boolean.getBoolean(BENCHMARK_PROPERTY));
+  }
+
+  /**
+   * Creates a new benchmark.
+   *
+   * @param name the name logged with the results of the benchmark
+   * @return a new benchmark with no operations
+   */
+  public static Benchmark named(String name) {
+    return new Benchmark(name);
+  }
+
+  /**
+   * Sets how many times each operation is run per round. Defaults to 1.
+   *
+   * @param operationsPerRound the number of times each operation is run per round
+   * @return this benchmark
+   */
+  public Benchmark operations(int operationsPerRound) {
+    this.operationsPerRound = Math.max(1, operationsPerRound);
+    return this;
+  }
+
+  /**
+   * Sets how many rounds are run and discarded before measuring. Defaults to 2.
+   *
+   * @param warmupRounds the number of unmeasured rounds
+   * @return this benchmark
+   */
+  public Benchmark warmupRounds(int warmupRounds) {
+    this.warmupRounds = Math.max(0, warmupRounds);
+    return this;
+  }
+
+  /**
+   * Sets how many rounds are measured. Defaults to 3.
+   *
+   * @param rounds the number of measured rounds
+   * @return this benchmark
+   */
+  public Benchmark rounds(int rounds) {
+    this.rounds = Math.max(1, rounds);
+    return this;
+  }
+
+  /**
+   * Adds an operation to compare. Operations are run in the order they were added, one after the
+   * other within each round.
+   *
+   * @param label the label logged with the results of the operation
+   * @param operation the operation to time
+   * @return this benchmark
+   */
+  public Benchmark add(String label, Operation operation) {
+    operations.put(label, operation);
+    return this;
+  }
+
+  /**
+   * Runs the benchmark and logs the average time per operation and operations per second of each
+   * labelled operation.
+   *
+   * @return the average nanoseconds per operation over the measured rounds, keyed by label in the
+   *     order the operations were added
+   * @throws Exception if any operation fails
+   */
+  public Map<String, Long> run() throws Exception {
+    Map<String, Long> totalNanos = new LinkedHashMap<>();
+    for (int round = 0; round < warmupRounds + rounds; round++) {
+      for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+        long nanos = time(operation.getValue());
+        if (round >= warmupRounds) {
+          totalNanos.merge(operation.getKey(), nanos, Long::sum);
+        }
+      }
+    }
+
+    long measuredOperations = (long) rounds * operationsPerRound;
+    Map<String, Long> nanosPerOperation = new LinkedHashMap<>();
+    totalNanos.forEach(
+        (label, nanos) -> {
+          long average = nanos / measuredOperations;
+          nanosPerOperation.put(label, average);
+          LOGGER.info(
+              "{}: {} {} ns/op ({} ops/s)",
+              name,
+              label,
+              average,
+              average == 0 ? "-" : TimeUnit.SECONDS.toNanos(1) / average);
+        });
+    return Collections.unmodifiableMap(nanosPerOperation);
+  }
+
+  private long time(Operation operation) throws Exception {
+    long start = System.nanoTime();
+    for (int i = 0; i < operationsPerRound; i++) {
+      operation.run();
+    }
+    return System.nanoTime() - start;
+  }
+
+  /** An operation timed by a {@link Benchmark}. */
+  @FunctionalInterface
+  public interface Operation {
+    void run() throws Exception;
+  }
+}
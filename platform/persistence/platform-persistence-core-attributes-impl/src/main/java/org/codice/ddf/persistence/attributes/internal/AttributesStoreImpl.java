@@ -13,8 +13,12 @@
  */
 package org.codice.ddf.persistence.attributes.internal;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.commons.lang.StringUtils;
@@ -26,56 +30,70 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Keeps the data usages and limits of users in memory. Data usage added by resource retrievals is
+ * counted in memory and added to the {@link PersistentStore} in batches, every {@value
+ * #FLUSH_INTERVAL_SECONDS} seconds and on shutdown. Data usages and limits that are set are written
+ * to the {@link PersistentStore} immediately.
+ */
 public class AttributesStoreImpl implements AttributesStore {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AttributesStoreImpl.class);
 
+  private static final long FLUSH_INTERVAL_SECONDS = 30;
+
   private PersistentStore persistentStore;
 
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Held for writing while usages are written to the {@link PersistentStore}, so that flushes and
+   * changes made by administrators do not overwrite each other.
+   */
   private ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
+  private final Map<String, UserDataUsage> dataUsages = new ConcurrentHashMap<>();
+
   private static final String EMPTY_USERNAME_ERROR = "Empty username specified";
 
   private static final long NO_DATA_LIMIT = -1L;
 
-  public AttributesStoreImpl(PersistentStore persistentStore) {
+  public AttributesStoreImpl(PersistentStore persistentStore, ScheduledExecutorService executor) {
     this.persistentStore = persistentStore;
+    this.executor = executor;
+  }
+
+  public void init() {
+    try {
+      recover();
+    } catch (PersistenceException e) {
+      LOGGER.info("Unable to load user data usages. They will be loaded as they are needed.", e);
+    }
+    executor.scheduleWithFixedDelay(
+        this::flushQuietly, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public void destroy() {
+    executor.shutdownNow();
+    flushQuietly();
   }
 
   @Override
   public long getCurrentDataUsageByUser(final String username) throws PersistenceException {
-    long currentDataUsage = 0L;
-
     if (StringUtils.isEmpty(username)) {
       throw new PersistenceException(EMPTY_USERNAME_ERROR);
     }
 
-    try {
-      readWriteLock.readLock().lock();
-      currentDataUsage = getCurrentDataUsageByUserNoLock(username);
-    } finally {
-      readWriteLock.readLock().unlock();
-    }
-
-    return currentDataUsage;
+    return getDataUsage(username).getUsage();
   }
 
   @Override
   public long getDataLimitByUser(final String username) throws PersistenceException {
-    long dataLimit = NO_DATA_LIMIT;
-
     if (StringUtils.isEmpty(username)) {
       throw new PersistenceException(EMPTY_USERNAME_ERROR);
     }
 
-    try {
-      readWriteLock.readLock().lock();
-      dataLimit = getDataLimitByUserNoLock(username);
-    } finally {
-      readWriteLock.readLock().unlock();
-    }
-
-    return dataLimit;
+    return getDataUsage(username).getDataLimit();
   }
 
   @Override
@@ -86,18 +104,10 @@ public void updateUserDataUsage(final String username, final long newDataUsage)
     }
 
     if (newDataUsage > 0) {
-      try {
-        readWriteLock.writeLock().lock();
-        long dataUsage = getCurrentDataUsageByUserNoLock(username);
-        dataUsage += newDataUsage;
+      UserDataUsage dataUsage = getDataUsage(username);
+      dataUsage.add(newDataUsage);
 
-        LOGGER.debug("Updating user {} data usage to {}", username, dataUsage);
-        persistentStore.add(
-            PersistenceType.USER_ATTRIBUTE_TYPE.toString(),
-            toPersistentItem(username, dataUsage, getDataLimitByUser(username)));
-      } finally {
-        readWriteLock.writeLock().unlock();
-      }
+      LOGGER.debug("Updating user {} data usage to {}", username, dataUsage.getUsage());
     }
   }
 
@@ -113,9 +123,11 @@ public void setDataUsage(final String username, final long dataUsage)
         readWriteLock.writeLock().lock();
 
         LOGGER.debug("Updating user {} data usage to {}", username, dataUsage);
-        persistentStore.add(
-            PersistenceType.USER_ATTRIBUTE_TYPE.toString(),
-            toPersistentItem(username, dataUsage, NO_DATA_LIMIT));
+        store(
+            username,
+            dataUsages.computeIfAbsent(username, key -> new UserDataUsage(0L, NO_DATA_LIMIT)),
+            dataUsage,
+            NO_DATA_LIMIT);
       } finally {
         readWriteLock.writeLock().unlock();
       }
@@ -134,9 +146,10 @@ public void setDataLimit(final String username, final long dataLimit)
         readWriteLock.writeLock().lock();
 
         LOGGER.debug("Updating user {} data limit to {}", username, dataLimit);
-        persistentStore.add(
-            PersistenceType.USER_ATTRIBUTE_TYPE.toString(),
-            toPersistentItem(username, getCurrentDataUsageByUser(username), dataLimit));
+        UserDataUsage dataUsage = getDataUsage(username);
+        synchronized (dataUsage) {
+          store(username, dataUsage, dataUsage.getUsage(), dataLimit);
+        }
       } finally {
         readWriteLock.writeLock().unlock();
       }
@@ -145,6 +158,8 @@ public void setDataLimit(final String username, final long dataLimit)
 
   @Override
   public List<Map<String, Object>> getAllUsers() throws PersistenceException {
+    flush();
+
     List<Map<String, Object>> userMap;
     try {
       readWriteLock.readLock().lock();
@@ -165,15 +180,99 @@ public void resetUserDataUsages() throws PersistenceException {
         readWriteLock.writeLock().lock();
 
         LOGGER.debug("Resetting Data usage for user : {}", username);
-        persistentStore.add(
-            PersistenceType.USER_ATTRIBUTE_TYPE.toString(),
-            toPersistentItem(username, 0L, dataLimit));
+        UserDataUsage dataUsage = username == null ? null : dataUsages.get(username);
+        if (dataUsage == null) {
+          persistentStore.add(
+              PersistenceType.USER_ATTRIBUTE_TYPE.toString(),
+              toPersistentItem(username, 0L, dataLimit));
+        } else {
+          store(username, dataUsage, 0L, dataLimit);
+        }
       } finally {
         readWriteLock.writeLock().unlock();
       }
     }
   }
 
+  /**
+   * Adds the data usage counted since the last flush to the usage of each user in the {@link
+   * PersistentStore}, in a single batch. Usage that cannot be written is kept for the next flush.
+   *
+   * @throws PersistenceException if the usages cannot be read from or written to the store
+   */
+  void flush() throws PersistenceException {
+    try {
+      readWriteLock.writeLock().lock();
+
+      List<FlushedUsage> flushedUsages = new ArrayList<>();
+      List<Map<String, Object>> items = new ArrayList<>();
+      for (Map.Entry<String, UserDataUsage> entry : dataUsages.entrySet()) {
+        long pendingUsage = entry.getValue().getPendingUsage();
+        if (pendingUsage > 0) {
+          // reconcile with the stored usage, which may have been changed by another node
+          UserDataUsage storedUsage = loadDataUsage(entry.getKey());
+          FlushedUsage flushedUsage =
+              new FlushedUsage(
+                  entry.getValue(),
+                  storedUsage.getUsage() + pendingUsage,
+                  storedUsage.getDataLimit(),
+                  pendingUsage);
+          flushedUsages.add(flushedUsage);
+          items.add(toPersistentItem(entry.getKey(), flushedUsage.usage, flushedUsage.dataLimit));
+        }
+      }
+
+      if (!items.isEmpty()) {
+        LOGGER.debug("Flushing data usage of {} users", items.size());
+        persistentStore.add(PersistenceType.USER_ATTRIBUTE_TYPE.toString(), items);
+        flushedUsages.forEach(FlushedUsage::flushed);
+      }
+    } finally {
+      readWriteLock.writeLock().unlock();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (PersistenceException | RuntimeException e) {
+      LOGGER.info("Unable to save user data usages. Will try again later.", e);
+    }
+  }
+
+  /** Loads the stored data usages and limits of all users. */
+  private void recover() throws PersistenceException {
+    List<Map<String, Object>> users;
+    try {
+      readWriteLock.readLock().lock();
+      users = persistentStore.get(PersistenceType.USER_ATTRIBUTE_TYPE.toString());
+    } finally {
+      readWriteLock.readLock().unlock();
+    }
+
+    if (users != null) {
+      for (Map<String, Object> user : users) {
+        Map<String, Object> attributes = PersistentItem.stripSuffixes(user);
+        Object username = attributes.get(USER_KEY);
+        if (username instanceof String) {
+          dataUsages.putIfAbsent((String) username, toDataUsage(attributes));
+        }
+      }
+    }
+    LOGGER.debug("Loaded data usage of {} users", dataUsages.size());
+  }
+
+  private void store(
+      final String username, final UserDataUsage dataUsage, final long usage, final long dataLimit)
+      throws PersistenceException {
+    synchronized (dataUsage) {
+      persistentStore.add(
+          PersistenceType.USER_ATTRIBUTE_TYPE.toString(),
+          toPersistentItem(username, usage, dataLimit));
+      dataUsage.set(usage, dataLimit);
+    }
+  }
+
   private PersistentItem toPersistentItem(
       final String username, final long dataUsage, final long dataLimit)
       throws PersistenceException {
@@ -189,8 +288,25 @@ private PersistentItem toPersistentItem(
     return item;
   }
 
-  private long getCurrentDataUsageByUserNoLock(final String username) throws PersistenceException {
-    long currentDataUsage = 0L;
+  private UserDataUsage getDataUsage(final String username) throws PersistenceException {
+    UserDataUsage dataUsage = dataUsages.get(username);
+    if (dataUsage == null) {
+      UserDataUsage loadedUsage;
+      try {
+        readWriteLock.readLock().lock();
+        loadedUsage = loadDataUsage(username);
+      } finally {
+        readWriteLock.readLock().unlock();
+      }
+      dataUsage = dataUsages.putIfAbsent(username, loadedUsage);
+      if (dataUsage == null) {
+        dataUsage = loadedUsage;
+      }
+    }
+    return dataUsage;
+  }
+
+  private UserDataUsage loadDataUsage(final String username) throws PersistenceException {
     List<Map<String, Object>> attributesList;
     attributesList =
         persistentStore.get(
@@ -198,28 +314,89 @@ private long getCurrentDataUsageByUserNoLock(final String username) throws Persi
             String.format("%s = '%s'", USER_KEY, username));
 
     if (attributesList != null && attributesList.size() == 1) {
-      Map<String, Object> attributes = PersistentItem.stripSuffixes(attributesList.get(0));
-      currentDataUsage = (long) attributes.get(DATA_USAGE_KEY);
+      UserDataUsage dataUsage = toDataUsage(PersistentItem.stripSuffixes(attributesList.get(0)));
+
+      LOGGER.debug(
+          "User {} data usage {} data limit {}",
+          username,
+          dataUsage.getUsage(),
+          dataUsage.getDataLimit());
+      return dataUsage;
+    }
+    return new UserDataUsage(0L, NO_DATA_LIMIT);
+  }
+
+  private UserDataUsage toDataUsage(Map<String, Object> attributes) {
+    Object dataUsage = attributes.get(DATA_USAGE_KEY);
+    Object dataLimit = attributes.get(DATA_USAGE_LIMIT_KEY);
+    return new UserDataUsage(
+        dataUsage instanceof Long ? (long) dataUsage : 0L,
+        dataLimit instanceof Long ? (long) dataLimit : NO_DATA_LIMIT);
+  }
+
+  /** The data usage and limit of a user. */
+  private static class UserDataUsage {
+
+    private long storedUsage;
 
-      LOGGER.debug("User {} data usage {} ", username, currentDataUsage);
+    private long pendingUsage;
+
+    private long dataLimit;
+
+    UserDataUsage(long storedUsage, long dataLimit) {
+      this.storedUsage = storedUsage;
+      this.dataLimit = dataLimit;
+    }
+
+    synchronized long getUsage() {
+      return storedUsage + pendingUsage;
+    }
+
+    synchronized long getPendingUsage() {
+      return pendingUsage;
+    }
+
+    synchronized long getDataLimit() {
+      return dataLimit;
+    }
+
+    synchronized void add(long usage) {
+      pendingUsage += usage;
+    }
+
+    synchronized void set(long usage, long dataLimit) {
+      this.storedUsage = usage;
+      this.pendingUsage = 0L;
+      this.dataLimit = dataLimit;
+    }
+
+    /** Records that the first {@code usage} of the pending usage was stored. */
+    synchronized void flushed(long storedUsage, long dataLimit, long usage) {
+      this.storedUsage = storedUsage;
+      this.pendingUsage -= usage;
+      this.dataLimit = dataLimit;
     }
-    return currentDataUsage;
   }
 
-  private long getDataLimitByUserNoLock(final String username) throws PersistenceException {
-    long dataLimit = NO_DATA_LIMIT;
-    List<Map<String, Object>> attributesList;
-    attributesList =
-        persistentStore.get(
-            PersistenceType.USER_ATTRIBUTE_TYPE.toString(),
-            String.format("%s = '%s'", USER_KEY, username));
+  private static class FlushedUsage {
 
-    if (attributesList != null && attributesList.size() == 1) {
-      Map<String, Object> attributes = PersistentItem.stripSuffixes(attributesList.get(0));
-      dataLimit = (long) attributes.get(DATA_USAGE_LIMIT_KEY);
+    private final UserDataUsage dataUsage;
+
+    private final long usage;
+
+    private final long dataLimit;
+
+    private final long flushedUsage;
+
+    FlushedUsage(UserDataUsage dataUsage, long usage, long dataLimit, long flushedUsage) {
+      this.dataUsage = dataUsage;
+      this.usage = usage;
+      this.dataLimit = dataLimit;
+      this.flushedUsage = flushedUsage;
+    }
 
-      LOGGER.debug("User {} data limit {} ", username, dataLimit);
+    void flushed() {
+      dataUsage.flushed(usage, dataLimit, flushedUsage);
     }
-    return dataLimit;
   }
 }
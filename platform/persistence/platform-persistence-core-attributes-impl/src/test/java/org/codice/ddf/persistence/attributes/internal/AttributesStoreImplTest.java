@@ -15,18 +15,26 @@
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.atLeast;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.codice.ddf.persistence.PersistenceException;
 import org.codice.ddf.persistence.PersistentItem;
 import org.codice.ddf.persistence.PersistentStore;
@@ -44,6 +52,8 @@ public class AttributesStoreImplTest {
 
   private PersistentStore persistentStore = mock(PersistentStore.class);
 
+  private ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+
   private static final String USER = "user";
 
   private static final String CQL = String.format("%s = '%s'", AttributesStoreImpl.USER_KEY, USER);
@@ -62,7 +72,7 @@ public class AttributesStoreImplTest {
 
   @Before
   public void setup() {
-    attributesStore = new AttributesStoreImpl(persistentStore);
+    attributesStore = new AttributesStoreImpl(persistentStore, executor);
   }
 
   @Test
@@ -83,7 +93,6 @@ public void testUpdateDataUsage() throws PersistenceException {
     ArgumentCaptor<String> keyArg1 = ArgumentCaptor.forClass(String.class);
     ArgumentCaptor<String> keyArg2 = ArgumentCaptor.forClass(String.class);
     ArgumentCaptor<String> cqlArg = ArgumentCaptor.forClass(String.class);
-    ArgumentCaptor<PersistentItem> itemArg = ArgumentCaptor.forClass(PersistentItem.class);
 
     attributesList = new ArrayList<>();
     Map<String, Object> attributes = new HashMap<>();
@@ -93,18 +102,124 @@ public void testUpdateDataUsage() throws PersistenceException {
     when(persistentStore.get(anyString(), anyString())).thenReturn(attributesList);
 
     attributesStore.updateUserDataUsage(USER, LONG_5);
+    attributesStore.flush();
 
-    verify(persistentStore, atLeast(2)).get(keyArg1.capture(), cqlArg.capture());
-    verify(persistentStore).add(keyArg2.capture(), itemArg.capture());
+    verify(persistentStore, times(2)).get(keyArg1.capture(), cqlArg.capture());
+    PersistentItem item = captureFlushedItem(keyArg2);
 
     assertThat(keyArg1.getValue(), is(PersistenceType.USER_ATTRIBUTE_TYPE.toString()));
     assertThat(keyArg2.getValue(), is(PersistenceType.USER_ATTRIBUTE_TYPE.toString()));
 
-    assertThat(itemArg.getValue().getLongProperty(AttributesStore.DATA_USAGE_KEY), is(600L));
+    assertThat(item.getLongProperty(AttributesStore.DATA_USAGE_KEY), is(600L));
 
     assertThat(cqlArg.getValue(), is(CQL));
   }
 
+  @Test
+  public void testUpdateDataUsageIsCountedInMemory() throws PersistenceException {
+    storeUsage(LONG_1, LONG_5);
+
+    attributesStore.updateUserDataUsage(USER, LONG_1);
+    attributesStore.updateUserDataUsage(USER, LONG_2);
+
+    assertThat(attributesStore.getCurrentDataUsageByUser(USER), is(400L));
+    assertThat(attributesStore.getDataLimitByUser(USER), is(LONG_5));
+    verify(persistentStore, times(1)).get(anyString(), anyString());
+    verify(persistentStore, never()).add(anyString(), anyMap());
+    verify(persistentStore, never()).add(anyString(), anyCollection());
+  }
+
+  @Test
+  public void testFlushAddsToTheStoredDataUsage() throws PersistenceException {
+    storeUsage(LONG_1, LONG_5);
+    attributesStore.updateUserDataUsage(USER, LONG_1);
+
+    // the usage was changed elsewhere since it was loaded
+    storeUsage(LONG_2, LONG_5);
+    attributesStore.flush();
+
+    PersistentItem item = captureFlushedItem(ArgumentCaptor.forClass(String.class));
+    assertThat(item.getLongProperty(AttributesStore.DATA_USAGE_KEY), is(300L));
+    assertThat(item.getLongProperty(AttributesStore.DATA_USAGE_LIMIT_KEY), is(LONG_5));
+    assertThat(attributesStore.getCurrentDataUsageByUser(USER), is(300L));
+
+    attributesStore.flush();
+
+    verify(persistentStore, times(1)).add(anyString(), anyCollection());
+  }
+
+  @Test
+  public void testFailedFlushKeepsDataUsage() throws PersistenceException {
+    storeUsage(LONG_1, LONG_5);
+    attributesStore.updateUserDataUsage(USER, LONG_1);
+    doThrow(new PersistenceException())
+        .doNothing()
+        .when(persistentStore)
+        .add(anyString(), anyCollection());
+
+    attributesStore.destroy();
+    attributesStore.flush();
+
+    verify(executor).shutdownNow();
+    verify(persistentStore, times(2)).add(anyString(), anyCollection());
+    assertThat(attributesStore.getCurrentDataUsageByUser(USER), is(LONG_2));
+  }
+
+  @Test
+  public void testInitLoadsStoredDataUsages() throws PersistenceException {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(AttributesStore.USER_KEY + PersistentItem.TEXT_SUFFIX, USER);
+    attributes.put(DATA_USAGE_LONG, LONG_2);
+    attributes.put(DATA_LIMIT_LONG, LONG_5);
+    List<Map<String, Object>> users = new ArrayList<>();
+    users.add(attributes);
+    users.add(new HashMap<>());
+    when(persistentStore.get(anyString())).thenReturn(users);
+
+    attributesStore.init();
+
+    assertThat(attributesStore.getCurrentDataUsageByUser(USER), is(LONG_2));
+    assertThat(attributesStore.getDataLimitByUser(USER), is(LONG_5));
+    verify(persistentStore, never()).get(anyString(), anyString());
+    verify(executor)
+        .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), eq(TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testInitWhenStoreIsUnavailable() throws PersistenceException {
+    when(persistentStore.get(anyString())).thenThrow(new PersistenceException());
+    storeUsage(LONG_1, LONG_5);
+
+    attributesStore.init();
+
+    assertThat(attributesStore.getCurrentDataUsageByUser(USER), is(LONG_1));
+  }
+
+  @Test
+  public void testSetDataUsageDiscardsPendingDataUsage() throws PersistenceException {
+    storeUsage(LONG_1, LONG_5);
+    attributesStore.updateUserDataUsage(USER, LONG_2);
+
+    attributesStore.setDataUsage(USER, 0L);
+    attributesStore.flush();
+
+    assertThat(attributesStore.getCurrentDataUsageByUser(USER), is(0L));
+    verify(persistentStore, never()).add(anyString(), anyCollection());
+  }
+
+  @Test
+  public void testSetDataLimitStoresPendingDataUsage() throws PersistenceException {
+    ArgumentCaptor<PersistentItem> itemArg = ArgumentCaptor.forClass(PersistentItem.class);
+    storeUsage(LONG_1, LONG_5);
+    attributesStore.updateUserDataUsage(USER, LONG_2);
+
+    attributesStore.setDataLimit(USER, LONG_2);
+
+    verify(persistentStore).add(anyString(), itemArg.capture());
+    assertThat(itemArg.getValue().getLongProperty(AttributesStore.DATA_USAGE_KEY), is(300L));
+    assertThat(attributesStore.getDataLimitByUser(USER), is(LONG_2));
+  }
+
   @Test
   public void testSetDataUsage() throws PersistenceException {
 
@@ -236,6 +351,25 @@ public void testGetDataLimit() throws PersistenceException {
     assertThat(usage, is(LONG_1));
   }
 
+  @Test
+  public void testResetUserDataUsagesResetsCountedDataUsage() throws PersistenceException {
+    storeUsage(LONG_1, LONG_5);
+    attributesStore.updateUserDataUsage(USER, LONG_2);
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(AttributesStore.USER_KEY + PersistentItem.TEXT_SUFFIX, USER);
+    attributes.put(DATA_USAGE_LONG, 300L);
+    attributes.put(DATA_LIMIT_LONG, LONG_5);
+    attributesList = new ArrayList<>();
+    attributesList.add(attributes);
+    when(persistentStore.get(anyString())).thenReturn(attributesList);
+
+    attributesStore.resetUserDataUsages();
+
+    verify(persistentStore).add(anyString(), anyCollection());
+    assertThat(attributesStore.getCurrentDataUsageByUser(USER), is(0L));
+    assertThat(attributesStore.getDataLimitByUser(USER), is(LONG_5));
+  }
+
   @Test
   public void resetUserDataUsages() throws PersistenceException {
     attributesList = new ArrayList<>();
@@ -255,4 +389,23 @@ public void resetUserDataUsages() throws PersistenceException {
     assertThat(
         itemArg.getValue().getLongProperty(AttributesStore.DATA_USAGE_LIMIT_KEY), is(LONG_1));
   }
+
+  private void storeUsage(long dataUsage, long dataLimit) throws PersistenceException {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(DATA_USAGE_LONG, dataUsage);
+    attributes.put(DATA_LIMIT_LONG, dataLimit);
+    List<Map<String, Object>> storedList = new ArrayList<>();
+    storedList.add(attributes);
+    when(persistentStore.get(anyString(), anyString())).thenReturn(storedList);
+  }
+
+  @SuppressWarnings("unchecked")
+  private PersistentItem captureFlushedItem(ArgumentCaptor<String> keyArg)
+      throws PersistenceException {
+    ArgumentCaptor<Collection> itemsArg = ArgumentCaptor.forClass(Collection.class);
+    verify(persistentStore).add(keyArg.capture(), itemsArg.capture());
+    Collection<Map<String, Object>> items = itemsArg.getValue();
+    assertThat(items.size(), is(1));
+    return (PersistentItem) items.iterator().next();
+  }
 }
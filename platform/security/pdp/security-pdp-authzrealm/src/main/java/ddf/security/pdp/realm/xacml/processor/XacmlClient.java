@@ -15,33 +15,43 @@
 
 import com.connexta.arbitro.PDP;
 import com.connexta.arbitro.PDPConfig;
+import com.connexta.arbitro.ParsingException;
+import com.connexta.arbitro.ctx.AbstractRequestCtx;
+import com.connexta.arbitro.ctx.AbstractResult;
+import com.connexta.arbitro.ctx.RequestCtxFactory;
+import com.connexta.arbitro.ctx.ResponseCtx;
+import com.connexta.arbitro.ctx.Status;
 import com.connexta.arbitro.finder.AttributeFinder;
 import com.connexta.arbitro.finder.AttributeFinderModule;
 import com.connexta.arbitro.finder.PolicyFinder;
 import com.connexta.arbitro.finder.PolicyFinderModule;
 import com.connexta.arbitro.finder.impl.CurrentEnvModule;
 import com.connexta.arbitro.finder.impl.SelectorModule;
+import com.connexta.arbitro.xacml3.Result;
 import com.google.common.collect.ImmutableList;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
-import javax.xml.bind.Marshaller;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.sax.SAXSource;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObjectFactory;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResultType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.StatusCodeType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.StatusType;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.codice.ddf.parser.Parser;
@@ -50,6 +60,8 @@
 import org.codice.ddf.platform.util.XMLUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -67,8 +79,6 @@ public class XacmlClient {
 
   private static final String XACML_PREFIX = "xacml";
 
-  private static JAXBContext jaxbContext;
-
   private static final long DEFAULT_POLLING_INTERVAL_IN_SECONDS = 60;
 
   private static final String NULL_DIRECTORY_EXCEPTION_MSG =
@@ -84,6 +94,11 @@ public class XacmlClient {
 
   private final Parser parser;
 
+  private final ObjectFactory objectFactory = new ObjectFactory();
+
+  /** Document builders are not thread safe, so each thread marshals requests with its own. */
+  private final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<>();
+
   /**
    * Creates the proxy to the real XACML PDP.
    *
@@ -137,13 +152,21 @@ private void initialize(File xacmlPoliciesDirectory) throws PdpException {
    * @throws PdpException
    */
   public ResponseType evaluate(RequestType xacmlRequestType) throws PdpException {
-    String xacmlRequest = this.marshal(xacmlRequestType);
+    Element xacmlRequest = this.marshal(xacmlRequestType);
+
+    ResponseCtx xacmlResponse = this.callPdp(xacmlRequest);
 
-    String xacmlResponse = this.callPdp(xacmlRequest);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("\nXACML 3.0 Response from XACML PDP:\n {}", xacmlResponse.encode());
+    }
 
-    LOGGER.debug("\nXACML 3.0 Response from XACML PDP:\n {}", xacmlResponse);
+    ResponseType responseType = toResponseType(xacmlResponse);
+    if (responseType != null) {
+      return responseType;
+    }
 
-    DOMResult domResult = addNamespaceAndPrefixes(xacmlResponse);
+    // obligations, advice and returned attributes are read from the XML form of the response
+    DOMResult domResult = addNamespaceAndPrefixes(xacmlResponse.encode());
 
     return unmarshal(domResult);
   }
@@ -226,12 +249,79 @@ private void checkXacmlPoliciesDirectory(File xacmlPoliciesDirectory) throws Pdp
   /**
    * Calls the real XACML PDP to evaluate the XACML request.
    *
-   * @param xacmlRequest The XACML request as a string.
-   * @return The XACML response as a string.
+   * @param xacmlRequest The XACML request element.
+   * @return The XACML response context of the PDP.
+   * @throws PdpException
+   */
+  private ResponseCtx callPdp(Element xacmlRequest) throws PdpException {
+    AbstractRequestCtx requestCtx;
+    try {
+      requestCtx = RequestCtxFactory.getFactory().getRequestCtx(xacmlRequest);
+    } catch (ParsingException e) {
+      String message = "Unable to read XACML request.";
+      LOGGER.info(message, e);
+      throw new PdpException(message, e);
+    }
+
+    return pdp.evaluate(requestCtx);
+  }
+
+  /**
+   * Converts the XACML response context of the PDP to a XACML response.
+   *
+   * @param xacmlResponse The XACML response context of the PDP.
+   * @return The XACML response, or null if a result has obligations, advice or attributes that must
+   *     be read from the XML form of the response.
    */
-  private String callPdp(String xacmlRequest) {
+  private ResponseType toResponseType(ResponseCtx xacmlResponse) {
+    ResponseType responseType = new ResponseType();
+    for (AbstractResult result : xacmlResponse.getResults()) {
+      if (isNotEmpty(result.getObligations())
+          || isNotEmpty(result.getAdvices())
+          || (result instanceof Result && isNotEmpty(((Result) result).getAttributes()))) {
+        return null;
+      }
+
+      ResultType resultType = new ResultType();
+      resultType.setDecision(toDecisionType(result.getDecision()));
+      resultType.setStatus(toStatusType(result.getStatus()));
+      responseType.getResult().add(resultType);
+    }
+    return responseType;
+  }
+
+  private DecisionType toDecisionType(int decision) {
+    switch (decision) {
+      case AbstractResult.DECISION_PERMIT:
+        return DecisionType.PERMIT;
+      case AbstractResult.DECISION_DENY:
+        return DecisionType.DENY;
+      case AbstractResult.DECISION_NOT_APPLICABLE:
+        return DecisionType.NOT_APPLICABLE;
+      default:
+        // all of the extended indeterminate decisions
+        return DecisionType.INDETERMINATE;
+    }
+  }
+
+  private StatusType toStatusType(Status status) {
+    if (status == null) {
+      return null;
+    }
 
-    return pdp.evaluate(xacmlRequest);
+    StatusType statusType = new StatusType();
+    List<String> codes = status.getCode();
+    if (isNotEmpty(codes)) {
+      StatusCodeType statusCode = new StatusCodeType();
+      statusCode.setValue(codes.get(0));
+      statusType.setStatusCode(statusCode);
+    }
+    statusType.setStatusMessage(status.getMessage());
+    return statusType;
+  }
+
+  private boolean isNotEmpty(Collection<?> collection) {
+    return collection != null && !collection.isEmpty();
   }
 
   /**
@@ -292,35 +382,47 @@ public void endElement(String uri, String localName, String qName) throws SAXExc
   }
 
   /**
-   * Marshalls the XACML request to a string.
+   * Marshalls the XACML request to a DOM element.
    *
    * @param xacmlRequestType The XACML request to marshal.
-   * @return A string representation of the XACML request.
+   * @return A DOM representation of the XACML request.
    */
-  private String marshal(RequestType xacmlRequestType) throws PdpException {
+  private Element marshal(RequestType xacmlRequestType) throws PdpException {
     if (null == parser) {
       throw new IllegalStateException("XMLParser must be configured.");
     }
-    String xacmlRequest = null;
+    Document xacmlRequest = newDocument();
     try {
-      List<String> ctxPath = new ArrayList<>(1);
-      ctxPath.add(ResponseType.class.getPackage().getName());
+      List<String> ctxPath = ImmutableList.of(ResponseType.class.getPackage().getName());
       ParserConfigurator configurator =
           parser.configureParser(ctxPath, XacmlClient.class.getClassLoader());
-      configurator.addProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-      ByteArrayOutputStream os = new ByteArrayOutputStream();
-      ObjectFactory objectFactory = new ObjectFactory();
-      parser.marshal(configurator, objectFactory.createRequest(xacmlRequestType), os);
-      xacmlRequest = os.toString("UTF-8");
-    } catch (ParserException | UnsupportedEncodingException e) {
+      parser.marshal(configurator, objectFactory.createRequest(xacmlRequestType), xacmlRequest);
+    } catch (ParserException e) {
       String message = "Unable to marshal XACML request.";
       LOGGER.info(message, e);
       throw new PdpException(message, e);
     }
 
-    LOGGER.debug("\nXACML 3.0 Request:\n{}", xacmlRequest);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("\nXACML 3.0 Request:\n{}", XML_UTILS.prettyFormat(xacmlRequest));
+    }
+
+    return xacmlRequest.getDocumentElement();
+  }
 
-    return xacmlRequest;
+  private Document newDocument() throws PdpException {
+    DocumentBuilder documentBuilder = documentBuilders.get();
+    if (documentBuilder == null) {
+      try {
+        documentBuilder = XML_UTILS.getSecureDocumentBuilder(true);
+      } catch (ParserConfigurationException e) {
+        String message = "Unable to create XACML request document.";
+        LOGGER.info(message, e);
+        throw new PdpException(message, e);
+      }
+      documentBuilders.set(documentBuilder);
+    }
+    return documentBuilder.newDocument();
   }
 
   /**
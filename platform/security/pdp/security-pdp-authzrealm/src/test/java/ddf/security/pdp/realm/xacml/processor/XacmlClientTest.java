@@ -16,13 +16,28 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.connexta.arbitro.PDP;
+import com.connexta.arbitro.PDPConfig;
+import com.connexta.arbitro.finder.AttributeFinder;
+import com.connexta.arbitro.finder.PolicyFinder;
+import com.connexta.arbitro.finder.impl.CurrentEnvModule;
+import com.connexta.arbitro.finder.impl.SelectorModule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Marshaller;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXSource;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesType;
@@ -31,7 +46,11 @@
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
 import org.apache.commons.io.FileUtils;
+import org.codice.ddf.parser.Parser;
+import org.codice.ddf.parser.ParserConfigurator;
 import org.codice.ddf.parser.xml.XmlParser;
+import org.codice.ddf.platform.util.XMLUtils;
+import org.codice.ddf.test.common.benchmark.Benchmark;
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -39,6 +58,10 @@
 import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
 
 public class XacmlClientTest {
   private static final Logger LOGGER = LoggerFactory.getLogger(XacmlClientTest.class);
@@ -81,6 +104,10 @@ public class XacmlClientTest {
 
   private static final String US_COUNTRY = "USA";
 
+  private static final String XACML30_NAMESPACE = "urn:oasis:names:tc:xacml:3.0:core:schema:wd-17";
+
+  private static final String BENCHMARK_DECISIONS_PROPERTY = "xacml.benchmark.decisions";
+
   private static String projectHome;
 
   @Rule public TemporaryFolder folder = new TemporaryFolder();
@@ -440,6 +467,35 @@ public void testIllegalStateException() throws Exception {
     pdp.evaluate(xacmlRequestType);
   }
 
+  /**
+   * Compares the decisions per second of {@link XacmlClient#evaluate(RequestType)} with the string
+   * round trip it replaced: marshalling the request to formatted XML, evaluating the string with
+   * the PDP, then adding namespaces to the response and unmarshalling it. Only runs when the
+   * {@value Benchmark#BENCHMARK_PROPERTY} system property is {@code true}; the number of decisions
+   * per round can be changed with {@value #BENCHMARK_DECISIONS_PROPERTY}.
+   */
+  @Test
+  public void benchmarkDecisionsPerSecond() throws Exception {
+    Benchmark.assumeEnabled();
+
+    testSetup();
+    Parser parser = new XmlParser();
+    XacmlClient client = new XacmlClient(tempDir.getCanonicalPath(), parser);
+    PDP stringPdp = createStringPdp(tempDir.getCanonicalPath());
+    RequestType request = createRequest(TEST_USER_1, US_COUNTRY);
+
+    assertEquals(DecisionType.PERMIT, client.evaluate(request).getResult().get(0).getDecision());
+    assertEquals(
+        DecisionType.PERMIT,
+        evaluateAsString(stringPdp, parser, request).getResult().get(0).getDecision());
+
+    Benchmark.named("XACML decisions")
+        .operations(Integer.getInteger(BENCHMARK_DECISIONS_PROPERTY, 10000))
+        .add("string round trip", () -> evaluateAsString(stringPdp, parser, request))
+        .add("evaluate(RequestType)", () -> client.evaluate(request))
+        .run();
+  }
+
   @After
   public void cleanup() throws IOException {
     if (tempDir != null && tempDir.exists()) {
@@ -464,6 +520,98 @@ private void testSetup() throws IOException {
     }
   }
 
+  private RequestType createRequest(String user, String country) {
+    RequestType xacmlRequestType = new RequestType();
+    xacmlRequestType.setCombinedDecision(false);
+    xacmlRequestType.setReturnPolicyIdList(false);
+
+    AttributesType actionAttributes = new AttributesType();
+    actionAttributes.setCategory(ACTION_CATEGORY);
+    actionAttributes.getAttribute().add(createAttribute(ACTION_ID, QUERY_ACTION));
+
+    AttributesType subjectAttributes = new AttributesType();
+    subjectAttributes.setCategory(SUBJECT_CATEGORY);
+    subjectAttributes.getAttribute().add(createAttribute(SUBJECT_ID, user));
+    subjectAttributes.getAttribute().add(createAttribute(ROLE_CLAIM, ROLE));
+
+    AttributesType categoryAttributes = new AttributesType();
+    categoryAttributes.setCategory(PERMISSIONS_CATEGORY);
+    categoryAttributes.getAttribute().add(createAttribute(CITIZENSHIP_ATTRIBUTE, country));
+
+    xacmlRequestType.getAttributes().add(actionAttributes);
+    xacmlRequestType.getAttributes().add(subjectAttributes);
+    xacmlRequestType.getAttributes().add(categoryAttributes);
+    return xacmlRequestType;
+  }
+
+  private AttributeType createAttribute(String id, String value) {
+    AttributeType attribute = new AttributeType();
+    attribute.setAttributeId(id);
+    attribute.setIncludeInResult(false);
+    AttributeValueType attributeValue = new AttributeValueType();
+    attributeValue.setDataType(STRING_DATA_TYPE);
+    attributeValue.getContent().add(value);
+    attribute.getAttributeValue().add(attributeValue);
+    return attribute;
+  }
+
+  /** Creates a PDP configured the same way as the one created by {@link XacmlClient}. */
+  private PDP createStringPdp(String policyDirectory) {
+    AttributeFinder attributeFinder = new AttributeFinder();
+    attributeFinder.setModules(ImmutableList.of(new SelectorModule(), new CurrentEnvModule()));
+
+    PollingPolicyFinderModule policyFinderModule =
+        new PollingPolicyFinderModule(ImmutableSet.of(policyDirectory), 60);
+    policyFinderModule.start();
+    PolicyFinder policyFinder = new PolicyFinder();
+    policyFinder.setModules(ImmutableSet.of(policyFinderModule));
+
+    return new PDP(new PDPConfig(attributeFinder, policyFinder, null, false));
+  }
+
+  /** Evaluates the request the way {@link XacmlClient} did before it stopped using strings. */
+  @SuppressWarnings("unchecked")
+  private ResponseType evaluateAsString(PDP pdp, Parser parser, RequestType request)
+      throws Exception {
+    List<String> ctxPath = ImmutableList.of(ResponseType.class.getPackage().getName());
+
+    ParserConfigurator requestConfigurator =
+        parser.configureParser(ctxPath, XacmlClient.class.getClassLoader());
+    requestConfigurator.addProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    parser.marshal(requestConfigurator, new ObjectFactory().createRequest(request), os);
+
+    String xacmlResponse = pdp.evaluate(os.toString(StandardCharsets.UTF_8.name()));
+
+    XMLFilterImpl namespaceFilter =
+        new XMLFilterImpl(XMLUtils.getInstance().getSecureXmlParser()) {
+          @Override
+          public void startElement(
+              String uri, String localName, String qName, Attributes attributes)
+              throws SAXException {
+            super.startElement(XACML30_NAMESPACE, localName, "xacml:" + qName, attributes);
+          }
+
+          @Override
+          public void endElement(String uri, String localName, String qName) throws SAXException {
+            super.endElement(XACML30_NAMESPACE, localName, "xacml:" + qName);
+          }
+        };
+    DOMResult domResult = new DOMResult();
+    XMLUtils.getInstance()
+        .getSecureXmlTransformerFactory()
+        .newTransformer()
+        .transform(
+            new SAXSource(namespaceFilter, new InputSource(new StringReader(xacmlResponse))),
+            domResult);
+
+    ParserConfigurator responseConfigurator =
+        parser.configureParser(ctxPath, XacmlClient.class.getClassLoader());
+    JAXBElement<ResponseType> response =
+        parser.unmarshal(responseConfigurator, JAXBElement.class, domResult.getNode());
+    return response.getValue();
+  }
+
   private boolean isDirEmpty(File dir) {
     return ((null != dir)
         && (dir.isDirectory())
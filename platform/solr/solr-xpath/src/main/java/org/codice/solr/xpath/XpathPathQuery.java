@@ -0,0 +1,347 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.solr.xpath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Rewrites an XPath expression into a query on the {@value #LUX_PATH_FIELD_NAME} terms of documents
+ * that can possibly match it.
+ *
+ * <p>The terms are added in the update chain along with {@code lux_xml}, ignoring namespaces: the
+ * {@value #DOCUMENT_TERM} term for every indexed document, {@code name} for every element name,
+ * {@code @name} for every attribute name and {@code parent/name} or {@code parent/@name} for every
+ * element or attribute found directly below an element.
+ *
+ * <p>The rewrite is conservative: only the names in the steps of location paths, and in the
+ * operands of {@code and}, {@code or}, {@code |} and general comparisons of those paths, are
+ * required. Predicates are ignored, and anything that is not understood matches every document.
+ * Documents indexed without path terms always match.
+ */
+final class XpathPathQuery {
+
+  public static final String LUX_PATH_FIELD_NAME = "lux_path";
+
+  public static final String DOCUMENT_TERM = "/";
+
+  private static final List<String> KIND_TESTS =
+      Arrays.asList(
+          "node",
+          "text",
+          "comment",
+          "processing-instruction",
+          "element",
+          "attribute",
+          "document-node",
+          "schema-element",
+          "schema-attribute");
+
+  private static final List<String> COMPARISONS = Arrays.asList("!=", "<=", ">=", "=", "<", ">");
+
+  private XpathPathQuery() {}
+
+  /**
+   * @param xpath XPath expression
+   * @return query matching every document the expression can select or be true for
+   */
+  static Query create(String xpath) {
+    Query required = parseExpression(stripLiterals(xpath));
+    if (required == null) {
+      return new MatchAllDocsQuery();
+    }
+
+    Query unindexed =
+        new BooleanQuery.Builder()
+            .add(new MatchAllDocsQuery(), Occur.MUST)
+            .add(termQuery(DOCUMENT_TERM), Occur.MUST_NOT)
+            .build();
+    return new BooleanQuery.Builder()
+        .add(required, Occur.SHOULD)
+        .add(unindexed, Occur.SHOULD)
+        .build();
+  }
+
+  /** @return the required terms, or {@code null} if any document can match */
+  private static Query parseExpression(String expression) {
+    String unwrapped = unwrap(expression.trim());
+
+    List<String> alternatives = splitTopLevel(unwrapped, Arrays.asList(" or ", "|"));
+    if (alternatives.size() > 1) {
+      BooleanQuery.Builder builder = new BooleanQuery.Builder();
+      for (String alternative : alternatives) {
+        Query query = parseExpression(alternative);
+        if (query == null) {
+          return null;
+        }
+        builder.add(query, Occur.SHOULD);
+      }
+      return builder.build();
+    }
+
+    List<String> conjuncts = splitTopLevel(unwrapped, Arrays.asList(" and "));
+    if (conjuncts.size() == 1) {
+      // a general comparison is false when either operand is empty
+      conjuncts = splitTopLevel(unwrapped, COMPARISONS);
+    }
+    if (conjuncts.size() > 1) {
+      BooleanQuery.Builder builder = new BooleanQuery.Builder();
+      boolean constrained = false;
+      for (String conjunct : conjuncts) {
+        Query query = parseExpression(conjunct);
+        if (query != null) {
+          builder.add(query, Occur.MUST);
+          constrained = true;
+        }
+      }
+      return constrained ? builder.build() : null;
+    }
+
+    return parsePath(unwrapped);
+  }
+
+  /** @return the terms required by a location path, or {@code null} if it is not one */
+  private static Query parsePath(String path) {
+    Set<String> terms = new LinkedHashSet<>();
+    int position = 0;
+    boolean childSeparator = path.startsWith("/") && !path.startsWith("//");
+    if (path.startsWith("//")) {
+      position = 2;
+    } else if (path.startsWith("/")) {
+      position = 1;
+    }
+    if (position == path.length()) {
+      return null;
+    }
+
+    String previousElement = null;
+    while (position < path.length()) {
+      position = skipWhitespace(path, position);
+
+      String axis = "child";
+      if (path.startsWith("@", position)) {
+        axis = "attribute";
+        position++;
+      } else if (path.startsWith("..", position)) {
+        axis = "parent";
+      } else {
+        int axisEnd = path.indexOf("::", position);
+        if (axisEnd > 0 && isName(path.substring(position, axisEnd))) {
+          axis = path.substring(position, axisEnd);
+          position = axisEnd + 2;
+        }
+      }
+
+      int nameEnd = nameEnd(path, position);
+      String name = path.substring(position, nameEnd);
+      position = skipWhitespace(path, nameEnd);
+      boolean context = ".".equals(name) || "..".equals(name);
+      if (name.isEmpty() || (!context && !isNameStart(name.charAt(0)))) {
+        return null;
+      }
+
+      String term = null;
+      if (position < path.length() && path.charAt(position) == '(') {
+        if (!KIND_TESTS.contains(name)) {
+          // a function call rather than a step
+          return null;
+        }
+        position = skipGroup(path, position, '(', ')');
+        if (position < 0) {
+          return null;
+        }
+      } else if (!context) {
+        String localName = name.substring(name.indexOf(':') + 1);
+        if (!"*".equals(localName) && !"namespace".equals(axis)) {
+          term = "attribute".equals(axis) ? "@" + localName : localName;
+          terms.add(term);
+          if (childSeparator && previousElement != null && isChildAxis(axis)) {
+            terms.add(previousElement + "/" + term);
+          }
+        }
+      }
+
+      position = skipWhitespace(path, position);
+      while (position < path.length() && path.charAt(position) == '[') {
+        position = skipGroup(path, position, '[', ']');
+        if (position < 0) {
+          return null;
+        }
+        position = skipWhitespace(path, position);
+      }
+
+      previousElement = "attribute".equals(axis) || "namespace".equals(axis) ? null : term;
+      if (position == path.length()) {
+        break;
+      } else if (path.startsWith("//", position)) {
+        childSeparator = false;
+        position += 2;
+      } else if (path.startsWith("/", position)) {
+        childSeparator = true;
+        position += 1;
+      } else {
+        return null;
+      }
+      if (position == path.length()) {
+        return null;
+      }
+    }
+
+    return toQuery(terms);
+  }
+
+  private static boolean isChildAxis(String axis) {
+    return "child".equals(axis) || "attribute".equals(axis);
+  }
+
+  private static Query toQuery(Set<String> terms) {
+    if (terms.isEmpty()) {
+      return null;
+    } else if (terms.size() == 1) {
+      return termQuery(terms.iterator().next());
+    }
+
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (String term : terms) {
+      builder.add(termQuery(term), Occur.MUST);
+    }
+    return builder.build();
+  }
+
+  private static Query termQuery(String term) {
+    return new TermQuery(new Term(LUX_PATH_FIELD_NAME, term));
+  }
+
+  /** Empties string literals so that their content is not mistaken for syntax. */
+  private static String stripLiterals(String xpath) {
+    StringBuilder stripped = new StringBuilder(xpath.length());
+    int position = 0;
+    while (position < xpath.length()) {
+      char c = xpath.charAt(position);
+      stripped.append(c);
+      if (c == '\'' || c == '"') {
+        int end = xpath.indexOf(c, position + 1);
+        if (end < 0) {
+          break;
+        }
+        stripped.append(c);
+        position = end;
+      }
+      position++;
+    }
+    return stripped.toString();
+  }
+
+  /** Removes parentheses enclosing the whole expression. */
+  private static String unwrap(String expression) {
+    String unwrapped = expression;
+    while (unwrapped.startsWith("(") && skipGroup(unwrapped, 0, '(', ')') == unwrapped.length()) {
+      unwrapped = unwrapped.substring(1, unwrapped.length() - 1).trim();
+    }
+    return unwrapped;
+  }
+
+  /** Splits on any of the operators that are outside of parentheses and predicates. */
+  private static List<String> splitTopLevel(String expression, List<String> operators) {
+    List<String> parts = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    int position = 0;
+    while (position < expression.length()) {
+      char c = expression.charAt(position);
+      if (c == '(' || c == '[') {
+        depth++;
+      } else if (c == ')' || c == ']') {
+        depth--;
+      } else if (depth == 0) {
+        String operator = operatorAt(expression, position, operators);
+        if (operator != null) {
+          parts.add(expression.substring(start, position));
+          position += operator.length();
+          start = position;
+          continue;
+        }
+      }
+      position++;
+    }
+    parts.add(expression.substring(start));
+    return parts;
+  }
+
+  private static String operatorAt(String expression, int position, List<String> operators) {
+    for (String operator : operators) {
+      if (expression.startsWith(operator, position)) {
+        return operator;
+      }
+    }
+    return null;
+  }
+
+  /** @return the position after the group opened at {@code position}, or -1 if it is not closed */
+  private static int skipGroup(String expression, int position, char open, char close) {
+    int depth = 0;
+    for (int i = position; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == open) {
+        depth++;
+      } else if (c == close && --depth == 0) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  private static int skipWhitespace(String expression, int position) {
+    int i = position;
+    while (i < expression.length() && Character.isWhitespace(expression.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int nameEnd(String expression, int position) {
+    int i = position;
+    while (i < expression.length() && isNameChar(expression.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isName(String value) {
+    return !value.isEmpty() && nameEnd(value, 0) == value.length();
+  }
+
+  private static boolean isNameStart(char c) {
+    return Character.isLetter(c) || c == '_' || c == '*';
+  }
+
+  private static boolean isNameChar(char c) {
+    return Character.isLetterOrDigit(c)
+        || c == '_'
+        || c == '-'
+        || c == '.'
+        || c == ':'
+        || c == '*'
+        || c == '$';
+  }
+}
@@ -51,6 +51,6 @@ protected Query getFieldQuery(String field, String queryText, int slop) throws S
    * @return Lucene query to pre-filter using xpath index
    */
   private Query getLuceneQuery(final String queryText) {
-    return null; // TODO DDF-1882 add lucene xpath pre-filtering
+    return XpathPathQuery.create(queryText);
   }
 }
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.solr.xpath;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Test;
+
+public class XpathPathQueryTest {
+
+  @Test
+  public void testChildAndDescendantSteps() {
+    assertRequires("/metadata/title", allOf("metadata", "title", "metadata/title"));
+    assertRequires("//title", allOf("title"));
+    assertRequires("//metadata//title", allOf("metadata", "title"));
+    assertRequires(
+        "/metadata//content/title", allOf("metadata", "content", "title", "content/title"));
+    assertMatchesAll("/");
+    assertMatchesAll("//*");
+  }
+
+  @Test
+  public void testParentSelfAndAncestorAxes() {
+    assertRequires("/metadata/title/..", allOf("metadata", "title", "metadata/title"));
+    assertRequires("/metadata/../title", allOf("metadata", "title"));
+    assertRequires("/metadata/self::title", allOf("metadata", "title"));
+    assertRequires(
+        "/record/title/ancestor::metadata", allOf("record", "title", "record/title", "metadata"));
+    assertRequires("/metadata/self::node()", allOf("metadata"));
+    assertMatchesAll("..");
+    assertMatchesAll("self::node()");
+  }
+
+  @Test
+  public void testAttributeAxes() {
+    assertRequires(
+        "/metadata/title/@lang",
+        allOf("metadata", "title", "metadata/title", "@lang", "title/@lang"));
+    assertRequires("/metadata/attribute::lang", allOf("metadata", "@lang", "metadata/@lang"));
+    assertRequires("//@lang", allOf("@lang"));
+    assertMatchesAll("//@*");
+  }
+
+  @Test
+  public void testPredicatesAreIgnored() {
+    assertRequires(
+        "/metadata/title[@lang = 'en']/text()", allOf("metadata", "title", "metadata/title"));
+    assertRequires(
+        "/metadata[title = 'x'][2]/subject", allOf("metadata", "subject", "metadata/subject"));
+    assertRequires("//title[contains(., 'a] or b')]", allOf("title"));
+    assertMatchesAll("//title[");
+    assertMatchesAll("//*[title]");
+  }
+
+  @Test
+  public void testUnions() {
+    assertRequires("//title | //subject", anyOf(allOf("title"), allOf("subject")));
+    assertRequires(
+        "(//title | /metadata/subject)",
+        anyOf(allOf("title"), allOf("metadata", "subject", "metadata/subject")));
+    assertMatchesAll("//title | count(//subject)");
+    assertMatchesAll("//title | //*");
+  }
+
+  @Test
+  public void testAndOr() {
+    assertRequires("//title and //subject", allOf(allOf("title"), allOf("subject")));
+    assertRequires("//title or //subject", anyOf(allOf("title"), allOf("subject")));
+    assertRequires(
+        "(//title or //subject) and //date",
+        allOf(anyOf(allOf("title"), allOf("subject")), allOf("date")));
+    assertRequires("//title and true()", allOf(allOf("title")));
+    assertMatchesAll("//title or true()");
+    assertMatchesAll("true() and not(false())");
+  }
+
+  @Test
+  public void testComparisonsWithLiteralsAndFunctionCalls() {
+    assertRequires("//title = 'x'", allOf(allOf("title")));
+    assertRequires("//title != \"a or b | c and d\"", allOf(allOf("title")));
+    assertRequires("//title = string(//subject)", allOf(allOf("title")));
+    assertRequires("//title >= //date", allOf(allOf("title"), allOf("date")));
+    assertRequires("3 < //size", allOf(allOf("size")));
+    assertMatchesAll("count(//title) > 1");
+    assertMatchesAll("'title' = 'title'");
+  }
+
+  @Test
+  public void testNamespacePrefixesAreIgnored() {
+    assertRequires("/ns:metadata/ns:title", allOf("metadata", "title", "metadata/title"));
+    assertRequires("//*:title", allOf("title"));
+    assertRequires("/ns:metadata/@xml:lang", allOf("metadata", "@lang", "metadata/@lang"));
+    assertRequires("/ns:metadata/*/ns:title", allOf("metadata", "title"));
+    assertMatchesAll("//ns:*");
+  }
+
+  private static void assertRequires(String xpath, Query required) {
+    Query unindexed =
+        new BooleanQuery.Builder()
+            .add(new MatchAllDocsQuery(), Occur.MUST)
+            .add(term(XpathPathQuery.DOCUMENT_TERM), Occur.MUST_NOT)
+            .build();
+    Query expected =
+        new BooleanQuery.Builder().add(required, Occur.SHOULD).add(unindexed, Occur.SHOULD).build();
+    assertThat(xpath, XpathPathQuery.create(xpath), is(expected));
+  }
+
+  private static void assertMatchesAll(String xpath) {
+    assertThat(xpath, XpathPathQuery.create(xpath), is(new MatchAllDocsQuery()));
+  }
+
+  private static Query allOf(String... terms) {
+    if (terms.length == 1) {
+      return term(terms[0]);
+    }
+
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (String term : terms) {
+      builder.add(term(term), Occur.MUST);
+    }
+    return builder.build();
+  }
+
+  private static Query allOf(Query... queries) {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (Query query : queries) {
+      builder.add(query, Occur.MUST);
+    }
+    return builder.build();
+  }
+
+  private static Query anyOf(Query... queries) {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (Query query : queries) {
+      builder.add(query, Occur.SHOULD);
+    }
+    return builder.build();
+  }
+
+  private static Query term(String term) {
+    return new TermQuery(new Term(XpathPathQuery.LUX_PATH_FIELD_NAME, term));
+  }
+}